@@ -499,6 +499,12 @@ public class CommonConfigurationKeysPublic {
     "ipc.server.purge.interval";
   public static final int IPC_SERVER_PURGE_INTERVAL_MINUTES_DEFAULT = 15;
 
+  /** Allows calls to run as a proxy user of their connection user. */
+  public static final String IPC_SERVER_CALL_PROXY_USER_ENABLED_KEY =
+      "ipc.server.call.proxy-user.enabled";
+  public static final boolean IPC_SERVER_CALL_PROXY_USER_ENABLED_DEFAULT =
+      false;
+
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
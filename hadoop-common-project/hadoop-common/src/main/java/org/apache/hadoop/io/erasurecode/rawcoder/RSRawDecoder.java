@@ -80,7 +80,7 @@ public class RSRawDecoder extends RawErasureDecoder {
     for (int i = 0; i < getNumDataUnits(); i++) {
       realInputs[i] = decodingState.inputs[validIndexes[i]];
     }
-    RSUtil.encodeData(gfTables, realInputs, decodingState.outputs);
+    encodeData(gfTables, realInputs, decodingState.outputs);
   }
 
   @Override
@@ -96,10 +96,39 @@ public class RSRawDecoder extends RawErasureDecoder {
       realInputs[i] = decodingState.inputs[validIndexes[i]];
       realInputOffsets[i] = decodingState.inputOffsets[validIndexes[i]];
     }
-    RSUtil.encodeData(gfTables, dataLen, realInputs, realInputOffsets,
+    encodeData(gfTables, dataLen, realInputs, realInputOffsets,
         decodingState.outputs, decodingState.outputOffsets);
   }
 
+  /**
+   * Perform the GF(256) multiply-accumulate of the inputs into the outputs.
+   * Subclasses may override this to walk the data differently.
+   *
+   * @param tables the 32 bytes tables of the coding coefficients
+   * @param inputs input buffers
+   * @param outputs output buffers, already zeroed
+   */
+  protected void encodeData(byte[] tables, ByteBuffer[] inputs,
+      ByteBuffer[] outputs) {
+    RSUtil.encodeData(tables, inputs, outputs);
+  }
+
+  /**
+   * See above.
+   *
+   * @param tables the 32 bytes tables of the coding coefficients
+   * @param dataLen length of the data to code
+   * @param inputs input arrays
+   * @param inputOffsets offsets of the data in the input arrays
+   * @param outputs output arrays, already zeroed
+   * @param outputOffsets offsets of the data in the output arrays
+   */
+  protected void encodeData(byte[] tables, int dataLen, byte[][] inputs,
+      int[] inputOffsets, byte[][] outputs, int[] outputOffsets) {
+    RSUtil.encodeData(tables, dataLen, inputs, inputOffsets, outputs,
+        outputOffsets);
+  }
+
   private <T> void prepareDecoding(T[] inputs, int[] erasedIndexes) {
     int[] tmpValidIndexes = CoderUtil.getValidIndexes(inputs);
     if (Arrays.equals(this.cachedErasedIndexes, erasedIndexes) &&
@@ -20,6 +20,7 @@ package org.apache.hadoop.io.erasurecode.rawcoder.util;
 import org.apache.hadoop.classification.InterfaceAudience;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Utilities for implementing Reed-Solomon code, used by RS coder. Some of the
@@ -35,6 +36,12 @@ public final class RSUtil {
   public static GaloisField GF = GaloisField.getInstance();
   public static final int PRIMITIVE_ROOT = 2;
 
+  /**
+   * Bytes of every input and output processed at a time by the tiled
+   * encodeData, small enough for the tiles of a RS(6, 3) group to fit in L1.
+   */
+  private static final int TILE_SIZE = 4096;
+
   public static int[] getPrimitivePower(int numDataUnits, int numParityUnits) {
     int[] primitivePower = new int[numDataUnits + numParityUnits];
     // compute powers of the primitive root
@@ -199,4 +206,100 @@ public final class RSUtil {
     }
   }
 
+  /**
+   * Same as {@link #encodeData(byte[], int, byte[][], int[], byte[][], int[])}
+   * but walks the data in tiles of a few KB, so that every
+   * output tile stays in the L1 cache while all the inputs are accumulated
+   * into it, instead of streaming each whole output once per input.
+   *
+   * @param gfTables gfTables.
+   * @param dataLen dataLen.
+   * @param inputs inputs.
+   * @param inputOffsets inputOffsets.
+   * @param outputs outputs.
+   * @param outputOffsets outputOffsets.
+   */
+  public static void encodeDataTiled(byte[] gfTables, int dataLen,
+      byte[][] inputs, int[] inputOffsets, byte[][] outputs,
+      int[] outputOffsets) {
+    byte[][] tableLines = getTableLines(gfTables, inputs.length,
+        outputs.length);
+    for (int tile = 0; tile < dataLen; tile += TILE_SIZE) {
+      encodeTile(tableLines, Math.min(TILE_SIZE, dataLen - tile), inputs,
+          inputOffsets, tile, outputs, outputOffsets, tile);
+    }
+  }
+
+  /**
+   * See above. The ByteBuffer version of
+   * {@link #encodeData(byte[], ByteBuffer[], ByteBuffer[])} accesses direct
+   * buffers byte by byte; here each tile is bulk copied to and from on-heap
+   * scratch arrays instead, which is several times faster.
+   *
+   * @param gfTables gfTables.
+   * @param inputs inputs.
+   * @param outputs outputs.
+   */
+  public static void encodeDataTiled(byte[] gfTables, ByteBuffer[] inputs,
+      ByteBuffer[] outputs) {
+    int numInputs = inputs.length;
+    int numOutputs = outputs.length;
+    int dataLen = inputs[0].remaining();
+    byte[][] tableLines = getTableLines(gfTables, numInputs, numOutputs);
+
+    ByteBuffer[] inputDups = new ByteBuffer[numInputs];
+    byte[][] inputTiles = new byte[numInputs][TILE_SIZE];
+    for (int j = 0; j < numInputs; j++) {
+      inputDups[j] = inputs[j].duplicate();
+    }
+    ByteBuffer[] outputDups = new ByteBuffer[numOutputs];
+    byte[][] outputTiles = new byte[numOutputs][TILE_SIZE];
+    for (int l = 0; l < numOutputs; l++) {
+      outputDups[l] = outputs[l].duplicate();
+    }
+    int[] tileOffsets = new int[Math.max(numInputs, numOutputs)];
+
+    for (int tile = 0; tile < dataLen; tile += TILE_SIZE) {
+      int len = Math.min(TILE_SIZE, dataLen - tile);
+      for (int j = 0; j < numInputs; j++) {
+        inputDups[j].get(inputTiles[j], 0, len);
+      }
+      for (int l = 0; l < numOutputs; l++) {
+        Arrays.fill(outputTiles[l], 0, len, (byte) 0);
+      }
+      encodeTile(tableLines, len, inputTiles, tileOffsets, 0, outputTiles,
+          tileOffsets, 0);
+      for (int l = 0; l < numOutputs; l++) {
+        outputDups[l].put(outputTiles[l], 0, len);
+      }
+    }
+  }
+
+  private static byte[][] getTableLines(byte[] gfTables, int numInputs,
+      int numOutputs) {
+    byte[][] tableLines = new byte[numOutputs * numInputs][];
+    for (int i = 0; i < tableLines.length; i++) {
+      // The coefficient is kept at index 1 of its 32 bytes table.
+      tableLines[i] = GF256.gfMulTab()[gfTables[i * 32 + 1] & 0xff];
+    }
+    return tableLines;
+  }
+
+  private static void encodeTile(byte[][] tableLines, int len,
+      byte[][] inputs, int[] inputOffsets, int inputPos, byte[][] outputs,
+      int[] outputOffsets, int outputPos) {
+    int numInputs = inputs.length;
+    for (int l = 0; l < outputs.length; l++) {
+      byte[] output = outputs[l];
+      int oPos = outputOffsets[l] + outputPos;
+      for (int j = 0; j < numInputs; j++) {
+        byte[] input = inputs[j];
+        byte[] tableLine = tableLines[l * numInputs + j];
+        int iPos = inputOffsets[j] + inputPos;
+        for (int i = 0; i < len; i++) {
+          output[oPos + i] ^= tableLine[0xff & input[iPos + i]];
+        }
+      }
+    }
+  }
 }
@@ -96,6 +96,8 @@ public class Client implements AutoCloseable {
   private static final ThreadLocal<Integer> retryCount = new ThreadLocal<Integer>();
   private static final ThreadLocal<Object> EXTERNAL_CALL_HANDLER
       = new ThreadLocal<>();
+  private static final ThreadLocal<String> CALL_PROXY_USER =
+      new ThreadLocal<>();
   private static final ThreadLocal<AsyncGet<? extends Writable, IOException>>
       ASYNC_RPC_RESPONSE = new ThreadLocal<>();
   private static final ThreadLocal<Boolean> asynchronousMode =
@@ -134,6 +136,30 @@ public class Client implements AutoCloseable {
     EXTERNAL_CALL_HANDLER.set(externalHandler);
   }
 
+  /**
+   * Set the user the next calls of this thread run as on the server, instead
+   * of the user of their connection. The user of the connection must be
+   * allowed to impersonate it, and the server must allow it with
+   * {@link CommonConfigurationKeysPublic#IPC_SERVER_CALL_PROXY_USER_ENABLED_KEY}.
+   * This lets connections authenticated as a proxy be shared by all the users
+   * it serves.
+   *
+   * @param user the name of the user, null to run as the connection user.
+   */
+  @Unstable
+  public static void setCallProxyUser(String user) {
+    CALL_PROXY_USER.set(user);
+  }
+
+  /**
+   * @return the user the next calls of this thread run as on the server, null
+   * if they run as the user of their connection.
+   */
+  @Unstable
+  public static String getCallProxyUser() {
+    return CALL_PROXY_USER.get();
+  }
+
   public static int getCallId() {
     return callId.get() != null ? callId.get() : nextCallId();
   }
@@ -282,6 +308,7 @@ public class Client implements AutoCloseable {
     final RPC.RpcKind rpcKind;      // Rpc EngineKind
     boolean done;               // true when call is done
     private final Object externalHandler;
+    private final String proxyUser;
     private AlignmentContext alignmentContext;
 
     private Call(RPC.RpcKind rpcKind, Writable param) {
@@ -304,6 +331,7 @@ public class Client implements AutoCloseable {
       }
 
       this.externalHandler = EXTERNAL_CALL_HANDLER.get();
+      this.proxyUser = CALL_PROXY_USER.get();
     }
 
     @Override
@@ -1177,7 +1205,7 @@ public class Client implements AutoCloseable {
       // Items '1' and '2' are prepared here. 
       RpcRequestHeaderProto header = ProtoUtil.makeRpcRequestHeader(
           call.rpcKind, OperationProto.RPC_FINAL_PACKET, call.id, call.retry,
-          clientId, call.alignmentContext);
+          clientId, call.alignmentContext, call.proxyUser);
 
       final ResponseBuffer buf = new ResponseBuffer();
       header.writeDelimitedTo(buf);
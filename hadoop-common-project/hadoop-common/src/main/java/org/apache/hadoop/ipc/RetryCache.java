@@ -41,6 +41,11 @@ import org.slf4j.LoggerFactory;
  * {@link RetryCache} and the previous response is sent back to the request.
  * <p>
  * To look an implementation using this cache, see HDFS FSNamesystem class.
+ * <p>
+ * The cache can be split into shards, each with its own lock and its own
+ * expiry queue, so that concurrent requests from different clients do not
+ * contend on a single lock. An entry is always placed in the shard chosen by
+ * the hash of its client ID and call ID.
  */
 @InterfaceAudience.Private
 public class RetryCache {
@@ -181,12 +186,23 @@ public class RetryCache {
     }
   }
 
-  private final LightWeightGSet<CacheEntry, CacheEntry> set;
+  /**
+   * A part of the cache guarded by its own lock.
+   */
+  private static final class Shard {
+    private final LightWeightGSet<CacheEntry, CacheEntry> set;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Shard(int capacity, long expirationTime) {
+      this.set = new LightWeightCache<CacheEntry, CacheEntry>(capacity,
+          capacity, expirationTime, 0);
+    }
+  }
+
+  private final Shard[] shards;
   private final long expirationTime;
   private final String cacheName;
 
-  private final ReentrantLock lock = new ReentrantLock();
-
   /**
    * Constructor
    * @param cacheName name to identify the cache by
@@ -194,10 +210,26 @@ public class RetryCache {
    * @param expirationTime time for an entry to expire in nanoseconds
    */
   public RetryCache(String cacheName, double percentage, long expirationTime) {
+    this(cacheName, percentage, expirationTime, 1);
+  }
+
+  /**
+   * Constructor
+   * @param cacheName name to identify the cache by
+   * @param percentage percentage of total java heap space used by this cache
+   * @param expirationTime time for an entry to expire in nanoseconds
+   * @param numShards number of independently locked shards
+   */
+  public RetryCache(String cacheName, double percentage, long expirationTime,
+      int numShards) {
+    Preconditions.checkArgument(numShards > 0,
+        "Invalid number of shards %s", numShards);
     int capacity = LightWeightGSet.computeCapacity(percentage, cacheName);
-    capacity = Math.max(capacity, MAX_CAPACITY);
-    this.set = new LightWeightCache<CacheEntry, CacheEntry>(capacity, capacity,
-        expirationTime, 0);
+    capacity = Math.max(capacity / numShards, MAX_CAPACITY);
+    this.shards = new Shard[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new Shard(capacity, expirationTime);
+    }
     this.expirationTime = expirationTime;
     this.cacheName = cacheName;
     this.retryCacheMetrics =  RetryCacheMetrics.create(this);
@@ -210,21 +242,86 @@ public class RetryCache {
         || Arrays.equals(clientId, RpcConstants.DUMMY_CLIENT_ID);
   }
 
+  /**
+   * Lock all the shards of the cache.
+   */
   public void lock() {
-    this.lock.lock();
+    for (Shard shard : shards) {
+      shard.lock.lock();
+    }
   }
 
   public void unlock() {
-    this.lock.unlock();
+    for (int i = shards.length - 1; i >= 0; i--) {
+      shards[i].lock.unlock();
+    }
+  }
+
+  private Shard getShard(CacheEntry entry) {
+    if (shards.length == 1) {
+      return shards[0];
+    }
+    // Spread the hash so the shard does not depend on the same low bits
+    // LightWeightGSet uses to pick a bucket inside the shard.
+    int h = entry.hashCode() * 0x9E3779B9;
+    return shards[(h >>> 16) % shards.length];
+  }
+
+  private void lockShard(Shard shard) {
+    if (!shard.lock.tryLock()) {
+      long start = System.nanoTime();
+      shard.lock.lock();
+      retryCacheMetrics.incrCacheLockWait(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Add an entry to the shard, counting the entries the shard evicted to
+   * make room or because they expired. The shard lock must be held.
+   */
+  private void put(Shard shard, CacheEntry entry) {
+    int sizeBefore = shard.set.size();
+    CacheEntry existing = shard.set.put(entry);
+    int evicted = sizeBefore + (existing == null ? 1 : 0) - shard.set.size();
+    if (evicted > 0) {
+      retryCacheMetrics.incrCacheEvicted(evicted);
+    }
   }
 
   private void incrCacheClearedCounter() {
     retryCacheMetrics.incrCacheCleared();
   }
 
+  /**
+   * @return the entries of a cache with a single shard.
+   */
   @VisibleForTesting
   public LightWeightGSet<CacheEntry, CacheEntry> getCacheSet() {
-    return set;
+    Preconditions.checkState(shards.length == 1,
+        "Cache %s has %s shards", cacheName, shards.length);
+    return shards[0].set;
+  }
+
+  @VisibleForTesting
+  public int getNumShards() {
+    return shards.length;
+  }
+
+  /**
+   * @return the number of entries in all the shards.
+   */
+  @VisibleForTesting
+  public int size() {
+    int size = 0;
+    for (Shard shard : shards) {
+      shard.lock.lock();
+      try {
+        size += shard.set.size();
+      } finally {
+        shard.lock.unlock();
+      }
+    }
+    return size;
   }
 
   @VisibleForTesting
@@ -258,9 +355,10 @@ public class RetryCache {
    */
   private CacheEntry waitForCompletion(CacheEntry newEntry) {
     CacheEntry mapEntry = null;
-    lock.lock();
+    Shard shard = getShard(newEntry);
+    lockShard(shard);
     try {
-      mapEntry = set.get(newEntry);
+      mapEntry = shard.set.get(newEntry);
       // If an entry in the cache does not exist, add a new one
       if (mapEntry == null) {
         if (LOG.isTraceEnabled()) {
@@ -268,14 +366,15 @@ public class RetryCache {
               + newEntry.clientIdMsb + newEntry.clientIdLsb + " callId "
               + newEntry.callId + " to retryCache");
         }
-        set.put(newEntry);
+        put(shard, newEntry);
+        retryCacheMetrics.incrCacheMiss();
         retryCacheMetrics.incrCacheUpdated();
         return newEntry;
       } else {
         retryCacheMetrics.incrCacheHit();
       }
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
     // Entry already exists in cache. Wait for completion and return its state
     Preconditions.checkNotNull(mapEntry,
@@ -309,11 +408,12 @@ public class RetryCache {
   public void addCacheEntry(byte[] clientId, int callId) {
     CacheEntry newEntry = new CacheEntry(clientId, callId, System.nanoTime()
         + expirationTime, true);
-    lock.lock();
+    Shard shard = getShard(newEntry);
+    lockShard(shard);
     try {
-      set.put(newEntry);
+      put(shard, newEntry);
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
     retryCacheMetrics.incrCacheUpdated();
   }
@@ -323,11 +423,12 @@ public class RetryCache {
     // since the entry is loaded from editlog, we can assume it succeeded.    
     CacheEntry newEntry = new CacheEntryWithPayload(clientId, callId, payload,
         System.nanoTime() + expirationTime, true);
-    lock.lock();
+    Shard shard = getShard(newEntry);
+    lockShard(shard);
     try {
-      set.put(newEntry);
+      put(shard, newEntry);
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
     retryCacheMetrics.incrCacheUpdated();
   }
@@ -397,7 +498,9 @@ public class RetryCache {
 
   public static void clear(RetryCache cache) {
     if (cache != null) {
-      cache.set.clear();
+      for (Shard shard : cache.shards) {
+        shard.set.clear();
+      }
       cache.incrCacheClearedCounter();
     }
   }
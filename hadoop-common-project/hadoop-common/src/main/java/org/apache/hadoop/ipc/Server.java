@@ -148,6 +148,7 @@ import org.slf4j.LoggerFactory;
 @InterfaceStability.Evolving
 public abstract class Server {
   private final boolean authorize;
+  private final boolean callProxyUserEnabled;
   private List<AuthMethod> enabledAuthMethods;
   private RpcSaslProto negotiateResponse;
   private ExceptionsHandler exceptionsHandler = new ExceptionsHandler();
@@ -1132,6 +1133,7 @@ public abstract class Server {
 
     private ResponseParams responseParams; // the response params
     private Writable rv;                   // the byte response
+    private UserGroupInformation callUser; // proxy user of this call only
 
     RpcCall(RpcCall call) {
       super(call);
@@ -1139,6 +1141,7 @@ public abstract class Server {
       this.rpcRequest = call.rpcRequest;
       this.rv = call.rv;
       this.responseParams = call.responseParams;
+      this.callUser = call.callUser;
     }
 
     RpcCall(Connection connection, int id) {
@@ -1175,9 +1178,13 @@ public abstract class Server {
       return "rpc";
     }
 
+    void setCallUser(UserGroupInformation user) {
+      this.callUser = user;
+    }
+
     @Override
     public UserGroupInformation getRemoteUser() {
-      return connection.user;
+      return callUser != null ? callUser : connection.user;
     }
 
     @Override
@@ -2855,6 +2862,9 @@ public abstract class Server {
           header.getRetryCount(), rpcRequest,
           ProtoUtil.convert(header.getRpcKind()),
           header.getClientId().toByteArray(), span, callerContext);
+      if (header.hasProxyUser()) {
+        call.setCallUser(authorizeCallProxyUser(header.getProxyUser()));
+      }
 
       // Save the priority level assignment by the scheduler
       call.setPriorityLevel(callQueue.getPriorityLevel(call));
@@ -2967,6 +2977,45 @@ public abstract class Server {
       }
     }
     
+    /**
+     * Authorize the user of the connection to run a call as a proxy user,
+     * like {@link #authorizeConnection()} does for a proxy user connection.
+     * A failure only fails the call, the connection is still usable.
+     * @param callUserName - name of the user the call runs as
+     * @return the user the call runs as
+     * @throws RpcServerException - user is not allowed to proxy
+     */
+    private UserGroupInformation authorizeCallProxyUser(String callUserName)
+        throws RpcServerException {
+      if (!callProxyUserEnabled) {
+        throw new RpcServerException("Calls as proxy users are disabled",
+            new AccessControlException("Calls as proxy users are disabled"));
+      }
+      // A connection user can only proxy if it would be allowed to open a
+      // proxy user connection
+      if (user == null || user.getRealUser() != null
+          || authMethod == AuthMethod.TOKEN) {
+        throw new RpcServerException("Not allowed to proxy",
+            new AccessControlException("User " + user + " with " + authMethod
+                + " authentication is not allowed to proxy calls"));
+      }
+      if (callUserName.equals(user.getUserName())) {
+        return user;
+      }
+      UserGroupInformation callUser =
+          UserGroupInformation.createProxyUser(callUserName, user);
+      try {
+        ProxyUsers.authorize(callUser, this.getHostAddress());
+        authorize(callUser, protocolName, getHostInetAddress());
+      } catch (AuthorizationException ae) {
+        LOG.info("Call from " + this + " for protocol " + protocolName
+            + " is unauthorized for user " + callUser);
+        rpcMetrics.incrAuthorizationFailures();
+        throw new RpcServerException("Unauthorized call proxy user", ae);
+      }
+      return callUser;
+    }
+
     /**
      * Decode the a protobuf from the given input stream 
      * @return Message - decoded protobuf
@@ -3277,6 +3326,9 @@ public abstract class Server {
     this.authorize = 
       conf.getBoolean(CommonConfigurationKeys.HADOOP_SECURITY_AUTHORIZATION, 
                       false);
+    this.callProxyUserEnabled = conf.getBoolean(
+        CommonConfigurationKeysPublic.IPC_SERVER_CALL_PROXY_USER_ENABLED_KEY,
+        CommonConfigurationKeysPublic.IPC_SERVER_CALL_PROXY_USER_ENABLED_DEFAULT);
 
     // configure supported authentications
     this.enabledAuthMethods = getAuthMethods(secretManager, conf);
@@ -57,6 +57,13 @@ public class RetryCacheMetrics {
   @Metric("Number of RetryCache hit") MutableCounterLong cacheHit;
   @Metric("Number of RetryCache cleared") MutableCounterLong cacheCleared;
   @Metric("Number of RetryCache updated") MutableCounterLong cacheUpdated;
+  @Metric("Number of RetryCache miss") MutableCounterLong cacheMiss;
+  @Metric("Number of RetryCache entries evicted")
+  MutableCounterLong cacheEvicted;
+  @Metric("Number of times a RetryCache shard lock was contended")
+  MutableCounterLong cacheLockWait;
+  @Metric("Total time in nanoseconds spent waiting for RetryCache shard locks")
+  MutableCounterLong cacheLockWaitNanos;
 
   /**
    * One cache hit event
@@ -79,6 +86,30 @@ public class RetryCacheMetrics {
     cacheUpdated.incr();
   }
 
+  /**
+   * One cache miss
+   */
+  public void incrCacheMiss() {
+    cacheMiss.incr();
+  }
+
+  /**
+   * Entries evicted because they expired or the cache is full
+   * @param count number of evicted entries
+   */
+  public void incrCacheEvicted(long count) {
+    cacheEvicted.incr(count);
+  }
+
+  /**
+   * One wait for a contended shard lock
+   * @param waitNanos time spent waiting in nanoseconds
+   */
+  public void incrCacheLockWait(long waitNanos) {
+    cacheLockWait.incr();
+    cacheLockWaitNanos.incr(waitNanos);
+  }
+
   public long getCacheHit() {
     return cacheHit.value();
   }
@@ -91,4 +122,20 @@ public class RetryCacheMetrics {
     return cacheUpdated.value();
   }
 
+  public long getCacheMiss() {
+    return cacheMiss.value();
+  }
+
+  public long getCacheEvicted() {
+    return cacheEvicted.value();
+  }
+
+  public long getCacheLockWait() {
+    return cacheLockWait.value();
+  }
+
+  public long getCacheLockWaitNanos() {
+    return cacheLockWaitNanos.value();
+  }
+
 }
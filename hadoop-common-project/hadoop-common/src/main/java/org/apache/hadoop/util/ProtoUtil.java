@@ -178,6 +178,14 @@ public abstract class ProtoUtil {
   public static RpcRequestHeaderProto makeRpcRequestHeader(RPC.RpcKind rpcKind,
       RpcRequestHeaderProto.OperationProto operation, int callId,
       int retryCount, byte[] uuid, AlignmentContext alignmentContext) {
+    return makeRpcRequestHeader(rpcKind, operation, callId, retryCount, uuid,
+        alignmentContext, null);
+  }
+
+  public static RpcRequestHeaderProto makeRpcRequestHeader(RPC.RpcKind rpcKind,
+      RpcRequestHeaderProto.OperationProto operation, int callId,
+      int retryCount, byte[] uuid, AlignmentContext alignmentContext,
+      String proxyUser) {
     RpcRequestHeaderProto.Builder result = RpcRequestHeaderProto.newBuilder();
     result.setRpcKind(convert(rpcKind)).setRpcOp(operation).setCallId(callId)
         .setRetryCount(retryCount).setClientId(ByteString.copyFrom(uuid));
@@ -208,6 +216,11 @@ public abstract class ProtoUtil {
       alignmentContext.updateRequestState(result);
     }
 
+    // Run the call as another user if requested
+    if (proxyUser != null) {
+      result.setProxyUser(proxyUser);
+    }
+
     return result.build();
   }
 }
@@ -28,7 +28,9 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.ipc.RPC.RpcKind;
+import org.apache.hadoop.ipc.RetryCache.CacheEntry;
 import org.apache.hadoop.ipc.RetryCache.CacheEntryWithPayload;
+import org.apache.hadoop.ipc.metrics.RetryCacheMetrics;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -167,6 +169,68 @@ public class TestRetryCache {
     testOperations(input, 25, 0, false, true, call);
   }
 
+  @Test
+  public void testShardedRetryCache() throws Exception {
+    RetryCache cache = new RetryCache("TestShardedRetryCache", 1,
+        100 * 1000 * 1000 * 1000L, 4);
+    Assert.assertEquals(4, cache.getNumShards());
+    RetryCacheMetrics metrics = cache.getMetricsForTests();
+
+    // Entries loaded from the edit log are spread over the shards
+    List<byte[]> clientIds = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      byte[] clientId = ClientId.getClientId();
+      clientIds.add(clientId);
+      cache.addCacheEntry(clientId, i);
+    }
+    Assert.assertEquals(100, cache.size());
+    Assert.assertEquals(100, metrics.getCacheUpdated());
+
+    // Retries find the entry in whichever shard it was placed
+    for (int i = 0; i < 100; i++) {
+      Server.getCurCall().set(new Server.Call(i, 1, null, null,
+          RpcKind.RPC_PROTOCOL_BUFFER, clientIds.get(i)));
+      CacheEntry entry = RetryCache.waitForCompletion(cache,
+          clientIds.get(i), i);
+      Assert.assertTrue(entry.isSuccess());
+    }
+    Assert.assertEquals(100, metrics.getCacheHit());
+    Assert.assertEquals(0, metrics.getCacheMiss());
+
+    // A new request is a miss and adds an entry
+    Server.getCurCall().set(newCall());
+    CacheEntry entry = RetryCache.waitForCompletion(cache,
+        Server.getClientId(), Server.getCallId());
+    RetryCache.setState(entry, true);
+    Assert.assertEquals(1, metrics.getCacheMiss());
+    Assert.assertEquals(101, cache.size());
+
+    // Locking the cache locks every shard
+    cache.lock();
+    try {
+      Assert.assertEquals(101, cache.size());
+    } finally {
+      cache.unlock();
+    }
+
+    RetryCache.clear(cache);
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(1, metrics.getCacheCleared());
+  }
+
+  @Test
+  public void testRetryCacheEviction() throws Exception {
+    RetryCache cache = new RetryCache("TestRetryCacheEviction", 1,
+        1000 * 1000L);
+    RetryCacheMetrics metrics = cache.getMetricsForTests();
+    cache.addCacheEntry(ClientId.getClientId(), 1);
+    Thread.sleep(10);
+    // Adding an entry evicts the expired one
+    cache.addCacheEntry(ClientId.getClientId(), 2);
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(1, metrics.getCacheEvicted());
+  }
+
   public void testOperations(final int input, final int numberOfThreads,
       final int pause, final boolean success, final boolean attemptedBefore,
       final Server.Call call) throws InterruptedException, ExecutionException {
@@ -21,6 +21,7 @@ import org.apache.hadoop.thirdparty.protobuf.ServiceException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.ipc.Client;
 import org.apache.hadoop.ipc.ProtobufRpcEngine2;
 import org.apache.hadoop.ipc.RPC;
 import org.apache.hadoop.ipc.Server;
@@ -29,6 +30,7 @@ import org.apache.hadoop.security.UserGroupInformation.AuthenticationMethod;
 import org.apache.hadoop.security.authorize.DefaultImpersonationProvider;
 import org.apache.hadoop.security.authorize.ProxyUsers;
 import org.apache.hadoop.security.token.Token;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -444,6 +446,98 @@ public class TestDoAsEffectiveUser extends TestRpcBase {
     Assert.assertEquals(retVal + "!=" + expected, expected, retVal);
   }
   
+  /*
+   * Tests calls run as proxy users of the connection user.
+   */
+  @Test
+  public void testCallProxyUser() throws Exception {
+    final Configuration conf = new Configuration();
+    configureSuperUserIPAddresses(conf, REAL_USER_SHORT_NAME);
+    conf.setStrings(DefaultImpersonationProvider.getTestProvider().
+        getProxySuperuserUserConfKey(REAL_USER_SHORT_NAME), PROXY_USER_NAME);
+    conf.setBoolean(
+        CommonConfigurationKeysPublic.IPC_SERVER_CALL_PROXY_USER_ENABLED_KEY,
+        true);
+    RPC.setProtocolEngine(conf, TestRpcService.class,
+        ProtobufRpcEngine2.class);
+    UserGroupInformation.setConfiguration(conf);
+    final Server server = setupTestServer(conf, 5);
+
+    refreshConf(conf);
+    try {
+      UserGroupInformation realUserUgi = UserGroupInformation
+          .createRemoteUser(REAL_USER_NAME);
+      realUserUgi.doAs(new PrivilegedExceptionAction<Void>() {
+        @Override
+        public Void run() throws Exception {
+          client = getClient(addr, conf);
+          try {
+            Client.setCallProxyUser(PROXY_USER_NAME);
+            Assert.assertEquals(PROXY_USER_NAME + " (auth:PROXY) via "
+                + realUserUgi, client.getCurrentUser(null,
+                newEmptyRequest()).getUser());
+
+            // Not allowed to proxy, only this call fails
+            Client.setCallProxyUser("otherUser");
+            try {
+              client.getCurrentUser(null, newEmptyRequest());
+              Assert.fail("The call must have failed");
+            } catch (ServiceException e) {
+              GenericTestUtils.assertExceptionContains(
+                  "not allowed to impersonate", e);
+            }
+
+            Client.setCallProxyUser(null);
+            Assert.assertEquals(realUserUgi.toString(), client.getCurrentUser(
+                null, newEmptyRequest()).getUser());
+          } finally {
+            Client.setCallProxyUser(null);
+          }
+          return null;
+        }
+      });
+    } finally {
+      stop(server, client);
+    }
+  }
+
+  @Test
+  public void testCallProxyUserDisabled() throws Exception {
+    final Configuration conf = new Configuration();
+    configureSuperUserIPAddresses(conf, REAL_USER_SHORT_NAME);
+    conf.setStrings(DefaultImpersonationProvider.getTestProvider().
+        getProxySuperuserUserConfKey(REAL_USER_SHORT_NAME), PROXY_USER_NAME);
+    RPC.setProtocolEngine(conf, TestRpcService.class,
+        ProtobufRpcEngine2.class);
+    UserGroupInformation.setConfiguration(conf);
+    final Server server = setupTestServer(conf, 5);
+
+    refreshConf(conf);
+    try {
+      UserGroupInformation realUserUgi = UserGroupInformation
+          .createRemoteUser(REAL_USER_NAME);
+      realUserUgi.doAs(new PrivilegedExceptionAction<Void>() {
+        @Override
+        public Void run() throws Exception {
+          client = getClient(addr, conf);
+          try {
+            Client.setCallProxyUser(PROXY_USER_NAME);
+            client.getCurrentUser(null, newEmptyRequest());
+            Assert.fail("The call must have failed");
+          } catch (ServiceException e) {
+            GenericTestUtils.assertExceptionContains(
+                "Calls as proxy users are disabled", e);
+          } finally {
+            Client.setCallProxyUser(null);
+          }
+          return null;
+        }
+      });
+    } finally {
+      stop(server, client);
+    }
+  }
+
   //
   private void refreshConf(Configuration conf) throws IOException {
     ProxyUsers.refreshSuperUserGroupsConfiguration(conf);
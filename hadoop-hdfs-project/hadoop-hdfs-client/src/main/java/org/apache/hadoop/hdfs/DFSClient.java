@@ -47,6 +47,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -246,6 +247,8 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
       new DFSHedgedReadMetrics();
   private static ThreadPoolExecutor HEDGED_READ_THREAD_POOL;
   private static volatile ThreadPoolExecutor STRIPED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor VECTORED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor SYNC_THREAD_POOL;
   private final long serverDefaultsValidityPeriod;
 
   /**
@@ -410,6 +413,9 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
 
     this.initThreadsNumForStripedReads(dfsClientConf.
         getStripedReadThreadpoolSize());
+    this.initThreadsNumForVectoredReads(dfsClientConf.
+        getVectoredReadThreadpoolSize());
+    this.initThreadsNumForSyncs(dfsClientConf.getSyncThreadpoolSize());
     this.saslClient = new SaslDataTransferClient(
         conf, DataTransferSaslUtil.getSaslPropertiesResolver(conf),
         TrustedChannelResolver.getInstance(conf), nnFallbackToSimpleAuth);
@@ -1803,6 +1809,28 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
     }
   }
 
+  /**
+   * Get the file info for several files or directories in a single call.
+   * @param srcs The string representations of the paths
+   * @param needLocation Include block locations and tokens for files
+   * @return file info for each path in request order, with null entries
+   *         for paths that are not found
+   *
+   * @see ClientProtocol#getBatchedFileInfo(String[], boolean) for
+   *      description of exceptions
+   */
+  public HdfsFileStatus[] getBatchedFileInfo(String[] srcs,
+      boolean needLocation) throws IOException {
+    checkOpen();
+    try (TraceScope ignored = tracer.newScope("getBatchedFileInfo")) {
+      return namenode.getBatchedFileInfo(srcs, needLocation);
+    } catch (RemoteException re) {
+      throw re.unwrapRemoteException(AccessControlException.class,
+          FileNotFoundException.class,
+          UnresolvedPathException.class);
+    }
+  }
+
   /**
    * Close status of a file
    * @return true if file is already closed
@@ -3158,6 +3186,60 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
     }
   }
 
+  /**
+   * Create thread pool for the parallel reads of vectored reads,
+   * VECTORED_READ_THREAD_POOL, if it does not already exist.
+   * @param numThreads Number of threads for vectored reads thread pool.
+   */
+  private void initThreadsNumForVectoredReads(int numThreads) {
+    assert numThreads > 0;
+    if (VECTORED_READ_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (VECTORED_READ_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "VectoredRead-", false);
+        // A vectored read submits all its ranges at once, so rejections are
+        // expected whenever a read has more ranges than the pool has threads.
+        threadPool.setRejectedExecutionHandler(
+            new ThreadPoolExecutor.CallerRunsPolicy() {
+              @Override
+              public void rejectedExecution(Runnable runnable,
+                  ThreadPoolExecutor e) {
+                LOG.debug("Vectored read task rejected, executing it in the "
+                    + "current thread");
+                super.rejectedExecution(runnable, e);
+              }
+            });
+        threadPool.allowCoreThreadTimeOut(true);
+        VECTORED_READ_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
+  /**
+   * Create thread pool completing the asynchronous hflush and hsync of the
+   * output streams, SYNC_THREAD_POOL, if it does not already exist.
+   * @param numThreads Number of threads for syncs thread pool.
+   */
+  private void initThreadsNumForSyncs(int numThreads) {
+    assert numThreads > 0;
+    if (SYNC_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (SYNC_THREAD_POOL == null) {
+        // Never run the tasks in the threads receiving the acks
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(
+            numThreads, numThreads, 60, new LinkedBlockingQueue<>(),
+            "Sync-", false);
+        threadPool.allowCoreThreadTimeOut(true);
+        SYNC_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
   ThreadPoolExecutor getHedgedReadsThreadPool() {
     return HEDGED_READ_THREAD_POOL;
   }
@@ -3166,6 +3248,14 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
     return STRIPED_READ_THREAD_POOL;
   }
 
+  ThreadPoolExecutor getVectoredReadsThreadPool() {
+    return VECTORED_READ_THREAD_POOL;
+  }
+
+  ThreadPoolExecutor getSyncThreadPool() {
+    return SYNC_THREAD_POOL;
+  }
+
   boolean isHedgedReadsEnabled() {
     return (HEDGED_READ_THREAD_POOL != null) &&
         HEDGED_READ_THREAD_POOL.getMaximumPoolSize() > 0;
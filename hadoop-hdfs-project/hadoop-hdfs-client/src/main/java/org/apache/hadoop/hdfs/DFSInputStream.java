@@ -43,7 +43,9 @@ import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.ByteBufferPositionedReadable;
@@ -56,10 +58,12 @@ import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.fs.FSExceptionMessages;
 import org.apache.hadoop.fs.FSInputStream;
 import org.apache.hadoop.fs.FileEncryptionInfo;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.ReadOption;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.fs.impl.CombinedFileRange;
 import org.apache.hadoop.hdfs.DFSUtilClient.CorruptedBlocks;
 import org.apache.hadoop.hdfs.client.impl.BlockReaderFactory;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
@@ -94,6 +98,9 @@ import org.apache.hadoop.classification.VisibleForTesting;
 
 import javax.annotation.Nonnull;
 
+import static org.apache.hadoop.fs.VectoredReadUtils.sliceTo;
+import static org.apache.hadoop.fs.VectoredReadUtils.sortRanges;
+import static org.apache.hadoop.fs.VectoredReadUtils.validateRangeRequest;
 import static org.apache.hadoop.hdfs.util.IOUtilsClient.updateReadStatistics;
 
 /****************************************************************
@@ -1694,6 +1701,103 @@ public class DFSInputStream extends FSInputStream
     }
   }
 
+  @Override
+  public int minSeekForVectorReads() {
+    return dfsClient.getConf().getVectoredReadMinSeekSize();
+  }
+
+  @Override
+  public int maxReadSizeForVectorReads() {
+    return dfsClient.getConf().getVectoredReadMaxMergedSize();
+  }
+
+  /**
+   * Read a list of file ranges asynchronously. Ranges which are close to
+   * each other within the same block are combined into a single positional
+   * read, and the combined reads are issued in parallel, so that different
+   * blocks are read from their DataNodes at the same time. The future of
+   * each range is completed as soon as the read covering it is done.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    FileRange[] sortedRanges = sortRanges(ranges);
+    for (FileRange range : ranges) {
+      validateRangeRequest(range);
+      range.setData(new CompletableFuture<>());
+    }
+    dfsClient.checkOpen();
+    if (closed.get()) {
+      throw new IOException("Stream closed");
+    }
+    for (CombinedFileRange combined : mergeRangesByBlock(sortedRanges)) {
+      dfsClient.getVectoredReadsThreadPool().execute(
+          () -> readCombinedRange(combined, allocate));
+    }
+  }
+
+  /**
+   * Combine sorted ranges like {@link
+   * org.apache.hadoop.fs.VectoredReadUtils#mergeSortedRanges}, but never
+   * across block boundaries, since each block may be read from a different
+   * DataNode.
+   */
+  private List<CombinedFileRange> mergeRangesByBlock(
+      FileRange[] sortedRanges) throws IOException {
+    int minSeek = minSeekForVectorReads();
+    int maxSize = maxReadSizeForVectorReads();
+    long fileLength = getFileLength();
+    List<CombinedFileRange> result = new ArrayList<>(sortedRanges.length);
+    CombinedFileRange current = null;
+    long blockEnd = 0;
+    for (FileRange range : sortedRanges) {
+      long start = range.getOffset();
+      long end = start + range.getLength();
+      if (current == null || end > blockEnd
+          || !current.merge(start, end, range, minSeek, maxSize)) {
+        current = new CombinedFileRange(start, end, range);
+        result.add(current);
+        if (start < fileLength) {
+          LocatedBlock blk = getBlockAt(start);
+          blockEnd = blk.getStartOffset() + blk.getBlockSize();
+        } else {
+          // The read will fail with an EOFException, do not combine it.
+          blockEnd = start;
+        }
+      }
+    }
+    return result;
+  }
+
+  private void readCombinedRange(CombinedFileRange combined,
+      IntFunction<ByteBuffer> allocate) {
+    List<FileRange> underlying = combined.getUnderlying();
+    try {
+      if (underlying.size() == 1) {
+        FileRange range = underlying.get(0);
+        ByteBuffer buffer = allocate.apply(range.getLength());
+        readFully(range.getOffset(), buffer);
+        buffer.flip();
+        range.getData().complete(buffer);
+        return;
+      }
+      ByteBuffer data = ByteBuffer.allocate(combined.getLength());
+      readFully(combined.getOffset(), data);
+      data.flip();
+      for (FileRange range : underlying) {
+        ByteBuffer buffer = allocate.apply(range.getLength());
+        buffer.put(sliceTo(data, combined.getOffset(), range));
+        buffer.flip();
+        range.getData().complete(buffer);
+      }
+    } catch (IOException | RuntimeException e) {
+      DFSClient.LOG.debug("Failed to read {} of {}", combined, src, e);
+      for (FileRange range : underlying) {
+        range.getData().completeExceptionally(e);
+      }
+    }
+  }
+
   /** Utility class to encapsulate data node info and its address. */
   static final class DNAddrPair {
     final DatanodeInfo info;
@@ -1914,6 +2018,7 @@ public class DFSInputStream extends FSInputStream
     case StreamCapabilities.UNBUFFER:
     case StreamCapabilities.READBYTEBUFFER:
     case StreamCapabilities.PREADBYTEBUFFER:
+    case StreamCapabilities.VECTOREDIO:
       return true;
     default:
       return false;
@@ -23,6 +23,9 @@ import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
@@ -123,6 +126,12 @@ public class DFSOutputStream extends FSOutputSummer
   protected int packetSize = 0; // write packet size, not including the header.
   protected int chunksPerPacket = 0;
   protected long lastFlushOffset = 0; // offset when flush was invoked
+  private long lastSyncSeqno = -1; // seqno of the last sync packet
+  /** Last asynchronous flush/sync, the later ones complete after it. */
+  private CompletableFuture<Void> lastAsyncFuture =
+      CompletableFuture.completedFuture(null);
+  private long lastAsyncSeqno = -1; // seqno waited for by lastAsyncFuture
+  private boolean lastAsyncIsSync = false; // if lastAsyncFuture syncs
   protected long initialFileSize = 0; // at time of file open
   private final short blockReplication; // replication factor of file
   protected boolean shouldSyncBlock = false; // force blocks to disk upon close
@@ -638,121 +647,267 @@ public class DFSOutputStream extends FSOutputSummer
     dfsClient.checkOpen();
     checkClosed();
     try {
-      long toWaitFor;
-      long lastBlockLength = -1L;
-      boolean updateLength = syncFlags.contains(SyncFlag.UPDATE_LENGTH);
-      boolean endBlock = syncFlags.contains(SyncFlag.END_BLOCK);
-      synchronized (this) {
-        // flush checksum buffer, but keep checksum buffer intact if we do not
-        // need to end the current block
-        int numKept = flushBuffer(!endBlock, true);
-        // bytesCurBlock potentially incremented if there was buffered data
-
-        DFSClient.LOG.debug("DFSClient flush():  bytesCurBlock={}, "
-                + "lastFlushOffset={}, createNewBlock={}",
-            getStreamer().getBytesCurBlock(), lastFlushOffset, endBlock);
-        // Flush only if we haven't already flushed till this offset.
-        if (lastFlushOffset != getStreamer().getBytesCurBlock()) {
-          assert getStreamer().getBytesCurBlock() > lastFlushOffset;
-          // record the valid offset of this flush
-          lastFlushOffset = getStreamer().getBytesCurBlock();
-          if (isSync && currentPacket == null && !endBlock) {
-            // Nothing to send right now,
-            // but sync was requested.
-            // Send an empty packet if we do not end the block right now
-            currentPacket = createPacket(packetSize, chunksPerPacket,
-                getStreamer().getBytesCurBlock(), getStreamer()
-                    .getAndIncCurrentSeqno(), false);
-          }
-        } else {
-          if (isSync && getStreamer().getBytesCurBlock() > 0 && !endBlock) {
-            // Nothing to send right now,
-            // and the block was partially written,
-            // and sync was requested.
-            // So send an empty sync packet if we do not end the block right
-            // now
-            currentPacket = createPacket(packetSize, chunksPerPacket,
-                getStreamer().getBytesCurBlock(), getStreamer()
-                    .getAndIncCurrentSeqno(), false);
-          } else if (currentPacket != null) {
-            // just discard the current packet since it is already been sent.
-            currentPacket.releaseBuffer(byteArrayManager);
-            currentPacket = null;
-          }
-        }
-        if (currentPacket != null) {
-          currentPacket.setSyncBlock(isSync);
-          enqueueCurrentPacket();
-        }
-        if (endBlock && getStreamer().getBytesCurBlock() > 0) {
-          // Need to end the current block, thus send an empty packet to
-          // indicate this is the end of the block and reset bytesCurBlock
-          currentPacket = createPacket(0, 0, getStreamer().getBytesCurBlock(),
-              getStreamer().getAndIncCurrentSeqno(), true);
-          currentPacket.setSyncBlock(shouldSyncBlock || isSync);
-          enqueueCurrentPacket();
-          getStreamer().setBytesCurBlock(0);
-          lastFlushOffset = 0;
-        } else {
-          // Restore state of stream. Record the last flush offset
-          // of the last full chunk that was flushed.
-          getStreamer().setBytesCurBlock(
-              getStreamer().getBytesCurBlock() - numKept);
-        }
+      long toWaitFor = queueFlushOrSync(isSync, syncFlags, false);
+      getStreamer().waitForAckedSeqno(toWaitFor);
+      persistFlushOrSync(syncFlags.contains(SyncFlag.UPDATE_LENGTH));
+    } catch (InterruptedIOException interrupt) {
+      // This kind of error doesn't mean that the stream itself is broken - just
+      // the flushing thread got interrupted. So, we shouldn't close down the
+      // writer, but instead just propagate the error
+      throw interrupt;
+    } catch (IOException e) {
+      failFlushOrSync(e);
+      throw e;
+    }
+  }
 
-        toWaitFor = getStreamer().getLastQueuedSeqno();
-      } // end synchronized
+  /**
+   * Flushes out to all replicas of the block without waiting for them, like
+   * {@link #hflush()}. The writer can keep writing to the stream while the
+   * flush completes.
+   * <p>
+   * The flushes and syncs waiting for the same data share their completion,
+   * so concurrent callers are completed as a group.
+   *
+   * @return future completed when the data written before the call is
+   *         visible to new readers, or failed if it cannot be flushed.
+   */
+  public CompletableFuture<Void> hflushAsync() {
+    return flushOrSyncAsync(false, EnumSet.noneOf(SyncFlag.class));
+  }
 
-      getStreamer().waitForAckedSeqno(toWaitFor);
+  /**
+   * Syncs all replicas of the block without waiting for them, like
+   * {@link #hsync()}. The writer can keep writing to the stream while the
+   * sync completes.
+   *
+   * @return future completed when the data written before the call is synced.
+   */
+  public CompletableFuture<Void> hsyncAsync() {
+    return flushOrSyncAsync(true, EnumSet.noneOf(SyncFlag.class));
+  }
 
-      // update the block length first time irrespective of flag
-      if (updateLength || getStreamer().getPersistBlocks().get()) {
-        synchronized (this) {
-          if (!getStreamer().streamerClosed()
-              && getStreamer().getBlock() != null) {
-            lastBlockLength = getStreamer().getBlock().getNumBytes();
-          }
-        }
-      }
-      // If 1) any new blocks were allocated since the last flush, or 2) to
-      // update length in NN is required, then persist block locations on
-      // namenode.
-      if (getStreamer().getPersistBlocks().getAndSet(false) || updateLength) {
-        try {
-          dfsClient.namenode.fsync(src, fileId, dfsClient.clientName,
-              lastBlockLength);
-        } catch (IOException ioe) {
-          DFSClient.LOG.warn("Unable to persist blocks in hflush for " + src,
-              ioe);
-          // If we got an error here, it might be because some other thread
-          // called close before our hflush completed. In that case, we should
-          // throw an exception that the stream is closed.
-          checkClosed();
-          // If we aren't closed but failed to sync, we should expose that to
-          // the caller.
-          throw ioe;
-        }
-      }
+  /**
+   * Syncs all replicas of the block without waiting for them, like
+   * {@link #hsync(EnumSet)}. The calls with no data written since the last
+   * sync share its sync packet instead of sending a new one, so concurrent
+   * callers are synced as a group.
+   *
+   * @param syncFlags
+   *          Indicate the semantic of the sync. Currently used to specify
+   *          whether or not to update the block length in NameNode.
+   * @return future completed when the data written before the call is synced.
+   */
+  public CompletableFuture<Void> hsyncAsync(EnumSet<SyncFlag> syncFlags) {
+    return flushOrSyncAsync(true, syncFlags);
+  }
 
-      synchronized(this) {
-        if (!getStreamer().streamerClosed()) {
-          getStreamer().setHflush();
+  /**
+   * Flush/Sync buffered data to DataNodes without waiting for the acks. The
+   * returned futures complete in order, after the blocks are persisted on the
+   * NameNode if needed, in the sync thread pool of the client.
+   */
+  private CompletableFuture<Void> flushOrSyncAsync(boolean isSync,
+      EnumSet<SyncFlag> syncFlags) {
+    final boolean updateLength = syncFlags.contains(SyncFlag.UPDATE_LENGTH);
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      dfsClient.checkOpen();
+      checkClosed();
+    } catch (IOException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    try {
+      synchronized (this) {
+        long toWaitFor = queueFlushOrSync(isSync, syncFlags, true);
+        if (toWaitFor == lastAsyncSeqno && (lastAsyncIsSync || !isSync)
+            && !updateLength) {
+          // Nothing new to wait for, share the completion of the last call
+          return lastAsyncFuture.thenApply(v -> v);
         }
+        CompletableFuture<Void> ackFuture =
+            getStreamer().getAckFuture(toWaitFor);
+        CompletableFuture.allOf(ackFuture, lastAsyncFuture).whenCompleteAsync(
+            (v, t) -> {
+              try {
+                if (t != null) {
+                  throw unwrapSyncException(t);
+                }
+                persistFlushOrSync(updateLength);
+                result.complete(null);
+              } catch (IOException e) {
+                failFlushOrSyncAsync(result, e);
+              }
+            }, dfsClient.getSyncThreadPool());
+        lastAsyncFuture = result;
+        lastAsyncSeqno = toWaitFor;
+        lastAsyncIsSync = isSync;
       }
     } catch (InterruptedIOException interrupt) {
-      // This kind of error doesn't mean that the stream itself is broken - just
-      // the flushing thread got interrupted. So, we shouldn't close down the
-      // writer, but instead just propagate the error
-      throw interrupt;
+      // The stream itself is not broken, see flushOrSync()
+      result.completeExceptionally(interrupt);
     } catch (IOException e) {
-      DFSClient.LOG.warn("Error while syncing", e);
+      failFlushOrSyncAsync(result, e);
+    }
+    return result.thenApply(v -> v);
+  }
+
+  private void failFlushOrSyncAsync(CompletableFuture<Void> result,
+      IOException e) {
+    try {
+      failFlushOrSync(e);
+    } catch (IOException closeException) {
+      e.addSuppressed(closeException);
+    }
+    result.completeExceptionally(e);
+  }
+
+  private static IOException unwrapSyncException(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      t = t.getCause();
+    }
+    return t instanceof IOException ? (IOException) t : new IOException(t);
+  }
+
+  /**
+   * Queue the buffered data to the DataNodes for a flush/sync.
+   *
+   * @param isSync
+   *          Whether or not to require all replicas to flush data to the disk
+   *          device
+   * @param syncFlags
+   *          Indicate extra detailed semantic of the flush/sync
+   * @param groupSync
+   *          Whether or not to reuse the last sync packet when there is no new
+   *          data instead of sending an empty sync packet
+   * @return the seqno to wait for.
+   * @throws IOException
+   */
+  private synchronized long queueFlushOrSync(boolean isSync,
+      EnumSet<SyncFlag> syncFlags, boolean groupSync) throws IOException {
+    boolean endBlock = syncFlags.contains(SyncFlag.END_BLOCK);
+    // flush checksum buffer, but keep checksum buffer intact if we do not
+    // need to end the current block
+    int numKept = flushBuffer(!endBlock, true);
+    // bytesCurBlock potentially incremented if there was buffered data
+
+    DFSClient.LOG.debug("DFSClient flush():  bytesCurBlock={}, "
+            + "lastFlushOffset={}, createNewBlock={}",
+        getStreamer().getBytesCurBlock(), lastFlushOffset, endBlock);
+    // Flush only if we haven't already flushed till this offset.
+    if (lastFlushOffset != getStreamer().getBytesCurBlock()) {
+      assert getStreamer().getBytesCurBlock() > lastFlushOffset;
+      // record the valid offset of this flush
+      lastFlushOffset = getStreamer().getBytesCurBlock();
+      if (isSync && currentPacket == null && !endBlock) {
+        // Nothing to send right now,
+        // but sync was requested.
+        // Send an empty packet if we do not end the block right now
+        currentPacket = createPacket(packetSize, chunksPerPacket,
+            getStreamer().getBytesCurBlock(), getStreamer()
+                .getAndIncCurrentSeqno(), false);
+      }
+    } else {
+      boolean synced = groupSync
+          && lastSyncSeqno == getStreamer().getLastQueuedSeqno();
+      if (isSync && getStreamer().getBytesCurBlock() > 0 && !endBlock
+          && !synced) {
+        // Nothing to send right now,
+        // and the block was partially written,
+        // and sync was requested.
+        // So send an empty sync packet if we do not end the block right
+        // now
+        currentPacket = createPacket(packetSize, chunksPerPacket,
+            getStreamer().getBytesCurBlock(), getStreamer()
+                .getAndIncCurrentSeqno(), false);
+      } else if (currentPacket != null) {
+        // just discard the current packet since it is already been sent.
+        currentPacket.releaseBuffer(byteArrayManager);
+        currentPacket = null;
+      }
+    }
+    if (currentPacket != null) {
+      currentPacket.setSyncBlock(isSync);
+      enqueueCurrentPacket();
+      if (isSync) {
+        lastSyncSeqno = getStreamer().getLastQueuedSeqno();
+      }
+    }
+    if (endBlock && getStreamer().getBytesCurBlock() > 0) {
+      // Need to end the current block, thus send an empty packet to
+      // indicate this is the end of the block and reset bytesCurBlock
+      currentPacket = createPacket(0, 0, getStreamer().getBytesCurBlock(),
+          getStreamer().getAndIncCurrentSeqno(), true);
+      currentPacket.setSyncBlock(shouldSyncBlock || isSync);
+      enqueueCurrentPacket();
+      getStreamer().setBytesCurBlock(0);
+      lastFlushOffset = 0;
+    } else {
+      // Restore state of stream. Record the last flush offset
+      // of the last full chunk that was flushed.
+      getStreamer().setBytesCurBlock(
+          getStreamer().getBytesCurBlock() - numKept);
+    }
+
+    return getStreamer().getLastQueuedSeqno();
+  }
+
+  /**
+   * Persist the blocks on the NameNode once a flush/sync is acked.
+   *
+   * @param updateLength
+   *          Whether or not to update the file length in the NameNode
+   * @throws IOException
+   */
+  private void persistFlushOrSync(boolean updateLength) throws IOException {
+    long lastBlockLength = -1L;
+    // update the block length first time irrespective of flag
+    if (updateLength || getStreamer().getPersistBlocks().get()) {
       synchronized (this) {
-        if (!isClosed()) {
-          getStreamer().getLastException().set(e);
-          closeThreads(true);
+        if (!getStreamer().streamerClosed()
+            && getStreamer().getBlock() != null) {
+          lastBlockLength = getStreamer().getBlock().getNumBytes();
         }
       }
-      throw e;
+    }
+    // If 1) any new blocks were allocated since the last flush, or 2) to
+    // update length in NN is required, then persist block locations on
+    // namenode.
+    if (getStreamer().getPersistBlocks().getAndSet(false) || updateLength) {
+      try {
+        dfsClient.namenode.fsync(src, fileId, dfsClient.clientName,
+            lastBlockLength);
+      } catch (IOException ioe) {
+        DFSClient.LOG.warn("Unable to persist blocks in hflush for " + src,
+            ioe);
+        // If we got an error here, it might be because some other thread
+        // called close before our hflush completed. In that case, we should
+        // throw an exception that the stream is closed.
+        checkClosed();
+        // If we aren't closed but failed to sync, we should expose that to
+        // the caller.
+        throw ioe;
+      }
+    }
+
+    synchronized(this) {
+      if (!getStreamer().streamerClosed()) {
+        getStreamer().setHflush();
+      }
+    }
+  }
+
+  /**
+   * Close the stream after a flush/sync failed.
+   */
+  private void failFlushOrSync(IOException e) throws IOException {
+    DFSClient.LOG.warn("Error while syncing", e);
+    synchronized (this) {
+      if (!isClosed()) {
+        getStreamer().getLastException().set(e);
+        closeThreads(true);
+      }
     }
   }
 
@@ -854,6 +1009,7 @@ public class DFSOutputStream extends FSOutputSummer
    */
   @Override
   public void close() throws IOException {
+    waitForAsyncFlushOrSync();
     final MultipleIOException.Builder b = new MultipleIOException.Builder();
     synchronized (this) {
       try (TraceScope ignored = dfsClient.newPathTraceScope(
@@ -869,6 +1025,27 @@ public class DFSOutputStream extends FSOutputSummer
     }
   }
 
+  /**
+   * Wait for the pending asynchronous flush/sync to persist its blocks on
+   * the NameNode, so that it does not race with the completion of the file.
+   * It runs without the stream lock, which the sync thread pool needs. Its
+   * failure is reported through its future.
+   */
+  private void waitForAsyncFlushOrSync() throws IOException {
+    final CompletableFuture<Void> pending;
+    synchronized (this) {
+      pending = lastAsyncFuture;
+    }
+    try {
+      pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while waiting for async flush/sync of " + src);
+    } catch (ExecutionException ignored) {
+    }
+  }
+
   protected synchronized void closeImpl() throws IOException {
     boolean recoverLeaseOnCloseException = dfsClient.getConfiguration()
         .getBoolean(RECOVER_LEASE_ON_CLOSE_EXCEPTION_KEY,
@@ -38,7 +38,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -48,6 +51,8 @@ import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.BlockWrite;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
+import org.apache.hadoop.hdfs.client.impl.DfsClientConf.ShortCircuitConf;
+import org.apache.hadoop.hdfs.net.DomainPeer;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
@@ -67,10 +72,12 @@ import org.apache.hadoop.hdfs.protocol.proto.DataTransferProtos.Status;
 import org.apache.hadoop.hdfs.protocolPB.PBHelperClient;
 import org.apache.hadoop.hdfs.security.token.block.BlockTokenIdentifier;
 import org.apache.hadoop.hdfs.server.datanode.CachingStrategy;
+import org.apache.hadoop.hdfs.shortcircuit.DomainSocketFactory;
 import org.apache.hadoop.hdfs.util.ByteArrayManager;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.MultipleIOException;
 import org.apache.hadoop.net.NetUtils;
+import org.apache.hadoop.net.unix.DomainSocket;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.Daemon;
 import org.apache.hadoop.util.DataChecksum;
@@ -263,6 +270,46 @@ class DataStreamer extends Daemon {
     return sock;
   }
 
+  /**
+   * Connect to the first datanode of a pipeline over a UNIX domain socket,
+   * if the datanode runs on this host and UNIX domain socket data traffic is
+   * enabled. This avoids the TCP stack for the data written by co-located
+   * clients.
+   *
+   * @param first the first datanode
+   * @param length the pipeline length
+   * @param client client
+   * @return the peer connected to the first datanode, or null if the
+   * datanode must be reached over TCP. This is also the case when the
+   * socket cannot be connected, the DomainSocketFactory then marks its path
+   * unusable.
+   */
+  static DomainPeer createDomainPeerForPipeline(final DatanodeInfo first,
+      final int length, final DFSClient client) throws IOException {
+    final DfsClientConf conf = client.getConf();
+    final ShortCircuitConf scConf = conf.getShortCircuitConf();
+    if (!scConf.isDomainSocketDataTraffic()) {
+      return null;
+    }
+    final InetSocketAddress isa = NetUtils.createSocketAddr(
+        first.getXferAddr(conf.isConnectToDnViaHostname()));
+    final DomainSocketFactory factory =
+        client.getClientContext().getDomainSocketFactory();
+    final DomainSocketFactory.PathInfo pathInfo =
+        factory.getPathInfo(isa, scConf);
+    if (!pathInfo.getPathState().getUsableForDataTransfer()) {
+      return null;
+    }
+    final DomainSocket sock = factory.createSocket(pathInfo,
+        client.getDatanodeReadTimeout(length));
+    if (sock == null) {
+      return null;
+    }
+    LOG.debug("Connecting to datanode {} via UNIX domain socket {}",
+        first, pathInfo.getPath());
+    return new DomainPeer(sock);
+  }
+
   /**
    * if this file is lazy persist
    *
@@ -503,6 +550,8 @@ class DataStreamer extends Daemon {
   private long bytesCurBlock = 0; // bytes written in current block
   private final LastExceptionInStreamer lastException = new LastExceptionInStreamer();
   private Socket s;
+  /** Connection to a local first datanode, used instead of s. */
+  private DomainPeer domainPeer;
 
   protected final DFSClient dfsClient;
   protected final String src;
@@ -514,6 +563,9 @@ class DataStreamer extends Daemon {
   private volatile boolean appendChunk = false;
   // both dataQueue and ackQueue are protected by dataQueue lock
   protected final LinkedList<DFSPacket> dataQueue = new LinkedList<>();
+  /** Seqno -> Future completed when acked, protected by dataQueue lock. */
+  private final NavigableMap<Long, CompletableFuture<Void>> ackFutures =
+      new TreeMap<>();
   private final Map<Long, Long> packetSendTime = new HashMap<>();
   private final LinkedList<DFSPacket> ackQueue = new LinkedList<>();
   private final AtomicReference<CachingStrategy> cachingStrategy;
@@ -891,6 +943,7 @@ class DataStreamer extends Daemon {
     streamerClosed = true;
     release();
     synchronized (dataQueue) {
+      failAckFutures();
       dataQueue.notifyAll();
     }
   }
@@ -958,6 +1011,68 @@ class DataStreamer extends Daemon {
     }
   }
 
+  /**
+   * Get a future completed when a seqno is acked, without waiting for it.
+   * The futures waiting for the same seqno are shared, so they are completed
+   * by the ResponseProcessor as a group. They are failed if the streamer is
+   * closed before the seqno is acked.
+   *
+   * @param seqno the sequence number to be acked
+   * @return future completed when seqno is acked.
+   */
+  CompletableFuture<Void> getAckFuture(long seqno) {
+    synchronized (dataQueue) {
+      if (lastAckedSeqno >= seqno) {
+        return CompletableFuture.completedFuture(null);
+      }
+      if (streamerClosed) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(getCloseException());
+        return future;
+      }
+      return ackFutures.computeIfAbsent(seqno, s -> new CompletableFuture<>());
+    }
+  }
+
+  /**
+   * Complete the futures of the acked seqnos. It must hold the dataQueue lock.
+   */
+  private void completeAckFutures() {
+    if (ackFutures.isEmpty()) {
+      return;
+    }
+    NavigableMap<Long, CompletableFuture<Void>> acked =
+        ackFutures.headMap(lastAckedSeqno, true);
+    for (CompletableFuture<Void> future : acked.values()) {
+      future.complete(null);
+    }
+    acked.clear();
+  }
+
+  /**
+   * Fail the futures of the seqnos which will never be acked. It must hold
+   * the dataQueue lock.
+   */
+  private void failAckFutures() {
+    if (ackFutures.isEmpty()) {
+      return;
+    }
+    IOException e = getCloseException();
+    for (CompletableFuture<Void> future : ackFutures.values()) {
+      future.completeExceptionally(e);
+    }
+    ackFutures.clear();
+  }
+
+  private IOException getCloseException() {
+    try {
+      lastException.throwException4Close();
+    } catch (IOException e) {
+      return e;
+    }
+    return new ClosedChannelException();
+  }
+
   /**
    * wait for space of dataQueue and queue the packet
    *
@@ -1079,6 +1194,15 @@ class DataStreamer extends Daemon {
         s = null;
       }
     }
+    if (null != domainPeer) {
+      try {
+        domainPeer.close();
+      } catch (IOException e) {
+        b.add(e);
+      } finally {
+        domainPeer = null;
+      }
+    }
 
     final IOException ioe = b.build();
     if (ioe != null) {
@@ -1250,6 +1374,7 @@ class DataStreamer extends Daemon {
             pipelineRecoveryCount = 0;
             ackQueue.removeFirst();
             packetSendTime.remove(seqno);
+            completeAckFutures();
             dataQueue.notifyAll();
 
             one.releaseBuffer(byteArrayManager);
@@ -1393,6 +1518,7 @@ class DataStreamer extends Daemon {
           assert lastAckedSeqno == endOfBlockPacket.getSeqno() - 1;
           lastAckedSeqno = endOfBlockPacket.getSeqno();
           pipelineRecoveryCount = 0;
+          completeAckFutures();
           dataQueue.notifyAll();
         }
         endBlock();
@@ -1825,20 +1951,35 @@ class DataStreamer extends Daemon {
     int refetchEncryptionKey = 1;
     while (true) {
       boolean result = false;
+      boolean ackReceived = false;
       DataOutputStream out = null;
       try {
         assert null == s : "Previous socket unclosed";
+        assert null == domainPeer : "Previous domain peer unclosed";
         assert null == blockReplyStream : "Previous blockReplyStream unclosed";
-        s = createSocketForPipeline(nodes[0], nodes.length, dfsClient);
         long writeTimeout = dfsClient.getDatanodeWriteTimeout(nodes.length);
         long readTimeout = dfsClient.getDatanodeReadTimeout(nodes.length);
 
-        OutputStream unbufOut = NetUtils.getOutputStream(s, writeTimeout);
-        InputStream unbufIn = NetUtils.getInputStream(s, readTimeout);
-        IOStreamPair saslStreams = dfsClient.saslClient.socketSend(s,
-            unbufOut, unbufIn, dfsClient, accessToken, nodes[0]);
-        unbufOut = saslStreams.out;
-        unbufIn = saslStreams.in;
+        OutputStream unbufOut;
+        InputStream unbufIn;
+        domainPeer = createDomainPeerForPipeline(nodes[0], nodes.length,
+            dfsClient);
+        if (domainPeer != null) {
+          // A UNIX domain socket is a secure channel, there is no SASL
+          // negotiation to do.
+          domainPeer.setWriteTimeout((int) writeTimeout);
+          domainPeer.setReadTimeout((int) readTimeout);
+          unbufOut = domainPeer.getOutputStream();
+          unbufIn = domainPeer.getInputStream();
+        } else {
+          s = createSocketForPipeline(nodes[0], nodes.length, dfsClient);
+          unbufOut = NetUtils.getOutputStream(s, writeTimeout);
+          unbufIn = NetUtils.getInputStream(s, readTimeout);
+          IOStreamPair saslStreams = dfsClient.saslClient.socketSend(s,
+              unbufOut, unbufIn, dfsClient, accessToken, nodes[0]);
+          unbufOut = saslStreams.out;
+          unbufIn = saslStreams.in;
+        }
         out = new DataOutputStream(new BufferedOutputStream(unbufOut,
             DFSUtilClient.getSmallBufferSize(dfsClient.getConfiguration())));
         blockReplyStream = new DataInputStream(unbufIn);
@@ -1867,6 +2008,7 @@ class DataStreamer extends Daemon {
         // receive ack for connect
         BlockOpResponseProto resp = BlockOpResponseProto.parseFrom(
             PBHelperClient.vintPrefixed(blockReplyStream));
+        ackReceived = true;
         Status pipelineStatus = resp.getStatus();
         firstBadLink = resp.getFirstBadLink();
 
@@ -1908,6 +2050,17 @@ class DataStreamer extends Daemon {
           // a new encryption key.
           continue;
         }
+        if (domainPeer != null && !ackReceived) {
+          // The datanode could not be reached over its UNIX domain socket.
+          // Like the DomainSocketFactory does when it cannot connect, stop
+          // using the path and retry over TCP before excluding the node.
+          final String path = domainPeer.getDomainSocket().getPath();
+          LOG.warn("Failed to set up the pipeline to {} via UNIX domain "
+              + "socket {}, falling back to TCP", nodes[0], path, ie);
+          dfsClient.getClientContext().getDomainSocketFactory()
+              .disableDomainSocketPath(path);
+          continue;
+        }
 
         // find the datanode that matches
         if (firstBadLink.length() != 0) {
@@ -1937,6 +2090,8 @@ class DataStreamer extends Daemon {
         if (!result) {
           IOUtils.closeSocket(s);
           s = null;
+          IOUtils.closeStream(domainPeer);
+          domainPeer = null;
           IOUtils.closeStream(out);
           IOUtils.closeStream(blockReplyStream);
           blockReplyStream = null;
@@ -2136,6 +2291,7 @@ class DataStreamer extends Daemon {
    */
   void setSocketToNull() {
     this.s = null;
+    this.domainPeer = null;
   }
 
   /**
@@ -2215,6 +2371,18 @@ class DataStreamer extends Daemon {
     if (s != null) {
       s.close();
     }
+    if (domainPeer != null) {
+      domainPeer.close();
+    }
+  }
+
+  /**
+   * @return true if the current pipeline is connected to its first datanode
+   * over a UNIX domain socket.
+   */
+  @VisibleForTesting
+  boolean isDomainSocketPipeline() {
+    return domainPeer != null;
   }
 
   @Override
@@ -1774,6 +1774,44 @@ public class DistributedFileSystem extends FileSystem
     }.resolve(this, absF);
   }
 
+  /**
+   * Returns the status of several paths using a single RPC to the NameNode.
+   * Unlike {@link #getFileStatus(Path)}, a missing path does not fail the
+   * call; its entry in the returned array is null instead. Paths traversing
+   * symlinks are not resolved and fail with an UnresolvedLinkException.
+   *
+   * @param paths the paths to look up
+   * @param needLocation whether to include block locations for files
+   * @return statuses in the same order as the given paths
+   * @throws IOException see specific implementation
+   */
+  public FileStatus[] getFileStatuses(List<Path> paths, boolean needLocation)
+      throws IOException {
+    statistics.incrementReadOps(1);
+    storageStatistics.incrementOpCounter(OpType.GET_FILE_STATUS);
+    Path[] absPaths = new Path[paths.size()];
+    String[] srcs = new String[paths.size()];
+    for (int i = 0; i < absPaths.length; i++) {
+      absPaths[i] = fixRelativePart(paths.get(i));
+      srcs[i] = getPathName(absPaths[i]);
+    }
+    HdfsFileStatus[] infos = dfs.getBatchedFileInfo(srcs, needLocation);
+    FileStatus[] results = new FileStatus[infos.length];
+    for (int i = 0; i < infos.length; i++) {
+      HdfsFileStatus fi = infos[i];
+      if (fi == null) {
+        continue;
+      }
+      if (needLocation && fi instanceof HdfsLocatedFileStatus) {
+        results[i] = ((HdfsLocatedFileStatus) fi)
+            .makeQualifiedLocated(getUri(), absPaths[i]);
+      } else {
+        results[i] = fi.makeQualified(getUri(), absPaths[i]);
+      }
+    }
+    return results;
+  }
+
   /**
    * Synchronize client metadata state with Active NameNode.
    * <p>
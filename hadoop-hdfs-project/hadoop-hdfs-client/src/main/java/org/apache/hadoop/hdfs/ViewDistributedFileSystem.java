@@ -50,6 +50,7 @@ import org.apache.hadoop.fs.permission.AclEntry;
 import org.apache.hadoop.fs.permission.AclStatus;
 import org.apache.hadoop.fs.permission.FsAction;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.fs.viewfs.NotInMountpointException;
 import org.apache.hadoop.fs.viewfs.ViewFileSystem;
 import org.apache.hadoop.fs.viewfs.ViewFileSystemOverloadScheme;
 import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
@@ -925,6 +926,59 @@ public class ViewDistributedFileSystem extends DistributedFileSystem {
     return this.vfs.getFileStatus(f);
   }
 
+  @Override
+  public FileStatus[] getFileStatuses(final List<Path> paths,
+      final boolean needLocation) throws IOException {
+    if (this.vfs == null) {
+      return super.getFileStatuses(paths, needLocation);
+    }
+    // Group the paths by target file system so that each target gets a
+    // single batched call.
+    final FileStatus[] results = new FileStatus[paths.size()];
+    final Map<FileSystem, List<Integer>> indexesByFs = new HashMap<>();
+    final Map<FileSystem, List<Path>> targetPathsByFs = new HashMap<>();
+    for (int i = 0; i < paths.size(); i++) {
+      ViewFileSystemOverloadScheme.MountPathInfo<FileSystem> mountPathInfo;
+      try {
+        mountPathInfo = this.vfs.getMountPathInfo(paths.get(i), getConf());
+      } catch (NotInMountpointException e) {
+        // no link for this path, so it does not exist
+        continue;
+      }
+      final FileSystem targetFs = mountPathInfo.getTargetFs();
+      indexesByFs.computeIfAbsent(targetFs, k -> new ArrayList<>()).add(i);
+      targetPathsByFs.computeIfAbsent(targetFs, k -> new ArrayList<>())
+          .add(mountPathInfo.getPathOnTarget());
+    }
+    for (Map.Entry<FileSystem, List<Integer>> entry : indexesByFs.entrySet()) {
+      final FileSystem targetFs = entry.getKey();
+      final List<Integer> indexes = entry.getValue();
+      final List<Path> targetPaths = targetPathsByFs.get(targetFs);
+      FileStatus[] statuses = null;
+      if (targetFs instanceof DistributedFileSystem) {
+        statuses = ((DistributedFileSystem) targetFs)
+            .getFileStatuses(targetPaths, needLocation);
+      }
+      for (int j = 0; j < indexes.size(); j++) {
+        final Path path = paths.get(indexes.get(j));
+        FileStatus status = statuses != null ? statuses[j] : null;
+        if (status == null) {
+          // Other file systems, and internal directories of the mount
+          // table, are only known to the view file system.
+          try {
+            status = this.vfs.getFileStatus(path);
+          } catch (FileNotFoundException e) {
+            continue;
+          }
+        } else {
+          status.setPath(makeQualified(path));
+        }
+        results[indexes.get(j)] = status;
+      }
+    }
+    return results;
+  }
+
   @SuppressWarnings("deprecation")
   @Override
   public void createSymlink(final Path target, final Path link,
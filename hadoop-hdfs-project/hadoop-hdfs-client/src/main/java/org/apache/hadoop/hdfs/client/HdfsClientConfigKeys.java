@@ -402,6 +402,8 @@ public interface HdfsClientConfigKeys {
     String RECOVER_LEASE_ON_CLOSE_EXCEPTION_KEY =
         PREFIX + "recover.lease.on.close.exception";
     boolean RECOVER_LEASE_ON_CLOSE_EXCEPTION_DEFAULT = false;
+    String  SYNC_THREADPOOL_SIZE_KEY = PREFIX + "sync.threadpool.size";
+    int     SYNC_THREADPOOL_SIZE_DEFAULT = 4;
 
     interface ByteArrayManager {
       String PREFIX = Write.PREFIX + "byte-array-manager.";
@@ -457,6 +459,13 @@ public interface HdfsClientConfigKeys {
     String URI_CACHE_KEY = PREFIX + "uri.cache.enabled";
     boolean URI_CACHE_DEFAULT = false;
 
+    String  VECTORED_THREADPOOL_SIZE_KEY = PREFIX + "vectored.threadpool.size";
+    int     VECTORED_THREADPOOL_SIZE_DEFAULT = 16;
+    String  VECTORED_MIN_SEEK_KEY = PREFIX + "vectored.min.seek.size";
+    int     VECTORED_MIN_SEEK_DEFAULT = 64 * 1024;
+    String  VECTORED_MAX_MERGED_SIZE_KEY = PREFIX + "vectored.max.merged.size";
+    int     VECTORED_MAX_MERGED_SIZE_DEFAULT = 4 * 1024 * 1024;
+
     interface ShortCircuit {
       String PREFIX = Read.PREFIX + "shortcircuit.";
 
@@ -20,6 +20,7 @@ package org.apache.hadoop.hdfs.client;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -96,6 +97,55 @@ public class HdfsDataOutputStream extends FSDataOutputStream {
     ((DFSOutputStream) wrappedStream).hsync(syncFlags);
   }
 
+  /**
+   * Flush buffered data to DataNodes without waiting for them. The data
+   * written to the stream afterwards is not covered by the returned future.
+   *
+   * @return future completed when the data is visible to new readers.
+   * @throws IOException If the buffered data cannot be flushed.
+   * @see DFSOutputStream#hflushAsync()
+   */
+  @InterfaceStability.Unstable
+  public CompletableFuture<Void> hflushAsync() throws IOException {
+    return getDFSOutputStream().hflushAsync();
+  }
+
+  /**
+   * Sync buffered data to DataNodes without waiting for them.
+   *
+   * @return future completed when the data is synced.
+   * @throws IOException If the buffered data cannot be flushed.
+   * @see DFSOutputStream#hsyncAsync()
+   */
+  @InterfaceStability.Unstable
+  public CompletableFuture<Void> hsyncAsync() throws IOException {
+    return getDFSOutputStream().hsyncAsync();
+  }
+
+  /**
+   * Sync buffered data to DataNodes without waiting for them.
+   *
+   * @param syncFlags
+   *          Indicate the detailed semantic and actions of the hsync.
+   * @return future completed when the data is synced.
+   * @throws IOException If the buffered data cannot be flushed.
+   * @see DFSOutputStream#hsyncAsync(EnumSet)
+   */
+  @InterfaceStability.Unstable
+  public CompletableFuture<Void> hsyncAsync(EnumSet<SyncFlag> syncFlags)
+      throws IOException {
+    return getDFSOutputStream().hsyncAsync(syncFlags);
+  }
+
+  private DFSOutputStream getDFSOutputStream() throws IOException {
+    OutputStream wrappedStream = getWrappedStream();
+    if (wrappedStream instanceof CryptoOutputStream) {
+      wrappedStream.flush();
+      wrappedStream = ((CryptoOutputStream) wrappedStream).getWrappedStream();
+    }
+    return (DFSOutputStream) wrappedStream;
+  }
+
   public enum SyncFlag {
 
     /**
@@ -159,6 +159,10 @@ public class DfsClientConf {
       replicaAccessorBuilderClasses;
 
   private final int stripedReadThreadpoolSize;
+  private final int vectoredReadThreadpoolSize;
+  private final int vectoredReadMinSeekSize;
+  private final int vectoredReadMaxMergedSize;
+  private final int syncThreadpoolSize;
 
   private final boolean dataTransferTcpNoDelay;
 
@@ -295,6 +299,24 @@ public class DfsClientConf {
     Preconditions.checkArgument(stripedReadThreadpoolSize > 0, "The value of " +
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY +
         " must be greater than 0.");
+    vectoredReadThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.Read.VECTORED_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.Read.VECTORED_THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(vectoredReadThreadpoolSize > 0, "The value of "
+        + HdfsClientConfigKeys.Read.VECTORED_THREADPOOL_SIZE_KEY
+        + " must be greater than 0.");
+    vectoredReadMinSeekSize = (int) conf.getLongBytes(
+        HdfsClientConfigKeys.Read.VECTORED_MIN_SEEK_KEY,
+        HdfsClientConfigKeys.Read.VECTORED_MIN_SEEK_DEFAULT);
+    vectoredReadMaxMergedSize = (int) conf.getLongBytes(
+        HdfsClientConfigKeys.Read.VECTORED_MAX_MERGED_SIZE_KEY,
+        HdfsClientConfigKeys.Read.VECTORED_MAX_MERGED_SIZE_DEFAULT);
+    syncThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.Write.SYNC_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.Write.SYNC_THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(syncThreadpoolSize > 0, "The value of "
+        + HdfsClientConfigKeys.Write.SYNC_THREADPOOL_SIZE_KEY
+        + " must be greater than 0.");
     replicaAccessorBuilderClasses = loadReplicaAccessorBuilderClasses(conf);
 
     leaseHardLimitPeriod =
@@ -690,6 +712,34 @@ public class DfsClientConf {
     return stripedReadThreadpoolSize;
   }
 
+  /**
+   * @return the vectoredReadThreadpoolSize
+   */
+  public int getVectoredReadThreadpoolSize() {
+    return vectoredReadThreadpoolSize;
+  }
+
+  /**
+   * @return the vectoredReadMinSeekSize
+   */
+  public int getVectoredReadMinSeekSize() {
+    return vectoredReadMinSeekSize;
+  }
+
+  /**
+   * @return the vectoredReadMaxMergedSize
+   */
+  public int getVectoredReadMaxMergedSize() {
+    return vectoredReadMaxMergedSize;
+  }
+
+  /**
+   * @return the syncThreadpoolSize
+   */
+  public int getSyncThreadpoolSize() {
+    return syncThreadpoolSize;
+  }
+
   /**
    * @return the deadNodeDetectionEnabled
    */
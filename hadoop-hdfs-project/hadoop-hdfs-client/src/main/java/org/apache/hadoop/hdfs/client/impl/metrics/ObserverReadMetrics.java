@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.client.impl.metrics;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
+
+/**
+ * This class maintains the latency of read RPCs which the
+ * ObserverReadProxyProvider routes to each NameNode.
+ */
+@InterfaceAudience.Private
+@Metrics(name="HdfsObserverReads",
+         about="Latency of read RPCs routed to each NameNode",
+         context="dfs")
+public class ObserverReadMetrics {
+
+  @Metric("Read RPC latency per NameNode")
+  private MutableRatesWithAggregation readLatency;
+
+  private static final String OBSERVER_READ_METRIC_REGISTERED_NAME =
+      "HdfsObserverReads";
+  private static final String READ_LATENCY_METRIC_PREFIX =
+      "ReadLatencyMicros_";
+
+  public static ObserverReadMetrics create() {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    ObserverReadMetrics metrics = new ObserverReadMetrics();
+
+    ms.register(OBSERVER_READ_METRIC_REGISTERED_NAME, null, metrics);
+    return metrics;
+  }
+
+  /**
+   * Adds the latency of a read served by the given NameNode.
+   * @param address host:port of the NameNode
+   * @param latencyMicros the RPC latency in microseconds
+   */
+  public void addReadLatency(String address, long latencyMicros) {
+    readLatency.add(READ_LATENCY_METRIC_PREFIX + address, latencyMicros);
+  }
+}
@@ -1113,6 +1113,31 @@ public interface ClientProtocol {
   HdfsLocatedFileStatus getLocatedFileInfo(String src, boolean needBlockToken)
       throws IOException;
 
+  /**
+   * Get the file info for a batch of files or directories. The namesystem
+   * lock is taken once for the whole batch, which makes this cheaper than
+   * calling {@link #getFileInfo(String)} for each path.
+   *
+   * @param srcs The string representation of the paths to the files. The
+   *        number of paths is limited by dfs.batched.ls.limit.
+   * @param needLocation Include the block locations, with block tokens, of
+   *        files. When locations are included, this call is a superset of
+   *        {@link #getBlockLocations(String, long, long)} for each file.
+   *
+   * @return one entry per path in the order of <code>srcs</code>, the entry
+   *         is null if the corresponding path does not exist
+   *
+   * @throws org.apache.hadoop.security.AccessControlException permission denied
+   *         for any of the paths
+   * @throws org.apache.hadoop.fs.UnresolvedLinkException if any of the paths
+   *         contains a symlink
+   * @throws IOException If an I/O error occurred
+   */
+  @Idempotent
+  @ReadOnly(isCoordinated = true)
+  HdfsFileStatus[] getBatchedFileInfo(String[] srcs, boolean needLocation)
+      throws IOException;
+
   /**
    * Get {@link ContentSummary} rooted at the specified directory.
    * @param path The string representation of the path
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -236,6 +237,20 @@ public class PBHelperClient {
   private static final FsAction[] FSACTION_VALUES =
       FsAction.values();
 
+  /**
+   * Permissions are limited to 10 bits (rwx for user, group, other and the
+   * sticky bit), so the converted protos are shared instead of allocated for
+   * every file status.
+   */
+  private static final FsPermissionProto[] FS_PERMISSION_PROTOS =
+      new FsPermissionProto[1 << 10];
+  static {
+    for (int i = 0; i < FS_PERMISSION_PROTOS.length; i++) {
+      FS_PERMISSION_PROTOS[i] =
+          FsPermissionProto.newBuilder().setPerm(i).build();
+    }
+  }
+
   private static ByteString getFixedByteString(String key) {
     return ProtobufHelper.getFixedByteString(key);
   }
@@ -399,11 +414,29 @@ public class PBHelperClient {
         .setAdminState(convert(info.getAdminState()))
         .setLastBlockReportTime(info.getLastBlockReportTime())
         .setLastBlockReportMonotonic(info.getLastBlockReportMonotonic())
-        .setNumBlocks(info.getNumBlocks())
-        .build();
+        .setNumBlocks(info.getNumBlocks());
     return builder.build();
   }
 
+  /**
+   * Convert a DatanodeInfo, reusing the proto of the same DatanodeInfo
+   * instance converted earlier for the same response. Block locations
+   * repeat a few datanodes for every block of a file. The cache is keyed by
+   * identity since DatanodeInfo#equals ignores the serialized stats.
+   */
+  private static DatanodeInfoProto convert(DatanodeInfo info,
+      Map<DatanodeInfo, DatanodeInfoProto> dnCache) {
+    if (dnCache == null) {
+      return convert(info);
+    }
+    DatanodeInfoProto proto = dnCache.get(info);
+    if (proto == null) {
+      proto = convert(info);
+      dnCache.put(info, proto);
+    }
+    return proto;
+  }
+
   public static List<? extends HdfsProtos.DatanodeInfoProto> convert(
       DatanodeInfo[] dnInfos) {
     return convert(dnInfos, 0);
@@ -1000,33 +1033,51 @@ public class PBHelperClient {
 
   public static List<LocatedBlockProto> convertLocatedBlocks2(
       List<LocatedBlock> lb) {
+    return convertLocatedBlocks2(lb, new IdentityHashMap<>());
+  }
+
+  private static List<LocatedBlockProto> convertLocatedBlocks2(
+      List<LocatedBlock> lb, Map<DatanodeInfo, DatanodeInfoProto> dnCache) {
     if (lb == null) return null;
     final int len = lb.size();
     List<LocatedBlockProto> result = new ArrayList<>(len);
     for (LocatedBlock aLb : lb) {
-      result.add(convertLocatedBlock(aLb));
+      result.add(convertLocatedBlock(aLb, dnCache));
     }
     return result;
   }
 
   public static LocatedBlockProto convertLocatedBlock(LocatedBlock b) {
+    return convertLocatedBlock(b, null);
+  }
+
+  private static LocatedBlockProto convertLocatedBlock(LocatedBlock b,
+      Map<DatanodeInfo, DatanodeInfoProto> dnCache) {
     if (b == null) return null;
     Builder builder = LocatedBlockProto.newBuilder();
     DatanodeInfo[] locs = b.getLocations();
-    List<DatanodeInfo> cachedLocs =
-        Lists.newLinkedList(Arrays.asList(b.getCachedLocations()));
-    for (int i = 0; i < locs.length; i++) {
-      DatanodeInfo loc = locs[i];
-      builder.addLocs(i, PBHelperClient.convert(loc));
-      boolean locIsCached = cachedLocs.contains(loc);
-      builder.addIsCached(locIsCached);
-      if (locIsCached) {
-        cachedLocs.remove(loc);
+    DatanodeInfo[] cachedLocArray = b.getCachedLocations();
+    if (cachedLocArray.length == 0) {
+      // Most blocks have no cached replicas
+      for (DatanodeInfo loc : locs) {
+        builder.addLocs(convert(loc, dnCache));
+        builder.addIsCached(false);
+      }
+    } else {
+      List<DatanodeInfo> cachedLocs =
+          Lists.newLinkedList(Arrays.asList(cachedLocArray));
+      for (DatanodeInfo loc : locs) {
+        builder.addLocs(convert(loc, dnCache));
+        boolean locIsCached = cachedLocs.contains(loc);
+        builder.addIsCached(locIsCached);
+        if (locIsCached) {
+          cachedLocs.remove(loc);
+        }
       }
+      Preconditions.checkArgument(cachedLocs.size() == 0,
+          "Found additional cached replica locations that are not in the set"
+              + " of storage-backed locations!");
     }
-    Preconditions.checkArgument(cachedLocs.size() == 0,
-        "Found additional cached replica locations that are not in the set of"
-            + " storage-backed locations!");
 
     StorageType[] storageTypes = b.getStorageTypes();
     if (storageTypes != null) {
@@ -1754,7 +1805,11 @@ public class PBHelperClient {
   }
 
   public static FsPermissionProto convert(FsPermission p) {
-    return FsPermissionProto.newBuilder().setPerm(p.toShort()).build();
+    short perm = p.toShort();
+    if (perm >= 0 && perm < FS_PERMISSION_PROTOS.length) {
+      return FS_PERMISSION_PROTOS[perm];
+    }
+    return FsPermissionProto.newBuilder().setPerm(perm).build();
   }
 
   public static HdfsFileStatus convert(HdfsFileStatusProto fs) {
@@ -2265,6 +2320,11 @@ public class PBHelperClient {
   }
 
   public static LocatedBlocksProto convert(LocatedBlocks lb) {
+    return convert(lb, new IdentityHashMap<>());
+  }
+
+  private static LocatedBlocksProto convert(LocatedBlocks lb,
+      Map<DatanodeInfo, DatanodeInfoProto> dnCache) {
     if (lb == null) {
       return null;
     }
@@ -2272,7 +2332,7 @@ public class PBHelperClient {
         LocatedBlocksProto.newBuilder();
     if (lb.getLastLocatedBlock() != null) {
       builder.setLastBlock(
-          convertLocatedBlock(lb.getLastLocatedBlock()));
+          convertLocatedBlock(lb.getLastLocatedBlock(), dnCache));
     }
     if (lb.getFileEncryptionInfo() != null) {
       builder.setFileEncryptionInfo(convert(lb.getFileEncryptionInfo()));
@@ -2283,7 +2343,7 @@ public class PBHelperClient {
     }
     return builder.setFileLength(lb.getFileLength())
         .setUnderConstruction(lb.isUnderConstruction())
-        .addAllBlocks(convertLocatedBlocks2(lb.getLocatedBlocks()))
+        .addAllBlocks(convertLocatedBlocks2(lb.getLocatedBlocks(), dnCache))
         .setIsLastBlockComplete(lb.isLastBlockComplete()).build();
   }
 
@@ -2356,6 +2416,11 @@ public class PBHelperClient {
   }
 
   public static HdfsFileStatusProto convert(HdfsFileStatus fs) {
+    return convert(fs, null);
+  }
+
+  private static HdfsFileStatusProto convert(HdfsFileStatus fs,
+      Map<DatanodeInfo, DatanodeInfoProto> dnCache) {
     if (fs == null)
       return null;
     FileType fType = FileType.IS_FILE;
@@ -2390,7 +2455,8 @@ public class PBHelperClient {
       final HdfsLocatedFileStatus lfs = (HdfsLocatedFileStatus) fs;
       LocatedBlocks locations = lfs.getLocatedBlocks();
       if (locations != null) {
-        builder.setLocations(convert(locations));
+        builder.setLocations(convert(locations,
+            dnCache != null ? dnCache : new IdentityHashMap<>()));
       }
     }
     if(fs.getErasureCodingPolicy() != null) {
@@ -2452,8 +2518,10 @@ public class PBHelperClient {
     if (fs == null) return null;
     final int len = fs.length;
     HdfsFileStatusProto[] result = new HdfsFileStatusProto[len];
+    // Located listings share the datanodes of all their files
+    Map<DatanodeInfo, DatanodeInfoProto> dnCache = new IdentityHashMap<>();
     for (int i = 0; i < len; ++i) {
-      result[i] = convert(fs[i]);
+      result[i] = convert(fs[i], dnCache);
     }
     return result;
   }
@@ -24,8 +24,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.URI;
+import java.util.IdentityHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -33,6 +35,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.ha.HAServiceProtocol.HAServiceState;
 import org.apache.hadoop.hdfs.ClientGSIContext;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.client.impl.metrics.ObserverReadMetrics;
 import org.apache.hadoop.hdfs.protocol.ClientProtocol;
 import org.apache.hadoop.io.retry.AtMostOnce;
 import org.apache.hadoop.io.retry.Idempotent;
@@ -46,7 +49,9 @@ import org.apache.hadoop.ipc.RPC;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.ipc.RpcInvocationHandler;
 import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -88,6 +93,30 @@ public class ObserverReadProxyProvider<T>
   /** Observer probe retry period default to 10 min. */
   static final long OBSERVER_PROBE_RETRY_PERIOD_DEFAULT = 60 * 10 * 1000;
 
+  /** Configuration key for {@link #latencyRoutingEnabled}. */
+  static final String OBSERVER_LATENCY_ROUTING_ENABLED_KEY =
+      HdfsClientConfigKeys.Failover.PREFIX
+          + "observer.latency-routing.enabled";
+  /** Observers are used in round-robin order by default. */
+  static final boolean OBSERVER_LATENCY_ROUTING_ENABLED_DEFAULT = false;
+
+  /** Configuration key for {@link #observerMaxLatencyMs}. */
+  static final String OBSERVER_LATENCY_ROUTING_MAX_LATENCY_KEY =
+      HdfsClientConfigKeys.Failover.PREFIX
+          + "observer.latency-routing.max-latency";
+  /** Observers are not skipped for being slow by default. */
+  static final long OBSERVER_LATENCY_ROUTING_MAX_LATENCY_DEFAULT = -1;
+
+  /** Configuration key for {@link #observerLatencyExpiryMs}. */
+  static final String OBSERVER_LATENCY_ROUTING_EXPIRY_KEY =
+      HdfsClientConfigKeys.Failover.PREFIX
+          + "observer.latency-routing.expiry";
+  /** Latency samples default to expire after 1 min. */
+  static final long OBSERVER_LATENCY_ROUTING_EXPIRY_DEFAULT = 60 * 1000;
+
+  /** Client metrics shared by all providers using latency-based routing. */
+  private static ObserverReadMetrics observerReadMetrics;
+
   /** The inner proxy provider used for active/standby failover. */
   private final AbstractNNFailoverProxyProvider<T> failoverProxy;
   /** List of all NameNode proxies. */
@@ -161,6 +190,33 @@ public class ObserverReadProxyProvider<T>
    */
   private long lastObserverProbeTime;
 
+  /**
+   * Whether reads are sent to the observer with the lowest recent RPC
+   * latency rather than to the observers in round-robin order. An observer
+   * which lags behind the state of this client holds its reads until it has
+   * caught up, so its lag shows up as latency.
+   */
+  private final boolean latencyRoutingEnabled;
+
+  /**
+   * Observers with a higher smoothed latency than this are considered too
+   * stale, and reads are sent to the active instead if no other observer is
+   * fast enough. If this is not positive, observers are never skipped.
+   */
+  private final long observerMaxLatencyMs;
+
+  /**
+   * The period after which the latency samples and the state of a NameNode
+   * are discarded, so that slow or non-observer NameNodes are probed again.
+   */
+  private final long observerLatencyExpiryMs;
+
+  /** Latency statistics of each NameNode proxy. */
+  private final Map<NNProxyInfo<T>, ProxyLatency> proxyLatencies;
+
+  /** Timer used to expire the latency statistics. */
+  private Timer timer = new Timer();
+
   /**
    * By default ObserverReadProxyProvider uses
    * {@link ConfiguredFailoverProxyProvider} for failover.
@@ -213,6 +269,23 @@ public class ObserverReadProxyProvider<T>
     observerProbeRetryPeriodMs = conf.getTimeDuration(
         OBSERVER_PROBE_RETRY_PERIOD_KEY,
         OBSERVER_PROBE_RETRY_PERIOD_DEFAULT, TimeUnit.MILLISECONDS);
+    latencyRoutingEnabled = conf.getBoolean(
+        OBSERVER_LATENCY_ROUTING_ENABLED_KEY,
+        OBSERVER_LATENCY_ROUTING_ENABLED_DEFAULT);
+    observerMaxLatencyMs = conf.getTimeDuration(
+        OBSERVER_LATENCY_ROUTING_MAX_LATENCY_KEY,
+        OBSERVER_LATENCY_ROUTING_MAX_LATENCY_DEFAULT, TimeUnit.MILLISECONDS);
+    observerLatencyExpiryMs = conf.getTimeDuration(
+        OBSERVER_LATENCY_ROUTING_EXPIRY_KEY,
+        OBSERVER_LATENCY_ROUTING_EXPIRY_DEFAULT, TimeUnit.MILLISECONDS);
+    proxyLatencies = new IdentityHashMap<>();
+    for (NNProxyInfo<T> pi : nameNodeProxies) {
+      proxyLatencies.put(pi, new ProxyLatency(
+          NetUtils.getHostPortString(pi.getAddress())));
+    }
+    if (latencyRoutingEnabled) {
+      initObserverReadMetrics();
+    }
 
     if (wrappedProxy instanceof ClientProtocol) {
       this.observerReadEnabled = true;
@@ -254,6 +327,11 @@ public class ObserverReadProxyProvider<T>
     this.observerReadEnabled = flag;
   }
 
+  @VisibleForTesting
+  void setTimer(Timer timer) {
+    this.timer = timer;
+  }
+
   @VisibleForTesting
   ProxyInfo<T> getLastProxy() {
     return lastProxy;
@@ -291,6 +369,77 @@ public class ObserverReadProxyProvider<T>
     return currentProxy;
   }
 
+  /**
+   * Select the observer with the lowest smoothed read latency as the current
+   * proxy. NameNodes which have not been contacted yet, or whose statistics
+   * have expired, have their state refreshed and are preferred, so that
+   * every observer is probed regularly. The state is refreshed without
+   * holding the lock of this provider, so that concurrent reads are not
+   * blocked by a slow or unreachable NameNode; only the selected proxy is
+   * swapped in under the lock.
+   *
+   * @return false if there are observers but all of them are slower than
+   *         {@link #observerMaxLatencyMs}, true otherwise.
+   */
+  private boolean selectFastestObserver() {
+    final long now = timer.monotonicNow();
+    for (NNProxyInfo<T> pi : nameNodeProxies) {
+      // Only one thread probes a NameNode whose statistics expired
+      if (proxyLatencies.get(pi).startProbe(now)) {
+        synchronized (this) {
+          createProxyIfNeeded(pi);
+        }
+        pi.setCachedState(getHAServiceState(pi));
+      }
+    }
+    int fastestIndex = -1;
+    long fastestLatency = Long.MAX_VALUE;
+    boolean observerFound = false;
+    for (int i = 0; i < nameNodeProxies.size(); i++) {
+      NNProxyInfo<T> pi = nameNodeProxies.get(i);
+      if (pi.getCachedState() != HAServiceState.OBSERVER) {
+        continue;
+      }
+      observerFound = true;
+      long avgLatency = proxyLatencies.get(pi).getAverageNanos();
+      if (observerMaxLatencyMs > 0 && avgLatency
+          > TimeUnit.MILLISECONDS.toNanos(observerMaxLatencyMs)) {
+        continue;
+      }
+      if (avgLatency < fastestLatency) {
+        fastestIndex = i;
+        fastestLatency = avgLatency;
+      }
+    }
+    if (fastestIndex >= 0) {
+      synchronized (this) {
+        if (fastestIndex != currentIndex) {
+          LOG.debug("Selected {} with average latency {} ns",
+              nameNodeProxies.get(fastestIndex).proxyInfo, fastestLatency);
+          currentIndex = fastestIndex;
+          currentProxy = nameNodeProxies.get(fastestIndex);
+        }
+      }
+    }
+    return fastestIndex >= 0 || !observerFound;
+  }
+
+  private static synchronized void initObserverReadMetrics() {
+    if (observerReadMetrics == null) {
+      observerReadMetrics = ObserverReadMetrics.create();
+    }
+  }
+
+  /**
+   * Record the latency of a read served by the given proxy.
+   */
+  private void addReadLatency(NNProxyInfo<T> proxyInfo, long latencyNanos) {
+    ProxyLatency latency = proxyLatencies.get(proxyInfo);
+    latency.add(latencyNanos, timer.monotonicNow());
+    observerReadMetrics.addReadLatency(latency.address,
+        TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+  }
+
   /**
    * Fetch the service state from a proxy. If it is unable to be fetched,
    * assume it is in standby state, but log the exception.
@@ -428,7 +577,13 @@ public class ObserverReadProxyProvider<T>
         int activeCount = 0;
         int standbyCount = 0;
         int unreachableCount = 0;
-        for (int i = 0; i < nameNodeProxies.size(); i++) {
+        int attempts = nameNodeProxies.size();
+        if (latencyRoutingEnabled && !selectFastestObserver()) {
+          LOG.debug("All observers are slower than {} ms, using the active "
+              + "for {}", observerMaxLatencyMs, method.getName());
+          attempts = 0;
+        }
+        for (int i = 0; i < attempts; i++) {
           NNProxyInfo<T> current = getCurrentProxy();
           HAServiceState currState = current.getCachedState();
           if (currState != HAServiceState.OBSERVER) {
@@ -448,7 +603,11 @@ public class ObserverReadProxyProvider<T>
           LOG.debug("Attempting to service {} using proxy {}",
               method.getName(), current.proxyInfo);
           try {
+            long startNanos = Time.monotonicNowNanos();
             retVal = method.invoke(current.proxy, args);
+            if (latencyRoutingEnabled) {
+              addReadLatency(current, Time.monotonicNowNanos() - startNanos);
+            }
             lastProxy = current;
             LOG.debug("Invocation of {} using {} was successful",
                 method.getName(), current.proxyInfo);
@@ -500,7 +659,9 @@ public class ObserverReadProxyProvider<T>
                   + "Falling back to active.", failedObserverCount,
               method.getName(), standbyCount, activeCount, unreachableCount);
           lastObserverProbeTime = 0;
-        } else {
+        } else if (attempts > 0) {
+          // Observers skipped for their latency are probed again once their
+          // statistics expire, not after the observer probe retry period.
           if (LOG.isDebugEnabled()) {
             LOG.debug("Read falling back to active without observer read "
                 + "fail, is there no observer node running?");
@@ -538,6 +699,58 @@ public class ObserverReadProxyProvider<T>
     }
   }
 
+  /**
+   * Exponentially weighted moving average of the read latency of a
+   * NameNode, together with the time it was last updated.
+   */
+  private class ProxyLatency {
+    /** Weight of the latest sample in the moving average. */
+    private static final double SAMPLE_WEIGHT = 0.25;
+
+    private final String address;
+    private long avgLatencyNanos = 0;
+    private long lastUpdateMs = 0;
+    private boolean probed = false;
+
+    ProxyLatency(String address) {
+      this.address = address;
+    }
+
+    synchronized void add(long latencyNanos, long now) {
+      if (avgLatencyNanos == 0) {
+        avgLatencyNanos = latencyNanos;
+      } else {
+        avgLatencyNanos += (long) (SAMPLE_WEIGHT
+            * (latencyNanos - avgLatencyNanos));
+      }
+      lastUpdateMs = now;
+    }
+
+    /**
+     * Discard the statistics if they expired, or if the NameNode was never
+     * probed, so that the caller refreshes its state.
+     *
+     * @return true if the caller should probe the NameNode.
+     */
+    synchronized boolean startProbe(long now) {
+      if (probed && now - lastUpdateMs <= observerLatencyExpiryMs) {
+        return false;
+      }
+      probed = true;
+      avgLatencyNanos = 0;
+      lastUpdateMs = now;
+      return true;
+    }
+
+    /**
+     * @return the average latency, or 0 if there is no sample yet.
+     */
+    synchronized long getAverageNanos() {
+      return avgLatencyNanos;
+    }
+
+  }
+
   @Override
   public synchronized void close() throws IOException {
     for (ProxyInfo<T> pi : nameNodeProxies) {
@@ -40,6 +40,7 @@ public class TestReadOnly {
           "getStoragePolicy",
           "getListing",
           "getBatchedListing",
+          "getBatchedFileInfo",
           "getSnapshottableDirListing",
           "getSnapshotListing",
           "getPreferredBlockSize",
@@ -125,6 +125,12 @@ public interface FederationRPCMBean {
    */
   String getAsyncCallerPool();
 
+  /**
+   * Get the JSON representation of the async handler thread pool.
+   * @return JSON string representation of the async handler thread pool.
+   */
+  String getAsyncHandlerPool();
+
   /**
    * Get the number of operations rejected due to lack of permits.
    * @return Number of operations rejected due to lack of permits.
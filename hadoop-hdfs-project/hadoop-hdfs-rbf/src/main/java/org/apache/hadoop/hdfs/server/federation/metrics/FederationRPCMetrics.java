@@ -22,6 +22,7 @@ import static org.apache.hadoop.metrics2.impl.MsInfo.SessionId;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hdfs.server.federation.resolver.FederationNamenodeServiceState;
+import org.apache.hadoop.hdfs.server.federation.router.RouterAsyncHandler;
 import org.apache.hadoop.hdfs.server.federation.router.RouterRpcServer;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.annotation.Metric;
@@ -256,6 +257,12 @@ public class FederationRPCMetrics implements FederationRPCMBean {
     return rpcServer.getRPCClient().getAsyncCallerPoolJson();
   }
 
+  @Override
+  public String getAsyncHandlerPool() {
+    RouterAsyncHandler asyncHandler = rpcServer.getAsyncHandler();
+    return asyncHandler == null ? "{}" : asyncHandler.getJSON();
+  }
+
   /**
    * Add the time to proxy an operation from the moment the Router sends it to
    * the Namenode until it replied.
@@ -87,7 +87,7 @@ public class FederationRPCPerformanceMonitor implements RouterRpcMonitor {
     for (String nameservice : FederationUtil.getAllConfiguredNS(conf)) {
       LOG.info("Create Nameservice RPC Metrics for " + nameservice);
       this.nameserviceRPCMetricsMap.computeIfAbsent(nameservice,
-          k -> NameserviceRPCMetrics.create(conf, k));
+          k -> NameserviceRPCMetrics.create(conf, k, server));
     }
 
     // Create thread pool
@@ -164,6 +164,14 @@ public class FederationRPCPerformanceMonitor implements RouterRpcMonitor {
     }
   }
 
+  @Override
+  public void proxyOpConnectionWait(String nsId, long time) {
+    if (nameserviceRPCMetricsMap != null &&
+        nameserviceRPCMetricsMap.containsKey(nsId)) {
+      nameserviceRPCMetricsMap.get(nsId).addConnectionWaitTime(time);
+    }
+  }
+
   @Override
   public void proxyOpFailureStandby(String nsId) {
     if (metrics != null) {
@@ -37,4 +37,8 @@ public interface NameserviceRPCMBean {
 
   long getProxyOpNoNamenodes();
 
+  double getConnectionWaitAvg();
+
+  int getProxyConnections();
+
 }
@@ -18,6 +18,8 @@
 package org.apache.hadoop.hdfs.server.federation.metrics;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.federation.router.RouterRpcClient;
+import org.apache.hadoop.hdfs.server.federation.router.RouterRpcServer;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
@@ -37,11 +39,17 @@ public class NameserviceRPCMetrics implements NameserviceRPCMBean {
   public final static String NAMESERVICE_RPC_METRICS_PREFIX = "NameserviceActivity-";
 
   private final String nsId;
+  /** Nameservice the metrics are for. */
+  private final String nameservice;
+  /** RPC server of the Router, to get its connections. */
+  private final RouterRpcServer server;
 
   @Metric("Time for the Router to proxy an operation to the Nameservice")
   private MutableRate proxy;
   @Metric("Number of operations the Router proxied to a NameService")
   private MutableCounterLong proxyOp;
+  @Metric("Time for the Router to get a connection to the Nameservice")
+  private MutableRate connectionWait;
 
   @Metric("Number of operations to hit a standby NN")
   private MutableCounterLong proxyOpFailureStandby;
@@ -51,17 +59,29 @@ public class NameserviceRPCMetrics implements NameserviceRPCMBean {
   private MutableCounterLong proxyOpNoNamenodes;
 
   public NameserviceRPCMetrics(Configuration conf, String nsId) {
+    this(conf, nsId, null, null);
+  }
+
+  public NameserviceRPCMetrics(Configuration conf, String nsId,
+      String nameservice, RouterRpcServer server) {
     this.nsId = nsId;
+    this.nameservice = nameservice;
+    this.server = server;
   }
 
   public static NameserviceRPCMetrics create(Configuration conf,
       String nameService) {
+    return create(conf, nameService, null);
+  }
+
+  public static NameserviceRPCMetrics create(Configuration conf,
+      String nameService, RouterRpcServer server) {
     MetricsSystem ms = DefaultMetricsSystem.instance();
     String name = NAMESERVICE_RPC_METRICS_PREFIX + (nameService.isEmpty()
         ? "UndefinedNameService"+ ThreadLocalRandom.current().nextInt()
         : nameService);
     return ms.register(name, "HDFS Federation NameService RPC Metrics",
-        new NameserviceRPCMetrics(conf, name));
+        new NameserviceRPCMetrics(conf, name, nameService, server));
   }
 
   public void incrProxyOpFailureStandby() {
@@ -112,6 +132,30 @@ public class NameserviceRPCMetrics implements NameserviceRPCMBean {
     return proxyOp.value();
   }
 
+  /**
+   * Add the time for the Router to get a connection to the Namenode to
+   * proxy an operation.
+   * @param time Connection wait time in nanoseconds.
+   */
+  public void addConnectionWaitTime(long time) {
+    connectionWait.add(time);
+  }
+
+  @Override
+  public double getConnectionWaitAvg() {
+    return connectionWait.lastStat().mean();
+  }
+
+  @Override
+  @Metric({"ProxyConnections", "Number of open connections to the Nameservice"})
+  public int getProxyConnections() {
+    RouterRpcClient rpcClient = server != null ? server.getRPCClient() : null;
+    if (rpcClient == null || nameservice == null) {
+      return 0;
+    }
+    return rpcClient.getNumConnections(nameservice);
+  }
+
   public String getNsId() {
     return this.nsId;
   }
@@ -43,8 +43,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
 
@@ -74,7 +73,9 @@ import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
  * {@link org.apache.hadoop.hdfs.server.federation.router.Router Router} to map
  * the global HDFS view to the remote namespaces. This is similar to
  * {@link org.apache.hadoop.fs.viewfs.ViewFs ViewFs}.
- * This is implemented as a tree.
+ * This is implemented as a trie of the mount points, so the paths are resolved
+ * without locking. A refresh from the State Store builds a new trie and swaps
+ * it, so the paths are never resolved against a partially applied refresh.
  */
 public class MountTableResolver
     implements FileSubclusterResolver, StateStoreCache {
@@ -93,8 +94,10 @@ public class MountTableResolver
   private boolean init = false;
   /** If the mount table is manually disabled*/
   private boolean disabled = false;
-  /** Path -> Remote HDFS location. */
-  private final TreeMap<String, MountTable> tree = new TreeMap<>();
+  /** Path -> Remote HDFS location, replaced on every refresh. */
+  private volatile MountTableTrie tree = new MountTableTrie();
+  /** Number of updates of the tree, to detect the stale cached locations. */
+  private volatile long treeVersion = 0;
   /** Path -> Remote location. */
   private final Cache<String, PathLocation> locationCache;
 
@@ -103,10 +106,8 @@ public class MountTableResolver
   /** If use default nameservice to read and write files. */
   private boolean defaultNSEnable = true;
 
-  /** Synchronization for both the tree and the cache. */
-  private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-  private final Lock readLock = readWriteLock.readLock();
-  private final Lock writeLock = readWriteLock.writeLock();
+  /** Synchronization for the updates of the tree and the cache. */
+  private final Lock writeLock = new ReentrantLock();
 
   /** Trash Current matching pattern. */
   private static final String TRASH_PATTERN = "/(Current|[0-9]+)";
@@ -224,6 +225,7 @@ public class MountTableResolver
     try {
       String srcPath = entry.getSourcePath();
       this.tree.put(srcPath, entry);
+      this.treeVersion++;
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -240,6 +242,7 @@ public class MountTableResolver
     writeLock.lock();
     try {
       this.tree.remove(srcPath);
+      this.treeVersion++;
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -247,7 +250,8 @@ public class MountTableResolver
   }
 
   /**
-   * Invalidates all cache entries below this path. It requires the write lock.
+   * Invalidates all cache entries below this path. It requires the write lock
+   * and the tree version to be already increased.
    *
    * @param path Source path.
    */
@@ -302,17 +306,18 @@ public class MountTableResolver
       }
 
       // Old entries (reversed to sort from the leaves to the root)
+      TreeMap<String, MountTable> newTree = new TreeMap<>(tree.getEntries());
       Set<String> oldEntries = new TreeSet<>(Collections.reverseOrder());
-      for (MountTable entry : getTreeValues("/")) {
-        String srcPath = entry.getSourcePath();
-        oldEntries.add(srcPath);
-      }
+      oldEntries.addAll(newTree.keySet());
+
+      // Paths to invalidate once the new tree is visible
+      List<String> changedPaths = new ArrayList<>();
 
       // Entries that need to be removed
       for (String srcPath : oldEntries) {
         if (!newEntries.containsKey(srcPath)) {
-          this.tree.remove(srcPath);
-          invalidateLocationCache(srcPath);
+          newTree.remove(srcPath);
+          changedPaths.add(srcPath);
           LOG.info("Removed stale mount point {} from resolver", srcPath);
         }
       }
@@ -322,21 +327,30 @@ public class MountTableResolver
         String srcPath = entry.getSourcePath();
         if (!oldEntries.contains(srcPath)) {
           // Add node, it does not exist
-          this.tree.put(srcPath, entry);
-          invalidateLocationCache(srcPath);
+          newTree.put(srcPath, entry);
+          changedPaths.add(srcPath);
           LOG.info("Added new mount point {} to resolver", srcPath);
         } else {
           // Node exists, check for updates
-          MountTable existingEntry = this.tree.get(srcPath);
+          MountTable existingEntry = newTree.get(srcPath);
           if (existingEntry != null && !existingEntry.equals(entry)) {
             LOG.info("Entry has changed from \"{}\" to \"{}\"",
                 existingEntry, entry);
-            this.tree.put(srcPath, entry);
-            invalidateLocationCache(srcPath);
+            newTree.put(srcPath, entry);
+            changedPaths.add(srcPath);
             LOG.info("Updated mount point {} in resolver", srcPath);
           }
         }
       }
+
+      // Swap the tree before invalidating, so it is not cached again
+      if (!changedPaths.isEmpty()) {
+        this.tree = new MountTableTrie(newTree);
+        this.treeVersion++;
+        for (String srcPath : changedPaths) {
+          invalidateLocationCache(srcPath);
+        }
+      }
     } finally {
       writeLock.unlock();
     }
@@ -350,6 +364,10 @@ public class MountTableResolver
    */
   @VisibleForTesting
   public static boolean isTrashPath(String path) throws IOException {
+    // Avoid compiling the pattern for the paths outside of the homes
+    if (!path.startsWith(FileSystem.USER_HOME_PREFIX)) {
+      return false;
+    }
     Pattern pattern = Pattern.compile(
         "^" + getTrashRoot() + TRASH_PATTERN + "/");
     return pattern.matcher(path).find();
@@ -422,10 +440,11 @@ public class MountTableResolver
     LOG.info("Clearing all mount location caches");
     writeLock.lock();
     try {
+      this.tree = new MountTableTrie();
+      this.treeVersion++;
       if (this.locationCache != null) {
         this.locationCache.invalidateAll();
       }
-      this.tree.clear();
     } finally {
       writeLock.unlock();
     }
@@ -436,14 +455,21 @@ public class MountTableResolver
       throws IOException {
     verifyMountTable();
     PathLocation res;
-    readLock.lock();
     try {
       if (this.locationCache == null) {
         res = lookupLocation(processTrashPath(path));
       } else {
+        final long version = this.treeVersion;
+        final String key = processTrashPath(path);
         Callable<? extends PathLocation> meh = (Callable<PathLocation>) () ->
-            lookupLocation(processTrashPath(path));
-        res = this.locationCache.get(processTrashPath(path), meh);
+            lookupLocation(key);
+        res = this.locationCache.get(key, meh);
+        if (this.treeVersion != version) {
+          // The tree changed meanwhile, the location may have been cached
+          // after its invalidation
+          this.locationCache.asMap().remove(key, res);
+          res = lookupLocation(key);
+        }
       }
       if (isTrashPath(path)) {
         List<RemoteLocation> remoteLocations = new ArrayList<>();
@@ -464,14 +490,11 @@ public class MountTableResolver
         ioe = new IOException(cause);
       }
       throw ioe;
-    } finally {
-      readLock.unlock();
     }
   }
 
   /**
-   * Build the path location to insert into the cache atomically. It must hold
-   * the read lock.
+   * Build the path location to insert into the cache.
    * @param str Path to check/insert.
    * @return New remote location.
    * @throws IOException If it cannot find the location.
@@ -516,15 +539,11 @@ public class MountTableResolver
     if (isTrashPath(path)) {
       path = subtractTrashCurrentPath(path);
     }
-    readLock.lock();
-    try {
-      String from = path;
-      String to = path + Character.MAX_VALUE;
-      SortedMap<String, MountTable> subMap = this.tree.subMap(from, to);
-      return FileSubclusterResolver.getMountPoints(path, subMap.keySet());
-    } finally {
-      readLock.unlock();
-    }
+    String from = path;
+    String to = path + Character.MAX_VALUE;
+    SortedMap<String, MountTable> subMap =
+        this.tree.getEntries().subMap(from, to);
+    return FileSubclusterResolver.getMountPoints(path, subMap.keySet());
   }
 
   /**
@@ -551,12 +570,7 @@ public class MountTableResolver
 
   @Override
   public String toString() {
-    readLock.lock();
-    try {
-      return this.tree.toString();
-    } finally {
-      readLock.unlock();
-    }
+    return this.tree.toString();
   }
 
   /**
@@ -613,28 +627,7 @@ public class MountTableResolver
    * @return Mount table entry.
    */
   private MountTable findDeepest(final String path) {
-    readLock.lock();
-    try {
-      Entry<String, MountTable> entry = this.tree.floorEntry(path);
-      while (entry != null && !isParentEntry(path, entry.getKey())) {
-        entry = this.tree.lowerEntry(entry.getKey());
-      }
-      if (entry == null) {
-        return null;
-      }
-      return entry.getValue();
-    } finally {
-      readLock.unlock();
-    }
-  }
-
-  /**
-   * Get the mount table entries under a path.
-   * @param path Path to search from.
-   * @return Mount Table entries.
-   */
-  private List<MountTable> getTreeValues(final String path) {
-    return getTreeValues(path, false);
+    return this.tree.findDeepest(path);
   }
 
   /**
@@ -645,20 +638,16 @@ public class MountTableResolver
    */
   private List<MountTable> getTreeValues(final String path, boolean reverse) {
     LinkedList<MountTable> ret = new LinkedList<>();
-    readLock.lock();
-    try {
-      String from = path;
-      String to = path + Character.MAX_VALUE;
-      SortedMap<String, MountTable> subMap = this.tree.subMap(from, to);
-      for (MountTable entry : subMap.values()) {
-        if (!reverse) {
-          ret.add(entry);
-        } else {
-          ret.addFirst(entry);
-        }
+    String from = path;
+    String to = path + Character.MAX_VALUE;
+    SortedMap<String, MountTable> subMap =
+        this.tree.getEntries().subMap(from, to);
+    for (MountTable entry : subMap.values()) {
+      if (!reverse) {
+        ret.add(entry);
+      } else {
+        ret.addFirst(entry);
       }
-    } finally {
-      readLock.unlock();
     }
     return ret;
   }
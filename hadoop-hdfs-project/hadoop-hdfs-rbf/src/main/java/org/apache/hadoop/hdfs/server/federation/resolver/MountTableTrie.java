@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.resolver;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+
+/**
+ * Mount table entries of a {@link MountTableResolver}, indexed in a trie of
+ * the components of their source paths. The deepest mount point of a path is
+ * found in as many steps as the path has components, whatever the number of
+ * entries, and without locking. The updates must be serialized by the caller.
+ */
+final class MountTableTrie {
+
+  /** Node of the trie, for a component of the source paths. */
+  private static final class Node {
+    /** Component -> Child node. */
+    private final ConcurrentMap<String, Node> children =
+        new ConcurrentHashMap<>();
+    /** Entry with the path of this node, null if not a mount point. */
+    private volatile MountTable entry;
+
+    private boolean isEmpty() {
+      return entry == null && children.isEmpty();
+    }
+  }
+
+  /** Source path -> Mount table entry. */
+  private final ConcurrentNavigableMap<String, MountTable> entries =
+      new ConcurrentSkipListMap<>();
+  /** Node of the root path. */
+  private final Node root = new Node();
+
+  /**
+   * Create an empty trie.
+   */
+  MountTableTrie() {
+  }
+
+  /**
+   * Create a trie with mount table entries.
+   *
+   * @param entries Source path -> Mount table entry.
+   */
+  MountTableTrie(Map<String, MountTable> entries) {
+    for (Map.Entry<String, MountTable> entry : entries.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Add or replace a mount table entry.
+   *
+   * @param srcPath Normalized source path of the entry.
+   * @param entry Mount table entry.
+   */
+  void put(String srcPath, MountTable entry) {
+    Node node = root;
+    for (String component : srcPath.split(Path.SEPARATOR)) {
+      if (!component.isEmpty()) {
+        node = node.children.computeIfAbsent(component, c -> new Node());
+      }
+    }
+    node.entry = entry;
+    entries.put(srcPath, entry);
+  }
+
+  /**
+   * Remove a mount table entry and the nodes left without entries.
+   *
+   * @param srcPath Normalized source path of the entry.
+   * @return The removed entry, null if there was none.
+   */
+  MountTable remove(String srcPath) {
+    MountTable removed = entries.remove(srcPath);
+    if (removed == null) {
+      return null;
+    }
+    Deque<Node> parents = new ArrayDeque<>();
+    Deque<String> components = new ArrayDeque<>();
+    Node node = root;
+    for (String component : srcPath.split(Path.SEPARATOR)) {
+      if (!component.isEmpty()) {
+        parents.push(node);
+        components.push(component);
+        node = node.children.get(component);
+      }
+    }
+    node.entry = null;
+    while (!parents.isEmpty() && node.isEmpty()) {
+      node = parents.pop();
+      node.children.remove(components.pop());
+    }
+    return removed;
+  }
+
+  /**
+   * Get a mount table entry.
+   *
+   * @param srcPath Normalized source path of the entry.
+   * @return Mount table entry, null if there is none.
+   */
+  MountTable get(String srcPath) {
+    return entries.get(srcPath);
+  }
+
+  /**
+   * Get the entries of the trie.
+   *
+   * @return Source path -> Mount table entry, sorted by source path.
+   */
+  SortedMap<String, MountTable> getEntries() {
+    return Collections.unmodifiableSortedMap(entries);
+  }
+
+  /**
+   * Find the deepest mount point for a path.
+   *
+   * @param path Normalized absolute path to look for.
+   * @return Mount table entry, null if no mount point is a parent of the path.
+   */
+  MountTable findDeepest(final String path) {
+    if (!path.startsWith(Path.SEPARATOR)) {
+      return null;
+    }
+    MountTable deepest = root.entry;
+    Node node = root;
+    int start = 1;
+    while (start < path.length()) {
+      int end = path.indexOf(Path.SEPARATOR_CHAR, start);
+      if (end < 0) {
+        end = path.length();
+      }
+      node = node.children.get(path.substring(start, end));
+      if (node == null) {
+        break;
+      }
+      MountTable entry = node.entry;
+      if (entry != null) {
+        deepest = entry;
+      }
+      start = end + 1;
+    }
+    return deepest;
+  }
+
+  @Override
+  public String toString() {
+    return this.entries.toString();
+  }
+}
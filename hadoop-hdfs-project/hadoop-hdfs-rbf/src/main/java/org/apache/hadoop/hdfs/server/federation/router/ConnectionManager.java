@@ -284,6 +284,28 @@ public class ConnectionManager {
     return total;
   }
 
+  /**
+   * Get number of open connections to the namenodes of a nameservice.
+   *
+   * @param nsId Nameservice identifier.
+   * @return Number of open connections to the nameservice.
+   */
+  public int getNumConnections(String nsId) {
+    int total = 0;
+    readLock.lock();
+    try {
+      for (Entry<ConnectionPoolId, ConnectionPool> entry :
+          this.pools.entrySet()) {
+        if (nsId.equals(connectionPoolToNamespaceMap.get(entry.getKey()))) {
+          total += entry.getValue().getNumConnections();
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return total;
+  }
+
   /**
    * Get number of active connections.
    *
@@ -62,6 +62,15 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
   public static final String DFS_ROUTER_HANDLER_QUEUE_SIZE_KEY =
       FEDERATION_ROUTER_PREFIX + "handler.queue.size";
   public static final int DFS_ROUTER_HANDLER_QUEUE_SIZE_DEFAULT = 100;
+  public static final String DFS_ROUTER_ASYNC_RPC_ENABLE_KEY =
+      FEDERATION_ROUTER_PREFIX + "async.rpc.enable";
+  public static final boolean DFS_ROUTER_ASYNC_RPC_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY =
+      FEDERATION_ROUTER_PREFIX + "async.rpc.handler.count";
+  public static final int DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_DEFAULT = 64;
+  public static final String DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY =
+      FEDERATION_ROUTER_PREFIX + "async.rpc.queue.size";
+  public static final int DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_DEFAULT = 1000;
   public static final String DFS_ROUTER_RPC_BIND_HOST_KEY =
       FEDERATION_ROUTER_PREFIX + "rpc-bind-host";
   public static final int DFS_ROUTER_RPC_PORT_DEFAULT = 8888;
@@ -145,6 +154,10 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
   public static final String DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_KEY =
       FEDERATION_ROUTER_PREFIX + "max.concurrency.per.connection";
   public static final int DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_DEFAULT = 1;
+  public static final String DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_KEY =
+      FEDERATION_ROUTER_PREFIX + "connection.shared.enable";
+  public static final boolean
+      DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_DEFAULT = false;
 
   // HDFS Router RPC client
   public static final String DFS_ROUTER_CLIENT_THREADS_SIZE =
@@ -163,6 +176,22 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
       FEDERATION_ROUTER_PREFIX + "client.mount-status.time-out";
   public static final long DFS_ROUTER_CLIENT_MOUNT_TIME_OUT_DEFAULT =
       TimeUnit.SECONDS.toMillis(1);
+  public static final String DFS_ROUTER_METADATA_CACHE_ENABLE_KEY =
+      FEDERATION_ROUTER_PREFIX + "metadata.cache.enable";
+  public static final boolean DFS_ROUTER_METADATA_CACHE_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_METADATA_CACHE_MOUNT_POINTS_KEY =
+      FEDERATION_ROUTER_PREFIX + "metadata.cache.mount-points";
+  public static final String DFS_ROUTER_METADATA_CACHE_SIZE_KEY =
+      FEDERATION_ROUTER_PREFIX + "metadata.cache.size";
+  public static final int DFS_ROUTER_METADATA_CACHE_SIZE_DEFAULT = 10000;
+  public static final String DFS_ROUTER_METADATA_CACHE_EXPIRATION_KEY =
+      FEDERATION_ROUTER_PREFIX + "metadata.cache.expiration";
+  public static final long DFS_ROUTER_METADATA_CACHE_EXPIRATION_MS_DEFAULT =
+      TimeUnit.SECONDS.toMillis(10);
+  public static final String DFS_ROUTER_METADATA_CACHE_MAX_STATE_ID_LAG_KEY =
+      FEDERATION_ROUTER_PREFIX + "metadata.cache.max-state-id-lag";
+  public static final long DFS_ROUTER_METADATA_CACHE_MAX_STATE_ID_LAG_DEFAULT =
+      0;
   public static final String DFS_ROUTER_CLIENT_MAX_RETRIES_TIME_OUT =
       FEDERATION_ROUTER_PREFIX + "connect.max.retries.on.timeouts";
   public static final int DFS_ROUTER_CLIENT_MAX_RETRIES_TIME_OUT_DEFAULT = 0;
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.security.PrivilegedExceptionAction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.ipc.ProtobufRpcEngine2;
+import org.apache.hadoop.ipc.ProtobufRpcEngineCallback2;
+import org.apache.hadoop.ipc.Server;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.thirdparty.protobuf.BlockingService;
+import org.apache.hadoop.thirdparty.protobuf.Descriptors.MethodDescriptor;
+import org.apache.hadoop.thirdparty.protobuf.Descriptors.ServiceDescriptor;
+import org.apache.hadoop.thirdparty.protobuf.Message;
+import org.apache.hadoop.thirdparty.protobuf.RpcController;
+import org.apache.hadoop.thirdparty.protobuf.ServiceException;
+import org.eclipse.jetty.util.ajax.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the calls of the protocols of the {@link RouterRpcServer} outside of
+ * the RPC server handlers. The handler of a call only hands it off to a pool
+ * of async handlers and defers its response, which is sent by the async
+ * handler once the downstream namenodes replied. The handlers of the RPC
+ * server are then never blocked by a slow namenode, and a few of them are
+ * enough to feed the async handlers.
+ * <p>
+ * The async handlers run each call as the remote user of the call, with the
+ * call and its caller context set, like an RPC server handler does. When all
+ * the async handlers are busy and their queue is full, the call is run by the
+ * RPC server handler itself, which pushes back on the clients.
+ * This is managed by {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_ENABLE_KEY}.
+ */
+@InterfaceAudience.Private
+public class RouterAsyncHandler {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(RouterAsyncHandler.class);
+
+  /** Async handlers running the calls. */
+  private final ThreadPoolExecutor executorService;
+  /** Calls run by the RPC server handlers as the async handlers were full. */
+  private final LongAdder callerRuns = new LongAdder();
+
+  public RouterAsyncHandler(Configuration conf) {
+    int numThreads = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_DEFAULT);
+    int queueSize = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_DEFAULT);
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("RPC Router Async Handler-%d")
+        .setDaemon(true)
+        .build();
+    this.executorService = new ThreadPoolExecutor(numThreads, numThreads,
+        0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+        threadFactory);
+    LOG.info("Serving Router RPC calls with {} async handlers", numThreads);
+  }
+
+  /**
+   * Wrap a protocol service so its calls are served by the async handlers.
+   *
+   * @param service Service to wrap.
+   * @return Service deferring the responses of the calls to the service.
+   */
+  public BlockingService wrap(final BlockingService service) {
+    return new BlockingService() {
+      @Override
+      public ServiceDescriptor getDescriptorForType() {
+        return service.getDescriptorForType();
+      }
+
+      @Override
+      public Message callBlockingMethod(MethodDescriptor method,
+          RpcController controller, Message request) throws ServiceException {
+        return handOff(service, method, controller, request);
+      }
+
+      @Override
+      public Message getRequestPrototype(MethodDescriptor method) {
+        return service.getRequestPrototype(method);
+      }
+
+      @Override
+      public Message getResponsePrototype(MethodDescriptor method) {
+        return service.getResponsePrototype(method);
+      }
+    };
+  }
+
+  /**
+   * Hand off a call from the RPC server handler to the async handlers.
+   *
+   * @return Null as the response is deferred.
+   * @throws ServiceException If the call is not an RPC server call and
+   *                          fails.
+   */
+  private Message handOff(final BlockingService service,
+      final MethodDescriptor method, final RpcController controller,
+      final Message request) throws ServiceException {
+    final Server.Call call = Server.getCurCall().get();
+    if (call == null) {
+      // Not an RPC server call, nothing to defer
+      return service.callBlockingMethod(method, controller, request);
+    }
+    final ProtobufRpcEngineCallback2 callback =
+        ProtobufRpcEngine2.Server.registerForDeferredResponse2();
+    final CallerContext callerContext = CallerContext.getCurrent();
+    final Runnable task = () -> run(call, callerContext, callback,
+        () -> service.callBlockingMethod(method, controller, request));
+    try {
+      executorService.execute(task);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Async handlers are full, running {} in the handler", call);
+      callerRuns.increment();
+      task.run();
+    }
+    return null;
+  }
+
+  /**
+   * Run a call in the context of its RPC server call and send its response.
+   */
+  private static void run(Server.Call call, CallerContext callerContext,
+      ProtobufRpcEngineCallback2 callback,
+      PrivilegedExceptionAction<Message> action) {
+    final Server.Call previousCall = Server.getCurCall().get();
+    final CallerContext previousCallerContext = CallerContext.getCurrent();
+    Server.getCurCall().set(call);
+    CallerContext.setCurrent(callerContext);
+    try {
+      final UserGroupInformation remoteUser = call.getRemoteUser();
+      final Message response = remoteUser != null ?
+          remoteUser.doAs(action) : action.run();
+      callback.setResponse(response);
+    } catch (Throwable t) {
+      callback.error(unwrap(t));
+    } finally {
+      Server.getCurCall().set(previousCall);
+      CallerContext.setCurrent(previousCallerContext);
+    }
+  }
+
+  /**
+   * Get the exception thrown by the protocol implementation, as the RPC
+   * server would report it.
+   */
+  private static Throwable unwrap(Throwable t) {
+    while ((t instanceof UndeclaredThrowableException
+        || t instanceof ServiceException) && t.getCause() != null) {
+      t = t.getCause();
+    }
+    return t;
+  }
+
+  /**
+   * JSON representation of the async handler thread pool.
+   *
+   * @return String representation of the JSON.
+   */
+  public String getJSON() {
+    final Map<String, Long> info = new LinkedHashMap<>();
+    info.put("active", (long) executorService.getActiveCount());
+    info.put("total", (long) executorService.getPoolSize());
+    info.put("max", (long) executorService.getMaximumPoolSize());
+    info.put("queued", (long) executorService.getQueue().size());
+    info.put("callerRuns", callerRuns.sum());
+    return JSON.toString(info);
+  }
+
+  /**
+   * Stop the async handlers. The calls they did not serve yet are dropped.
+   */
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+}
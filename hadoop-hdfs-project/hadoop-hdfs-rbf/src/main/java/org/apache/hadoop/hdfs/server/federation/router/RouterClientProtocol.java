@@ -142,6 +142,8 @@ public class RouterClientProtocol implements ClientProtocol {
 
   /** If it requires response from all subclusters. */
   private final boolean allowPartialList;
+  /** Cache of the file status and listings, null if disabled. */
+  private final RouterMetadataCache metadataCache;
   /** Time out when getting the mount statistics. */
   private long mountStatusTimeOut;
 
@@ -194,6 +196,31 @@ public class RouterClientProtocol implements ClientProtocol {
     this.routerCacheAdmin = new RouterCacheAdmin(rpcServer);
     this.securityManager = rpcServer.getRouterSecurityManager();
     this.rbfRename = new RouterFederationRename(rpcServer, conf);
+    if (conf.getBoolean(RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_ENABLE_KEY,
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_ENABLE_DEFAULT)) {
+      this.metadataCache = new RouterMetadataCache(
+          conf, rpcServer, rpcServer.getRouterStateIdContext());
+    } else {
+      this.metadataCache = null;
+    }
+  }
+
+  /**
+   * Release the resources of the module.
+   */
+  void close() {
+    if (this.metadataCache != null) {
+      this.metadataCache.close();
+    }
+  }
+
+  /**
+   * Get the cache of the file status and listings.
+   *
+   * @return Metadata cache, null if disabled.
+   */
+  public RouterMetadataCache getMetadataCache() {
+    return this.metadataCache;
   }
 
   @Override
@@ -742,7 +769,7 @@ public class RouterClientProtocol implements ClientProtocol {
     if (locations.size() > 1) {
       // Check if this directory already exists
       try {
-        HdfsFileStatus fileStatus = getFileInfo(src);
+        HdfsFileStatus fileStatus = getFileInfoInt(src);
         if (fileStatus != null) {
           // When existing, the NN doesn't return an exception; return true
           return true;
@@ -815,6 +842,20 @@ public class RouterClientProtocol implements ClientProtocol {
       boolean needLocation) throws IOException {
     rpcServer.checkOperation(NameNode.OperationCategory.READ);
 
+    // Block locations change without the namespace changing
+    if (metadataCache != null && !needLocation) {
+      return metadataCache.get("getListing", src,
+          startAfter == null ? HdfsFileStatus.EMPTY_NAME : startAfter,
+          () -> getMergedListing(src, startAfter, false));
+    }
+    return getMergedListing(src, startAfter, needLocation);
+  }
+
+  /**
+   * Get the listing of a path merged across its locations and mount points.
+   */
+  private DirectoryListing getMergedListing(String src, byte[] startAfter,
+      boolean needLocation) throws IOException {
     List<RemoteResult<RemoteLocation, DirectoryListing>> listings =
         getListingInt(src, startAfter, needLocation);
     TreeMap<String, HdfsFileStatus> nnListing = new TreeMap<>();
@@ -936,6 +977,17 @@ public class RouterClientProtocol implements ClientProtocol {
   public HdfsFileStatus getFileInfo(String src) throws IOException {
     rpcServer.checkOperation(NameNode.OperationCategory.READ);
 
+    if (metadataCache != null) {
+      return metadataCache.get("getFileInfo", src, null,
+          () -> getFileInfoInt(src));
+    }
+    return getFileInfoInt(src);
+  }
+
+  /**
+   * Get the file info of a path from its locations or mount points.
+   */
+  private HdfsFileStatus getFileInfoInt(String src) throws IOException {
     HdfsFileStatus ret = null;
     IOException noLocationException = null;
     try {
@@ -956,18 +1008,7 @@ public class RouterClientProtocol implements ClientProtocol {
 
     // If there is no real path, check mount points
     if (ret == null) {
-      List<String> children = subclusterResolver.getMountPoints(src);
-      if (children != null && !children.isEmpty()) {
-        Map<String, Long> dates = getMountPointDates(src);
-        long date = 0;
-        if (dates != null && dates.containsKey(src)) {
-          date = dates.get(src);
-        }
-        ret = getMountPointStatus(src, children.size(), date);
-      } else if (children != null) {
-        // The src is a mount point, but there are no files or directories
-        ret = getMountPointStatus(src, 0, 0);
-      }
+      ret = getMountPointFileInfo(src);
     }
 
     // Can't find mount point for path and the path didn't contain any sub monit points,
@@ -1003,6 +1044,31 @@ public class RouterClientProtocol implements ClientProtocol {
         null);
   }
 
+  /**
+   * Get the file info of a path which does not exist in the subclusters but
+   * may be a mount point or have mount points below it.
+   *
+   * @param src Path to get the file info for.
+   * @return The status of the mount point, null if the path is none.
+   * @throws IOException If the dates of the mount points cannot be read.
+   */
+  private HdfsFileStatus getMountPointFileInfo(String src)
+      throws IOException {
+    List<String> children = subclusterResolver.getMountPoints(src);
+    if (children != null && !children.isEmpty()) {
+      Map<String, Long> dates = getMountPointDates(src);
+      long date = 0;
+      if (dates != null && dates.containsKey(src)) {
+        date = dates.get(src);
+      }
+      return getMountPointStatus(src, children.size(), date);
+    } else if (children != null) {
+      // The src is a mount point, but there are no files or directories
+      return getMountPointStatus(src, 0, 0);
+    }
+    return null;
+  }
+
   @Override
   public HdfsLocatedFileStatus getLocatedFileInfo(String src,
       boolean needBlockToken) throws IOException {
@@ -1016,6 +1082,88 @@ public class RouterClientProtocol implements ClientProtocol {
         locations, method, HdfsFileStatus.class, null);
   }
 
+  @Override
+  public HdfsFileStatus[] getBatchedFileInfo(String[] srcs,
+      boolean needLocation) throws IOException {
+    rpcServer.checkOperation(NameNode.OperationCategory.READ);
+
+    // Group the paths with a single destination by subcluster, to get their
+    // status with one call per subcluster
+    HdfsFileStatus[] stats = new HdfsFileStatus[srcs.length];
+    Map<String, List<Integer>> indexesByNs = new LinkedHashMap<>();
+    Map<String, List<String>> destsByNs = new HashMap<>();
+    List<Integer> others = new ArrayList<>();
+    for (int i = 0; i < srcs.length; i++) {
+      List<RemoteLocation> locations;
+      try {
+        locations = rpcServer.getLocationsForPath(srcs[i], false, false);
+      } catch (NoLocationException | RouterResolveException e) {
+        // Directories which only exist as mount points
+        others.add(i);
+        continue;
+      }
+      if (locations.size() != 1 || rpcServer.isPathAll(srcs[i])) {
+        others.add(i);
+        continue;
+      }
+      RemoteLocation location = locations.get(0);
+      indexesByNs.computeIfAbsent(location.getNameserviceId(),
+          ns -> new ArrayList<>()).add(i);
+      destsByNs.computeIfAbsent(location.getNameserviceId(),
+          ns -> new ArrayList<>()).add(location.getDest());
+    }
+
+    if (!indexesByNs.isEmpty()) {
+      List<RemoteLocation> nsLocations = new ArrayList<>();
+      Map<RemoteLocation, String[]> nsDests = new HashMap<>();
+      for (Map.Entry<String, List<String>> entry : destsByNs.entrySet()) {
+        RemoteLocation nsLocation =
+            new RemoteLocation(entry.getKey(), "/", "/");
+        nsLocations.add(nsLocation);
+        nsDests.put(nsLocation, entry.getValue().toArray(new String[0]));
+      }
+      RemoteMethod method = new RemoteMethod("getBatchedFileInfo",
+          new Class<?>[] {String[].class, boolean.class},
+          new RemoteParam(nsDests), needLocation);
+      Map<RemoteLocation, HdfsFileStatus[]> results =
+          rpcClient.invokeConcurrent(nsLocations, method, true, false,
+              HdfsFileStatus[].class);
+      for (Map.Entry<RemoteLocation, HdfsFileStatus[]> entry :
+          results.entrySet()) {
+        List<Integer> indexes =
+            indexesByNs.get(entry.getKey().getNameserviceId());
+        HdfsFileStatus[] nsStats = entry.getValue();
+        for (int j = 0; j < indexes.size(); j++) {
+          int i = indexes.get(j);
+          stats[i] = nsStats[j];
+          if (stats[i] == null) {
+            stats[i] = getMountPointFileInfo(srcs[i]);
+          }
+        }
+      }
+    }
+
+    // The other paths are resolved like a single call would
+    for (int i : others) {
+      HdfsFileStatus status = null;
+      if (needLocation) {
+        try {
+          status = getLocatedFileInfo(srcs[i], true);
+          if (status == null) {
+            status = getMountPointFileInfo(srcs[i]);
+          }
+        } catch (NoLocationException | RouterResolveException e) {
+          LOG.debug("Cannot get located file info of {}", srcs[i], e);
+          status = getFileInfo(srcs[i]);
+        }
+      } else {
+        status = getFileInfo(srcs[i]);
+      }
+      stats[i] = status;
+    }
+    return stats;
+  }
+
   @Override
   public long[] getStats() throws IOException {
     rpcServer.checkOperation(NameNode.OperationCategory.UNCHECKED);
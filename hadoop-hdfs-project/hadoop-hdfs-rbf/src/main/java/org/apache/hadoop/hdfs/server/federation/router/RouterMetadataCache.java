@@ -0,0 +1,309 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.federation.resolver.RemoteLocation;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the file status and listings returned by the Router, so repeated
+ * reads of the same paths, like thousands of tasks reading the same
+ * partitions at job start, are not all forwarded to the namenodes.
+ * <p>
+ * An entry is cached per user, as the namenodes check the permissions of
+ * each user, and remembers the locations the path resolved to and the last
+ * state id the Router saw from each of their nameservices when it was
+ * loaded. An entry whose path now resolves to other locations, after a
+ * mount table change, is not served. Any change of a namespace
+ * advances its state id, so an entry is only served while the state ids of
+ * its nameservices did not move further than
+ * {@link RBFConfigKeys#DFS_ROUTER_METADATA_CACHE_MAX_STATE_ID_LAG_KEY}
+ * transactions, and for at most
+ * {@link RBFConfigKeys#DFS_ROUTER_METADATA_CACHE_EXPIRATION_KEY}. Only the
+ * paths under {@link RBFConfigKeys#DFS_ROUTER_METADATA_CACHE_MOUNT_POINTS_KEY}
+ * are cached. The namenodes must publish their state ids, with
+ * dfs.namenode.state.context.enabled, for their paths to be cached.
+ */
+@InterfaceAudience.Private
+@Metrics(name = "RouterMetadataCache", about = "Router metadata cache",
+    context = "dfs")
+public class RouterMetadataCache {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(RouterMetadataCache.class);
+
+  public static final String METRICS_NAME = "RouterMetadataCache";
+
+  /** Loads a value from the namenodes. */
+  @FunctionalInterface
+  interface Loader<T> {
+    T load() throws IOException;
+  }
+
+  /** Key of a cached value. */
+  private static final class Key {
+    private final String user;
+    private final String op;
+    private final String path;
+    private final byte[] startAfter;
+
+    Key(String user, String op, String path, byte[] startAfter) {
+      this.user = user;
+      this.op = op;
+      this.path = path;
+      this.startAfter = startAfter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return user.equals(other.user) && op.equals(other.op)
+          && path.equals(other.path)
+          && Arrays.equals(startAfter, other.startAfter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(user, op, path) * 31 + Arrays.hashCode(startAfter);
+    }
+  }
+
+  /**
+   * Cached value with the locations the path resolved to and the state of
+   * their namespaces when it was loaded.
+   */
+  private static final class Entry {
+    private final Object value;
+    private final List<RemoteLocation> locations;
+    private final Map<String, Long> stateIds;
+    private final long loadTime;
+
+    Entry(Object value, List<RemoteLocation> locations,
+        Map<String, Long> stateIds, long loadTime) {
+      this.value = value;
+      this.locations = locations;
+      this.stateIds = stateIds;
+      this.loadTime = loadTime;
+    }
+  }
+
+  private final RouterRpcServer rpcServer;
+  private final RouterStateIdContext stateIdContext;
+  /** Mount points whose paths are cached, all paths if empty. */
+  private final Collection<String> mountPoints;
+  private final long maxStateIdLag;
+  private final Cache<Key, Entry> cache;
+
+  @Metric("Number of reads served from the cache")
+  private MutableCounterLong hits;
+  @Metric("Number of reads not found in the cache")
+  private MutableCounterLong misses;
+  @Metric("Number of reads found in the cache but stale")
+  private MutableCounterLong staleMisses;
+  @Metric("Age in milliseconds of the entries served from the cache")
+  private MutableRate hitAge;
+  @Metric("Transactions the namespace moved since the entries served from " +
+      "the cache were loaded")
+  private MutableRate hitStateIdLag;
+
+  RouterMetadataCache(Configuration conf, RouterRpcServer rpcServer,
+      RouterStateIdContext stateIdContext) {
+    this.rpcServer = rpcServer;
+    this.stateIdContext = stateIdContext;
+    this.mountPoints = conf.getTrimmedStringCollection(
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_MOUNT_POINTS_KEY);
+    this.maxStateIdLag = conf.getLong(
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_MAX_STATE_ID_LAG_KEY,
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_MAX_STATE_ID_LAG_DEFAULT);
+    long expiration = conf.getTimeDuration(
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_EXPIRATION_KEY,
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_EXPIRATION_MS_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    int size = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_SIZE_KEY,
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_SIZE_DEFAULT);
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(size)
+        .expireAfterWrite(expiration, TimeUnit.MILLISECONDS)
+        .build();
+
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    ms.register(METRICS_NAME, "Router metadata cache", this);
+    LOG.info("Caching metadata of {} for {} ms, up to {} entries and {} " +
+        "transactions behind", mountPoints.isEmpty() ? "all paths" :
+        mountPoints, expiration, size, maxStateIdLag);
+  }
+
+  /**
+   * Get a value from the cache, or load it from the namenodes.
+   *
+   * @param op Operation reading the value.
+   * @param path Path of the value.
+   * @param startAfter Listing start, null if not a listing.
+   * @param loader Loader of the value from the namenodes.
+   * @return The value.
+   * @throws IOException If the value cannot be loaded.
+   */
+  <T> T get(String op, String path, byte[] startAfter, Loader<T> loader)
+      throws IOException {
+    if (!isCached(path)) {
+      return loader.load();
+    }
+    final List<RemoteLocation> locations;
+    try {
+      locations = rpcServer.getLocationsForPath(path, false, false);
+    } catch (IOException e) {
+      // Mount points without a location, let the loader handle them
+      return loader.load();
+    }
+
+    final Key key = new Key(RouterRpcServer.getRemoteUser().getUserName(),
+        op, path, startAfter);
+    final Entry entry = cache.getIfPresent(key);
+    if (entry != null) {
+      // A mount table change may point the path to other locations
+      long lag = entry.locations.equals(locations) ?
+          getStateIdLag(entry) : Long.MAX_VALUE;
+      if (lag <= maxStateIdLag) {
+        hits.incr();
+        hitAge.add(Time.monotonicNow() - entry.loadTime);
+        hitStateIdLag.add(lag);
+        @SuppressWarnings("unchecked")
+        T value = (T) entry.value;
+        return value;
+      }
+      staleMisses.incr();
+      cache.invalidate(key);
+    } else {
+      misses.incr();
+    }
+
+    // Take the state before loading, so changes while loading make it stale
+    final Map<String, Long> stateIds = getStateIds(locations);
+    final long loadTime = Time.monotonicNow();
+    final T value = loader.load();
+    if (value != null && stateIds != null) {
+      cache.put(key, new Entry(value, locations, stateIds, loadTime));
+    }
+    return value;
+  }
+
+  private boolean isCached(String path) {
+    if (mountPoints.isEmpty()) {
+      return true;
+    }
+    for (String mountPoint : mountPoints) {
+      if (path.equals(mountPoint) || mountPoint.equals("/")
+          || path.startsWith(mountPoint + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The last state ids seen from the nameservices of the locations,
+   *         null if one is unknown. The namenodes without
+   *         dfs.namenode.state.context.enabled always report 0.
+   */
+  private Map<String, Long> getStateIds(List<RemoteLocation> locations) {
+    final Map<String, Long> stateIds = new HashMap<>();
+    for (RemoteLocation location : locations) {
+      String nsId = location.getNameserviceId();
+      long stateId = stateIdContext.getNamespaceStateId(nsId).get();
+      if (stateId <= 0) {
+        return null;
+      }
+      stateIds.put(nsId, stateId);
+    }
+    return stateIds;
+  }
+
+  /**
+   * @return The number of transactions the nameservices of an entry moved
+   *         since it was loaded.
+   */
+  private long getStateIdLag(Entry entry) {
+    long lag = 0;
+    for (Map.Entry<String, Long> stateId : entry.stateIds.entrySet()) {
+      long current =
+          stateIdContext.getNamespaceStateId(stateId.getKey()).get();
+      lag = Math.max(lag, current - stateId.getValue());
+    }
+    return lag;
+  }
+
+  @Metric("Number of entries in the cache")
+  public long getSize() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.value();
+  }
+
+  public long getMisses() {
+    return misses.value();
+  }
+
+  public long getStaleMisses() {
+    return staleMisses.value();
+  }
+
+  /**
+   * Drop all the entries.
+   */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Drop all the entries and stop publishing the metrics.
+   */
+  void close() {
+    cache.invalidateAll();
+    DefaultMetricsSystem.instance().unregisterSource(METRICS_NAME);
+  }
+}
@@ -76,6 +76,7 @@ import org.apache.hadoop.io.retry.RetryPolicies;
 import org.apache.hadoop.io.retry.RetryPolicy;
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction.RetryDecision;
 import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.ipc.Client;
 import org.apache.hadoop.ipc.ObserverRetryOnActiveException;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.ipc.RetriableException;
@@ -86,6 +87,7 @@ import org.apache.hadoop.net.ConnectTimeoutException;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 import org.eclipse.jetty.util.ajax.JSON;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -147,6 +149,8 @@ public class RouterRpcClient {
   private Map<String, LongAdder> acceptedPermitsPerNs = new ConcurrentHashMap<>();
 
   private final boolean enableProxyUser;
+  /** If the connections to the NNs are shared by all the users. */
+  private final boolean sharedConnections;
 
   /**
    * Create a router RPC client to manage remote procedure calls to NNs.
@@ -208,6 +212,9 @@ public class RouterRpcClient {
         failoverSleepBaseMillis, failoverSleepMaxMillis);
     String[] ipProxyUsers = conf.getStrings(DFS_NAMENODE_IP_PROXY_USERS);
     this.enableProxyUser = ipProxyUsers != null && ipProxyUsers.length > 0;
+    this.sharedConnections = conf.getBoolean(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_KEY,
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_DEFAULT);
     this.observerReadEnabledDefault = conf.getBoolean(
         RBFConfigKeys.DFS_ROUTER_OBSERVER_READ_DEFAULT_KEY,
         RBFConfigKeys.DFS_ROUTER_OBSERVER_READ_DEFAULT_VALUE);
@@ -277,6 +284,17 @@ public class RouterRpcClient {
     return this.connectionManager.getNumConnections();
   }
 
+  /**
+   * Number of available sockets between the router and the NNs of a
+   * nameservice.
+   *
+   * @param nsId Nameservice identifier.
+   * @return Number of namenode clients of the nameservice.
+   */
+  public int getNumConnections(String nsId) {
+    return this.connectionManager.getNumConnections(nsId);
+  }
+
   /**
    * Total number of available sockets between the router and NNs.
    *
@@ -387,7 +405,11 @@ public class RouterRpcClient {
 
       // TODO Add tokens from the federated UGI
       UserGroupInformation connUGI = ugi;
-      if (UserGroupInformation.isSecurityEnabled() || this.enableProxyUser) {
+      if (this.sharedConnections) {
+        // The user is sent with each call, see invokeMethod()
+        connUGI = UserGroupInformation.getLoginUser();
+      } else if (UserGroupInformation.isSecurityEnabled()
+          || this.enableProxyUser) {
         UserGroupInformation routerUser = UserGroupInformation.getLoginUser();
         connUGI = UserGroupInformation.createProxyUser(
             ugi.getUserName(), routerUser);
@@ -508,11 +530,26 @@ public class RouterRpcClient {
       String nsId = namenode.getNameserviceId();
       String rpcAddress = namenode.getRpcAddress();
       try {
+        long connectionStart = Time.monotonicNowNanos();
         connection = this.getConnection(ugi, nsId, rpcAddress, protocol);
+        if (this.rpcMonitor != null) {
+          this.rpcMonitor.proxyOpConnectionWait(nsId,
+              Time.monotonicNowNanos() - connectionStart);
+        }
         ProxyAndInfo<?> client = connection.getClient();
         final Object proxy = client.getProxy();
 
-        ret = invoke(nsId, 0, method, proxy, params);
+        if (this.sharedConnections) {
+          // The connection is the router's, the NN runs the call as the user
+          Client.setCallProxyUser(ugi.getUserName());
+        }
+        try {
+          ret = invoke(nsId, 0, method, proxy, params);
+        } finally {
+          if (this.sharedConnections) {
+            Client.setCallProxyUser(null);
+          }
+        }
         if (failover &&
             FederationNamenodeServiceState.OBSERVER != namenode.getState()) {
           // Success on alternate server, update
@@ -59,6 +59,13 @@ public interface RouterRpcMonitor {
    */
   long proxyOp();
 
+  /**
+   * Got a connection to a Namenode of a nameservice to proxy an operation.
+   * @param nsId Nameservice identifier.
+   * @param time Time to get the connection in nanoseconds.
+   */
+  void proxyOpConnectionWait(String nsId, long time);
+
   /**
    * Mark a proxy operation as completed.
    * @param success If the operation was successful.
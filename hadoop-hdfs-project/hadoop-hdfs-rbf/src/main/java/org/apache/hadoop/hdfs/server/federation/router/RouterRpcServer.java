@@ -210,6 +210,10 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
 
   /** RPC clients to connect to the Namenodes. */
   private final RouterRpcClient rpcClient;
+  /** Async handlers serving the client calls, null if not async. */
+  private final RouterAsyncHandler asyncHandler;
+  /** Last state ids seen from the namespaces. */
+  private final RouterStateIdContext routerStateIdContext;
 
   /** Monitor metrics for the RPC calls. */
   private final RouterRpcMonitor rpcMonitor;
@@ -299,6 +303,16 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
     BlockingService nnPbService = NamenodeProtocolService
         .newReflectiveBlockingService(namenodeProtocolXlator);
 
+    // Serve the calls which go to the Namenodes outside of the handlers
+    if (conf.getBoolean(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_DEFAULT)) {
+      this.asyncHandler = new RouterAsyncHandler(this.conf);
+      clientNNPbService = this.asyncHandler.wrap(clientNNPbService);
+      nnPbService = this.asyncHandler.wrap(nnPbService);
+    } else {
+      this.asyncHandler = null;
+    }
+
     RefreshUserMappingsProtocolServerSideTranslatorPB refreshUserMappingXlator =
         new RefreshUserMappingsProtocolServerSideTranslatorPB(this);
     BlockingService refreshUserMappingService =
@@ -321,7 +335,7 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
 
     // Create security manager
     this.securityManager = new RouterSecurityManager(this.conf);
-    RouterStateIdContext routerStateIdContext = new RouterStateIdContext(conf);
+    this.routerStateIdContext = new RouterStateIdContext(conf);
 
     this.rpcServer = new RPC.Builder(this.conf)
         .setProtocol(ClientNamenodeProtocolPB.class)
@@ -332,7 +346,7 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
         .setnumReaders(readerCount)
         .setQueueSizePerHandler(handlerQueueSize)
         .setVerbose(false)
-        .setAlignmentContext(routerStateIdContext)
+        .setAlignmentContext(this.routerStateIdContext)
         .setSecretManager(this.securityManager.getSecretManager())
         .build();
 
@@ -386,7 +400,7 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
 
     // Create the client
     this.rpcClient = new RouterRpcClient(this.conf, this.router,
-        this.namenodeResolver, this.rpcMonitor, routerStateIdContext);
+        this.namenodeResolver, this.rpcMonitor, this.routerStateIdContext);
 
     // Initialize modules
     this.quotaCall = new Quota(this.router, this);
@@ -490,6 +504,12 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
     if (this.rpcServer != null) {
       this.rpcServer.stop();
     }
+    if (this.asyncHandler != null) {
+      this.asyncHandler.shutdown();
+    }
+    if (this.clientProto != null) {
+      this.clientProto.close();
+    }
     if (rpcMonitor != null) {
       this.rpcMonitor.close();
     }
@@ -510,6 +530,15 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
     return this.fedRenameScheduler;
   }
 
+  /**
+   * Get the last state ids seen from the namespaces.
+   *
+   * @return Router state id context.
+   */
+  RouterStateIdContext getRouterStateIdContext() {
+    return this.routerStateIdContext;
+  }
+
   /**
    * Get the RPC security manager.
    *
@@ -528,6 +557,15 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
     return rpcClient;
   }
 
+  /**
+   * Get the async handlers serving the client calls.
+   *
+   * @return Async handlers, null if the calls are served by the handlers.
+   */
+  public RouterAsyncHandler getAsyncHandler() {
+    return asyncHandler;
+  }
+
   /**
    * Get the subcluster resolver.
    *
@@ -1021,6 +1059,12 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
     return clientProto.getLocatedFileInfo(src, needBlockToken);
   }
 
+  @Override // ClientProtocol
+  public HdfsFileStatus[] getBatchedFileInfo(String[] srcs,
+      boolean needLocation) throws IOException {
+    return clientProto.getBatchedFileInfo(srcs, needLocation);
+  }
+
   @Override // ClientProtocol
   public long[] getStats() throws IOException {
     return clientProto.getStats();
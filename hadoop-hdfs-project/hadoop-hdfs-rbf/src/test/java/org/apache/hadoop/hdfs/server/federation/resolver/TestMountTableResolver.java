@@ -34,6 +34,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hdfs.server.federation.router.Router;
@@ -729,4 +733,52 @@ public class TestMountTableResolver {
     assertEquals("2->/testInvalidateCache/foo", mountTable
         .getDestinationForPath("/testInvalidateCache/foo").toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testResolveDuringRefresh() throws Exception {
+    // Two tables mounting /data on different subclusters
+    List<List<MountTable>> tables = new ArrayList<>();
+    for (String nsId : new String[] {"1", "2"}) {
+      List<MountTable> table = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String src = "/data/" + i;
+        table.add(MountTable.newInstance(src,
+            getMountTableEntry(nsId, "/ns" + nsId + src)));
+      }
+      tables.add(table);
+    }
+    mountTable.refreshEntries(tables.get(0));
+
+    // The paths always resolve to one of the tables, never to the default
+    AtomicBoolean running = new AtomicBoolean(true);
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    List<Future<Void>> readers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      readers.add(exec.submit(() -> {
+        Random rand = new Random();
+        while (running.get()) {
+          String path = "/data/" + rand.nextInt(100) + "/file";
+          String dest = mountTable.getDestinationForPath(path)
+              .getDefaultLocation().getDest();
+          assertTrue(dest, dest.equals("/ns1" + path)
+              || dest.equals("/ns2" + path));
+        }
+        return null;
+      }));
+    }
+    for (int i = 0; i < 100; i++) {
+      mountTable.refreshEntries(tables.get(i % 2));
+    }
+    running.set(false);
+    for (Future<Void> reader : readers) {
+      reader.get();
+    }
+    exec.shutdown();
+
+    // No stale location was left in the cache by the readers
+    for (int i = 0; i < 100; i++) {
+      assertEquals("2->/ns2/data/" + i + "/file", mountTable
+          .getDestinationForPath("/data/" + i + "/file").toString());
+    }
+  }
+}
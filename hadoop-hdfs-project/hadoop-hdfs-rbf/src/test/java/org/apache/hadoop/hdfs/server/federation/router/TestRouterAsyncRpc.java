@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.FederationTestUtils.simulateSlowNamenode;
+import static org.apache.hadoop.test.LambdaTestUtils.intercept;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.hdfs.server.federation.StateStoreDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.metrics.FederationRPCMetrics;
+import org.apache.hadoop.security.AccessControlException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Time;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the Router serving client calls with async handlers. This feature is
+ * managed by {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_ENABLE_KEY}.
+ */
+public class TestRouterAsyncRpc {
+
+  private static final int NUM_ASYNC_HANDLERS = 8;
+
+  private StateStoreDFSCluster cluster;
+  private RouterContext routerContext;
+
+  @Before
+  public void setupCluster() throws Exception {
+    cluster = new StateStoreDFSCluster(false, 2);
+    Configuration routerConf = new RouterConfigBuilder()
+        .stateStore()
+        .metrics()
+        .admin()
+        .rpc()
+        .build();
+
+    // A single handler feeding the async handlers
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY, 1);
+    routerConf.setBoolean(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_KEY, true);
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY,
+        NUM_ASYNC_HANDLERS);
+
+    // No need for datanodes as we only test namespace operations
+    cluster.setNumDatanodesPerNameservice(0);
+
+    cluster.addRouterOverrides(routerConf);
+    cluster.startCluster();
+    cluster.startRouters();
+    cluster.waitClusterUp();
+    routerContext = cluster.getRandomRouter();
+  }
+
+  @After
+  public void cleanup() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  @Test
+  public void testAsyncCalls() throws Exception {
+    FileSystem routerFs = routerContext.getFileSystem();
+    Path dir = new Path("/testAsyncCalls");
+    assertTrue(routerFs.mkdirs(dir, new FsPermission((short) 0700)));
+    assertTrue(routerFs.getFileStatus(dir).isDirectory());
+    assertEquals(0, routerFs.listStatus(dir).length);
+
+    // Exceptions reach the client like for synchronous calls
+    intercept(FileNotFoundException.class,
+        () -> routerFs.getFileStatus(new Path(dir, "missing")));
+
+    // The calls run as the remote user
+    UserGroupInformation user =
+        UserGroupInformation.createUserForTesting("user", new String[]{});
+    URI uri = routerContext.getFileSystemURI();
+    Configuration conf = routerContext.getConf();
+    intercept(AccessControlException.class, () -> user.doAs(
+        (PrivilegedExceptionAction<Object>) () -> {
+          try (FileSystem userFs = FileSystem.newInstance(uri, conf)) {
+            return userFs.listStatus(dir);
+          }
+        }));
+
+    FederationRPCMetrics rpcMetrics =
+        routerContext.getRouter().getRpcServer().getRPCMetrics();
+    Map<String, Integer> pool = new ObjectMapper().readValue(
+        rpcMetrics.getAsyncHandlerPool(), Map.class);
+    assertEquals(NUM_ASYNC_HANDLERS, (int) pool.get("max"));
+  }
+
+  @Test
+  public void testSlowNamenodeDoesNotBlockHandlers() throws Exception {
+    // Every renewLease() waits 1 second for the slow subcluster
+    simulateSlowNamenode(cluster.getCluster().getNameNode(0), 1);
+
+    // The single handler would serve them one after another
+    URI address = routerContext.getFileSystemURI();
+    Configuration conf = new HdfsConfiguration();
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_ASYNC_HANDLERS);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = Time.monotonicNow();
+    for (int i = 0; i < NUM_ASYNC_HANDLERS; i++) {
+      futures.add(exec.submit(() -> {
+        try (DFSClient routerClient = new DFSClient(address, conf)) {
+          routerClient.getNamenode().renewLease(
+              routerClient.getClientName(), null);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    exec.shutdown();
+    long elapsed = Time.monotonicNow() - start;
+    assertTrue("Calls were serialized, took " + elapsed + " ms",
+        elapsed < NUM_ASYNC_HANDLERS * 1000 / 2);
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.security.PrivilegedExceptionAction;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.MockResolver;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the cache of the file status and listings of the Router. This feature
+ * is managed by {@link RBFConfigKeys#DFS_ROUTER_METADATA_CACHE_ENABLE_KEY}.
+ */
+public class TestRouterMetadataCache {
+
+  private MiniRouterDFSCluster cluster;
+  private RouterContext routerContext;
+  private FileSystem routerFs;
+  private RouterMetadataCache cache;
+  private String ns0;
+  private String ns1;
+
+  @Before
+  public void setup() throws Exception {
+    // The namenodes publish their state ids to the Router
+    Configuration nnConf = new Configuration();
+    nnConf.setBoolean(DFSConfigKeys.DFS_NAMENODE_STATE_CONTEXT_ENABLED_KEY,
+        true);
+    cluster = new MiniRouterDFSCluster(false, 2);
+    cluster.addNamenodeOverrides(nnConf);
+    cluster.setNumDatanodesPerNameservice(0);
+    cluster.startCluster();
+
+    ns0 = cluster.getNameservices().get(0);
+    ns1 = cluster.getNameservices().get(1);
+    Configuration routerConf = new RouterConfigBuilder()
+        .metrics()
+        .rpc()
+        .build();
+    routerConf.setBoolean(
+        RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_ENABLE_KEY, true);
+    // Only cache the first subcluster
+    routerConf.set(RBFConfigKeys.DFS_ROUTER_METADATA_CACHE_MOUNT_POINTS_KEY,
+        cluster.getFederatedPathForNS(ns0));
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.installMockLocations();
+
+    routerContext = cluster.getRandomRouter();
+    routerFs = routerContext.getFileSystem();
+    cache = routerContext.getRouter().getRpcServer()
+        .getClientProtocolModule().getMetadataCache();
+    assertNotNull(cache);
+  }
+
+  @After
+  public void teardown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  @Test
+  public void testCacheHits() throws Exception {
+    Path dir = new Path(cluster.getFederatedPathForNS(ns0), "testCacheHits");
+    assertTrue(routerFs.mkdirs(new Path(dir, "child")));
+
+    long hits = cache.getHits();
+    long misses = cache.getMisses();
+    assertTrue(routerFs.getFileStatus(dir).isDirectory());
+    assertEquals(misses + 1, cache.getMisses());
+    assertTrue(routerFs.getFileStatus(dir).isDirectory());
+    assertEquals(hits + 1, cache.getHits());
+
+    assertEquals(1, routerFs.listStatus(dir).length);
+    assertEquals(1, routerFs.listStatus(dir).length);
+    assertEquals(hits + 2, cache.getHits());
+
+    // The entries are per user
+    UserGroupInformation user =
+        UserGroupInformation.createUserForTesting("user", new String[] {});
+    try (FileSystem userFs = user.doAs(
+        (PrivilegedExceptionAction<FileSystem>) () -> FileSystem.newInstance(
+            routerContext.getFileSystemURI(), routerContext.getConf()))) {
+      assertTrue(userFs.getFileStatus(dir).isDirectory());
+    }
+    assertEquals(hits + 2, cache.getHits());
+
+    // The other subcluster is not cached
+    Path otherDir = new Path(cluster.getFederatedPathForNS(ns1), "other");
+    assertTrue(routerFs.mkdirs(otherDir));
+    hits = cache.getHits();
+    misses = cache.getMisses();
+    routerFs.getFileStatus(otherDir);
+    routerFs.getFileStatus(otherDir);
+    assertEquals(hits, cache.getHits());
+    assertEquals(misses, cache.getMisses());
+  }
+
+  @Test
+  public void testStateIdInvalidation() throws Exception {
+    Path dir = new Path(cluster.getFederatedPathForNS(ns0), "testStateId");
+    assertTrue(routerFs.mkdirs(dir));
+    routerFs.getFileStatus(dir);
+
+    // A change through the Router is seen right away
+    routerFs.setPermission(dir, new FsPermission((short) 0700));
+    long staleMisses = cache.getStaleMisses();
+    assertEquals(0700, routerFs.getFileStatus(dir).getPermission().toShort());
+    assertEquals(staleMisses + 1, cache.getStaleMisses());
+
+    // A change in the namenode is seen once the Router saw the namespace move
+    FileSystem nnFs = cluster.getNamenode(ns0, null).getFileSystem();
+    String nnDir = cluster.getNamenodePathForNS(ns0) + "/testStateId";
+    nnFs.setPermission(new Path(nnDir), new FsPermission((short) 0755));
+    assertEquals(0700, routerFs.getFileStatus(dir).getPermission().toShort());
+    assertFalse(routerFs.exists(
+        new Path(cluster.getFederatedPathForNS(ns0), "missing")));
+    assertEquals(0755, routerFs.getFileStatus(dir).getPermission().toShort());
+  }
+
+  @Test
+  public void testMountPointRepointed() throws Exception {
+    String mount = cluster.getFederatedPathForNS(ns0);
+    Path dir = new Path(mount, "testRepoint");
+    assertTrue(routerFs.mkdirs(dir));
+    routerFs.setPermission(dir, new FsPermission((short) 0755));
+    // The same directory in the other subcluster, with other permissions
+    FileSystem nnFs1 = cluster.getNamenode(ns1, null).getFileSystem();
+    Path nnDir1 = new Path(cluster.getNamenodePathForNS(ns1), "testRepoint");
+    assertTrue(nnFs1.mkdirs(nnDir1));
+    nnFs1.setPermission(nnDir1, new FsPermission((short) 0700));
+
+    assertEquals(0755, routerFs.getFileStatus(dir).getPermission().toShort());
+    long hits = cache.getHits();
+    assertEquals(0755, routerFs.getFileStatus(dir).getPermission().toShort());
+    assertEquals(hits + 1, cache.getHits());
+
+    // Point the mount to the other subcluster
+    MockResolver resolver =
+        (MockResolver) routerContext.getRouter().getSubclusterResolver();
+    assertTrue(resolver.removeLocation(mount, ns0,
+        cluster.getNamenodePathForNS(ns0)));
+    resolver.addLocation(mount, ns1, cluster.getNamenodePathForNS(ns1));
+    long staleMisses = cache.getStaleMisses();
+    assertEquals(0700, routerFs.getFileStatus(dir).getPermission().toShort());
+    assertEquals(staleMisses + 1, cache.getStaleMisses());
+  }
+}
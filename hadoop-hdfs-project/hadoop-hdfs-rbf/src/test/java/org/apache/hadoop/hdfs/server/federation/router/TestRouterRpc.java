@@ -89,6 +89,7 @@ import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicyInfo;
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicyState;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.HdfsLocatedFileStatus;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
 import org.apache.hadoop.hdfs.protocol.ReplicatedBlockStats;
@@ -657,6 +658,59 @@ public class TestRouterRpc {
         new Object[] {badPath, newUsername, newGroup});
   }
 
+  @Test
+  public void testProxyGetBatchedFileInfo() throws Exception {
+    String badPath = "/unknownlocation/unknowndir";
+    HdfsFileStatus[] stats = routerProtocol.getBatchedFileInfo(
+        new String[] {routerFile, badPath, "/"}, true);
+    assertEquals(3, stats.length);
+    HdfsFileStatus nnStatus = nnProtocol.getFileInfo(nnFile);
+    assertEquals(nnStatus.getLen(), stats[0].getLen());
+    assertEquals(nnStatus.getFileId(), stats[0].getFileId());
+    assertTrue(stats[0] instanceof HdfsLocatedFileStatus);
+    assertNull(stats[1]);
+    assertTrue(stats[2].isDirectory());
+  }
+
+  @Test
+  public void testProxyGetBatchedFileInfoPerNameservice() throws Exception {
+    List<String> nss = cluster.getNameservices();
+    List<String> nnFiles = new ArrayList<>();
+    List<String> srcs = new ArrayList<>();
+    for (String nsId : nss) {
+      FileSystem nsFS = cluster.getNamenode(nsId, null).getFileSystem();
+      for (int i = 0; i < 2; i++) {
+        String file = "/batched-" + i;
+        createFile(nsFS, cluster.getNamenodeTestDirectoryForNS(nsId) + file,
+            32);
+        nnFiles.add(cluster.getNamenodeTestDirectoryForNS(nsId) + file);
+        srcs.add(cluster.getFederatedTestDirectoryForNS(nsId) + file);
+      }
+      srcs.add(cluster.getFederatedTestDirectoryForNS(nsId) + "/missing");
+    }
+
+    // One call per subcluster, which also returns the missing paths
+    FederationRPCMetrics metrics = router.getRouterRpcServer().getRPCMetrics();
+    long proxyOps = metrics.getProxyOps();
+    HdfsFileStatus[] stats = routerProtocol.getBatchedFileInfo(
+        srcs.toArray(new String[0]), true);
+    assertEquals(nss.size(), metrics.getProxyOps() - proxyOps);
+
+    assertEquals(srcs.size(), stats.length);
+    for (int i = 0; i < nss.size(); i++) {
+      assertTrue(stats[3 * i] instanceof HdfsLocatedFileStatus);
+      assertEquals(32, stats[3 * i].getLen());
+      assertTrue(stats[3 * i + 1] instanceof HdfsLocatedFileStatus);
+      assertEquals(32, stats[3 * i + 1].getLen());
+      assertNull(stats[3 * i + 2]);
+    }
+
+    for (int i = 0; i < nnFiles.size(); i++) {
+      cluster.getNamenode(nss.get(i / 2), null).getFileSystem()
+          .delete(new Path(nnFiles.get(i)), false);
+    }
+  }
+
   @Test
   public void testProxyGetStats() throws Exception {
     // Some of the statistics are out of sync because of the mini cluster
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.metrics.NameserviceRPCMetrics.NAMESERVICE_RPC_METRICS_PREFIX;
+import static org.apache.hadoop.test.LambdaTestUtils.intercept;
+import static org.apache.hadoop.test.MetricsAsserts.getIntGauge;
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.security.PrivilegedExceptionAction;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.security.AccessControlException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the Router sharing its connections to the Namenodes across users.
+ * This feature is managed by
+ * {@link RBFConfigKeys#DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_KEY}.
+ */
+public class TestRouterSharedConnections {
+
+  private MiniRouterDFSCluster cluster;
+  private RouterContext routerContext;
+
+  @Before
+  public void setup() throws Exception {
+    // The Namenodes run the calls of the Router as the users
+    Configuration conf = new Configuration();
+    String routerUser = UserGroupInformation.getLoginUser().getShortUserName();
+    conf.set("hadoop.proxyuser." + routerUser + ".hosts", "*");
+    conf.set("hadoop.proxyuser." + routerUser + ".groups", "*");
+    conf.setBoolean(
+        CommonConfigurationKeysPublic.IPC_SERVER_CALL_PROXY_USER_ENABLED_KEY,
+        true);
+    cluster = new MiniRouterDFSCluster(false, 1);
+    cluster.addNamenodeOverrides(conf);
+    cluster.setNumDatanodesPerNameservice(0);
+    cluster.startCluster();
+
+    Configuration routerConf = new RouterConfigBuilder()
+        .metrics()
+        .rpc()
+        .build();
+    routerConf.setBoolean(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_SHARED_ENABLE_KEY, true);
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.installMockLocations();
+    routerContext = cluster.getRandomRouter();
+  }
+
+  @After
+  public void teardown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  private FileSystem getFileSystem(String user) throws Exception {
+    UserGroupInformation ugi =
+        UserGroupInformation.createUserForTesting(user, new String[] {});
+    return ugi.doAs((PrivilegedExceptionAction<FileSystem>) () ->
+        FileSystem.newInstance(routerContext.getFileSystemURI(),
+            routerContext.getConf()));
+  }
+
+  @Test
+  public void testSharedConnections() throws Exception {
+    String nsId = cluster.getNameservices().get(0);
+    Path dir = new Path(cluster.getFederatedPathForNS(nsId), "shared");
+    FileSystem routerFs = routerContext.getFileSystem();
+    assertTrue(routerFs.mkdirs(dir));
+    routerFs.setPermission(dir, new FsPermission((short) 0777));
+
+    // The files are owned by the users, not by the Router
+    for (String user : new String[] {"user1", "user2"}) {
+      try (FileSystem userFs = getFileSystem(user)) {
+        Path userDir = new Path(dir, user);
+        assertTrue(userFs.mkdirs(userDir));
+        assertEquals(user, routerFs.getFileStatus(userDir).getOwner());
+      }
+    }
+
+    // The permissions are checked for the user
+    Path privateDir = new Path(dir, "user1");
+    routerFs.setPermission(privateDir, new FsPermission((short) 0700));
+    try (FileSystem userFs = getFileSystem("user2")) {
+      intercept(AccessControlException.class,
+          () -> userFs.mkdirs(new Path(privateDir, "user2")));
+    }
+
+    // A single pool of connections for all the users
+    RouterRpcClient rpcClient =
+        routerContext.getRouter().getRpcServer().getRPCClient();
+    assertEquals(1, rpcClient.getNumConnectionPools());
+    assertTrue(rpcClient.getNumConnections(nsId) > 0);
+
+    // Published per nameservice
+    MetricsRecordBuilder nsMetrics =
+        getMetrics(NAMESERVICE_RPC_METRICS_PREFIX + nsId);
+    assertEquals(rpcClient.getNumConnections(nsId),
+        getIntGauge("ProxyConnections", nsMetrics));
+    assertTrue(getLongCounter("ConnectionWaitNumOps", nsMetrics) > 0);
+  }
+}
@@ -173,6 +173,65 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.datanode.replica.cache.expiry.time";
   public static final long DFS_DATANODE_REPLICA_CACHE_EXPIRY_TIME_DEFAULT =
       300000;
+  public static final String
+      DFS_DATANODE_REPLICA_CACHE_CHECKPOINT_INTERVAL_KEY =
+      "dfs.datanode.replica.cache.checkpoint.interval";
+  public static final long
+      DFS_DATANODE_REPLICA_CACHE_CHECKPOINT_INTERVAL_DEFAULT = 0;
+  public static final String DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_KEY =
+      "dfs.datanode.hot.block.cache.size";
+  public static final long DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_DEFAULT = 0;
+  public static final String DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_KEY =
+      "dfs.datanode.hot.block.cache.segment.size";
+  public static final int DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_DEFAULT =
+      64 * 1024;
+  public static final String DFS_DATANODE_IO_SCHEDULER_ENABLED_KEY =
+      "dfs.datanode.io.scheduler.enabled";
+  public static final boolean DFS_DATANODE_IO_SCHEDULER_ENABLED_DEFAULT =
+      false;
+  public static final String DFS_DATANODE_IO_SCHEDULER_ACTIVE_WINDOW_MS_KEY =
+      "dfs.datanode.io.scheduler.active.window.ms";
+  public static final long DFS_DATANODE_IO_SCHEDULER_ACTIVE_WINDOW_MS_DEFAULT =
+      10;
+  public static final String DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_KEY =
+      "dfs.datanode.io.scheduler.max.yield.ms";
+  public static final long DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_DEFAULT =
+      100;
+  public static final String
+      DFS_DATANODE_IO_SCHEDULER_RECOVERY_OPS_PER_SEC_KEY =
+      "dfs.datanode.io.scheduler.recovery.opsPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_RECOVERY_OPS_PER_SEC_DEFAULT = 0;
+  public static final String DFS_DATANODE_IO_SCHEDULER_RECOVERY_BANDWIDTH_KEY =
+      "dfs.datanode.io.scheduler.recovery.bandwidthPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_RECOVERY_BANDWIDTH_DEFAULT = 0;
+  public static final String
+      DFS_DATANODE_IO_SCHEDULER_BALANCER_OPS_PER_SEC_KEY =
+      "dfs.datanode.io.scheduler.balancer.opsPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_BALANCER_OPS_PER_SEC_DEFAULT = 0;
+  public static final String DFS_DATANODE_IO_SCHEDULER_BALANCER_BANDWIDTH_KEY =
+      "dfs.datanode.io.scheduler.balancer.bandwidthPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_BALANCER_BANDWIDTH_DEFAULT = 0;
+  public static final String DFS_DATANODE_IO_SCHEDULER_SCANNER_OPS_PER_SEC_KEY =
+      "dfs.datanode.io.scheduler.scanner.opsPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_SCANNER_OPS_PER_SEC_DEFAULT = 0;
+  public static final String DFS_DATANODE_IO_SCHEDULER_SCANNER_BANDWIDTH_KEY =
+      "dfs.datanode.io.scheduler.scanner.bandwidthPerSec";
+  public static final long
+      DFS_DATANODE_IO_SCHEDULER_SCANNER_BANDWIDTH_DEFAULT = 0;
+  public static final String DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_ENABLED_KEY =
+      "dfs.datanode.block.checksum.persist.enabled";
+  public static final boolean
+      DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_ENABLED_DEFAULT = false;
+  public static final String
+      DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_GROUP_SIZE_KEY =
+      "dfs.datanode.block.checksum.persist.group.size";
+  public static final long
+      DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_GROUP_SIZE_DEFAULT = 64 * 1024;
 
   // This setting is for testing/internal use only.
   public static final String  DFS_DATANODE_DUPLICATE_REPLICA_DELETION = "dfs.datanode.duplicate.replica.deletion";
@@ -314,6 +373,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       = "dfs.namenode.blockreport.max.lock.hold.time";
   public static final long
       DFS_NAMENODE_BLOCKREPORT_MAX_LOCK_HOLD_TIME_DEFAULT = 4;
+  public static final String DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_KEY
+      = "dfs.namenode.blockreport.blocks.per.lock";
+  public static final int    DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_DEFAULT
+      = 0;
 
   public static final String
       DFS_NAMENODE_CORRUPT_BLOCK_DELETE_IMMEDIATELY_ENABLED =
@@ -378,6 +441,8 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final int     DFS_NAMENODE_EDITS_DIR_MINIMUM_DEFAULT = 1;
   public static final String  DFS_NAMENODE_QUOTA_INIT_THREADS_KEY = "dfs.namenode.quota.init-threads";
   public static final int     DFS_NAMENODE_QUOTA_INIT_THREADS_DEFAULT = 12;
+  public static final String  DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_KEY = "dfs.namenode.quota.track-all-directories";
+  public static final boolean DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_DEFAULT = false;
 
   public static final String  DFS_NAMENODE_EDIT_LOG_AUTOROLL_MULTIPLIER_THRESHOLD = "dfs.namenode.edit.log.autoroll.multiplier.threshold";
   public static final float
@@ -620,6 +685,14 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.namenode.lock.detailed-metrics.enabled";
   public static final boolean DFS_NAMENODE_LOCK_DETAILED_METRICS_DEFAULT =
       false;
+  public static final String DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_KEY =
+      "dfs.namenode.lock.subtree-metrics.depth";
+  public static final int DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_DEFAULT = 0;
+  public static final String
+      DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_KEY =
+      "dfs.namenode.lock.subtree-metrics.max-subtrees";
+  public static final int
+      DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_DEFAULT = 64;
   // Threshold for how long namenode locks must be held for the
   // event to be logged
   public static final String  DFS_NAMENODE_WRITE_LOCK_REPORTING_THRESHOLD_MS_KEY =
@@ -791,6 +864,14 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final long    DFS_BALANCER_SERVICE_INTERVAL_DEFAULT = TimeUnit.MINUTES.toMillis(5); //5 mins
   public static final String  DFS_BALANCER_SERVICE_RETRIES_ON_EXCEPTION = "dfs.balancer.service.retries.on.exception";
   public static final int     DFS_BALANCER_SERVICE_RETRIES_ON_EXCEPTION_DEFAULT = 5;
+  public static final String  DFS_BALANCER_ADAPTIVE_CONCURRENCY_ENABLED_KEY =
+      "dfs.balancer.adaptive-concurrency.enabled";
+  public static final boolean DFS_BALANCER_ADAPTIVE_CONCURRENCY_ENABLED_DEFAULT =
+      false;
+  public static final String  DFS_BALANCER_ADAPTIVE_CONCURRENCY_INITIAL_MOVES_KEY =
+      "dfs.balancer.adaptive-concurrency.initial-moves";
+  public static final int     DFS_BALANCER_ADAPTIVE_CONCURRENCY_INITIAL_MOVES_DEFAULT =
+      10;
 
   public static final String  DFS_MOVER_MOVEDWINWIDTH_KEY = "dfs.mover.movedWinWidth";
   public static final long    DFS_MOVER_MOVEDWINWIDTH_DEFAULT = 5400*1000L;
@@ -924,6 +1005,21 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.datanode.directoryscan.max.notify.count";
   public static final long
       DFS_DATANODE_DIRECTORYSCAN_MAX_NOTIFY_COUNT_DEFAULT = 5;
+  public static final String
+      DFS_DATANODE_DIRECTORYSCAN_INCREMENTAL_ENABLED_KEY =
+      "dfs.datanode.directoryscan.incremental.enabled";
+  public static final boolean
+      DFS_DATANODE_DIRECTORYSCAN_INCREMENTAL_ENABLED_DEFAULT = false;
+  public static final String
+      DFS_DATANODE_DIRECTORYSCAN_FULL_INTERVAL_KEY =
+      "dfs.datanode.directoryscan.full.interval";
+  public static final long
+      DFS_DATANODE_DIRECTORYSCAN_FULL_INTERVAL_DEFAULT = 604800;
+  public static final String
+      DFS_DATANODE_DIRECTORYSCAN_MAX_DIRS_PER_SEC_KEY =
+      "dfs.datanode.directoryscan.max.dirs.per.sec";
+  public static final int
+      DFS_DATANODE_DIRECTORYSCAN_MAX_DIRS_PER_SEC_DEFAULT = 0;
   public static final String  DFS_DATANODE_DNS_INTERFACE_KEY = "dfs.datanode.dns.interface";
   public static final String  DFS_DATANODE_DNS_INTERFACE_DEFAULT = "default";
   public static final String  DFS_DATANODE_DNS_NAMESERVER_KEY = "dfs.datanode.dns.nameserver";
@@ -948,6 +1044,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_DATANODE_MAX_RECEIVER_THREADS_KEY =
       HdfsClientConfigKeys.DeprecatedKeys.DFS_DATANODE_MAX_RECEIVER_THREADS_KEY;
   public static final int     DFS_DATANODE_MAX_RECEIVER_THREADS_DEFAULT = 4096;
+  public static final String  DFS_DATANODE_TRANSFER_VIRTUAL_THREADS_ENABLED_KEY =
+      "dfs.datanode.transfer.virtual-threads.enabled";
+  public static final boolean DFS_DATANODE_TRANSFER_VIRTUAL_THREADS_ENABLED_DEFAULT =
+      false;
   public static final String  DFS_DATANODE_SCAN_PERIOD_HOURS_KEY = "dfs.datanode.scan.period.hours";
   public static final int     DFS_DATANODE_SCAN_PERIOD_HOURS_DEFAULT = 21 * 24;  // 3 weeks.
   public static final String  DFS_BLOCK_SCANNER_VOLUME_BYTES_PER_SECOND = "dfs.block.scanner.volume.bytes.per.second";
@@ -1201,6 +1301,13 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_SECONDARY_NAMENODE_INTERNAL_SPNEGO_USER_NAME_KEY = DFS_SECONDARY_NAMENODE_KERBEROS_INTERNAL_SPNEGO_PRINCIPAL_KEY;
   public static final String  DFS_NAMENODE_NAME_CACHE_THRESHOLD_KEY = "dfs.namenode.name.cache.threshold";
   public static final int     DFS_NAMENODE_NAME_CACHE_THRESHOLD_DEFAULT = 10;
+  // Percentage of the maximum heap used to size the INodeMap and BlocksMap
+  public static final String  DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY =
+      "dfs.namenode.inodemap.heap.percent";
+  public static final double  DFS_NAMENODE_INODEMAP_HEAP_PERCENT_DEFAULT = 1.0;
+  public static final String  DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY =
+      "dfs.namenode.blocksmap.heap.percent";
+  public static final double  DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_DEFAULT = 2.0;
   public static final String  DFS_NAMENODE_LEGACY_OIV_IMAGE_DIR_KEY = "dfs.namenode.legacy-oiv-image.dir";
 
   public static final String  DFS_NAMESERVICES =
@@ -1468,6 +1575,8 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final long DFS_NAMENODE_RETRY_CACHE_EXPIRYTIME_MILLIS_DEFAULT = 600000; // 10 minutes
   public static final String DFS_NAMENODE_RETRY_CACHE_HEAP_PERCENT_KEY = "dfs.namenode.retrycache.heap.percent";
   public static final float DFS_NAMENODE_RETRY_CACHE_HEAP_PERCENT_DEFAULT = 0.03f;
+  public static final String DFS_NAMENODE_RETRY_CACHE_SHARDS_KEY = "dfs.namenode.retrycache.shards";
+  public static final int DFS_NAMENODE_RETRY_CACHE_SHARDS_DEFAULT = 1;
   
   // Hidden configuration undocumented in hdfs-site. xml
   // Timeout to wait for block receiver and responder thread to stop
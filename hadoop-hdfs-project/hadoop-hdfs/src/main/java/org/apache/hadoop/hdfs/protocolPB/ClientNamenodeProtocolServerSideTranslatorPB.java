@@ -117,6 +117,8 @@ import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.FsyncR
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.FsyncResponseProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetAdditionalDatanodeRequestProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetAdditionalDatanodeResponseProto;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBatchedFileInfoRequestProto;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBatchedFileInfoResponseProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBatchedListingRequestProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBatchedListingResponseProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBlockLocationsRequestProto;
@@ -1076,6 +1078,29 @@ public class ClientNamenodeProtocolServerSideTranslatorPB implements
     }
   }
 
+  @Override
+  public GetBatchedFileInfoResponseProto getBatchedFileInfo(
+      RpcController controller, GetBatchedFileInfoRequestProto req)
+      throws ServiceException {
+    try {
+      HdfsFileStatus[] result = server.getBatchedFileInfo(
+          req.getPathsList().toArray(new String[0]), req.getNeedLocation());
+      GetBatchedFileInfoResponseProto.Builder builder =
+          GetBatchedFileInfoResponseProto.newBuilder();
+      for (HdfsFileStatus status : result) {
+        if (status != null) {
+          builder.addFileInfos(GetFileInfoResponseProto.newBuilder().setFs(
+              PBHelperClient.convert(status)));
+        } else {
+          builder.addFileInfos(VOID_GETFILEINFO_RESPONSE);
+        }
+      }
+      return builder.build();
+    } catch (IOException e) {
+      throw new ServiceException(e);
+    }
+  }
+
   @Override
   public GetFileLinkInfoResponseProto getFileLinkInfo(RpcController controller,
       GetFileLinkInfoRequestProto req) throws ServiceException {
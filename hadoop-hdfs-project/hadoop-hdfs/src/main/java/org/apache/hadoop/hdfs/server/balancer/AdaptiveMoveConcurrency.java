@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.balancer;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts the number of concurrent block moves of a datanode to the throughput
+ * the datanode achieves, instead of always allowing the configured maximum.
+ * <p>
+ * Moves are accounted in rounds of as many moves as the current limit. After
+ * each round, the limit grows by one if the throughput of the round improved
+ * on the previous round, and shrinks by one if it dropped, so that it settles
+ * around the knee of the throughput curve of the datanode. A failed move
+ * halves the limit, as the datanode is most likely overloaded.
+ */
+@InterfaceAudience.Private
+class AdaptiveMoveConcurrency {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(AdaptiveMoveConcurrency.class);
+
+  /** The relative change of throughput between rounds which is ignored. */
+  private static final double TOLERANCE = 0.1;
+
+  private final String name;
+  private final int maxLimit;
+  private int limit;
+
+  private long roundStart = -1;
+  private long roundBytes = 0;
+  private int roundMoves = 0;
+  /** The throughput of the previous round, in bytes per millisecond. */
+  private double lastRate = 0;
+
+  AdaptiveMoveConcurrency(String name, int initialLimit, int maxLimit) {
+    this.name = name;
+    this.maxLimit = Math.max(1, maxLimit);
+    this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+  }
+
+  /** @return the number of moves the datanode can currently run */
+  synchronized int getLimit() {
+    return limit;
+  }
+
+  /** A move of the datanode started at the given time. */
+  synchronized void moveStarted(long now) {
+    if (roundStart < 0) {
+      roundStart = now;
+    }
+  }
+
+  /** A move of the datanode succeeded at the given time. */
+  synchronized void moveSucceeded(long bytes, long now) {
+    roundBytes += bytes;
+    if (++roundMoves < limit) {
+      return;
+    }
+    final double rate = (double) roundBytes / Math.max(1, now - roundStart);
+    if (rate > lastRate * (1 + TOLERANCE)) {
+      setLimit(limit + 1);
+    } else if (rate < lastRate * (1 - TOLERANCE)) {
+      setLimit(limit - 1);
+    }
+    lastRate = rate;
+    startRound(now);
+  }
+
+  /** A move of the datanode failed at the given time. */
+  synchronized void moveFailed(long now) {
+    setLimit(limit / 2);
+    lastRate = 0;
+    startRound(now);
+  }
+
+  private void startRound(long now) {
+    roundStart = now;
+    roundBytes = 0;
+    roundMoves = 0;
+  }
+
+  private void setLimit(int newLimit) {
+    newLimit = Math.max(1, Math.min(newLimit, maxLimit));
+    if (newLimit != limit) {
+      LOG.debug("{}: concurrent moves {} -> {}", name, limit, newLimit);
+      limit = newLimit;
+    }
+  }
+}
@@ -755,6 +755,7 @@ public class Balancer {
         LOG.info("Total target DataNodes in this iteration: {}",
             dispatcher.moveTasksTotal());
       }
+      metrics.setBytesPlannedToMove(bytesBeingMoved);
 
       /* For each pair of <source, target>, start a thread that repeatedly 
        * decide a block to be moved and its proxy source, 
@@ -762,7 +763,13 @@ public class Balancer {
        * available to move.
        * Exit no byte has been moved for 5 consecutive iterations.
        */
-      if (!dispatcher.dispatchAndCheckContinue()) {
+      final long bytesMovedBefore = dispatcher.getBytesMoved();
+      final long dispatchStart = Time.monotonicNow();
+      final boolean shouldContinue = dispatcher.dispatchAndCheckContinue();
+      reportBalanceRate(bytesLeftToMove, bytesBeingMoved,
+          dispatcher.getBytesMoved() - bytesMovedBefore,
+          Time.monotonicNow() - dispatchStart);
+      if (!shouldContinue) {
         return newResult(ExitStatus.NO_MOVE_PROGRESS, bytesLeftToMove, bytesBeingMoved);
       }
 
@@ -782,6 +789,29 @@ public class Balancer {
     }
   }
 
+  /**
+   * Report the bytes an iteration moved against the bytes it planned to move,
+   * and the time the remaining bytes would take to move at the achieved rate.
+   */
+  private void reportBalanceRate(long bytesLeftToMove, long bytesPlanned,
+      long bytesMoved, long elapsedMs) {
+    final long bytesPerSecond =
+        elapsedMs > 0 ? bytesMoved * 1000 / elapsedMs : 0;
+    final long bytesRemaining = Math.max(0, bytesLeftToMove - bytesMoved);
+    final long secondsToBalance =
+        bytesPerSecond > 0 ? bytesRemaining / bytesPerSecond : -1;
+    metrics.setBytesMovedPerSecond(bytesPerSecond);
+    metrics.setProjectedSecondsToBalance(secondsToBalance);
+    LOG.info("Moved {} of the {} planned in {} ({}/s), the {} left to move "
+        + "would take {} at this rate",
+        StringUtils.byteDesc(bytesMoved), StringUtils.byteDesc(bytesPlanned),
+        StringUtils.formatTime(elapsedMs),
+        StringUtils.byteDesc(bytesPerSecond),
+        StringUtils.byteDesc(bytesRemaining),
+        secondsToBalance < 0 ? "unknown time"
+            : StringUtils.formatTime(secondsToBalance * 1000));
+  }
+
   /**
    * Balance all namenodes.
    * For each iteration,
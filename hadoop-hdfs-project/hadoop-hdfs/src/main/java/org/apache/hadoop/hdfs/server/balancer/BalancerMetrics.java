@@ -43,6 +43,16 @@ final class BalancerMetrics {
   @Metric("Number of over utilized nodes")
   private MutableGaugeInt numOfOverUtilizedNodes;
 
+  @Metric("Bytes planned to move in the current iteration")
+  private MutableGaugeLong bytesPlannedToMove;
+
+  @Metric("Bytes moved per second in the last iteration")
+  private MutableGaugeLong bytesMovedPerSecond;
+
+  @Metric("Seconds left to make the cluster balanced, at the rate of the "
+      + "last iteration")
+  private MutableGaugeLong projectedSecondsToBalance;
+
   private BalancerMetrics(Balancer b) {
     this.balancer = b;
   }
@@ -77,4 +87,16 @@ final class BalancerMetrics {
   void setNumOfOverUtilizedNodes(int numOfOverUtilizedNodes) {
     this.numOfOverUtilizedNodes.set(numOfOverUtilizedNodes);
   }
+
+  void setBytesPlannedToMove(long bytesPlannedToMove) {
+    this.bytesPlannedToMove.set(bytesPlannedToMove);
+  }
+
+  void setBytesMovedPerSecond(long bytesMovedPerSecond) {
+    this.bytesMovedPerSecond.set(bytesMovedPerSecond);
+  }
+
+  void setProjectedSecondsToBalance(long projectedSecondsToBalance) {
+    this.projectedSecondsToBalance.set(projectedSecondsToBalance);
+  }
 }
\ No newline at end of file
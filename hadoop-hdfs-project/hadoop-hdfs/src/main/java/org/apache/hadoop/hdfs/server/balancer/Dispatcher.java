@@ -124,6 +124,11 @@ public class Dispatcher {
 
   /** The maximum number of concurrent blocks moves at a datanode */
   private final int maxConcurrentMovesPerNode;
+  /**
+   * The initial number of concurrent block moves at a datanode when it is
+   * adapted to the throughput of the datanode, 0 if it is not adapted.
+   */
+  private final int initialConcurrentMovesPerNode;
   private final int maxMoverThreads;
 
   private final long getBlocksSize;
@@ -404,6 +409,8 @@ public class Dispatcher {
         receiveResponse(in);
         nnc.addBytesMoved(reportedBlock.getNumBytes());
         target.getDDatanode().setHasSuccess();
+        target.getDDatanode().moveCompleted(reportedBlock.getNumBytes(), true);
+        proxySource.moveCompleted(reportedBlock.getNumBytes(), true);
         LOG.info("Successfully moved " + this);
       } catch (IOException e) {
         LOG.warn("Failed to move " + this, e);
@@ -425,6 +432,8 @@ public class Dispatcher {
         // going on in datanodes.
         proxySource.activateDelay(delayAfterErrors);
         target.getDDatanode().activateDelay(delayAfterErrors);
+        proxySource.moveCompleted(reportedBlock.getNumBytes(), false);
+        target.getDDatanode().moveCompleted(reportedBlock.getNumBytes(), false);
       } finally {
         IOUtils.closeStream(out);
         IOUtils.closeStream(in);
@@ -684,15 +693,19 @@ public class Dispatcher {
         new ConcurrentHashMap<>();
     private volatile boolean hasSuccess = false;
     private ExecutorService moveExecutor;
+    /** Limits the pending moves if they are adapted to the throughput. */
+    private final AdaptiveMoveConcurrency concurrency;
 
     @Override
     public String toString() {
       return getClass().getSimpleName() + ":" + datanode;
     }
 
-    private DDatanode(DatanodeInfo datanode, int maxConcurrentMoves) {
+    private DDatanode(DatanodeInfo datanode, int maxConcurrentMoves,
+        AdaptiveMoveConcurrency concurrency) {
       this.datanode = datanode;
       this.pendings = new ArrayList<PendingMove>(maxConcurrentMoves);
+      this.concurrency = concurrency;
     }
 
     public DatanodeInfo getDatanodeInfo() {
@@ -752,10 +765,27 @@ public class Dispatcher {
 
     /** Add a scheduled block move to the node */
     synchronized boolean addPendingBlock(PendingMove pendingBlock) {
-      if (!isDelayActive()) {
-        return pendings.add(pendingBlock);
+      if (isDelayActive()) {
+        return false;
+      }
+      if (concurrency != null) {
+        if (pendings.size() >= concurrency.getLimit()) {
+          return false;
+        }
+        concurrency.moveStarted(Time.monotonicNow());
+      }
+      return pendings.add(pendingBlock);
+    }
+
+    /** Feed the outcome of a move back to the concurrency of the node. */
+    private void moveCompleted(long bytes, boolean success) {
+      if (concurrency != null) {
+        if (success) {
+          concurrency.moveSucceeded(bytes, Time.monotonicNow());
+        } else {
+          concurrency.moveFailed(Time.monotonicNow());
+        }
       }
-      return false;
     }
 
     /** Remove a scheduled block move from the node */
@@ -1093,6 +1123,13 @@ public class Dispatcher {
     this.moverThreadAllocator = new Allocator(moverThreads);
     this.maxMoverThreads = moverThreads;
     this.maxConcurrentMovesPerNode = maxConcurrentMovesPerNode;
+    this.initialConcurrentMovesPerNode = conf.getBoolean(
+        DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_ENABLED_KEY,
+        DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_ENABLED_DEFAULT) ?
+        Math.max(1, conf.getInt(
+            DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_INITIAL_MOVES_KEY,
+            DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_INITIAL_MOVES_DEFAULT))
+        : 0;
 
     this.getBlocksSize = getBlocksSize;
     this.getBlocksMinBlockSize = getBlocksMinBlockSize;
@@ -1197,7 +1234,11 @@ public class Dispatcher {
   }
 
   public DDatanode newDatanode(DatanodeInfo datanode) {
-    return new DDatanode(datanode, maxConcurrentMovesPerNode);
+    final AdaptiveMoveConcurrency concurrency =
+        initialConcurrentMovesPerNode == 0 ? null : new AdaptiveMoveConcurrency(
+            datanode.toString(), initialConcurrentMovesPerNode,
+            maxConcurrentMovesPerNode);
+    return new DDatanode(datanode, maxConcurrentMovesPerNode, concurrency);
   }
 
 
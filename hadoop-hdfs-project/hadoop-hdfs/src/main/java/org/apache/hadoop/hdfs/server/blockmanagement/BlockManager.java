@@ -420,6 +420,9 @@ public class BlockManager implements BlockStatsMXBean {
   // Max write lock hold time for BlockReportProcessingThread(ms).
   private final long maxLockHoldTime;
 
+  // Replicas of a full block report applied per write lock hold.
+  private final int blocksPerReportLock;
+
   /**
    * When running inside a Standby node, the node may receive block reports
    * from datanodes before receiving the corresponding namespace edits from
@@ -507,9 +510,16 @@ public class BlockManager implements BlockStatsMXBean {
         startupDelayBlockDeletionInMs,
         blockIdManager);
     this.markedDeleteQueue = new ConcurrentLinkedQueue<>();
-    // Compute the map capacity by allocating 2% of total memory
+    // Compute the map capacity by allocating a percentage of total memory
+    final double blocksMapHeapPercent = conf.getDouble(
+        DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY,
+        DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_DEFAULT);
+    Preconditions.checkArgument(
+        blocksMapHeapPercent > 0 && blocksMapHeapPercent <= 100,
+        "Invalid %s: %s", DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY,
+        blocksMapHeapPercent);
     this.blocksMap = new BlocksMap(
-        LightWeightGSet.computeCapacity(2.0, "BlocksMap"));
+        LightWeightGSet.computeCapacity(blocksMapHeapPercent, "BlocksMap"));
     this.placementPolicies = new BlockPlacementPolicies(
         conf, datanodeManager.getFSClusterStats(),
         datanodeManager.getNetworkTopology(),
@@ -560,6 +570,9 @@ public class BlockManager implements BlockStatsMXBean {
         DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_MAX_LOCK_HOLD_TIME,
         DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_MAX_LOCK_HOLD_TIME_DEFAULT,
         TimeUnit.MILLISECONDS);
+    this.blocksPerReportLock = conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_KEY,
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_DEFAULT);
     this.numBlocksPerIteration = conf.getInt(
         DFSConfigKeys.DFS_BLOCK_MISREPLICATION_PROCESSING_LIMIT,
         DFSConfigKeys.DFS_BLOCK_MISREPLICATION_PROCESSING_LIMIT_DEFAULT);
@@ -3037,6 +3050,8 @@ public class BlockManager implements BlockStatsMXBean {
     for (StatefulBlockInfo b : toUC) { 
       addStoredBlockUnderConstruction(b, storageInfo);
     }
+    // The lock is held until all the changes are applied: they were decided
+    // against the stored block state, which must not change meanwhile.
     for (BlockInfo b : toRemove) {
       removeStoredBlock(b, node);
     }
@@ -3121,7 +3136,11 @@ public class BlockManager implements BlockStatsMXBean {
     assert (namesystem.hasWriteLock());
     assert (storageInfo.getBlockReportCount() == 0);
 
+    long numProcessed = 0;
     for (BlockReportReplica iblk : report) {
+      // Each replica is checked against the stored block state and applied
+      // under the same lock hold, so the lock may be released between them.
+      yieldBlockReportLock(storageInfo, numProcessed++);
       ReplicaState reportedState = iblk.getState();
 
       if (LOG.isDebugEnabled()) {
@@ -3183,6 +3202,48 @@ public class BlockManager implements BlockStatsMXBean {
     }
   }
 
+  /**
+   * Briefly release the namesystem write lock after every
+   * {@link #blocksPerReportLock} replicas processed for a first full block
+   * report, so that a large report does not stall other namesystem
+   * operations. The lock is only released on the block report processing
+   * thread, where no caller depends on holding it across the whole report.
+   * Later reports are not split: the changes computed by reportDiff would
+   * be stale once the lock is released. Their storages are processed as
+   * separate block report actions, between which the lock is released
+   * after {@link #maxLockHoldTime}.
+   *
+   * @param storageInfo the storage whose report is being processed
+   * @param numProcessed the number of replicas processed so far
+   * @throws IOException if the storage was removed while the lock was
+   *         released
+   */
+  private void yieldBlockReportLock(DatanodeStorageInfo storageInfo,
+      long numProcessed) throws IOException {
+    if (blocksPerReportLock <= 0 || numProcessed == 0
+        || numProcessed % blocksPerReportLock != 0
+        || Thread.currentThread() != blockReportThread
+        || StorageType.PROVIDED.equals(storageInfo.getStorageType())) {
+      return;
+    }
+    final int holdCount = namesystem.getWriteHoldCount();
+    for (int i = 0; i < holdCount; i++) {
+      namesystem.writeUnlock("processReport");
+    }
+    BlockManagerFaultInjector.getInstance().blockReportLockReleased(
+        storageInfo);
+    for (int i = 0; i < holdCount; i++) {
+      namesystem.writeLock();
+    }
+    DatanodeDescriptor node = storageInfo.getDatanodeDescriptor();
+    if (!namesystem.isRunning() || !node.isAlive() || !node.isRegistered()
+        || node.getStorageInfo(storageInfo.getStorageID()) != storageInfo
+        || storageInfo.getState() == DatanodeStorage.State.FAILED) {
+      throw new IOException("Storage " + storageInfo + " of " + node
+          + " was removed while processing its block report");
+    }
+  }
+
   private void reportDiff(DatanodeStorageInfo storageInfo,
       BlockListAsLongs newReport,
       Collection<BlockInfoToAdd> toAdd,     // add to DatanodeDescriptor
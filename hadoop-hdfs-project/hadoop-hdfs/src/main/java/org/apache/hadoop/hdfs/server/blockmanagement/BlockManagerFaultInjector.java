@@ -53,4 +53,8 @@ public class BlockManagerFaultInjector {
   @VisibleForTesting
   public void mockAnException() {
   }
+
+  @VisibleForTesting
+  public void blockReportLockReleased(DatanodeStorageInfo storageInfo) {
+  }
 }
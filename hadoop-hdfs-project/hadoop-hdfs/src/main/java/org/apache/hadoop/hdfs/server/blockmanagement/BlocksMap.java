@@ -72,7 +72,6 @@ class BlocksMap {
   private final LongAdder totalECBlockGroups = new LongAdder();
 
   BlocksMap(int capacity) {
-    // Use 2% of total memory to size the GSet capacity
     this.capacity = capacity;
     this.blocks = new LightWeightGSet<Block, BlockInfo>(capacity) {
       @Override
@@ -293,6 +293,9 @@ final class BlockChecksumHelper {
     @Override
     void compute() throws IOException {
       try {
+        if (!isPartialBlk() && computeFromSummary()) {
+          return;
+        }
         readHeader();
 
         BlockChecksumType type =
@@ -314,6 +317,45 @@ final class BlockChecksumHelper {
       }
     }
 
+    /**
+     * Serve the checksum of the whole block from the checksum summary
+     * persisted for the replica, without reading its meta file.
+     *
+     * @return whether the checksum was computed from the summary
+     * @throws IOException
+     */
+    private boolean computeFromSummary() throws IOException {
+      BlockChecksumSummary summary =
+          getDatanode().data.getBlockChecksumSummary(getBlock());
+      if (summary == null) {
+        return false;
+      }
+      final byte[] outBytes;
+      switch (getBlockChecksumOptions().getBlockChecksumType()) {
+      case MD5CRC:
+        outBytes = summary.getMd5Crc();
+        break;
+      case COMPOSITE_CRC:
+        outBytes = summary.getCompositeCrc(
+            getBlockChecksumOptions().getStripeLength());
+        break;
+      default:
+        outBytes = null;
+      }
+      if (outBytes == null) {
+        return false;
+      }
+      setChecksumSize(summary.getCrcType().size);
+      setBytesPerCRC(summary.getBytesPerChecksum());
+      setCrcPerBlock(summary.getNumChunks());
+      setCrcType(summary.getCrcType());
+      setOutBytes(outBytes);
+
+      LOG.debug("block={}, bytesPerCRC={}, crcPerBlock={}, computed from the "
+          + "checksum summary", getBlock(), getBytesPerCRC(), getCrcPerBlock());
+      return true;
+    }
+
     private void computeMd5Crc() throws IOException {
       MD5Hash md5out;
       if (isPartialBlk() && getCrcPerBlock() > 0) {
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.hadoop.util.CrcComposer;
+import org.apache.hadoop.util.CrcUtil;
+import org.apache.hadoop.util.DataChecksum;
+
+/**
+ * The checksums of a finalized replica, computed once from its meta file so
+ * that block checksum requests for the whole replica can be served without
+ * reading the meta file again.
+ * <p>
+ * Besides the MD5 of all the chunk CRCs, which is the MD5CRC block checksum,
+ * a summary keeps a two level CRC tree: the composite CRC of every group of
+ * consecutive chunks, from which the COMPOSITE_CRC block checksum is composed
+ * for the whole replica, or striped by any multiple of the group size.
+ * <p>
+ * A summary is only valid for the generation stamp, length and meta file
+ * length it was computed for, see {@link #isValidFor(long, long, long)}.
+ */
+@InterfaceAudience.Private
+public final class BlockChecksumSummary {
+  /** The extension of the summary persisted next to a meta file. */
+  public static final String SUMMARY_EXTENSION = ".crcs";
+
+  private static final short VERSION = 1;
+  private static final int CRC_SIZE = 4;
+
+  private final long genStamp;
+  private final long numBytes;
+  private final long metaLength;
+  private final DataChecksum.Type crcType;
+  private final int bytesPerChecksum;
+  private final int chunksPerGroup;
+  private final byte[] md5;
+  private final byte[] groupCrcs;
+
+  private BlockChecksumSummary(long genStamp, long numBytes, long metaLength,
+      DataChecksum.Type crcType, int bytesPerChecksum, int chunksPerGroup,
+      byte[] md5, byte[] groupCrcs) {
+    this.genStamp = genStamp;
+    this.numBytes = numBytes;
+    this.metaLength = metaLength;
+    this.crcType = crcType;
+    this.bytesPerChecksum = bytesPerChecksum;
+    this.chunksPerGroup = chunksPerGroup;
+    this.md5 = md5;
+    this.groupCrcs = groupCrcs;
+  }
+
+  /**
+   * @return the file the summary of a replica is persisted to
+   */
+  public static File getFile(File metaFile) {
+    return new File(metaFile.getParentFile(),
+        metaFile.getName() + SUMMARY_EXTENSION);
+  }
+
+  /**
+   * Compute the summary of a replica from its meta file.
+   *
+   * @param genStamp the generation stamp of the replica
+   * @param numBytes the length of the replica
+   * @param metaIn the meta file, positioned at its header
+   * @param metaLength the length of the meta file
+   * @param groupSize the number of data bytes covered by each group CRC
+   * @return the summary, null if the replica is empty, its checksums are not
+   *         CRCs or the meta file does not match its length
+   * @throws IOException if the meta file could not be read
+   */
+  public static BlockChecksumSummary compute(long genStamp, long numBytes,
+      DataInputStream metaIn, long metaLength, long groupSize)
+      throws IOException {
+    DataChecksum checksum = BlockMetadataHeader.readHeader(metaIn)
+        .getChecksum();
+    DataChecksum.Type type = checksum.getChecksumType();
+    int bytesPerChecksum = checksum.getBytesPerChecksum();
+    long numChunks = (numBytes + bytesPerChecksum - 1) / bytesPerChecksum;
+    if (!isCrc(type) || numBytes <= 0 || metaLength !=
+        BlockMetadataHeader.getHeaderSize() + numChunks * CRC_SIZE) {
+      return null;
+    }
+
+    int chunksPerGroup = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+        groupSize / bytesPerChecksum));
+    CrcComposer composer = CrcComposer.newStripedCrcComposer(type,
+        bytesPerChecksum, (long) chunksPerGroup * bytesPerChecksum);
+    MessageDigest digester = MD5Hash.getDigester();
+    byte[] buf = new byte[4096];
+    for (long chunk = 0; chunk < numChunks;) {
+      int n = (int) Math.min(buf.length / CRC_SIZE, numChunks - chunk);
+      metaIn.readFully(buf, 0, n * CRC_SIZE);
+      digester.update(buf, 0, n * CRC_SIZE);
+      for (int i = 0; i < n; i++, chunk++) {
+        long chunkLength = Math.min(bytesPerChecksum,
+            numBytes - chunk * bytesPerChecksum);
+        composer.update(CrcUtil.readInt(buf, i * CRC_SIZE), chunkLength);
+      }
+    }
+    return new BlockChecksumSummary(genStamp, numBytes, metaLength, type,
+        bytesPerChecksum, chunksPerGroup, digester.digest(),
+        composer.digest());
+  }
+
+  private static boolean isCrc(DataChecksum.Type type) {
+    return type == DataChecksum.Type.CRC32
+        || type == DataChecksum.Type.CRC32C;
+  }
+
+  /**
+   * Read a summary written by {@link #write(DataOutputStream)}.
+   */
+  public static BlockChecksumSummary read(DataInputStream in)
+      throws IOException {
+    short version = in.readShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported checksum summary version " + version);
+    }
+    long genStamp = in.readLong();
+    long numBytes = in.readLong();
+    long metaLength = in.readLong();
+    int typeId = in.readInt();
+    DataChecksum.Type type = typeId >= 0
+        && typeId < DataChecksum.Type.values().length ?
+        DataChecksum.Type.valueOf(typeId) : null;
+    int bytesPerChecksum = in.readInt();
+    int chunksPerGroup = in.readInt();
+    if (!isCrc(type) || numBytes <= 0 || bytesPerChecksum <= 0
+        || chunksPerGroup <= 0) {
+      throw new IOException("Corrupt checksum summary");
+    }
+    byte[] md5 = new byte[MD5Hash.MD5_LEN];
+    in.readFully(md5);
+    long groupSize = (long) chunksPerGroup * bytesPerChecksum;
+    int groupCrcsLength = in.readInt();
+    if (groupCrcsLength != (numBytes + groupSize - 1) / groupSize * CRC_SIZE) {
+      throw new IOException("Corrupt checksum summary");
+    }
+    byte[] groupCrcs = new byte[groupCrcsLength];
+    in.readFully(groupCrcs);
+    return new BlockChecksumSummary(genStamp, numBytes, metaLength, type,
+        bytesPerChecksum, chunksPerGroup, md5, groupCrcs);
+  }
+
+  public void write(DataOutputStream out) throws IOException {
+    out.writeShort(VERSION);
+    out.writeLong(genStamp);
+    out.writeLong(numBytes);
+    out.writeLong(metaLength);
+    out.writeInt(crcType.id);
+    out.writeInt(bytesPerChecksum);
+    out.writeInt(chunksPerGroup);
+    out.write(md5);
+    out.writeInt(groupCrcs.length);
+    out.write(groupCrcs);
+  }
+
+  /**
+   * A summary is invalidated by any change to the replica: appends and
+   * truncates bump its generation stamp and change its length.
+   *
+   * @return whether the summary is the one of a replica
+   */
+  public boolean isValidFor(long replicaGenStamp, long replicaNumBytes,
+      long replicaMetaLength) {
+    return genStamp == replicaGenStamp && numBytes == replicaNumBytes
+        && metaLength == replicaMetaLength;
+  }
+
+  public DataChecksum.Type getCrcType() {
+    return crcType;
+  }
+
+  public int getBytesPerChecksum() {
+    return bytesPerChecksum;
+  }
+
+  public long getNumChunks() {
+    return (numBytes + bytesPerChecksum - 1) / bytesPerChecksum;
+  }
+
+  /**
+   * @return the MD5CRC checksum of the whole replica
+   */
+  public byte[] getMd5Crc() {
+    return md5.clone();
+  }
+
+  /**
+   * Compose the COMPOSITE_CRC checksum of the whole replica.
+   *
+   * @param stripeLength the length of the stripes to compose separately, the
+   *                     whole replica if not positive
+   * @return the composite CRCs, null if the stripe length is not a multiple
+   *         of the group size
+   * @throws IOException if the CRCs could not be composed
+   */
+  public byte[] getCompositeCrc(long stripeLength) throws IOException {
+    long groupSize = (long) chunksPerGroup * bytesPerChecksum;
+    if (stripeLength <= 0 || stripeLength >= numBytes) {
+      stripeLength = numBytes;
+    } else if (stripeLength % groupSize != 0) {
+      return null;
+    }
+    CrcComposer composer = CrcComposer.newStripedCrcComposer(crcType,
+        groupSize, stripeLength);
+    for (int i = 0; i < groupCrcs.length / CRC_SIZE; i++) {
+      composer.update(CrcUtil.readInt(groupCrcs, i * CRC_SIZE),
+          Math.min(groupSize, numBytes - i * groupSize));
+    }
+    return composer.digest();
+  }
+}
@@ -43,6 +43,7 @@ import org.apache.hadoop.hdfs.protocol.datatransfer.PacketHeader;
 import org.apache.hadoop.hdfs.server.common.HdfsServerConstants.ReplicaState;
 import org.apache.hadoop.hdfs.server.common.DataNodeLockManager.LockLevel;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeReference;
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.LengthInputStream;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.ReplicaInputStreams;
 import org.apache.hadoop.hdfs.util.DataTransferThrottler;
@@ -170,6 +171,13 @@ class BlockSender implements java.io.Closeable {
   
   private long lastCacheDropOffset;
   private final FileIoProvider fileIoProvider;
+
+  /** The hot block cache, or null if this replica is not cacheable. */
+  private HotBlockCache hotBlockCache;
+  /** Length of the replica up to its last complete chunk. */
+  private long cacheableLength;
+  /** Used to load whole segments of the meta file into the cache. */
+  private FileChannel metaChannel;
   
   @VisibleForTesting
   static long CACHE_DROP_INTERVAL_BYTES = 1024 * 1024; // 1MB
@@ -337,6 +345,10 @@ class BlockSender implements java.io.Closeable {
 
               csum = BlockMetadataHeader.readDataChecksum(checksumIn, block);
               keepMetaInOpen = true;
+              if (metaIn.getWrappedStream() instanceof FileInputStream) {
+                metaChannel = ((FileInputStream) metaIn.getWrappedStream())
+                    .getChannel();
+              }
             } else if (!replica.isOnTransientStorage() &&
                 metaIn.getLength() < expectedHeaderSize) {
               LOG.warn("The meta file length {} is less than the expected " +
@@ -427,6 +439,16 @@ class BlockSender implements java.io.Closeable {
       }
       seqno = 0;
 
+      // Only the complete chunks of finalized replicas are cached, they
+      // cannot change as long as the generation stamp does not.
+      HotBlockCache cache = datanode.getHotBlockCache();
+      if (cache != null && replica instanceof FinalizedReplica
+          && checksumIn != null && metaChannel != null && checksumSize > 0
+          && cache.getSegmentSize() % chunkSize == 0) {
+        hotBlockCache = cache;
+        cacheableLength = (replicaVisibleLength / chunkSize) * chunkSize;
+      }
+
       if (DataNode.LOG.isDebugEnabled()) {
         DataNode.LOG.debug("replica=" + replica);
       }
@@ -551,6 +573,13 @@ class BlockSender implements java.io.Closeable {
       boolean transferTo, DataTransferThrottler throttler) throws IOException {
     int dataLen = (int) Math.min(endOffset - offset,
                              (chunkSize * (long) maxChunks));
+    if (hotBlockCache != null && offset < cacheableLength) {
+      // Do not let a packet span more than one cached segment.
+      long segmentSize = hotBlockCache.getSegmentSize();
+      long limit = Math.min(cacheableLength,
+          (offset / segmentSize + 1) * segmentSize);
+      dataLen = (int) Math.min(dataLen, limit - offset);
+    }
     
     int numChunks = numberOfChunks(dataLen); // Number of chunks be sent in the packet
     int checksumDataLen = numChunks * checksumSize;
@@ -565,7 +594,8 @@ class BlockSender implements java.io.Closeable {
     // _ padding, since the header is variable-length
     // H = header and length prefixes
     // C = checksums
-    // D? = data, if transferTo is false.
+    // D? = data, if transferTo is false or the packet is sent from the
+    //      hot block cache.
     
     int headerLen = writePacketHeader(pkt, dataLen, packetLen);
     
@@ -575,8 +605,17 @@ class BlockSender implements java.io.Closeable {
     
     int checksumOff = pkt.position();
     byte[] buf = pkt.array();
-    
-    if (checksumSize > 0 && ris.getChecksumIn() != null) {
+    int dataOff = checksumOff + checksumDataLen;
+
+    boolean fromCache = readFromHotBlockCache(buf, dataOff, dataLen,
+        checksumOff, checksumDataLen);
+    if (fromCache) {
+      // Keep the streams in sync with the packets sent.
+      ris.skipChecksumFully(checksumDataLen);
+      if (!transferTo) {
+        ris.skipDataFully(dataLen);
+      }
+    } else if (checksumSize > 0 && ris.getChecksumIn() != null) {
       readChecksum(buf, checksumOff, checksumDataLen);
 
       // write in progress that we need to use to get last checksum
@@ -589,8 +628,7 @@ class BlockSender implements java.io.Closeable {
       }
     }
     
-    int dataOff = checksumOff + checksumDataLen;
-    if (!transferTo) { // normal transfer
+    if (!transferTo && !fromCache) { // normal transfer
       try {
         ris.readDataFully(buf, dataOff, dataLen);
       } catch (IOException ioe) {
@@ -606,7 +644,12 @@ class BlockSender implements java.io.Closeable {
     }
     
     try {
-      if (transferTo) {
+      if (fromCache) {
+        out.write(buf, headerOff, dataOff + dataLen - headerOff);
+        if (transferTo) {
+          blockInPosition += dataLen;
+        }
+      } else if (transferTo) {
         SocketOutputStream sockOut = (SocketOutputStream)out;
         // First write header and checksums
         sockOut.write(buf, headerOff, dataOff - headerOff);
@@ -672,6 +715,74 @@ class BlockSender implements java.io.Closeable {
 
     return dataLen;
   }
+
+  /**
+   * Read the data and checksums of a packet from the hot block cache. If the
+   * segment of the packet is not cached but should be, the whole segment is
+   * read from disk, verified and added to the cache.
+   *
+   * @return true if the data and checksums were copied to buf
+   */
+  private boolean readFromHotBlockCache(byte[] buf, int dataOff, int dataLen,
+      int checksumOff, int checksumLen) throws IOException {
+    if (hotBlockCache == null || dataLen == 0
+        || offset + dataLen > cacheableLength
+        || ris.getChecksumIn() == null) {
+      return false;
+    }
+    int segmentSize = hotBlockCache.getSegmentSize();
+    long segmentStart = (offset / segmentSize) * segmentSize;
+    HotBlockCache.Key key = new HotBlockCache.Key(block.getBlockPoolId(),
+        block.getBlockId(), block.getGenerationStamp(),
+        offset / segmentSize);
+    int dataPos = (int) (offset - segmentStart);
+    int checksumPos = dataPos / chunkSize * checksumSize;
+    if (hotBlockCache.read(key, dataPos, buf, dataOff, dataLen,
+        checksumPos, checksumOff, checksumLen)) {
+      return true;
+    }
+    if (!(ris.getDataIn() instanceof FileInputStream)
+        || !hotBlockCache.shouldAdmit(key)) {
+      return false;
+    }
+
+    int segmentLen = (int) Math.min(segmentSize,
+        cacheableLength - segmentStart);
+    int segmentChecksumLen = segmentLen / chunkSize * checksumSize;
+    byte[] segment = new byte[segmentLen + segmentChecksumLen];
+    FsVolumeSpi volume = ris.getVolumeRef().getVolume();
+    try {
+      fileIoProvider.readFully(volume,
+          ((FileInputStream) ris.getDataIn()).getChannel(),
+          ByteBuffer.wrap(segment, 0, segmentLen), segmentStart);
+      fileIoProvider.readFully(volume, metaChannel,
+          ByteBuffer.wrap(segment, segmentLen, segmentChecksumLen),
+          BlockMetadataHeader.getHeaderSize()
+              + segmentStart / chunkSize * checksumSize);
+    } catch (IOException ioe) {
+      if (ioe.getMessage() != null
+          && ioe.getMessage().startsWith(EIO_ERROR)) {
+        throw new DiskFileCorruptException("A disk IO error occurred", ioe);
+      }
+      throw ioe;
+    }
+    try {
+      checksum.verifyChunkedSums(ByteBuffer.wrap(segment, 0, segmentLen),
+          ByteBuffer.wrap(segment, segmentLen, segmentChecksumLen),
+          block.getBlockName(), segmentStart);
+    } catch (ChecksumException e) {
+      // Leave it to the regular read path to handle the corruption.
+      LOG.debug("Not caching a corrupt segment of {}", block, e);
+      return false;
+    }
+    hotBlockCache.put(key, segment, 0, segmentLen,
+        segment, segmentLen, segmentChecksumLen);
+    System.arraycopy(segment, dataPos, buf, dataOff, dataLen);
+    System.arraycopy(segment, segmentLen + checksumPos, buf, checksumOff,
+        checksumLen);
+    return true;
+  }
+
   
   /**
    * Read checksum into given buffer
@@ -798,8 +909,10 @@ class BlockSender implements java.io.Closeable {
         streamForSendChunks = baseStream;
         maxChunksPerPacket = numberOfChunks(TRANSFERTO_BUFFER_SIZE);
         
-        // Smaller packet size to only hold checksum when doing transferTo
-        pktBufSize += checksumSize * maxChunksPerPacket;
+        // Smaller packet size to only hold checksum when doing transferTo,
+        // unless packets may be sent from the hot block cache.
+        pktBufSize += (hotBlockCache != null ? chunkSize + checksumSize
+            : checksumSize) * maxChunksPerPacket;
       } else {
         maxChunksPerPacket = Math.max(1,
             numberOfChunks(IO_FILE_BUFFER_SIZE));
@@ -402,6 +402,8 @@ public class DataNode extends ReconfigurableBase
   @Nullable
   private volatile DataNodePeerMetrics peerMetrics;
   private volatile DataNodeDiskMetrics diskMetrics;
+  @Nullable
+  private volatile HotBlockCache hotBlockCache;
   private InetSocketAddress streamingAddr;
 
   private LoadingCache<String, Map<String, Long>> datanodeNetworkCounts;
@@ -1289,6 +1291,9 @@ public class DataNode extends ReconfigurableBase
     checkStorageState("removeVolumes");
     // Remove volumes and block infos from FsDataset.
     data.removeVolumes(storageLocations, clearFailure);
+    if (directoryScanner != null) {
+      directoryScanner.removeVolumes(storageLocations);
+    }
 
     // Remove volumes from DataStorage.
     try {
@@ -1821,6 +1826,10 @@ public class DataNode extends ReconfigurableBase
     peerMetrics = dnConf.peerStatsEnabled ?
         DataNodePeerMetrics.create(getDisplayName(), getConf()) : null;
     metrics.getJvmMetrics().setPauseMonitor(pauseMonitor);
+    hotBlockCache = HotBlockCache.create(getConf(), getDisplayName());
+    if (fileIoProvider.getIoScheduler() != null) {
+      fileIoProvider.getIoScheduler().registerMetrics(getDisplayName());
+    }
 
     ecWorker = new ErasureCodingWorker(getConf(), this);
     blockRecoveryWorker = new BlockRecoveryWorker(this);
@@ -2078,9 +2087,32 @@ public class DataNode extends ReconfigurableBase
 
     blockScanner.enableBlockPoolId(bpos.getBlockPoolId());
     initDirectoryScanner(getConf());
+    reconcileReplicasLoadedFromCheckpoint(bpos.getBlockPoolId());
     initDiskBalancer(data, getConf());
   }
 
+  /**
+   * Replicas loaded from a checkpoint miss the changes made after the
+   * checkpoint was taken, so run a directory scan right away instead of
+   * waiting for the next periodic one.
+   */
+  private synchronized void reconcileReplicasLoadedFromCheckpoint(
+      String bpid) {
+    List<FsVolumeImpl> volumeList = data.getVolumeList();
+    if (directoryScanner == null || volumeList == null) {
+      return;
+    }
+    for (FsVolumeImpl fsVolume : volumeList) {
+      BlockPoolSlice bp = fsVolume.getBlockPoolSlices().get(bpid);
+      if (bp != null && bp.isReplicasLoadedFromCheckpoint()) {
+        LOG.info("Replicas of {} on {} were loaded from a checkpoint",
+            bpid, fsVolume);
+        directoryScanner.scheduleImmediateScan();
+        return;
+      }
+    }
+  }
+
   /**
    * Handles an AddBlockPoolException object thrown from
    * {@link org.apache.hadoop.hdfs.server.datanode.fsdataset.impl.FsVolumeList#
@@ -2274,6 +2306,14 @@ public class DataNode extends ReconfigurableBase
   public DataNodeDiskMetrics getDiskMetrics() {
     return diskMetrics;
   }
+
+  /**
+   * @return the hot block cache, or null if it is disabled.
+   */
+  @Nullable
+  HotBlockCache getHotBlockCache() {
+    return hotBlockCache;
+  }
   
   public DataNodePeerMetrics getPeerMetrics() {
     return peerMetrics;
@@ -2548,6 +2588,13 @@ public class DataNode extends ReconfigurableBase
     if (metrics != null) {
       metrics.shutdown();
     }
+    if (hotBlockCache != null) {
+      hotBlockCache.shutdown();
+      hotBlockCache = null;
+    }
+    if (fileIoProvider.getIoScheduler() != null) {
+      fileIoProvider.getIoScheduler().shutdown();
+    }
     if (dnConf.diskStatsEnabled && diskMetrics != null) {
       diskMetrics.shutdownAndWait();
     }
@@ -2926,6 +2973,8 @@ public class DataNode extends ReconfigurableBase
       DataInputStream in = null;
       BlockSender blockSender = null;
       final boolean isClient = clientname.length() > 0;
+      final VolumeIoScheduler.IoClass previousIoClass =
+          VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.RECOVERY);
       
       try {
         final String dnAddr = targets[0].getXferAddr(connectToDnViaHostname);
@@ -3008,6 +3057,7 @@ public class DataNode extends ReconfigurableBase
         IOUtils.closeStream(out);
         IOUtils.closeStream(in);
         IOUtils.closeSocket(sock);
+        VolumeIoScheduler.setIoClass(previousIoClass);
       }
     }
 
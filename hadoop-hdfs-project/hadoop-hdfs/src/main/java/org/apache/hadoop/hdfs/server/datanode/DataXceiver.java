@@ -58,6 +58,7 @@ import org.apache.hadoop.hdfs.server.datanode.BlockChecksumHelper.BlockGroupNonS
 import org.apache.hadoop.hdfs.server.datanode.DataNode.ShortCircuitFdsUnsupportedException;
 import org.apache.hadoop.hdfs.server.datanode.DataNode.ShortCircuitFdsVersionException;
 import org.apache.hadoop.hdfs.server.datanode.ShortCircuitRegistry.NewShmInfo;
+import org.apache.hadoop.hdfs.server.datanode.erasurecode.ErasureCodingWorker;
 import org.apache.hadoop.hdfs.server.protocol.DatanodeRegistration;
 import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitShm.SlotId;
 import org.apache.hadoop.io.IOUtils;
@@ -116,6 +117,7 @@ class DataXceiver extends Receiver implements Runnable {
   private final DataXceiverServer dataXceiverServer;
   private final boolean connectToDnViaHostname;
   private long opStartTime; //the start time of receiving an Op
+  private final long createTimeNanos; // when the connection was accepted
   private final InputStream socketIn;
   private OutputStream socketOut;
   private BlockReceiver blockReceiver = null;
@@ -137,6 +139,7 @@ class DataXceiver extends Receiver implements Runnable {
   private DataXceiver(Peer peer, DataNode datanode,
       DataXceiverServer dataXceiverServer) throws IOException {
     super(FsTracer.get(null));
+    this.createTimeNanos = Time.monotonicNowNanos();
     this.peer = peer;
     this.dnConf = datanode.getDnConf();
     this.socketIn = peer.getInputStream();
@@ -223,6 +226,8 @@ class DataXceiver extends Receiver implements Runnable {
   public void run() {
     int opsProcessed = 0;
     Op op = null;
+    datanode.metrics.addDataNodeXceiverStartDelay(TimeUnit.NANOSECONDS
+        .toMicros(Time.monotonicNowNanos() - createTimeNanos));
 
     try {
       synchronized(this) {
@@ -290,6 +295,7 @@ class DataXceiver extends Receiver implements Runnable {
         }
 
         opStartTime = monotonicNow();
+        VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.CLIENT);
         processOp(op);
         ++opsProcessed;
       } while ((peer != null) &&
@@ -325,6 +331,7 @@ class DataXceiver extends Receiver implements Runnable {
         LOG.error(s, t);
       }
     } finally {
+      VolumeIoScheduler.setIoClass(null);
       collectThreadLocalStates();
       LOG.debug("{}:Number of active connections is: {}",
           datanode.getDisplayName(), datanode.getXceiverCount());
@@ -578,6 +585,9 @@ class DataXceiver extends Receiver implements Runnable {
     previousOpClientName = clientName;
     long read = 0;
     updateCurrentThreadName("Sending block " + block);
+    if (ErasureCodingWorker.RECONSTRUCTION_CLIENT_NAME.equals(clientName)) {
+      VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.RECOVERY);
+    }
     OutputStream baseStream = getOutputStream();
     DataOutputStream out = getBufferedOutputStream();
     checkAccess(out, true, block, blockToken, Op.READ_BLOCK,
@@ -693,6 +703,9 @@ class DataXceiver extends Receiver implements Runnable {
     final boolean isClient = !isDatanode;
     final boolean isTransfer = stage == BlockConstructionStage.TRANSFER_RBW
         || stage == BlockConstructionStage.TRANSFER_FINALIZED;
+    if (isDatanode || isTransfer) {
+      VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.RECOVERY);
+    }
     allowLazyPersist = allowLazyPersist &&
         (dnConf.getAllowNonLocalLazyPersist() || peer.isLocal());
     long size = 0;
@@ -1084,6 +1097,7 @@ class DataXceiver extends Receiver implements Runnable {
   public void copyBlock(final ExtendedBlock block,
       final Token<BlockTokenIdentifier> blockToken) throws IOException {
     updateCurrentThreadName("Copying block " + block);
+    VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.BALANCER);
     DataOutputStream reply = getBufferedOutputStream();
     checkAccess(reply, true, block, blockToken, Op.COPY_BLOCK,
         BlockTokenIdentifier.AccessMode.COPY);
@@ -1164,6 +1178,7 @@ class DataXceiver extends Receiver implements Runnable {
       final DatanodeInfo proxySource,
       final String storageId) throws IOException {
     updateCurrentThreadName("Replacing block " + block + " from " + delHint);
+    VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.BALANCER);
     DataOutputStream replyOut = new DataOutputStream(getOutputStream());
     checkAccess(replyOut, true, block, blockToken,
         Op.REPLACE_BLOCK, BlockTokenIdentifier.AccessMode.REPLACE,
@@ -21,7 +21,10 @@ import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.nio.channels.AsynchronousCloseException;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -34,6 +37,7 @@ import org.apache.hadoop.hdfs.net.PeerServer;
 import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.util.Daemon;
+import org.apache.hadoop.util.Time;
 
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.util.Preconditions;
@@ -179,6 +183,20 @@ class DataXceiverServer implements Runnable {
    */
   final long estimateBlockSize;
 
+  /**
+   * Factory of the virtual threads running DataXceivers, or null if they
+   * run on platform threads.
+   */
+  private final ThreadFactory virtualThreadFactory;
+
+  /**
+   * The running virtual DataXceiver threads. Unlike the platform threads,
+   * they cannot belong to the thread group of the DataNode, so they are
+   * interrupted and waited for on shutdown from here.
+   */
+  private final Set<Thread> virtualXceiverThreads =
+      ConcurrentHashMap.newKeySet();
+
   DataXceiverServer(PeerServer peerServer, Configuration conf,
       DataNode datanode) {
     this.peerServer = peerServer;
@@ -218,6 +236,43 @@ class DataXceiverServer implements Runnable {
     } else {
       this.writeThrottler = null;
     }
+
+    if (conf.getBoolean(
+        DFSConfigKeys.DFS_DATANODE_TRANSFER_VIRTUAL_THREADS_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_TRANSFER_VIRTUAL_THREADS_ENABLED_DEFAULT)) {
+      this.virtualThreadFactory = newVirtualThreadFactory();
+    } else {
+      this.virtualThreadFactory = null;
+    }
+  }
+
+  /**
+   * Virtual threads are only available since Java 21, so they are created
+   * through reflection.
+   *
+   * @return a factory of virtual threads, or null if the JVM does not
+   * support them.
+   */
+  static ThreadFactory newVirtualThreadFactory() {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, "DataXceiver-", 0L);
+      ThreadFactory factory =
+          (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      LOG.info("DataXceivers will run on virtual threads");
+      return factory;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.warn("Virtual threads are not supported by this JVM, DataXceivers"
+          + " will run on platform threads: {}", e.toString());
+      return null;
+    }
+  }
+
+  @VisibleForTesting
+  boolean isUsingVirtualThreads() {
+    return virtualThreadFactory != null;
   }
 
   @Override
@@ -230,14 +285,26 @@ class DataXceiverServer implements Runnable {
         // Make sure the xceiver count is not exceeded
         int curXceiverCount = datanode.getXceiverCount();
         if (curXceiverCount > maxXceiverCount) {
+          datanode.metrics.incrDataNodeXceiversRejected();
           throw new IOException("Xceiver count " + curXceiverCount
               + " exceeds the limit of concurrent xceivers: "
               + maxXceiverCount);
         }
 
-        new Daemon(datanode.threadGroup,
-            DataXceiver.create(peer, datanode, this))
-            .start();
+        DataXceiver xceiver = DataXceiver.create(peer, datanode, this);
+        if (virtualThreadFactory != null) {
+          Thread t = virtualThreadFactory.newThread(() -> {
+            try {
+              xceiver.run();
+            } finally {
+              virtualXceiverThreads.remove(Thread.currentThread());
+            }
+          });
+          virtualXceiverThreads.add(t);
+          t.start();
+        } else {
+          new Daemon(datanode.threadGroup, xceiver).start();
+        }
       } catch (SocketTimeoutException ignored) {
         // wake up to see if should continue to run
       } catch (AsynchronousCloseException ace) {
@@ -389,7 +456,8 @@ class DataXceiverServer implements Runnable {
   }
 
   /**
-   * Close all peers and clear the map.
+   * Close all peers and clear the map. The DataXceivers running on virtual
+   * threads are then interrupted and waited for.
    */
   void closeAllPeers() {
     LOG.info("Closing all peers.");
@@ -403,6 +471,44 @@ class DataXceiverServer implements Runnable {
     } finally {
       lock.unlock();
     }
+    stopVirtualXceiverThreads(2L, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Interrupt the DataXceivers running on virtual threads and wait for them
+   * to exit, as the DataNode does for the platform threads of its thread
+   * group.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of time to wait
+   */
+  private void stopVirtualXceiverThreads(long timeout, TimeUnit unit) {
+    if (virtualXceiverThreads.isEmpty()) {
+      return;
+    }
+    virtualXceiverThreads.forEach(Thread::interrupt);
+    final long deadline = Time.monotonicNow() + unit.toMillis(timeout);
+    for (Thread t : virtualXceiverThreads) {
+      long remainingMs = deadline - Time.monotonicNow();
+      if (remainingMs <= 0) {
+        break;
+      }
+      try {
+        t.join(remainingMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    if (!virtualXceiverThreads.isEmpty()) {
+      LOG.warn("{} DataXceiver virtual threads did not exit after {} {}",
+          virtualXceiverThreads.size(), timeout, unit);
+    }
+  }
+
+  @VisibleForTesting
+  int getNumVirtualXceiverThreads() {
+    return virtualXceiverThreads.size();
   }
 
   /**
@@ -17,9 +17,12 @@
  */
 package org.apache.hadoop.hdfs.server.datanode;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -44,11 +48,13 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.DataNodeVolumeMetrics;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsDatasetSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi.ScanInfo;
 import org.apache.hadoop.util.Daemon;
 import org.apache.hadoop.util.StopWatch;
+import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +80,23 @@ public class DirectoryScanner implements Runnable {
   private final long scanPeriodMsecs;
   private final long throttleLimitMsPerSec;
   private final AtomicBoolean shouldRun = new AtomicBoolean();
+  private final boolean incrementalScanEnabled;
+  private final long fullScanPeriodMsecs;
+  private final int maxDirsPerSec;
+  private long lastFullScanMs = -1;
+
+  /**
+   * Directory modification times are only trusted once they are older than
+   * this, so that a change made within the timestamp granularity of the
+   * file system right after a listing is not missed.
+   */
+  private static final long DIR_MTIME_GRANULARITY_MS = 2000;
+
+  /**
+   * Modification time of every leaf block directory when it was last listed,
+   * used by incremental scans to skip the directories that did not change.
+   */
+  private final Map<File, Long> blockDirMtimes = new ConcurrentHashMap<>();
 
   private boolean retainDiffs = false;
 
@@ -126,6 +149,7 @@ public class DirectoryScanner implements Runnable {
     long missingMemoryBlocks = 0;
     long mismatchBlocks = 0;
     long duplicateBlocks = 0;
+    long skippedBlockDirs = 0;
 
     /**
      * Create a new Stats object for the given blockpool ID.
@@ -143,7 +167,8 @@ public class DirectoryScanner implements Runnable {
           + ", missing block files: " + missingBlockFile
           + ", missing blocks in memory: " + missingMemoryBlocks
           + ", mismatched blocks: " + mismatchBlocks
-          + ", duplicated blocks: " + duplicateBlocks;
+          + ", duplicated blocks: " + duplicateBlocks
+          + ", skipped block directories: " + skippedBlockDirs;
     }
   }
 
@@ -163,6 +188,12 @@ public class DirectoryScanner implements Runnable {
 
     private final BlockPoolReport blockPoolReport;
 
+    /**
+     * Leaf block directories skipped by an incremental scan, by block pool,
+     * indexed by {@link DirectoryScanner#blockDirIndex(long)}.
+     */
+    private final Map<String, BitSet> skippedBlockDirs = new HashMap<>();
+
     /**
      * Create a new info list.
      *
@@ -202,6 +233,19 @@ public class DirectoryScanner implements Runnable {
       return volume;
     }
 
+    void addSkippedBlockDir(final String bpid, final int blockDirIndex) {
+      skippedBlockDirs.computeIfAbsent(bpid, k -> new BitSet())
+          .set(blockDirIndex);
+    }
+
+    /**
+     * @return the leaf block directories of the block pool which were not
+     * listed, or null if every directory was listed.
+     */
+    public BitSet getSkippedBlockDirs(final String bpid) {
+      return skippedBlockDirs.get(bpid);
+    }
+
     @Override
     public String toString() {
       return "ScanInfoVolumeReport [volume=" + volume + ", blockPoolReport="
@@ -353,6 +397,17 @@ public class DirectoryScanner implements Runnable {
     }
 
     reconcileBlocksBatchInterval = reconcileBatchInterval;
+
+    incrementalScanEnabled = conf.getBoolean(
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_INCREMENTAL_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_INCREMENTAL_ENABLED_DEFAULT);
+    fullScanPeriodMsecs = conf.getTimeDuration(
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_FULL_INTERVAL_KEY,
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_FULL_INTERVAL_DEFAULT,
+        TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+    maxDirsPerSec = conf.getInt(
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_MAX_DIRS_PER_SEC_KEY,
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_MAX_DIRS_PER_SEC_DEFAULT);
   }
 
   /**
@@ -372,6 +427,16 @@ public class DirectoryScanner implements Runnable {
         TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Run a scan as soon as possible, in addition to the periodic scans.
+   */
+  void scheduleImmediateScan() {
+    if (shouldRun.get()) {
+      LOG.info("Scheduling an immediate Directory Tree Verification scan");
+      masterThread.schedule(this, 0, TimeUnit.MILLISECONDS);
+    }
+  }
+
   /**
    * Return whether the scanner has been started.
    *
@@ -404,6 +469,8 @@ public class DirectoryScanner implements Runnable {
           "This cycle terminating immediately because 'shouldRun' has been deactivated");
       return;
     }
+    final VolumeIoScheduler.IoClass previousIoClass =
+        VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.SCANNER);
     try {
       reconcile();
     } catch (Exception e) {
@@ -417,6 +484,8 @@ public class DirectoryScanner implements Runnable {
           "System Error during DirectoryScanner execution - permanently terminating periodic scanner",
           er);
       throw er;
+    } finally {
+      VolumeIoScheduler.setIoClass(previousIoClass);
     }
   }
 
@@ -495,14 +564,24 @@ public class DirectoryScanner implements Runnable {
    */
   private void scan() {
     BlockPoolReport blockPoolReport = new BlockPoolReport();
+    Map<String, Map<FsVolumeSpi, BitSet>> skippedBlockDirs = new HashMap<>();
 
     clear();
 
-    Collection<ScanInfoVolumeReport> volumeReports = getVolumeReports();
+    final boolean incremental = startIncrementalScan();
+    LOG.debug("Starting {} directory scan",
+        incremental ? "an incremental" : "a full");
+    Collection<ScanInfoVolumeReport> volumeReports =
+        getVolumeReports(incremental);
     for (ScanInfoVolumeReport volumeReport : volumeReports) {
       for (String blockPoolId : volumeReport.getBlockPoolIds()) {
         List<ScanInfo> scanInfos = volumeReport.getScanInfo(blockPoolId);
         blockPoolReport.addAll(blockPoolId, scanInfos);
+        BitSet skipped = volumeReport.getSkippedBlockDirs(blockPoolId);
+        if (skipped != null) {
+          skippedBlockDirs.computeIfAbsent(blockPoolId, k -> new HashMap<>())
+              .put(volumeReport.getVolume(), skipped);
+        }
       }
     }
 
@@ -518,6 +597,17 @@ public class DirectoryScanner implements Runnable {
 
       statsRecord.totalBlocks = blockpoolReport.size();
       final List<ReplicaInfo> bl = dataset.getFinalizedBlocks(bpid);
+      final Map<FsVolumeSpi, BitSet> skipped = skippedBlockDirs.get(bpid);
+      if (skipped != null) {
+        // Only compare the replicas of the directories that were listed.
+        for (BitSet dirs : skipped.values()) {
+          statsRecord.skippedBlockDirs += dirs.cardinality();
+        }
+        bl.removeIf(b -> {
+          BitSet dirs = skipped.get(b.getVolume());
+          return dirs != null && dirs.get(blockDirIndex(b.getBlockId()));
+        });
+      }
       Collections.sort(bl); // Sort based on blockId
 
       int d = 0; // index for blockpoolReport
@@ -613,6 +703,7 @@ public class DirectoryScanner implements Runnable {
     statsRecord.missingMetaFile += info.getMetaFile() == null ? 1 : 0;
     statsRecord.missingBlockFile += info.getBlockFile() == null ? 1 : 0;
     diffRecord.add(info);
+    countDifference(info.getVolume());
   }
 
   /**
@@ -630,6 +721,87 @@ public class DirectoryScanner implements Runnable {
     statsRecord.missingBlockFile++;
     statsRecord.missingMetaFile++;
     diffRecord.add(new ScanInfo(blockId, null, null, null, vol));
+    countDifference(vol);
+  }
+
+  private static void countDifference(FsVolumeSpi vol) {
+    DataNodeVolumeMetrics metrics = vol == null ? null : vol.getMetrics();
+    if (metrics != null) {
+      metrics.incrDirectoryScanDiffs();
+    }
+  }
+
+  /**
+   * Decide whether the next scan can be incremental. The first scan, and one
+   * scan every {@link DFSConfigKeys#DFS_DATANODE_DIRECTORYSCAN_FULL_INTERVAL_KEY},
+   * always list every block directory.
+   */
+  private boolean startIncrementalScan() {
+    long now = Time.monotonicNow();
+    if (!incrementalScanEnabled || lastFullScanMs < 0 ||
+        now - lastFullScanMs >= fullScanPeriodMsecs) {
+      lastFullScanMs = now;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Blocks are laid out in finalized/subdir[0-31]/subdir[0-31], see
+   * {@link DatanodeUtil#idToBlockDir(File, long)}.
+   *
+   * @return the index of the leaf block directory of the given block.
+   */
+  @VisibleForTesting
+  static int blockDirIndex(long blockId) {
+    return (int) (((blockId >> 16) & 0x1F) << 5 | ((blockId >> 8) & 0x1F));
+  }
+
+  /**
+   * @return the index of the given leaf block directory, or -1 if it is not
+   * a leaf block directory of the given finalized directory.
+   */
+  private static int blockDirIndex(File bpFinalizedDir, File dir) {
+    File parent = dir.getParentFile();
+    if (parent == null || !bpFinalizedDir.equals(parent.getParentFile())) {
+      return -1;
+    }
+    int d1 = parseSubdir(parent.getName());
+    int d2 = parseSubdir(dir.getName());
+    return d1 < 0 || d2 < 0 ? -1 : d1 << 5 | d2;
+  }
+
+  private static int parseSubdir(String name) {
+    if (!name.startsWith(DataStorage.BLOCK_SUBDIR_PREFIX)) {
+      return -1;
+    }
+    try {
+      int d = Integer.parseInt(
+          name.substring(DataStorage.BLOCK_SUBDIR_PREFIX.length()));
+      return d >= 0 && d <= 0x1F ? d : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Forget the modification times of the block directories of volumes which
+   * were removed from the data set.
+   *
+   * @param locations the locations of the removed volumes
+   */
+  public void removeVolumes(Collection<StorageLocation> locations) {
+    for (StorageLocation location : locations) {
+      final Path base =
+          new File(location.getUri().getPath()).getAbsoluteFile().toPath();
+      blockDirMtimes.keySet().removeIf(
+          dir -> dir.getAbsoluteFile().toPath().startsWith(base));
+    }
+  }
+
+  @VisibleForTesting
+  int getNumBlockDirMtimes() {
+    return blockDirMtimes.size();
   }
 
   /**
@@ -637,6 +809,11 @@ public class DirectoryScanner implements Runnable {
    */
   @VisibleForTesting
   public Collection<ScanInfoVolumeReport> getVolumeReports() {
+    return getVolumeReports(false);
+  }
+
+  private Collection<ScanInfoVolumeReport> getVolumeReports(
+      boolean incremental) {
     List<ScanInfoVolumeReport> volReports = new ArrayList<>();
     List<Future<ScanInfoVolumeReport>> compilersInProgress = new ArrayList<>();
 
@@ -647,7 +824,8 @@ public class DirectoryScanner implements Runnable {
       for (final FsVolumeSpi volume : volumes) {
         // Disable scanning PROVIDED volumes to keep overhead low
         if (volume.getStorageType() != StorageType.PROVIDED) {
-          ReportCompiler reportCompiler = new ReportCompiler(volume);
+          ReportCompiler reportCompiler =
+              new ReportCompiler(volume, incremental);
           Future<ScanInfoVolumeReport> result =
               reportCompileThreadPool.submit(reportCompiler);
           compilersInProgress.add(result);
@@ -684,6 +862,12 @@ public class DirectoryScanner implements Runnable {
    */
   public class ReportCompiler implements Callable<ScanInfoVolumeReport> {
     private final FsVolumeSpi volume;
+    private final boolean incremental;
+    private ScanInfoVolumeReport result;
+    private String currentBpid;
+    // Variables for bounding the number of directory listings per second
+    private long listingWindowStartMs;
+    private int listingsInWindow;
     // Variable for tracking time spent running for throttling purposes
     private final StopWatch throttleTimer = new StopWatch();
     // Variable for tracking time spent running and waiting for testing
@@ -696,7 +880,18 @@ public class DirectoryScanner implements Runnable {
      * @param volume the target volume
      */
     public ReportCompiler(FsVolumeSpi volume) {
+      this(volume, false);
+    }
+
+    /**
+     * Create a report compiler for the given volume.
+     *
+     * @param volume the target volume
+     * @param incremental whether unchanged block directories can be skipped
+     */
+    public ReportCompiler(FsVolumeSpi volume, boolean incremental) {
       this.volume = volume;
+      this.incremental = incremental;
     }
 
     /**
@@ -707,13 +902,24 @@ public class DirectoryScanner implements Runnable {
      */
     @Override
     public ScanInfoVolumeReport call() throws IOException {
+      final VolumeIoScheduler.IoClass previousIoClass =
+          VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.SCANNER);
+      try {
+        return compileVolumeReport();
+      } finally {
+        VolumeIoScheduler.setIoClass(previousIoClass);
+      }
+    }
+
+    private ScanInfoVolumeReport compileVolumeReport() throws IOException {
       String[] bpList = volume.getBlockPoolList();
-      ScanInfoVolumeReport result =
-          new ScanInfoVolumeReport(volume, Arrays.asList(bpList));
+      result = new ScanInfoVolumeReport(volume, Arrays.asList(bpList));
+      final long startMs = Time.monotonicNow();
       perfTimer.start();
       throttleTimer.start();
       for (String bpid : bpList) {
         List<ScanInfo> report = new ArrayList<>(DEFAULT_MAP_SIZE);
+        currentBpid = bpid;
 
         perfTimer.reset().start();
         throttleTimer.reset().start();
@@ -728,10 +934,48 @@ public class DirectoryScanner implements Runnable {
           break;
         }
       }
+      DataNodeVolumeMetrics metrics = volume.getMetrics();
+      if (result != null && metrics != null) {
+        metrics.addDirectoryScanTime(Time.monotonicNow() - startMs);
+      }
       LOG.trace("Scanner volume report: {}", result);
       return result;
     }
 
+    /**
+     * Called by the volume before listing a directory. During an incremental
+     * scan, a leaf block directory whose modification time did not change
+     * since it was last listed is recorded as skipped and must not be listed.
+     *
+     * @param bpFinalizedDir the finalized directory of the block pool
+     * @param dir the directory about to be listed
+     * @return true if the directory can be skipped
+     */
+    public boolean skipUnchangedBlockDir(File bpFinalizedDir, File dir) {
+      int index = blockDirIndex(bpFinalizedDir, dir);
+      if (index < 0) {
+        return false;
+      }
+      long mtime = dir.lastModified();
+      Long lastMtime = blockDirMtimes.get(dir);
+      if (incremental && lastMtime != null && lastMtime == mtime) {
+        result.addSkippedBlockDir(currentBpid, index);
+        DataNodeVolumeMetrics metrics = volume.getMetrics();
+        if (metrics != null) {
+          metrics.incrDirectoryScanSkippedDirs();
+        }
+        return true;
+      }
+      // The directory is listed after its modification time is taken, so a
+      // later change always shows up as a different modification time.
+      if (mtime > 0 && mtime < Time.now() - DIR_MTIME_GRANULARITY_MS) {
+        blockDirMtimes.put(dir, mtime);
+      } else {
+        blockDirMtimes.remove(dir);
+      }
+      return false;
+    }
+
     /**
      * Called by the thread before each potential disk scan so that a pause can
      * be optionally inserted to limit the number of scans per second. The limit
@@ -741,6 +985,10 @@ public class DirectoryScanner implements Runnable {
     public void throttle() throws InterruptedException {
       accumulateTimeRunning();
 
+      if (maxDirsPerSec > 0) {
+        throttleListings();
+      }
+
       if (throttleLimitMsPerSec > 0L) {
         final long runningTime = throttleTimer.now(TimeUnit.MILLISECONDS);
         if (runningTime >= throttleLimitMsPerSec) {
@@ -753,13 +1001,39 @@ public class DirectoryScanner implements Runnable {
             final long overTime = runningTime - throttleLimitMsPerSec;
             sleepTime = (1000L - throttleLimitMsPerSec) + overTime;
           }
-          Thread.sleep(sleepTime);
+          sleep(sleepTime);
           throttleTimer.reset().start();
         }
         accumulateTimeWaiting();
       }
     }
 
+    /**
+     * Limit the number of directory listings per second to
+     * {@link DFSConfigKeys#DFS_DATANODE_DIRECTORYSCAN_MAX_DIRS_PER_SEC_KEY}.
+     */
+    private void throttleListings() throws InterruptedException {
+      long now = Time.monotonicNow();
+      if (now - listingWindowStartMs >= 1000L) {
+        listingWindowStartMs = now;
+        listingsInWindow = 0;
+      }
+      if (++listingsInWindow > maxDirsPerSec) {
+        sleep(listingWindowStartMs + 1000L - now);
+        listingWindowStartMs = Time.monotonicNow();
+        listingsInWindow = 1;
+        accumulateTimeWaiting();
+      }
+    }
+
+    private void sleep(long sleepTime) throws InterruptedException {
+      Thread.sleep(sleepTime);
+      DataNodeVolumeMetrics metrics = volume.getMetrics();
+      if (metrics != null) {
+        metrics.addDirectoryScanThrottleTime(sleepTime);
+      }
+    }
+
     /**
      * Helper method to measure time running.
      */
@@ -38,6 +38,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
@@ -46,7 +47,9 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
@@ -69,6 +72,10 @@ import static org.apache.hadoop.hdfs.server.datanode.FileIoProvider.OPERATION.*;
  * Most functions accept an optional {@link FsVolumeSpi} parameter for
  * instrumentation/logging.
  *
+ * The data IO and the directory listings may also be delayed by the
+ * {@link VolumeIoScheduler}, enabled through
+ * {@link DFSConfigKeys#DFS_DATANODE_IO_SCHEDULER_ENABLED_KEY}.
+ *
  * Some methods may look redundant, especially the multiple variations of
  * move/rename/list. They exist to retain behavior compatibility for existing
  * code.
@@ -81,6 +88,7 @@ public class FileIoProvider {
 
   private final ProfilingFileIoEvents profilingEventHook;
   private final FaultInjectorFileIoEvents faultInjectorEventHook;
+  private final @Nullable VolumeIoScheduler ioScheduler;
   private final DataNode datanode;
 
   private static final int LEN_INT = 4;
@@ -95,6 +103,7 @@ public class FileIoProvider {
                         final DataNode datanode) {
     profilingEventHook = new ProfilingFileIoEvents(conf);
     faultInjectorEventHook = new FaultInjectorFileIoEvents(conf);
+    ioScheduler = VolumeIoScheduler.create(conf);
     this.datanode = datanode;
   }
 
@@ -272,6 +281,7 @@ public class FileIoProvider {
       @Nullable FsVolumeSpi volume, SocketOutputStream sockOut,
       FileChannel fileCh, long position, int count,
       LongWritable waitTime, LongWritable transferTime) throws IOException {
+    final long scheduled = beforeScheduledIo(volume, count);
     final long begin = profilingEventHook.beforeFileIo(volume, TRANSFER, count);
     try {
       faultInjectorEventHook.beforeFileIo(volume, TRANSFER, count);
@@ -289,6 +299,43 @@ public class FileIoProvider {
         onFailure(volume, begin);
       }
       throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, count);
+    }
+  }
+
+  /**
+   * Read from a FileChannel at the given position until the buffer is full,
+   * without changing the position of the channel.
+   *
+   * @param volume  target volume. null if unavailable.
+   * @param fileCh  FileChannel from which to read data.
+   * @param buf  buffer to fill.
+   * @param position  position within the channel where the read begins.
+   * @throws EOFException if the end of the channel is reached first.
+   * @throws IOException
+   */
+  public void readFully(
+      @Nullable FsVolumeSpi volume, FileChannel fileCh, ByteBuffer buf,
+      long position) throws IOException {
+    final int count = buf.remaining();
+    final long scheduled = beforeScheduledIo(volume, count);
+    final long begin = profilingEventHook.beforeFileIo(volume, READ, count);
+    try {
+      faultInjectorEventHook.beforeFileIo(volume, READ, count);
+      while (buf.hasRemaining()) {
+        int n = fileCh.read(buf, position);
+        if (n < 0) {
+          throw new EOFException("Premature EOF reading at " + position);
+        }
+        position += n;
+      }
+      profilingEventHook.afterFileIo(volume, READ, begin, count);
+    } catch (Exception e) {
+      onFailure(volume, begin);
+      throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, count);
     }
   }
 
@@ -629,6 +676,7 @@ public class FileIoProvider {
       @Nullable FsVolumeSpi volume, File src, File target,
       boolean preserveFileDate) throws IOException {
     final long length = src.length();
+    final long scheduled = beforeScheduledIo(volume, length);
     final long begin = profilingEventHook.beforeFileIo(volume, NATIVE_COPY,
         length);
     try {
@@ -638,6 +686,8 @@ public class FileIoProvider {
     } catch(Exception e) {
       onFailure(volume, begin);
       throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, length);
     }
   }
 
@@ -709,6 +759,7 @@ public class FileIoProvider {
    */
   public File[] listFiles(
       @Nullable FsVolumeSpi volume, File dir) throws IOException {
+    final long scheduled = beforeScheduledIo(volume, 0);
     final long begin = profilingEventHook.beforeMetadataOp(volume, LIST);
     try {
       faultInjectorEventHook.beforeMetadataOp(volume, LIST);
@@ -718,6 +769,8 @@ public class FileIoProvider {
     } catch(Exception e) {
       onFailure(volume, begin);
       throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, 0);
     }
   }
 
@@ -732,6 +785,7 @@ public class FileIoProvider {
    */
   public String[] list(
       @Nullable FsVolumeSpi volume, File dir) throws IOException {
+    final long scheduled = beforeScheduledIo(volume, 0);
     final long begin = profilingEventHook.beforeMetadataOp(volume, LIST);
     try {
       faultInjectorEventHook.beforeMetadataOp(volume, LIST);
@@ -741,6 +795,8 @@ public class FileIoProvider {
     } catch(Exception e) {
       onFailure(volume, begin);
       throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, 0);
     }
   }
 
@@ -756,6 +812,7 @@ public class FileIoProvider {
   public List<String> listDirectory(
       @Nullable FsVolumeSpi volume, File dir,
       FilenameFilter filter) throws IOException {
+    final long scheduled = beforeScheduledIo(volume, 0);
     final long begin = profilingEventHook.beforeMetadataOp(volume, LIST);
     try {
       faultInjectorEventHook.beforeMetadataOp(volume, LIST);
@@ -765,6 +822,8 @@ public class FileIoProvider {
     } catch(Exception e) {
       onFailure(volume, begin);
       throw e;
+    } finally {
+      afterScheduledIo(volume, scheduled, 0);
     }
   }
 
@@ -841,6 +900,7 @@ public class FileIoProvider {
      */
     @Override
     public int read() throws IOException {
+      final long scheduled = beforeScheduledIo(volume, LEN_INT);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, LEN_INT);
       try {
         faultInjectorEventHook.beforeFileIo(volume, READ, LEN_INT);
@@ -850,6 +910,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, LEN_INT);
       }
     }
 
@@ -858,6 +920,7 @@ public class FileIoProvider {
      */
     @Override
     public int read(@Nonnull byte[] b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, b.length);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, b
           .length);
       try {
@@ -868,6 +931,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, b.length);
       }
     }
 
@@ -876,6 +941,7 @@ public class FileIoProvider {
      */
     @Override
     public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, len);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, len);
       try {
         faultInjectorEventHook.beforeFileIo(volume, READ, len);
@@ -885,6 +951,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, len);
       }
     }
   }
@@ -920,6 +988,7 @@ public class FileIoProvider {
      */
     @Override
     public void write(int b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, LEN_INT);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE,
           LEN_INT);
       try {
@@ -929,6 +998,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, LEN_INT);
       }
     }
 
@@ -937,6 +1008,7 @@ public class FileIoProvider {
      */
     @Override
     public void write(@Nonnull byte[] b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, b.length);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE, b
           .length);
       try {
@@ -946,6 +1018,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, b.length);
       }
     }
 
@@ -954,6 +1028,7 @@ public class FileIoProvider {
      */
     @Override
     public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, len);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE, len);
       try {
         faultInjectorEventHook.beforeFileIo(volume, WRITE, len);
@@ -962,6 +1037,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, len);
       }
     }
   }
@@ -982,6 +1059,7 @@ public class FileIoProvider {
 
     @Override
     public int read() throws IOException {
+      final long scheduled = beforeScheduledIo(volume, LEN_INT);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, LEN_INT);
       try {
         faultInjectorEventHook.beforeFileIo(volume, READ, LEN_INT);
@@ -991,11 +1069,14 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, LEN_INT);
       }
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, len);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, len);
       try {
         faultInjectorEventHook.beforeFileIo(volume, READ, len);
@@ -1005,11 +1086,14 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, len);
       }
     }
 
     @Override
     public int read(byte[] b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, b.length);
       final long begin = profilingEventHook.beforeFileIo(volume, READ, b
           .length);
       try {
@@ -1020,11 +1104,14 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, b.length);
       }
     }
 
     @Override
     public void write(int b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, LEN_INT);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE,
           LEN_INT);
       try {
@@ -1034,11 +1121,14 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, LEN_INT);
       }
     }
 
     @Override
     public void write(@Nonnull byte[] b) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, b.length);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE, b
           .length);
       try {
@@ -1048,11 +1138,14 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, b.length);
       }
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
+      final long scheduled = beforeScheduledIo(volume, len);
       final long begin = profilingEventHook.beforeFileIo(volume, WRITE, len);
       try {
         faultInjectorEventHook.beforeFileIo(volume, WRITE, len);
@@ -1061,6 +1154,8 @@ public class FileIoProvider {
       } catch(Exception e) {
         onFailure(volume, begin);
         throw e;
+      } finally {
+        afterScheduledIo(volume, scheduled, len);
       }
     }
   }
@@ -1075,4 +1170,20 @@ public class FileIoProvider {
   public ProfilingFileIoEvents getProfilingEventHook() {
     return profilingEventHook;
   }
+
+  @Nullable VolumeIoScheduler getIoScheduler() {
+    return ioScheduler;
+  }
+
+  private long beforeScheduledIo(@Nullable FsVolumeSpi volume, long len)
+      throws InterruptedIOException {
+    return ioScheduler == null ? 0 : ioScheduler.beforeFileIo(volume, len);
+  }
+
+  private void afterScheduledIo(@Nullable FsVolumeSpi volume, long scheduled,
+      long len) {
+    if (ioScheduler != null) {
+      ioScheduler.afterFileIo(volume, scheduled, len);
+    }
+  }
 }
@@ -0,0 +1,507 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.Interns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An off-heap cache of hot block segments, managed by the DataNode itself.
+ *
+ * Unlike the cache of the FsDataset, which pins whole blocks on behalf of the
+ * centralized cache directives of the NameNode, this cache decides on its own
+ * which parts of which blocks are worth keeping in memory. Blocks are divided
+ * into fixed size segments, which are kept in slabs of direct memory along
+ * with their checksums, so that {@link BlockSender} can send them without
+ * touching the disk.
+ *
+ * A segment is only admitted if it was read more often recently than the
+ * segment it would evict. Access frequencies are estimated by a count-min
+ * sketch whose counters are halved periodically (TinyLFU), so that a large
+ * scan, whose segments are each read once, cannot flush the cache. Resident
+ * segments are evicted in LRU order.
+ *
+ * Every packet sent by a {@link BlockSender} looks up the cache, so the
+ * cache is split into shards by the hash of the segment key. Each shard
+ * has its own lock, slots, LRU order and frequency sketch, and admission
+ * and eviction only compare segments of the same shard.
+ */
+@InterfaceAudience.Private
+public class HotBlockCache implements MetricsSource {
+  static final Logger LOG = LoggerFactory.getLogger(HotBlockCache.class);
+
+  /** A segment must have been read at least this often to be admitted. */
+  private static final int MIN_ADMISSION_FREQUENCY = 2;
+  /** Counters of the frequency sketch saturate at this value. */
+  private static final int MAX_FREQUENCY = 15;
+  private static final int SKETCH_DEPTH = 4;
+  /** The maximum number of shards, each holding at least one segment. */
+  private static final int MAX_SHARDS = 16;
+
+  /** Identifies a segment of a replica. */
+  static final class Key {
+    private final String bpid;
+    private final long blockId;
+    private final long genStamp;
+    private final long segment;
+
+    Key(String bpid, long blockId, long genStamp, long segment) {
+      this.bpid = bpid;
+      this.blockId = blockId;
+      this.genStamp = genStamp;
+      this.segment = segment;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return blockId == that.blockId && genStamp == that.genStamp
+          && segment == that.segment && bpid.equals(that.bpid);
+    }
+
+    @Override
+    public int hashCode() {
+      long h = blockId * 31 + segment;
+      h = h * 31 + genStamp;
+      return (int) (h ^ (h >>> 32)) * 31 + bpid.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return bpid + ":blk_" + blockId + "_" + genStamp + "#" + segment;
+    }
+  }
+
+  /** A cached segment. */
+  private static final class Segment {
+    private final int slot;
+    private final int dataLen;
+    private final byte[] checksums;
+
+    Segment(int slot, int dataLen, byte[] checksums) {
+      this.slot = slot;
+      this.dataLen = dataLen;
+      this.checksums = checksums;
+    }
+  }
+
+  /** Per block pool statistics. */
+  private static final class Stats {
+    private long hits;
+    private long misses;
+    private long admitted;
+    private long rejected;
+    private long evicted;
+
+    private void add(Stats that) {
+      hits += that.hits;
+      misses += that.misses;
+      admitted += that.admitted;
+      rejected += that.rejected;
+      evicted += that.evicted;
+    }
+  }
+
+  /**
+   * A part of the cache with its own slots, LRU order and frequency sketch.
+   * All its state is guarded by the shard itself.
+   */
+  private static final class Shard {
+    private final int segmentSize;
+    private final int numSlots;
+    private final int slotsPerSlab;
+    private final ByteBuffer[] slabs;
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextUnusedSlot = 0;
+
+    /** Resident segments in access order. */
+    private final LinkedHashMap<Key, Segment> segments =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    private final byte[] sketch;
+    private final int sketchMask;
+    private final int sketchSampleSize;
+    private int sketchAdditions = 0;
+
+    Shard(int numSlots, int segmentSize) {
+      this.segmentSize = segmentSize;
+      this.numSlots = numSlots;
+      this.slotsPerSlab = Math.max(1,
+          Math.min(numSlots, Integer.MAX_VALUE / segmentSize));
+      this.slabs =
+          new ByteBuffer[(numSlots + slotsPerSlab - 1) / slotsPerSlab];
+      int sketchSize = Integer.highestOneBit(
+          Math.max(1024, Math.min(numSlots, 1 << 26) * 8 - 1)) << 1;
+      this.sketch = new byte[sketchSize];
+      this.sketchMask = sketchSize - 1;
+      this.sketchSampleSize = 10 * Math.max(numSlots, 64);
+    }
+
+    synchronized void clear() {
+      segments.clear();
+      freeSlots.clear();
+      nextUnusedSlot = 0;
+    }
+
+    synchronized int getNumSegments() {
+      return segments.size();
+    }
+
+    synchronized void addStats(Map<String, Stats> total) {
+      for (Map.Entry<String, Stats> e : stats.entrySet()) {
+        total.computeIfAbsent(e.getKey(), k -> new Stats()).add(e.getValue());
+      }
+    }
+
+    synchronized boolean read(Key key, int dataPos, byte[] buf, int dataOff,
+        int dataLen, int checksumPos, int checksumOff, int checksumLen) {
+      increment(key);
+      Stats s = getStats(key.bpid);
+      Segment segment = segments.get(key);
+      if (segment == null || dataPos + dataLen > segment.dataLen
+          || checksumPos + checksumLen > segment.checksums.length) {
+        s.misses++;
+        return false;
+      }
+      ByteBuffer slab = slabs[segment.slot / slotsPerSlab].duplicate();
+      slab.position((segment.slot % slotsPerSlab) * segmentSize + dataPos);
+      slab.get(buf, dataOff, dataLen);
+      System.arraycopy(segment.checksums, checksumPos, buf, checksumOff,
+          checksumLen);
+      s.hits++;
+      return true;
+    }
+
+    synchronized boolean shouldAdmit(Key key) {
+      if (segments.containsKey(key)) {
+        return false;
+      }
+      int frequency = frequency(key);
+      if (frequency < MIN_ADMISSION_FREQUENCY) {
+        return false;
+      }
+      if (hasFreeSlot()) {
+        return true;
+      }
+      Key victim = segments.keySet().iterator().next();
+      return frequency > frequency(victim);
+    }
+
+    synchronized boolean put(Key key, byte[] data, int dataOff, int dataLen,
+        byte[] checksums, int checksumOff, int checksumLen) {
+      Stats s = getStats(key.bpid);
+      if (!shouldAdmit(key)) {
+        if (!segments.containsKey(key)) {
+          s.rejected++;
+        }
+        return false;
+      }
+      int slot;
+      if (hasFreeSlot()) {
+        slot = allocateSlot();
+      } else {
+        Iterator<Map.Entry<Key, Segment>> it = segments.entrySet().iterator();
+        Map.Entry<Key, Segment> victim = it.next();
+        it.remove();
+        getStats(victim.getKey().bpid).evicted++;
+        slot = victim.getValue().slot;
+      }
+      ByteBuffer slab = slabs[slot / slotsPerSlab].duplicate();
+      slab.position((slot % slotsPerSlab) * segmentSize);
+      slab.put(data, dataOff, dataLen);
+      byte[] segmentChecksums = new byte[checksumLen];
+      System.arraycopy(checksums, checksumOff, segmentChecksums, 0,
+          checksumLen);
+      segments.put(key, new Segment(slot, dataLen, segmentChecksums));
+      s.admitted++;
+      return true;
+    }
+
+    private boolean hasFreeSlot() {
+      return !freeSlots.isEmpty() || nextUnusedSlot < numSlots;
+    }
+
+    private int allocateSlot() {
+      if (!freeSlots.isEmpty()) {
+        return freeSlots.pop();
+      }
+      int slot = nextUnusedSlot++;
+      int slab = slot / slotsPerSlab;
+      if (slabs[slab] == null) {
+        // Allocate direct memory as the cache fills up.
+        int slabSlots = Math.min(slotsPerSlab, numSlots - slab * slotsPerSlab);
+        slabs[slab] = ByteBuffer.allocateDirect(slabSlots * segmentSize);
+      }
+      return slot;
+    }
+
+    private Stats getStats(String bpid) {
+      return stats.computeIfAbsent(bpid, k -> new Stats());
+    }
+
+    private int sketchIndex(int hash, int i) {
+      int h = hash + i * ((hash >>> 16) | 1) * 0x9E3779B9;
+      return (h ^ (h >>> 15)) & sketchMask;
+    }
+
+    private int frequency(Key key) {
+      int hash = spread(key.hashCode());
+      int frequency = MAX_FREQUENCY;
+      for (int i = 0; i < SKETCH_DEPTH; i++) {
+        frequency = Math.min(frequency, sketch[sketchIndex(hash, i)]);
+      }
+      return frequency;
+    }
+
+    private void increment(Key key) {
+      int hash = spread(key.hashCode());
+      for (int i = 0; i < SKETCH_DEPTH; i++) {
+        int index = sketchIndex(hash, i);
+        if (sketch[index] < MAX_FREQUENCY) {
+          sketch[index]++;
+        }
+      }
+      if (++sketchAdditions >= sketchSampleSize) {
+        // Age the sketch so that it tracks recent popularity.
+        for (int i = 0; i < sketch.length; i++) {
+          sketch[i] >>= 1;
+        }
+        sketchAdditions /= 2;
+      }
+    }
+  }
+
+  private final long capacity;
+  private final int segmentSize;
+  private final Shard[] shards;
+
+  private String metricsSourceName;
+
+  HotBlockCache(long capacity, int segmentSize) {
+    this(capacity, segmentSize, MAX_SHARDS);
+  }
+
+  @VisibleForTesting
+  HotBlockCache(long capacity, int segmentSize, int maxShards) {
+    this.segmentSize = segmentSize;
+    int numSlots = (int) Math.min(capacity / segmentSize, Integer.MAX_VALUE);
+    this.capacity = (long) numSlots * segmentSize;
+    this.shards = new Shard[Math.max(1, Math.min(maxShards, numSlots))];
+    for (int i = 0; i < shards.length; i++) {
+      int shardSlots = numSlots / shards.length
+          + (i < numSlots % shards.length ? 1 : 0);
+      shards[i] = new Shard(shardSlots, segmentSize);
+    }
+  }
+
+  /**
+   * Create the hot block cache configured by
+   * {@link DFSConfigKeys#DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_KEY}.
+   *
+   * @return the cache, or null if it is disabled.
+   */
+  static HotBlockCache create(Configuration conf, String name) {
+    long capacity = conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_KEY,
+        DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_DEFAULT);
+    int segmentSize = (int) conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_KEY,
+        DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_DEFAULT);
+    if (capacity <= 0) {
+      return null;
+    }
+    if (segmentSize <= 0 || capacity < segmentSize) {
+      LOG.warn("Disabling the hot block cache, {} = {} must be positive and"
+          + " smaller than {} = {}",
+          DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_KEY,
+          segmentSize, DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_KEY,
+          capacity);
+      return null;
+    }
+    HotBlockCache cache = new HotBlockCache(capacity, segmentSize);
+    LOG.info("Hot block cache enabled with capacity {}, segment size {} and"
+        + " {} shards", cache.getCapacity(), segmentSize, cache.shards.length);
+    cache.metricsSourceName = "HotBlockCache-" + name.replace(':', '-');
+    DefaultMetricsSystem.instance().register(cache.metricsSourceName,
+        "DataNode hot block cache", cache);
+    return cache;
+  }
+
+  void shutdown() {
+    if (metricsSourceName != null) {
+      MetricsSystem ms = DefaultMetricsSystem.instance();
+      ms.unregisterSource(metricsSourceName);
+      metricsSourceName = null;
+    }
+    for (Shard shard : shards) {
+      shard.clear();
+    }
+  }
+
+  int getSegmentSize() {
+    return segmentSize;
+  }
+
+  long getCapacity() {
+    return capacity;
+  }
+
+  @VisibleForTesting
+  long getUsed() {
+    return (long) getNumSegments() * segmentSize;
+  }
+
+  private int getNumSegments() {
+    int numSegments = 0;
+    for (Shard shard : shards) {
+      numSegments += shard.getNumSegments();
+    }
+    return numSegments;
+  }
+
+  @VisibleForTesting
+  long getHits(String bpid) {
+    Stats s = getStats().get(bpid);
+    return s == null ? 0 : s.hits;
+  }
+
+  @VisibleForTesting
+  long getMisses(String bpid) {
+    Stats s = getStats().get(bpid);
+    return s == null ? 0 : s.misses;
+  }
+
+  /** @return the statistics of all shards, by block pool. */
+  private Map<String, Stats> getStats() {
+    Map<String, Stats> total = new HashMap<>();
+    for (Shard shard : shards) {
+      shard.addStats(total);
+    }
+    return total;
+  }
+
+  private Shard getShard(Key key) {
+    int h = key.hashCode();
+    return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+  }
+
+  /**
+   * Copy a range of a segment to the given buffer if the segment is cached.
+   * Every call counts as an access of the segment for admission purposes.
+   *
+   * @param key the segment
+   * @param dataPos offset of the range in the segment
+   * @param buf the buffer to copy to
+   * @param dataOff offset in buf to copy the data to
+   * @param dataLen length of the range
+   * @param checksumPos offset of the checksums of the range in the segment
+   * @param checksumOff offset in buf to copy the checksums to
+   * @param checksumLen length of the checksums of the range
+   * @return true if the range was copied
+   */
+  boolean read(Key key, int dataPos, byte[] buf, int dataOff, int dataLen,
+      int checksumPos, int checksumOff, int checksumLen) {
+    return getShard(key).read(key, dataPos, buf, dataOff, dataLen,
+        checksumPos, checksumOff, checksumLen);
+  }
+
+  /**
+   * @return true if a segment which is not cached would be admitted now.
+   * Callers use this to decide whether it is worth reading a whole segment
+   * to {@link #put} it.
+   */
+  boolean shouldAdmit(Key key) {
+    return getShard(key).shouldAdmit(key);
+  }
+
+  /**
+   * Offer a complete segment to the cache. The segment is only cached if
+   * it is admitted, possibly evicting the least recently used segment of
+   * its shard.
+   *
+   * @return true if the segment was cached
+   */
+  boolean put(Key key, byte[] data, int dataOff, int dataLen,
+      byte[] checksums, int checksumOff, int checksumLen) {
+    if (dataLen > segmentSize) {
+      throw new IllegalArgumentException("Segment " + key + " of length "
+          + dataLen + " is larger than " + segmentSize);
+    }
+    return getShard(key).put(key, data, dataOff, dataLen,
+        checksums, checksumOff, checksumLen);
+  }
+
+  private static int spread(int h) {
+    h *= 0x85EBCA6B;
+    return h ^ (h >>> 13);
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    collector.addRecord("HotBlockCache")
+        .setContext("dfs")
+        .addGauge(Interns.info("Capacity", "Hot block cache capacity"),
+            capacity)
+        .addGauge(Interns.info("Used", "Hot block cache bytes used"),
+            getUsed())
+        .addGauge(Interns.info("NumSegments", "Number of cached segments"),
+            getNumSegments());
+    for (Map.Entry<String, Stats> e : getStats().entrySet()) {
+      Stats s = e.getValue();
+      long reads = s.hits + s.misses;
+      collector.addRecord("HotBlockCacheBlockPool")
+          .setContext("dfs")
+          .tag(Interns.info("BlockPoolId", "Block pool ID"), e.getKey())
+          .addCounter(Interns.info("Hits", "Packets sent from the cache"),
+              s.hits)
+          .addCounter(Interns.info("Misses",
+              "Packets not found in the cache"), s.misses)
+          .addGauge(Interns.info("HitRatio", "Ratio of hits to reads"),
+              reads == 0 ? 0f : (float) s.hits / reads)
+          .addCounter(Interns.info("Admitted", "Segments admitted"),
+              s.admitted)
+          .addCounter(Interns.info("Rejected",
+              "Segments rejected by the admission policy"), s.rejected)
+          .addCounter(Interns.info("Evicted", "Segments evicted"),
+              s.evicted);
+    }
+  }
+}
@@ -309,9 +309,24 @@ abstract public class LocalReplica extends ReplicaInfo {
 
   @Override
   public boolean deleteMetadata() {
+    deleteChecksumSummary();
     return getFileIoProvider().fullyDelete(getVolume(), getMetaFile());
   }
 
+  /**
+   * Delete the checksum summary persisted next to the meta file, if any.
+   * It must be called before the meta file is changed or moved away.
+   */
+  void deleteChecksumSummary() {
+    deleteChecksumSummary(getVolume(), getMetaFile(), getFileIoProvider());
+  }
+
+  private static void deleteChecksumSummary(FsVolumeSpi volume, File metaFile,
+      FileIoProvider fileIoProvider) {
+    fileIoProvider.deleteWithExistsCheck(volume,
+        BlockChecksumSummary.getFile(metaFile));
+  }
+
   @Override
   public long getMetadataLength() {
     return getMetaFile().length();
@@ -319,6 +334,7 @@ abstract public class LocalReplica extends ReplicaInfo {
 
   @Override
   public boolean renameMeta(URI destURI) throws IOException {
+    deleteChecksumSummary();
     return renameFile(getMetaFile(), new File(destURI));
   }
 
@@ -377,6 +393,7 @@ abstract public class LocalReplica extends ReplicaInfo {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Renaming " + oldmeta + " to " + newmeta);
     }
+    deleteChecksumSummary(getVolume(), oldmeta, getFileIoProvider());
     try {
       // calling renameMeta on the ReplicaInfo doesn't work here
       getFileIoProvider().rename(getVolume(), oldmeta, newmeta);
@@ -478,6 +495,7 @@ abstract public class LocalReplica extends ReplicaInfo {
     if (newlen == oldlen) {
       return;
     }
+    deleteChecksumSummary(volume, metaFile, fileIoProvider);
     if (newlen > oldlen) {
       throw new IOException("Cannot truncate block to from oldlen (=" + oldlen
           + ") to newlen (=" + newlen + ")");
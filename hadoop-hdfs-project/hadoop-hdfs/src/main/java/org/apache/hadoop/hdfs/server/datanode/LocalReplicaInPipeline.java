@@ -425,6 +425,7 @@ public class LocalReplicaInPipeline extends LocalReplica
     final File newmeta = getMetaFile();
     final FileIoProvider fileIoProvider = getFileIoProvider();
 
+    oldReplica.deleteChecksumSummary();
     try {
       fileIoProvider.rename(getVolume(), oldmeta, newmeta);
     } catch (IOException e) {
@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the file IO done on each DataNode volume by the class of work it
+ * serves, so that background work does not compete equally with clients.
+ *
+ * The class of the current thread is set with {@link #setIoClass(IoClass)} by
+ * the entry points of the work (DataXceiver ops, block transfers, EC
+ * reconstruction, scanners). Before each data IO, and each directory listing,
+ * done through the {@link FileIoProvider} on a volume:
+ * <ul>
+ *   <li>an IO yields, for up to
+ *   {@link DFSConfigKeys#DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_KEY}, while a
+ *   class of higher priority is active on the same volume;</li>
+ *   <li>an IO of a background class then waits for the ops per second and
+ *   bandwidth budgets of its class on the volume.</li>
+ * </ul>
+ * Client IO is never delayed. IO of threads without a class is not scheduled.
+ */
+@InterfaceAudience.Private
+public class VolumeIoScheduler implements MetricsSource {
+  static final Logger LOG = LoggerFactory.getLogger(VolumeIoScheduler.class);
+
+  /** The classes of IO, from the highest to the lowest priority. */
+  public enum IoClass {
+    /** Reads and writes of clients. */
+    CLIENT("Client"),
+    /** Replication, pipeline recovery transfers and EC reconstruction. */
+    RECOVERY("Recovery"),
+    /** Block moves of the Balancer and the Mover. */
+    BALANCER("Balancer"),
+    /** Block and directory scanners. */
+    SCANNER("Scanner");
+
+    private final String metricsPrefix;
+
+    IoClass(String metricsPrefix) {
+      this.metricsPrefix = metricsPrefix;
+    }
+  }
+
+  private static final ThreadLocal<IoClass> CURRENT_CLASS =
+      new ThreadLocal<>();
+
+  /**
+   * Set the class of the IO done by the current thread.
+   *
+   * @param ioClass the class, null to stop scheduling the thread IO.
+   * @return the previous class of the thread.
+   */
+  public static IoClass setIoClass(@Nullable IoClass ioClass) {
+    IoClass previous = CURRENT_CLASS.get();
+    if (ioClass == null) {
+      CURRENT_CLASS.remove();
+    } else {
+      CURRENT_CLASS.set(ioClass);
+    }
+    return previous;
+  }
+
+  private static final IoClass[] CLASSES = IoClass.values();
+  private static final long YIELD_SLEEP_MS = 1;
+
+  private final long activeWindowNanos;
+  private final long maxYieldNanos;
+  private final Map<IoClass, Long> opsPerSec = new EnumMap<>(IoClass.class);
+  private final Map<IoClass, Long> bytesPerSec = new EnumMap<>(IoClass.class);
+  private final Map<String, VolumeState> volumes = new ConcurrentHashMap<>();
+
+  private final MetricsRegistry registry =
+      new MetricsRegistry("DataNodeIoScheduler");
+  private final MutableGaugeInt[] queueDepth =
+      new MutableGaugeInt[CLASSES.length];
+  private final MutableRate[] waitNanos = new MutableRate[CLASSES.length];
+  private final MutableRate[] ioNanos = new MutableRate[CLASSES.length];
+  private final MutableCounterLong[] bytes =
+      new MutableCounterLong[CLASSES.length];
+  private String metricsSourceName;
+
+  /** The scheduling state of the IO classes on one volume. */
+  private final class VolumeState {
+    private final AtomicInteger[] inFlight = new AtomicInteger[CLASSES.length];
+    private final long[] lastActive = new long[CLASSES.length];
+    private final Budget[] opsBudgets = new Budget[CLASSES.length];
+    private final Budget[] bytesBudgets = new Budget[CLASSES.length];
+
+    VolumeState() {
+      long inactive = System.nanoTime() - activeWindowNanos;
+      for (IoClass c : CLASSES) {
+        inFlight[c.ordinal()] = new AtomicInteger();
+        lastActive[c.ordinal()] = inactive;
+        opsBudgets[c.ordinal()] = Budget.create(opsPerSec.get(c));
+        bytesBudgets[c.ordinal()] = Budget.create(bytesPerSec.get(c));
+      }
+    }
+
+    /** @return whether a class of higher priority than c is active. */
+    boolean isPreempted(IoClass c, long now) {
+      for (int i = 0; i < c.ordinal(); i++) {
+        if (inFlight[i].get() > 0) {
+          return true;
+        }
+        synchronized (lastActive) {
+          if (now - lastActive[i] < activeWindowNanos) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    void setActive(IoClass c, long now) {
+      synchronized (lastActive) {
+        lastActive[c.ordinal()] = now;
+      }
+    }
+  }
+
+  /**
+   * A token bucket allowing a burst of one second of its rate. An acquire
+   * may take the bucket into debt, the callers then wait until it is repaid.
+   */
+  private static final class Budget {
+    private final double ratePerNano;
+    private final double burst;
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    private Budget(long ratePerSec) {
+      this.ratePerNano = ratePerSec / 1e9;
+      this.burst = ratePerSec;
+      this.available = burst;
+    }
+
+    static Budget create(long ratePerSec) {
+      return ratePerSec > 0 ? new Budget(ratePerSec) : null;
+    }
+
+    /** @return the nanoseconds to wait before using the amount. */
+    synchronized long acquire(long amount, long now) {
+      available = Math.min(burst,
+          available + (now - lastRefill) * ratePerNano);
+      lastRefill = now;
+      available -= amount;
+      return available >= 0 ? 0 : (long) (-available / ratePerNano);
+    }
+  }
+
+  @VisibleForTesting
+  VolumeIoScheduler(Configuration conf) {
+    activeWindowNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_ACTIVE_WINDOW_MS_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_ACTIVE_WINDOW_MS_DEFAULT));
+    maxYieldNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_DEFAULT));
+    opsPerSec.put(IoClass.CLIENT, 0L);
+    bytesPerSec.put(IoClass.CLIENT, 0L);
+    opsPerSec.put(IoClass.RECOVERY, conf.getLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_RECOVERY_OPS_PER_SEC_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_RECOVERY_OPS_PER_SEC_DEFAULT));
+    bytesPerSec.put(IoClass.RECOVERY, conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_RECOVERY_BANDWIDTH_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_RECOVERY_BANDWIDTH_DEFAULT));
+    opsPerSec.put(IoClass.BALANCER, conf.getLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_BALANCER_OPS_PER_SEC_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_BALANCER_OPS_PER_SEC_DEFAULT));
+    bytesPerSec.put(IoClass.BALANCER, conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_BALANCER_BANDWIDTH_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_BALANCER_BANDWIDTH_DEFAULT));
+    opsPerSec.put(IoClass.SCANNER, conf.getLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_SCANNER_OPS_PER_SEC_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_SCANNER_OPS_PER_SEC_DEFAULT));
+    bytesPerSec.put(IoClass.SCANNER, conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_SCANNER_BANDWIDTH_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_SCANNER_BANDWIDTH_DEFAULT));
+
+    for (IoClass c : CLASSES) {
+      String p = c.metricsPrefix;
+      queueDepth[c.ordinal()] = registry.newGauge(p + "QueueDepth",
+          "Number of " + p + " IOs waiting to be scheduled", 0);
+      waitNanos[c.ordinal()] = registry.newRate(p + "WaitNanos",
+          "Time " + p + " IOs waited to be scheduled", false);
+      ioNanos[c.ordinal()] = registry.newRate(p + "IoNanos",
+          "Latency of " + p + " IOs", false);
+      bytes[c.ordinal()] = registry.newCounter(p + "Bytes",
+          "Bytes of " + p + " IOs", 0L);
+    }
+  }
+
+  /**
+   * Create the IO scheduler enabled by
+   * {@link DFSConfigKeys#DFS_DATANODE_IO_SCHEDULER_ENABLED_KEY}.
+   *
+   * @return the scheduler, or null if it is disabled.
+   */
+  static VolumeIoScheduler create(@Nullable Configuration conf) {
+    if (conf == null || !conf.getBoolean(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_ENABLED_DEFAULT)) {
+      return null;
+    }
+    VolumeIoScheduler scheduler = new VolumeIoScheduler(conf);
+    LOG.info("Volume IO scheduler enabled with ops/s budgets {} and"
+        + " bandwidth budgets {}", scheduler.opsPerSec, scheduler.bytesPerSec);
+    return scheduler;
+  }
+
+  void registerMetrics(String name) {
+    metricsSourceName = "DataNodeIoScheduler-" + name.replace(':', '-');
+    DefaultMetricsSystem.instance().register(metricsSourceName,
+        "DataNode volume IO scheduler", this);
+  }
+
+  void shutdown() {
+    if (metricsSourceName != null) {
+      MetricsSystem ms = DefaultMetricsSystem.instance();
+      ms.unregisterSource(metricsSourceName);
+      metricsSourceName = null;
+    }
+  }
+
+  /**
+   * Called before a file IO, waits until it is scheduled.
+   *
+   * @param volume target volume. null if unavailable.
+   * @param len number of bytes of the IO.
+   * @return the start time of the IO, 0 if it is not scheduled.
+   * @throws InterruptedIOException if interrupted while waiting.
+   */
+  long beforeFileIo(@Nullable FsVolumeSpi volume, long len)
+      throws InterruptedIOException {
+    IoClass c = CURRENT_CLASS.get();
+    if (c == null || volume == null) {
+      return 0;
+    }
+    VolumeState state = volumes.computeIfAbsent(volume.getStorageID(),
+        id -> new VolumeState());
+    long begin = System.nanoTime();
+    if (c != IoClass.CLIENT) {
+      queueDepth[c.ordinal()].incr();
+      try {
+        long now = begin;
+        long yieldDeadline = begin + maxYieldNanos;
+        while (now < yieldDeadline && state.isPreempted(c, now)) {
+          Thread.sleep(YIELD_SLEEP_MS);
+          now = System.nanoTime();
+        }
+        long wait = 0;
+        Budget ops = state.opsBudgets[c.ordinal()];
+        if (ops != null) {
+          wait = ops.acquire(1, now);
+        }
+        Budget bandwidth = state.bytesBudgets[c.ordinal()];
+        if (bandwidth != null) {
+          wait = Math.max(wait, bandwidth.acquire(len, now));
+        }
+        if (wait > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted while waiting for the IO scheduler");
+      } finally {
+        queueDepth[c.ordinal()].decr();
+      }
+      long now = System.nanoTime();
+      waitNanos[c.ordinal()].add(now - begin);
+      begin = now;
+    }
+    state.inFlight[c.ordinal()].incrementAndGet();
+    return begin;
+  }
+
+  /**
+   * Called after a file IO scheduled by
+   * {@link #beforeFileIo(FsVolumeSpi, long)}, whether it failed or not.
+   *
+   * @param volume target volume. null if unavailable.
+   * @param begin the value returned by beforeFileIo.
+   * @param len number of bytes of the IO.
+   */
+  void afterFileIo(@Nullable FsVolumeSpi volume, long begin, long len) {
+    IoClass c = CURRENT_CLASS.get();
+    if (begin == 0 || c == null || volume == null) {
+      return;
+    }
+    VolumeState state = volumes.get(volume.getStorageID());
+    if (state == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    state.setActive(c, now);
+    state.inFlight[c.ordinal()].decrementAndGet();
+    ioNanos[c.ordinal()].add(now - begin);
+    if (len > 0) {
+      bytes[c.ordinal()].incr(len);
+    }
+  }
+
+  @VisibleForTesting
+  int getQueueDepth(IoClass c) {
+    return queueDepth[c.ordinal()].value();
+  }
+
+  @VisibleForTesting
+  long getBytes(IoClass c) {
+    return bytes[c.ordinal()].value();
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    registry.snapshot(collector.addRecord(registry.info()).setContext("dfs"),
+        all);
+  }
+}
@@ -634,6 +634,7 @@ public class VolumeScanner extends Thread {
 
   @Override
   public void run() {
+    VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.SCANNER);
     // Record the minute on which the scanner started.
     this.startMinute =
         TimeUnit.MINUTES.convert(Time.monotonicNow(), TimeUnit.MILLISECONDS);
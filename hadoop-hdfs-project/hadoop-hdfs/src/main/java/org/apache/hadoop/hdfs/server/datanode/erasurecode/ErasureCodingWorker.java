@@ -47,6 +47,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 public final class ErasureCodingWorker {
   private static final Logger LOG = DataNode.LOG;
 
+  /**
+   * The client name of the block reads of reconstruction, which lets the
+   * source DataNodes schedule them as recovery work.
+   */
+  public static final String RECONSTRUCTION_CLIENT_NAME = "dummy";
+
   private final DataNode datanode;
   private final Configuration conf;
   private final float xmitWeight;
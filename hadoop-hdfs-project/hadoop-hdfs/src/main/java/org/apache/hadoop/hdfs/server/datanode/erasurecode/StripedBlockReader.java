@@ -129,9 +129,9 @@ class StripedBlockReader {
         this.isLocal = true;
       }
       return BlockReaderRemote.newBlockReader(
-          "dummy", block, blockToken, offsetInBlock,
-          block.getNumBytes() - offsetInBlock, true, "", peer, source,
-          null, stripedReader.getCachingStrategy(), -1, conf);
+          ErasureCodingWorker.RECONSTRUCTION_CLIENT_NAME, block, blockToken,
+          offsetInBlock, block.getNumBytes() - offsetInBlock, true, "", peer,
+          source, null, stripedReader.getCachingStrategy(), -1, conf);
     } catch (IOException e) {
       LOG.info("Exception while creating remote block reader, datanode {}",
           source, e);
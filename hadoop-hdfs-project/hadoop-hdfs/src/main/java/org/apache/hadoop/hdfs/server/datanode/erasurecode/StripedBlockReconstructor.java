@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdfs.server.datanode.DataNodeFaultInjector;
+import org.apache.hadoop.hdfs.server.datanode.VolumeIoScheduler;
 import org.apache.hadoop.hdfs.server.datanode.metrics.DataNodeMetrics;
 import org.apache.hadoop.io.erasurecode.rawcoder.InvalidDecodingException;
 import org.apache.hadoop.util.Time;
@@ -51,6 +52,8 @@ class StripedBlockReconstructor extends StripedReconstructor
 
   @Override
   public void run() {
+    final VolumeIoScheduler.IoClass previousIoClass =
+        VolumeIoScheduler.setIoClass(VolumeIoScheduler.IoClass.RECOVERY);
     try {
       initDecoderIfNecessary();
 
@@ -78,6 +81,7 @@ class StripedBlockReconstructor extends StripedReconstructor
       final DataNodeMetrics metrics = getDatanode().getMetrics();
       metrics.incrECReconstructionTasks();
       metrics.incrECReconstructionBytesRead(getBytesRead());
+      VolumeIoScheduler.setIoClass(previousIoClass);
       metrics.incrECReconstructionRemoteBytesRead(getRemoteBytesRead());
       metrics.incrECReconstructionBytesWritten(getBytesWritten());
       getStripedReader().close();
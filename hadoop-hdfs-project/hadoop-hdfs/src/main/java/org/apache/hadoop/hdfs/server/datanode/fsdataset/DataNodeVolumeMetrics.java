@@ -84,6 +84,16 @@ public class DataNodeVolumeMetrics {
   @Metric("file io error rate")
   private MutableRate fileIoErrorRate;
 
+  @Metric("directory scan report compilation time")
+  private MutableRate directoryScanRate;
+  @Metric("number of differences found by the directory scanner")
+  private MutableCounterLong directoryScanDiffs;
+  @Metric("number of unchanged block directories skipped by the directory" +
+      " scanner")
+  private MutableCounterLong directoryScanSkippedDirs;
+  @Metric("time the directory scanner was throttled in milliseconds")
+  private MutableCounterLong directoryScanThrottleTime;
+
   public long getTotalMetadataOperations() {
     return totalMetadataOperations.value();
   }
@@ -221,6 +231,27 @@ public class DataNodeVolumeMetrics {
     return fileIoErrorRate.lastStat().stddev();
   }
 
+  // Based on directoryScanRate
+  public long getDirectoryScanSampleCount() {
+    return directoryScanRate.lastStat().numSamples();
+  }
+
+  public double getDirectoryScanMean() {
+    return directoryScanRate.lastStat().mean();
+  }
+
+  public long getDirectoryScanDiffs() {
+    return directoryScanDiffs.value();
+  }
+
+  public long getDirectoryScanSkippedDirs() {
+    return directoryScanSkippedDirs.value();
+  }
+
+  public long getDirectoryScanThrottleTime() {
+    return directoryScanThrottleTime.value();
+  }
+
   private final String name;
   private final MetricsSystem ms;
 
@@ -350,4 +381,20 @@ public class DataNodeVolumeMetrics {
     totalFileIoErrors.incr();
     fileIoErrorRate.add(latency);
   }
+
+  public void addDirectoryScanTime(final long time) {
+    directoryScanRate.add(time);
+  }
+
+  public void incrDirectoryScanDiffs() {
+    directoryScanDiffs.incr();
+  }
+
+  public void incrDirectoryScanSkippedDirs() {
+    directoryScanSkippedDirs.incr();
+  }
+
+  public void addDirectoryScanThrottleTime(final long time) {
+    directoryScanThrottleTime.incr(time);
+  }
 }
\ No newline at end of file
@@ -45,6 +45,7 @@ import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
 import org.apache.hadoop.hdfs.protocol.BlockLocalPathInfo;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
 import org.apache.hadoop.hdfs.server.common.HdfsServerConstants.ReplicaState;
+import org.apache.hadoop.hdfs.server.datanode.BlockChecksumSummary;
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.hdfs.server.datanode.DataStorage;
 import org.apache.hadoop.hdfs.server.datanode.Replica;
@@ -531,6 +532,15 @@ public interface FsDatasetSpi<V extends FsVolumeSpi> extends FSDatasetMBean {
    */
   long getReplicaVisibleLength(final ExtendedBlock block) throws IOException;
 
+  /**
+   * Get the checksum summary of a finalized replica, computing and persisting
+   * it if needed.
+   * @return the summary, or null if the replica is not finalized or has no
+   * summary, e.g. because summaries are disabled
+   */
+  BlockChecksumSummary getBlockChecksumSummary(ExtendedBlock block)
+      throws IOException;
+
   /**
    * Initialize a replica recovery.
    * @return actual state of the replica on this data-node or 
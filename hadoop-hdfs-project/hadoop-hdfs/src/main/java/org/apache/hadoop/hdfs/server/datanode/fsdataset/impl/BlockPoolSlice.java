@@ -113,6 +113,9 @@ public class BlockPoolSlice {
    */
   private boolean deleteDuplicateReplicas;
   private static final String REPLICA_CACHE_FILE = "replicas";
+  @VisibleForTesting
+  public static final String REPLICA_CHECKPOINT_FILE = "replicas.checkpoint";
+  private volatile boolean replicasLoadedFromCheckpoint = false;
   private final long replicaCacheExpiry;
   private final File replicaCacheDir;
   private AtomicLong numOfBlocks = new AtomicLong();
@@ -501,7 +504,16 @@ public class BlockPoolSlice {
           "Recovered " + numRecovered + " replicas from " + lazypersistDir);
     }
 
-    boolean success = readReplicasFromCache(volumeMap, lazyWriteReplicaMap);
+    boolean success = readReplicasFromCache(volumeMap, lazyWriteReplicaMap,
+        new File(replicaCacheDir, REPLICA_CACHE_FILE), false);
+    if (!success) {
+      // The DataNode did not shut down cleanly, fall back to the last
+      // checkpoint taken while it was running, if there is one. Its replicas
+      // are checked against the files on disk.
+      success = readReplicasFromCache(volumeMap, lazyWriteReplicaMap,
+          new File(currentDir, REPLICA_CHECKPOINT_FILE), true);
+      replicasLoadedFromCheckpoint = success;
+    }
     if (!success) {
       List<IOException> exceptions = Collections
           .synchronizedList(new ArrayList<IOException>());
@@ -939,8 +951,19 @@ public class BlockPoolSlice {
     return currentDir.getAbsolutePath();
   }
 
+  /**
+   * @return true if the replicas of this slice were loaded from a checkpoint
+   * taken before an unclean shutdown, and may therefore be out of date.
+   */
+  public boolean isReplicasLoadedFromCheckpoint() {
+    return replicasLoadedFromCheckpoint;
+  }
+
   void shutdown(BlockListAsLongs blocksListToPersist) {
     saveReplicas(blocksListToPersist);
+    // The replica cache written above supersedes any running checkpoint.
+    fileIoProvider.deleteWithExistsCheck(volume,
+        new File(currentDir, REPLICA_CHECKPOINT_FILE));
     saveDfsUsed();
     dfsUsedSaved = true;
 
@@ -954,10 +977,23 @@ public class BlockPoolSlice {
     }
   }
 
+  /**
+   * Read the replicas of this slice from the replica cache written on
+   * shutdown, or from a checkpoint.
+   *
+   * @param isCheckpoint true if the file is a checkpoint taken while the
+   *                     DataNode was running. The replicas may have been
+   *                     deleted, appended to or recovered since then, so
+   *                     only the finalized replicas found on disk are
+   *                     taken from it, with the length and generation stamp
+   *                     of their files. The rbw directory is scanned instead
+   *                     of trusting the checkpoint.
+   * @return true if the replicas were read
+   */
   private boolean readReplicasFromCache(ReplicaMap volumeMap,
-      final RamDiskReplicaTracker lazyWriteReplicaMap) {
+      final RamDiskReplicaTracker lazyWriteReplicaMap, File replicaFile,
+      boolean isCheckpoint) {
     ReplicaMap tmpReplicaMap = new ReplicaMap();
-    File replicaFile = new File(replicaCacheDir, REPLICA_CACHE_FILE);
     // Check whether the file exists or not.
     if (!replicaFile.exists()) {
       LOG.info("Replica Cache file: "+  replicaFile.getPath() +
@@ -965,7 +1001,8 @@ public class BlockPoolSlice {
       return false;
     }
     long fileLastModifiedTime = replicaFile.lastModified();
-    if (System.currentTimeMillis() > fileLastModifiedTime + replicaCacheExpiry) {
+    if (!isCheckpoint &&
+        System.currentTimeMillis() > fileLastModifiedTime + replicaCacheExpiry) {
       LOG.info("Replica Cache file: " + replicaFile.getPath() +
           " has gone stale");
       // Just to make findbugs happy
@@ -985,6 +1022,13 @@ public class BlockPoolSlice {
       }
 
       for (BlockReportReplica replica : blocksList) {
+        if (isCheckpoint) {
+          if (replica.getState() == ReplicaState.FINALIZED) {
+            addCheckpointedReplica(replica, tmpReplicaMap,
+                lazyWriteReplicaMap);
+          }
+          continue;
+        }
         switch (replica.getState()) {
         case FINALIZED:
           addReplicaToReplicasMap(replica, tmpReplicaMap, lazyWriteReplicaMap, true);
@@ -998,6 +1042,20 @@ public class BlockPoolSlice {
           break;
         }
       }
+      if (isCheckpoint) {
+        // The replicas being written change too often to be taken from a
+        // checkpoint, and there are few of them.
+        List<IOException> exceptions = new ArrayList<>();
+        Queue<RecursiveAction> subTaskQueue = new ConcurrentLinkedQueue<>();
+        addToReplicasMap(tmpReplicaMap, rbwDir, lazyWriteReplicaMap, false,
+            exceptions, subTaskQueue);
+        for (RecursiveAction task : subTaskQueue) {
+          task.join();
+        }
+        if (!exceptions.isEmpty()) {
+          throw MultipleIOException.createIOException(exceptions);
+        }
+      }
       // Now it is safe to add the replica into volumeMap
       // In case of any exception during parsing this cache file, fall back
       // to scan all the files on disk.
@@ -1030,6 +1088,34 @@ public class BlockPoolSlice {
     }
   }
 
+  /**
+   * Add a finalized replica read from a checkpoint, with the length and
+   * generation stamp of its files on disk. The replica is skipped if its
+   * block file is no longer in the finalized directory, e.g. because it was
+   * deleted or reopened for append; the rbw directory and the directory
+   * scanner then account for it.
+   */
+  private void addCheckpointedReplica(Block block, ReplicaMap volumeMap,
+      final RamDiskReplicaTracker lazyWriteReplicaMap) throws IOException {
+    final File blockDir =
+        DatanodeUtil.idToBlockDir(finalizedDir, block.getBlockId());
+    final File blockFile = new File(blockDir, block.getBlockName());
+    if (!fileIoProvider.exists(volume, blockFile)) {
+      return;
+    }
+    long genStamp = block.getGenerationStamp();
+    File metaFile = new File(blockDir,
+        DatanodeUtil.getMetaName(block.getBlockName(), genStamp));
+    if (!fileIoProvider.exists(volume, metaFile)) {
+      // The replica was updated after the checkpoint, e.g. appended to.
+      metaFile = FsDatasetUtil.findMetaFile(blockFile);
+      genStamp = Block.getGenerationStamp(metaFile.getName());
+    }
+    addReplicaToReplicasMap(
+        new Block(block.getBlockId(), blockFile.length(), genStamp),
+        volumeMap, lazyWriteReplicaMap, true);
+  }
+
   private void saveReplicas(BlockListAsLongs blocksListToPersist) {
     if (blocksListToPersist == null ||
         blocksListToPersist.getNumberOfBlocks()== 0) {
@@ -1061,6 +1147,33 @@ public class BlockPoolSlice {
     }
   }
 
+  /**
+   * Save a checkpoint of the replicas of this block pool slice while the
+   * DataNode is running. Unlike the replica cache written on shutdown, the
+   * checkpoint is synced and atomically replaced, so a crash at any point
+   * leaves either the previous or the new checkpoint behind. It is kept in
+   * the block pool directory so that it always travels with the volume.
+   */
+  void checkpointReplicas(BlockListAsLongs blocksListToPersist) {
+    final File tmpFile =
+        new File(currentDir, REPLICA_CHECKPOINT_FILE + ".tmp");
+    final File checkpointFile = new File(currentDir, REPLICA_CHECKPOINT_FILE);
+    FileOutputStream out = null;
+    try {
+      out = fileIoProvider.getFileOutputStream(volume, tmpFile);
+      blocksListToPersist.writeTo(out);
+      fileIoProvider.sync(volume, out);
+      out.close();
+      fileIoProvider.replaceFile(volume, tmpFile, checkpointFile);
+    } catch (Exception e) {
+      // Keep the previous checkpoint, it is still consistent.
+      LOG.warn("Failed to checkpoint replicas to " + checkpointFile, e);
+    } finally {
+      IOUtils.closeStream(out);
+      fileIoProvider.deleteWithExistsCheck(volume, tmpFile);
+    }
+  }
+
   void incrNumBlocks() {
     numOfBlocks.incrementAndGet();
   }
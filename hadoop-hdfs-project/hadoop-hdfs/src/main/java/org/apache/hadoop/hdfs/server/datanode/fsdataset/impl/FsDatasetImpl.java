@@ -17,7 +17,9 @@
  */
 package org.apache.hadoop.hdfs.server.datanode.fsdataset.impl;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
@@ -40,6 +42,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
@@ -77,6 +80,7 @@ import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.protocol.RecoveryInProgressException;
 import org.apache.hadoop.hdfs.server.common.HdfsServerConstants.ReplicaState;
 import org.apache.hadoop.hdfs.server.common.Storage;
+import org.apache.hadoop.hdfs.server.datanode.BlockChecksumSummary;
 import org.apache.hadoop.hdfs.server.datanode.BlockMetadataHeader;
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.hdfs.server.datanode.metrics.DataNodeMetricHelper;
@@ -257,6 +261,7 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
   final Map<String, DatanodeStorage> storageMap;
   final FsDatasetAsyncDiskService asyncDiskService;
   final Daemon lazyWriter;
+  final Daemon replicaCacheCheckpointer;
   final FsDatasetCache cacheManager;
   private final Configuration conf;
   private final int volFailuresTolerated;
@@ -276,6 +281,8 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
 
   private boolean blockPinningEnabled;
   private final int maxDataLength;
+  private final boolean persistBlockChecksums;
+  private final long blockChecksumGroupSize;
 
   private final DataSetLockManager lockManager;
   private static String blockPoolId = "";
@@ -370,6 +377,18 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
       lazyWriter = null;
     }
 
+    long replicaCacheCheckpointInterval = conf.getTimeDuration(
+        DFSConfigKeys.DFS_DATANODE_REPLICA_CACHE_CHECKPOINT_INTERVAL_KEY,
+        DFSConfigKeys.DFS_DATANODE_REPLICA_CACHE_CHECKPOINT_INTERVAL_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    if (replicaCacheCheckpointInterval > 0) {
+      replicaCacheCheckpointer = new Daemon(
+          new ReplicaCacheCheckpointer(replicaCacheCheckpointInterval));
+      replicaCacheCheckpointer.start();
+    } else {
+      replicaCacheCheckpointer = null;
+    }
+
     registerMBean(datanode.getDatanodeUuid());
 
     // Add a Metrics2 Source Interface. This is same
@@ -388,6 +407,12 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
     maxDirScannerNotifyCount = conf.getLong(
         DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_MAX_NOTIFY_COUNT_KEY,
         DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_MAX_NOTIFY_COUNT_DEFAULT);
+    persistBlockChecksums = conf.getBoolean(
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_ENABLED_DEFAULT);
+    blockChecksumGroupSize = conf.getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_GROUP_SIZE_KEY,
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_GROUP_SIZE_DEFAULT);
     lastDirScannerNotifyTime = System.currentTimeMillis();
   }
 
@@ -1988,6 +2013,82 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
       LocalReplica localReplica = (LocalReplica) replicaInfo;
       localReplica.fsyncDirectory();
     }
+    if (persistBlockChecksums
+        && finalizedReplicaInfo instanceof FinalizedReplica) {
+      persistBlockChecksumSummary(b.getBlockPoolId(),
+          (FinalizedReplica) finalizedReplicaInfo);
+    }
+  }
+
+  /**
+   * Compute the checksum summary of a newly finalized replica in the
+   * background, while its meta file is still likely to be in the page cache.
+   */
+  private void persistBlockChecksumSummary(String bpid,
+      FinalizedReplica replica) {
+    try {
+      asyncDiskService.execute((FsVolumeImpl) replica.getVolume(), () -> {
+        // Skip replicas which were appended to or deleted meanwhile.
+        if (volumeMap.get(bpid, replica.getBlockId()) != replica) {
+          return;
+        }
+        try {
+          loadBlockChecksumSummary(replica);
+        } catch (IOException e) {
+          LOG.warn("Failed to persist the checksum summary of {}", replica, e);
+        }
+      });
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to schedule the checksum summary of {}", replica, e);
+    }
+  }
+
+  /**
+   * Load the persisted checksum summary of a finalized replica, computing it
+   * from the meta file and persisting it if it is missing or stale.
+   */
+  private BlockChecksumSummary loadBlockChecksumSummary(LocalReplica replica)
+      throws IOException {
+    final FsVolumeSpi volume = replica.getVolume();
+    final FileIoProvider fileIoProvider = replica.getFileIoProvider();
+    final File metaFile = replica.getMetaFile();
+    final File summaryFile = BlockChecksumSummary.getFile(metaFile);
+    final long genStamp = replica.getGenerationStamp();
+    final long numBytes = replica.getNumBytes();
+    final long metaLength = metaFile.length();
+    if (fileIoProvider.exists(volume, summaryFile)) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+          fileIoProvider.getFileInputStream(volume, summaryFile),
+          smallBufferSize))) {
+        BlockChecksumSummary summary = BlockChecksumSummary.read(in);
+        if (summary.isValidFor(genStamp, numBytes, metaLength)) {
+          return summary;
+        }
+      } catch (IOException e) {
+        LOG.warn("Ignoring the unreadable checksum summary {}", summaryFile, e);
+      }
+    }
+
+    final BlockChecksumSummary summary;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        replica.getMetadataInputStream(0), smallBufferSize))) {
+      summary = BlockChecksumSummary.compute(genStamp, numBytes, in,
+          metaLength, blockChecksumGroupSize);
+    }
+    if (summary == null) {
+      return null;
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        fileIoProvider.getFileOutputStream(volume, summaryFile),
+        smallBufferSize))) {
+      summary.write(out);
+    }
+    // The meta file may have been moved away meanwhile, by an append or a
+    // deletion, do not leave the summary behind.
+    if (!fileIoProvider.exists(volume, metaFile)) {
+      fileIoProvider.deleteWithExistsCheck(volume, summaryFile);
+    }
+    return summary;
   }
 
   private ReplicaInfo finalizeReplica(String bpid, ReplicaInfo replicaInfo)
@@ -2620,6 +2721,12 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
       lazyWriter.interrupt();
     }
 
+    if (replicaCacheCheckpointer != null) {
+      ((ReplicaCacheCheckpointer) replicaCacheCheckpointer.getRunnable())
+          .stop();
+      replicaCacheCheckpointer.interrupt();
+    }
+
     if (mbeanName != null) {
       MBeans.unregister(mbeanName);
       mbeanName = null;
@@ -2633,6 +2740,17 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
       asyncLazyPersistService.shutdown();
     }
     
+    // Volumes write their own replica cache on shutdown, make sure no
+    // checkpoint is being written concurrently.
+    if (replicaCacheCheckpointer != null) {
+      try {
+        replicaCacheCheckpointer.join();
+      } catch (InterruptedException ie) {
+        LOG.warn("FsDatasetImpl.shutdown ignoring InterruptedException " +
+                     "from ReplicaCacheCheckpointer.join");
+      }
+    }
+
     if(volumes != null) {
       volumes.shutdown();
     }
@@ -3182,6 +3300,21 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
     }
   }
 
+  @Override // FsDatasetSpi
+  public BlockChecksumSummary getBlockChecksumSummary(ExtendedBlock block)
+      throws IOException {
+    if (!persistBlockChecksums) {
+      return null;
+    }
+    final ReplicaInfo replica = volumeMap.get(block.getBlockPoolId(),
+        block.getLocalBlock());
+    if (replica == null || replica.getState() != ReplicaState.FINALIZED
+        || !(replica instanceof LocalReplica)) {
+      return null;
+    }
+    return loadBlockChecksumSummary((LocalReplica) replica);
+  }
+
   @Override
   public void addBlockPool(String bpid, Configuration conf)
       throws IOException {
@@ -3643,6 +3776,56 @@ class FsDatasetImpl implements FsDatasetSpi<FsVolumeImpl> {
       shouldRun = false;
     }
   }
+
+  /**
+   * Periodically checkpoints the replicas of every block pool slice, so that
+   * a DataNode which did not shut down cleanly can rebuild its replica map
+   * without scanning all of its volumes.
+   */
+  class ReplicaCacheCheckpointer implements Runnable {
+    private volatile boolean shouldRun = true;
+    private final long checkpointIntervalMs;
+
+    ReplicaCacheCheckpointer(long checkpointIntervalMs) {
+      this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    @Override
+    public void run() {
+      while (fsRunning && shouldRun) {
+        try {
+          Thread.sleep(checkpointIntervalMs);
+          checkpointReplicaCaches();
+        } catch (InterruptedException e) {
+          LOG.info("ReplicaCacheCheckpointer was interrupted, exiting");
+          break;
+        } catch (Exception e) {
+          LOG.warn("Ignoring exception in ReplicaCacheCheckpointer:", e);
+        }
+      }
+    }
+
+    public void stop() {
+      shouldRun = false;
+    }
+  }
+
+  /**
+   * Write a checkpoint of the replicas of every block pool slice.
+   */
+  @VisibleForTesting
+  void checkpointReplicaCaches() {
+    for (String bpid : volumeMap.getBlockPoolList()) {
+      Map<DatanodeStorage, BlockListAsLongs> blockReports =
+          getBlockReports(bpid);
+      for (FsVolumeImpl volume : volumes.getVolumes()) {
+        BlockListAsLongs blocks = blockReports.get(volume.toDatanodeStorage());
+        if (blocks != null) {
+          volume.checkpointReplicas(bpid, blocks);
+        }
+      }
+    }
+  }
   
   @Override
   public void setPinning(ExtendedBlock block) throws IOException {
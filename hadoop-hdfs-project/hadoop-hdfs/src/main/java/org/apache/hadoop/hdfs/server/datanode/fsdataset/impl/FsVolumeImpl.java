@@ -1134,6 +1134,13 @@ public class FsVolumeImpl implements FsVolumeSpi {
     bpSlices.remove(bpid);
   }
 
+  void checkpointReplicas(String bpid, BlockListAsLongs blocksListAsLongs) {
+    BlockPoolSlice bp = bpSlices.get(bpid);
+    if (bp != null) {
+      bp.checkpointReplicas(blocksListAsLongs);
+    }
+  }
+
   boolean isBPDirEmpty(String bpid) throws IOException {
     File volumeCurrentDir = this.getCurrentDir();
     File bpDir = new File(volumeCurrentDir, bpid);
@@ -1427,6 +1434,9 @@ public class FsVolumeImpl implements FsVolumeSpi {
       Collection<ScanInfo> report, ReportCompiler reportCompiler)
       throws InterruptedException {
 
+    if (reportCompiler.skipUnchangedBlockDir(bpFinalizedDir, dir)) {
+      return;
+    }
     reportCompiler.throttle();
 
     List <String> fileNames;
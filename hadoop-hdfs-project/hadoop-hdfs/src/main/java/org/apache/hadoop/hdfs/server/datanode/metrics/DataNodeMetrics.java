@@ -109,6 +109,12 @@ public class DataNodeMetrics {
   @Metric("Count of active dataNode xceivers")
   private MutableGaugeInt dataNodeActiveXceiversCount;
 
+  @Metric("Count of connections rejected because of too many xceivers")
+  private MutableCounterLong dataNodeXceiversRejected;
+
+  @Metric("Microseconds from accepting a connection until its xceiver runs")
+  private MutableRate dataNodeXceiverStartDelay;
+
   @Metric("Count of active DataNode packetResponder")
   private MutableGaugeInt dataNodePacketResponderCount;
 
@@ -581,6 +587,14 @@ public class DataNodeMetrics {
     return dataNodeActiveXceiversCount.value();
   }
 
+  public void incrDataNodeXceiversRejected() {
+    dataNodeXceiversRejected.incr();
+  }
+
+  public void addDataNodeXceiverStartDelay(long delayMicros) {
+    dataNodeXceiverStartDelay.add(delayMicros);
+  }
+
   public void incrDataNodePacketResponderCount() {
     dataNodePacketResponderCount.incr();
   }
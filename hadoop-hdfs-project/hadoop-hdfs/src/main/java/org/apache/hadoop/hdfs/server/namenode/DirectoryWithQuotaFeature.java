@@ -36,10 +36,13 @@ public final class DirectoryWithQuotaFeature implements INode.Feature {
 
   private QuotaCounts quota;
   private QuotaCounts usage;
+  /** Keep the usage up to date even if no quota is set. Not persisted. */
+  private boolean usageTracked;
 
   public static class Builder {
     private QuotaCounts quota;
     private QuotaCounts usage;
+    private boolean usageTracked;
 
     public Builder() {
       this.quota = new QuotaCounts.Builder().nameSpace(DEFAULT_NAMESPACE_QUOTA).
@@ -68,6 +71,16 @@ public final class DirectoryWithQuotaFeature implements INode.Feature {
       return this;
     }
 
+    /**
+     * Build a feature that only tracks the usage of the directory. No quota
+     * is set, so nothing is saved in the fsimage or reported as a quota.
+     */
+    public Builder usageTrackedOnly() {
+      this.quota.setNameSpace(HdfsConstants.QUOTA_RESET);
+      this.usageTracked = true;
+      return this;
+    }
+
     public DirectoryWithQuotaFeature build() {
       return new DirectoryWithQuotaFeature(this);
     }
@@ -76,6 +89,7 @@ public final class DirectoryWithQuotaFeature implements INode.Feature {
   private DirectoryWithQuotaFeature(Builder builder) {
     this.quota = builder.quota;
     this.usage = builder.usage;
+    this.usageTracked = builder.usageTracked;
   }
 
   /** @return the quota set or -1 if it is not set. */
@@ -218,6 +232,18 @@ public final class DirectoryWithQuotaFeature implements INode.Feature {
         quota.anyTypeSpaceCountGreaterOrEqual(0);
   }
 
+  /**
+   * @return true if the usage is kept up to date, either because a quota is
+   * set or because usage tracking is enabled for all directories.
+   */
+  boolean isUsageTracked() {
+    return usageTracked || isQuotaSet();
+  }
+
+  void setUsageTracked(boolean usageTracked) {
+    this.usageTracked = usageTracked;
+  }
+
   boolean isQuotaByStorageTypeSet() {
     return quota.anyTypeSpaceCountGreaterOrEqual(0);
   }
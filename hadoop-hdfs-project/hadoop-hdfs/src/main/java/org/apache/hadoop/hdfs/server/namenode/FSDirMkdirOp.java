@@ -220,6 +220,10 @@ class FSDirMkdirOp {
     }
     final INodeDirectory dir = new INodeDirectory(inodeId, name, permission,
         timestamp);
+    if (fsd.isTrackAllDirectoriesUsage()) {
+      dir.addDirectoryWithQuotaFeature(
+          new DirectoryWithQuotaFeature.Builder().usageTrackedOnly().build());
+    }
 
     INodesInPath iip =
         fsd.addLastINode(parent, dir, permission.getPermission(), true);
@@ -162,6 +162,8 @@ public class FSDirectory implements Closeable {
   private final INodeMap inodeMap; // Synchronized by dirLock
   private long yieldCount = 0; // keep track of lock yield count.
   private int quotaInitThreads;
+  // whether usage is tracked for directories without a quota
+  private final boolean trackAllDirectoriesUsage;
 
   private final int inodeXAttrsLimit; //inode xattrs max limit
 
@@ -317,7 +319,9 @@ public class FSDirectory implements Closeable {
   FSDirectory(FSNamesystem ns, Configuration conf) throws IOException {
     this.inodeId = new INodeId();
     rootDir = createRoot(ns);
-    inodeMap = INodeMap.newInstance(rootDir);
+    inodeMap = INodeMap.newInstance(rootDir, conf.getDouble(
+        DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY,
+        DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_DEFAULT));
     this.isPermissionEnabled = conf.getBoolean(
       DFSConfigKeys.DFS_PERMISSIONS_ENABLED_KEY,
       DFSConfigKeys.DFS_PERMISSIONS_ENABLED_DEFAULT);
@@ -413,6 +417,9 @@ public class FSDirectory implements Closeable {
     this.quotaInitThreads = conf.getInt(
         DFSConfigKeys.DFS_NAMENODE_QUOTA_INIT_THREADS_KEY,
         DFSConfigKeys.DFS_NAMENODE_QUOTA_INIT_THREADS_DEFAULT);
+    this.trackAllDirectoriesUsage = conf.getBoolean(
+        DFSConfigKeys.DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_KEY,
+        DFSConfigKeys.DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_DEFAULT);
 
     initUsersToBypassExtProvider(conf);
   }
@@ -596,6 +603,14 @@ public class FSDirectory implements Closeable {
   boolean isPermissionEnabled() {
     return isPermissionEnabled;
   }
+
+  /**
+   * @return true if every directory carries a {@link DirectoryWithQuotaFeature}
+   * so that its usage is kept up to date even without a quota.
+   */
+  boolean isTrackAllDirectoriesUsage() {
+    return trackAllDirectoriesUsage;
+  }
   boolean isAclsEnabled() {
     return aclsEnabled;
   }
@@ -851,7 +866,8 @@ public class FSDirectory implements Closeable {
       QuotaCounts counts = new QuotaCounts.Builder().build();
       ForkJoinPool p = new ForkJoinPool(threads);
       RecursiveAction task = new InitQuotaTask(getBlockStoragePolicySuite(),
-          rootDir.getStoragePolicyID(), rootDir, counts);
+          rootDir.getStoragePolicyID(), rootDir, counts,
+          trackAllDirectoriesUsage);
       p.execute(task);
       task.join();
       p.shutdown();
@@ -874,16 +890,29 @@ public class FSDirectory implements Closeable {
     private final QuotaCounts counts;
     private final BlockStoragePolicySuite bsps;
     private final byte blockStoragePolicyId;
+    private final boolean trackAllDirectories;
 
     public InitQuotaTask(BlockStoragePolicySuite bsps,
-        byte blockStoragePolicyId, INodeDirectory dir, QuotaCounts counts) {
+        byte blockStoragePolicyId, INodeDirectory dir, QuotaCounts counts,
+        boolean trackAllDirectories) {
       this.dir = dir;
       this.counts = counts;
       this.bsps = bsps;
       this.blockStoragePolicyId = blockStoragePolicyId;
+      this.trackAllDirectories = trackAllDirectories;
     }
 
     public void compute() {
+      if (trackAllDirectories) {
+        final DirectoryWithQuotaFeature q = dir.getDirectoryWithQuotaFeature();
+        if (q == null) {
+          dir.addDirectoryWithQuotaFeature(
+              new DirectoryWithQuotaFeature.Builder().usageTrackedOnly()
+                  .build());
+        } else {
+          q.setUsageTracked(true);
+        }
+      }
       QuotaCounts myCounts =  new QuotaCounts.Builder().build();
       dir.computeQuotaUsage4CurrentDirectory(bsps, blockStoragePolicyId,
           myCounts);
@@ -898,7 +927,7 @@ public class FSDirectory implements Closeable {
               child.getStoragePolicyIDForQuota(blockStoragePolicyId);
           if (child.isDirectory()) {
             subtasks.add(new InitQuotaTask(bsps, childPolicyId,
-                child.asDirectory(), myCounts));
+                child.asDirectory(), myCounts, trackAllDirectories));
           } else {
             // file or symlink. count using the local counts variable
             myCounts.add(child.computeQuotaUsage(bsps, childPolicyId, false,
@@ -909,7 +938,7 @@ public class FSDirectory implements Closeable {
         invokeAll(subtasks);
       }
 
-      if (dir.isQuotaSet()) {
+      if (dir.isUsageTracked()) {
         // check if quota is violated. It indicates a software bug.
         final QuotaCounts q = dir.getQuotaCounts();
 
@@ -1084,8 +1113,9 @@ public class FSDirectory implements Closeable {
   static void unprotectedUpdateCount(INodesInPath inodesInPath,
       int numOfINodes, QuotaCounts counts) {
     for(int i=0; i < numOfINodes; i++) {
-      if (inodesInPath.getINode(i).isQuotaSet()) { // a directory with quota
-        inodesInPath.getINode(i).asDirectory().getDirectoryWithQuotaFeature()
+      final INode inode = inodesInPath.getINode(i);
+      if (inode.isDirectory() && inode.asDirectory().isUsageTracked()) {
+        inode.asDirectory().getDirectoryWithQuotaFeature()
             .addSpaceConsumed2Cache(counts);
       }
     }
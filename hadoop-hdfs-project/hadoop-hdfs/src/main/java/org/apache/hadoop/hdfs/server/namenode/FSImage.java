@@ -109,6 +109,12 @@ public class FSImage implements Closeable {
    */
   protected long lastAppliedTxId = 0;
 
+  /**
+   * Time spent applying edits during the last call to loadEdits, in
+   * nanoseconds.
+   */
+  private long lastEditsApplyTimeNanos = 0;
+
   final private Configuration conf;
 
   protected NNStorageRetentionManager archivalManager;
@@ -898,8 +904,8 @@ public class FSImage implements Closeable {
 
     long prevLastAppliedTxId = lastAppliedTxId;
     long remainingReadTxns = maxTxnsToRead;
-    try {    
-      FSEditLogLoader loader = new FSEditLogLoader(target, lastAppliedTxId);
+    FSEditLogLoader loader = new FSEditLogLoader(target, lastAppliedTxId);
+    try {
       
       // Load latest edits
       for (EditLogInputStream editIn : editStreams) {
@@ -932,6 +938,7 @@ public class FSImage implements Closeable {
       }
     } finally {
       FSEditLog.closeAllStreams(editStreams);
+      lastEditsApplyTimeNanos = loader.getApplyTimeNanos();
     }
     return lastAppliedTxId - prevLastAppliedTxId;
   }
@@ -1537,6 +1544,16 @@ public class FSImage implements Closeable {
     return lastAppliedTxId;
   }
 
+  /**
+   * @return the time spent applying edits to the namespace, under the
+   * namesystem write lock, during the last call to
+   * {@link #loadEdits(Iterable, FSNamesystem, long, StartupOption,
+   * MetaRecoveryContext)}, in nanoseconds.
+   */
+  public long getLastEditsApplyTimeNanos() {
+    return lastEditsApplyTimeNanos;
+  }
+
   public long getLastAppliedOrWrittenTxId() {
     return Math.max(lastAppliedTxId,
         editLog != null ? editLog.getLastWrittenTxIdWithoutLock() : 0);
@@ -68,6 +68,8 @@ import org.apache.hadoop.hdfs.server.namenode.snapshot.FSImageFormatPBSnapshot;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.Phase;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.StartupProgress;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.StartupProgress.Counter;
+import org.apache.hadoop.hdfs.server.namenode.startupprogress.StartupProgressView;
+import org.apache.hadoop.hdfs.server.namenode.startupprogress.Status;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.Step;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.StepType;
 import org.apache.hadoop.hdfs.util.MD5FileUtils;
@@ -394,9 +396,9 @@ public final class FSImageFormatProtobuf {
 
       StartupProgress prog = NameNode.getStartupProgress();
       /**
-       * beginStep() and the endStep() calls do not match the boundary of the
-       * sections. This is because that the current implementation only allows
-       * a particular step to be started for once.
+       * Sections are loaded in the order of their names, so each step below
+       * spans one or more consecutive sections. A step can only be started
+       * once, hence a step only ends when a section of another step begins.
        */
       Step currentStep = null;
       boolean loadInParallel = enableParallelSaveAndLoad(conf);
@@ -431,8 +433,7 @@ public final class FSImageFormatProtobuf {
           loadStringTableSection(in);
           break;
         case INODE: {
-          currentStep = new Step(StepType.INODES);
-          prog.beginStep(Phase.LOADING_FSIMAGE, currentStep);
+          currentStep = switchStep(prog, currentStep, StepType.INODES);
           stageSubSections = getSubSectionsOfName(
               subSections, SectionName.INODE_SUB);
           if (loadInParallel && (stageSubSections.size() > 0)) {
@@ -444,9 +445,13 @@ public final class FSImageFormatProtobuf {
         }
           break;
         case INODE_REFERENCE:
+          currentStep = switchStep(prog, currentStep,
+              StepType.INODE_REFERENCES);
           snapshotLoader.loadINodeReferenceSection(in);
           break;
         case INODE_DIR:
+          currentStep = switchStep(prog, currentStep,
+              StepType.INODE_DIRECTORIES);
           stageSubSections = getSubSectionsOfName(
               subSections, SectionName.INODE_DIR_SUB);
           if (loadInParallel && stageSubSections.size() > 0) {
@@ -458,43 +463,89 @@ public final class FSImageFormatProtobuf {
           inodeLoader.waitBlocksMapAndNameCacheUpdateFinished();
           break;
         case FILES_UNDERCONSTRUCTION:
+          currentStep = switchStep(prog, currentStep,
+              StepType.INODE_DIRECTORIES);
           inodeLoader.loadFilesUnderConstructionSection(in);
           break;
         case SNAPSHOT:
+          currentStep = switchStep(prog, currentStep, StepType.SNAPSHOTS);
           snapshotLoader.loadSnapshotSection(in);
           break;
         case SNAPSHOT_DIFF:
+          currentStep = switchStep(prog, currentStep, StepType.SNAPSHOT_DIFFS);
           snapshotLoader.loadSnapshotDiffSection(in);
           break;
-        case SECRET_MANAGER: {
-          prog.endStep(Phase.LOADING_FSIMAGE, currentStep);
-          Step step = new Step(StepType.DELEGATION_TOKENS);
-          prog.beginStep(Phase.LOADING_FSIMAGE, step);
-          loadSecretManagerSection(in, prog, step);
-          prog.endStep(Phase.LOADING_FSIMAGE, step);
-        }
+        case SECRET_MANAGER:
+          currentStep = switchStep(prog, currentStep,
+              StepType.DELEGATION_TOKENS);
+          loadSecretManagerSection(in, prog, currentStep);
           break;
-        case CACHE_MANAGER: {
-          Step step = new Step(StepType.CACHE_POOLS);
-          prog.beginStep(Phase.LOADING_FSIMAGE, step);
-          loadCacheManagerSection(in, prog, step);
-          prog.endStep(Phase.LOADING_FSIMAGE, step);
-        }
+        case CACHE_MANAGER:
+          currentStep = switchStep(prog, currentStep, StepType.CACHE_POOLS);
+          loadCacheManagerSection(in, prog, currentStep);
           break;
         case ERASURE_CODING:
-          Step step = new Step(StepType.ERASURE_CODING_POLICIES);
-          prog.beginStep(Phase.LOADING_FSIMAGE, step);
+          currentStep = switchStep(prog, currentStep,
+              StepType.ERASURE_CODING_POLICIES);
           loadErasureCodingSection(in);
-          prog.endStep(Phase.LOADING_FSIMAGE, step);
           break;
         default:
           LOG.warn("Unrecognized section {}", n);
           break;
         }
       }
+      if (currentStep != null) {
+        prog.endStep(Phase.LOADING_FSIMAGE, currentStep);
+      }
       if (executorService != null) {
         executorService.shutdown();
       }
+      logStepTimes(prog);
+    }
+
+    /**
+     * End the current step unless it is of the given type, and begin a new
+     * step of that type.
+     *
+     * @param prog the startup progress to update.
+     * @param currentStep the step in progress, may be null.
+     * @param type type of the step for the next section.
+     * @return the step in progress for the next section.
+     */
+    private static Step switchStep(StartupProgress prog, Step currentStep,
+        StepType type) {
+      if (currentStep != null) {
+        if (currentStep.getType() == type) {
+          return currentStep;
+        }
+        prog.endStep(Phase.LOADING_FSIMAGE, currentStep);
+      }
+      Step step = new Step(type);
+      prog.beginStep(Phase.LOADING_FSIMAGE, step);
+      return step;
+    }
+
+    /**
+     * Log how long each step of loading the image took, so that regressions
+     * of individual sections can be spotted.
+     */
+    private static void logStepTimes(StartupProgress prog) {
+      if (prog.getStatus(Phase.LOADING_FSIMAGE) != Status.RUNNING) {
+        // Not loading at startup, the steps are not being tracked.
+        return;
+      }
+      StartupProgressView view = prog.createView();
+      StringBuilder sb = new StringBuilder();
+      for (Step step : view.getSteps(Phase.LOADING_FSIMAGE)) {
+        if (step.getType() != null) {
+          sb.append(' ').append(step.getType().getName()).append('=')
+              .append(view.getElapsedTime(Phase.LOADING_FSIMAGE, step))
+              .append("ms");
+        }
+      }
+      if (sb.length() > 0) {
+        LOG.info("Loaded image sections in{}", sb);
+      }
     }
 
     private void loadNameSystemSection(InputStream in) throws IOException {
@@ -804,21 +855,18 @@ public final class FSImageFormatProtobuf {
     }
 
     /**
-     * @return number of non-fatal errors detected while saving the image.
+     * Save the snapshot and snapshot diff sections. The inode reference
+     * section is saved separately, after them, with the same saver.
      * @throws IOException on fatal error.
      */
-    private long saveSnapshots(FileSummary.Builder summary) throws IOException {
-      FSImageFormatPBSnapshot.Saver snapshotSaver = new FSImageFormatPBSnapshot.Saver(
-          this, summary, context, context.getSourceNamesystem());
-
+    private void saveSnapshots(FSImageFormatPBSnapshot.Saver snapshotSaver)
+        throws IOException {
       snapshotSaver.serializeSnapshotSection(sectionOutputStream);
       // Skip snapshot-related sections when there is no snapshot.
       if (context.getSourceNamesystem().getSnapshotManager()
           .getNumSnapshots() > 0) {
         snapshotSaver.serializeSnapshotDiffSection(sectionOutputStream);
       }
-      snapshotSaver.serializeINodeReferenceSection(sectionOutputStream);
-      return snapshotSaver.getNumImageErrors();
     }
 
     /**
@@ -872,7 +920,20 @@ public final class FSImageFormatProtobuf {
       prog.beginStep(Phase.SAVING_CHECKPOINT, step);
       // Count number of non-fatal errors when saving inodes and snapshots.
       long numErrors = saveInodes(b);
-      numErrors += saveSnapshots(b);
+      prog.endStep(Phase.SAVING_CHECKPOINT, step);
+
+      FSImageFormatPBSnapshot.Saver snapshotSaver =
+          new FSImageFormatPBSnapshot.Saver(this, b, context,
+              context.getSourceNamesystem());
+      step = new Step(StepType.SNAPSHOTS, filePath);
+      prog.beginStep(Phase.SAVING_CHECKPOINT, step);
+      saveSnapshots(snapshotSaver);
+      prog.endStep(Phase.SAVING_CHECKPOINT, step);
+
+      step = new Step(StepType.INODE_REFERENCES, filePath);
+      prog.beginStep(Phase.SAVING_CHECKPOINT, step);
+      snapshotSaver.serializeINodeReferenceSection(sectionOutputStream);
+      numErrors += snapshotSaver.getNumImageErrors();
       prog.endStep(Phase.SAVING_CHECKPOINT, step);
 
       step = new Step(StepType.DELEGATION_TOKENS, filePath);
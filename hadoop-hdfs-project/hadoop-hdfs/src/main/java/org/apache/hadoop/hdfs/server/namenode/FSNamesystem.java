@@ -82,6 +82,8 @@ import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RESOURCE_CHECK_I
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_EXPIRYTIME_MILLIS_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_EXPIRYTIME_MILLIS_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_HEAP_PERCENT_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_SHARDS_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_SHARDS_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_RETRY_CACHE_HEAP_PERCENT_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_SHARED_EDITS_DIR_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LEASE_RECHECK_INTERVAL_MS_KEY;
@@ -1154,12 +1156,15 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
       long entryExpiryMillis = conf.getLong(
           DFS_NAMENODE_RETRY_CACHE_EXPIRYTIME_MILLIS_KEY,
           DFS_NAMENODE_RETRY_CACHE_EXPIRYTIME_MILLIS_DEFAULT);
+      int numShards = conf.getInt(DFS_NAMENODE_RETRY_CACHE_SHARDS_KEY,
+          DFS_NAMENODE_RETRY_CACHE_SHARDS_DEFAULT);
       LOG.info("Retry cache will use " + heapPercent
-          + " of total heap and retry cache entry expiry time is "
+          + " of total heap in " + numShards
+          + " shards and retry cache entry expiry time is "
           + entryExpiryMillis + " millis");
       long entryExpiryNanos = entryExpiryMillis * 1000 * 1000;
       return new RetryCache("NameNodeRetryCache", heapPercent,
-          entryExpiryNanos);
+          entryExpiryNanos, numShards);
     }
     return null;
   }
@@ -1831,6 +1836,11 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
     this.fsLock.writeUnlock(opName, lockReportInfoSupplier);
   }
 
+  public void writeUnlock(String opName, String src,
+      Supplier<String> lockReportInfoSupplier) {
+    this.fsLock.writeUnlock(opName, src, lockReportInfoSupplier);
+  }
+
   @Override
   public boolean hasWriteLock() {
     return this.fsLock.isWriteLockedByCurrentThread();
@@ -1844,6 +1854,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
     return this.fsLock.getReadHoldCount();
   }
 
+  @Override
   public int getWriteHoldCount() {
     return this.fsLock.getWriteHoldCount();
   }
@@ -2817,7 +2828,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
         dir.writeUnlock();
       }
     } finally {
-      writeUnlock("create", getLockReportInfoSupplier(src, null, stat));
+      writeUnlock("create", src, getLockReportInfoSupplier(src, null, stat));
       // There might be transactions logged while trying to recover the lease.
       // They need to be sync'ed even when an exception was thrown.
       if (!skipSync) {
@@ -3300,7 +3311,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
         ret = FSDirRenameOp.renameToInt(dir, pc, src, dst, logRetryCache);
       } finally {
         FileStatus status = ret != null ? ret.auditStat : null;
-        writeUnlock(operationName,
+        writeUnlock(operationName, src,
             getLockReportInfoSupplier(src, dst, status));
       }
     } catch (AccessControlException e)  {
@@ -3333,7 +3344,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
             options);
       } finally {
         FileStatus status = res != null ? res.auditStat : null;
-        writeUnlock(operationName,
+        writeUnlock(operationName, src,
             getLockReportInfoSupplier(src, dst, status));
       }
     } catch (AccessControlException e) {
@@ -3376,7 +3387,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
             this, pc, src, recursive, logRetryCache);
         ret = toRemovedBlocks != null;
       } finally {
-        writeUnlock(operationName, getLockReportInfoSupplier(src));
+        writeUnlock(operationName, src, getLockReportInfoSupplier(src));
       }
     } catch (AccessControlException e) {
       logAuditEvent(false, operationName, src);
@@ -3473,6 +3484,61 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
     return stat;
   }
 
+  /**
+   * Get the file info for a batch of files or directories while holding the
+   * read lock once.
+   *
+   * @param srcs The string representation of the paths to the files
+   * @param needLocation Include block locations and block tokens of files
+   * @throws AccessControlException if access is denied to any path
+   * @throws UnresolvedLinkException if a symlink is encountered.
+   *
+   * @return the file info of each path, null for paths which are not found
+   * @throws StandbyException
+   */
+  HdfsFileStatus[] getBatchedFileInfo(final String[] srcs,
+      boolean needLocation) throws IOException {
+    if (srcs.length > this.batchedListingLimit) {
+      String msg = String.format("Too many source paths (%d > %d)",
+          srcs.length, batchedListingLimit);
+      throw new IllegalArgumentException(msg);
+    }
+    // block tokens are returned along with the locations, so audit the
+    // call as getBlockLocations
+    final String operationName = needLocation ? "open" : "getfileinfo";
+    checkOperation(OperationCategory.READ);
+    final HdfsFileStatus[] stats = new HdfsFileStatus[srcs.length];
+    final FSPermissionChecker pc = getPermissionChecker();
+    FSPermissionChecker.setOperationType(operationName);
+    String src = null;
+    try {
+      readLock();
+      try {
+        checkOperation(OperationCategory.READ);
+        for (int i = 0; i < srcs.length; i++) {
+          src = srcs[i];
+          stats[i] = FSDirStatAndListingOp.getFileInfo(
+              dir, pc, src, true, needLocation, needLocation);
+        }
+      } finally {
+        readUnlock(operationName, getLockReportInfoSupplier(src));
+      }
+    } catch (AccessControlException e) {
+      logAuditEvent(false, operationName, src);
+      throw e;
+    }
+    for (int i = 0; i < srcs.length; i++) {
+      if (needLocation && isObserver() &&
+          stats[i] instanceof HdfsLocatedFileStatus) {
+        LocatedBlocks lbs = ((HdfsLocatedFileStatus) stats[i])
+            .getLocatedBlocks();
+        checkBlockLocationsWhenObserver(lbs, srcs[i]);
+      }
+      logAuditEvent(true, operationName, srcs[i]);
+    }
+    return stats;
+  }
+
   /**
    * Returns true if the file is closed
    */
@@ -3518,7 +3584,7 @@ public class FSNamesystem implements Namesystem, FSNamesystemMBean,
         auditStat = FSDirMkdirOp.mkdirs(this, pc, src, permissions,
             createParent);
       } finally {
-        writeUnlock(operationName,
+        writeUnlock(operationName, src,
             getLockReportInfoSupplier(src, null, auditStat));
       }
     } catch (AccessControlException e) {
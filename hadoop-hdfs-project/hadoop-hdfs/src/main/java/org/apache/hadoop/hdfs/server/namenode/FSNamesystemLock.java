@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.hdfs.server.namenode;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -29,6 +31,7 @@ import java.util.function.Supplier;
 
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.ipc.Server;
 import org.apache.hadoop.log.LogThrottlingHelper;
 import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
@@ -42,6 +45,10 @@ import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_FAIR_DEFA
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_FAIR_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_DETAILED_METRICS_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_DETAILED_METRICS_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_READ_LOCK_REPORTING_THRESHOLD_MS_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_READ_LOCK_REPORTING_THRESHOLD_MS_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_WRITE_LOCK_REPORTING_THRESHOLD_MS_DEFAULT;
@@ -63,6 +70,13 @@ import static org.apache.hadoop.log.LogThrottlingHelper.LogAction;
  * most recent snapshot will be lost due to the use of
  * {@link MutableRatesWithAggregation}. However since threads are re-used
  * between operations this should not generally be an issue.
+ *
+ * If {@link org.apache.hadoop.hdfs.DFSConfigKeys#DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_KEY}
+ * is positive, write lock hold and wait times of namespace mutations which
+ * supply their path are additionally attributed to the subtree made up of the
+ * first N components of that path. These metrics have names of the form
+ * FSNWriteLock(Wait)?Subtree_component1_component2Nanos, and show how much of
+ * the write lock is spent on each part of the namespace.
  */
 class FSNamesystemLock {
   @VisibleForTesting
@@ -72,6 +86,16 @@ class FSNamesystemLock {
   private final MutableRatesWithAggregation detailedHoldTimeMetrics;
   private final Timer timer;
 
+  /**
+   * Number of leading path components used to attribute write lock time to
+   * a namespace subtree. Subtree metrics are disabled when not positive.
+   */
+  private final int subtreeMetricsDepth;
+  /** Maximum number of distinct subtrees which get their own metrics. */
+  private final int subtreeMetricsMaxSubtrees;
+  /** Subtrees which currently have their own metrics. */
+  private final Set<String> trackedSubtrees = ConcurrentHashMap.newKeySet();
+
   /**
    * Log statements about long lock hold times will not be produced more
    * frequently than this interval.
@@ -82,6 +106,8 @@ class FSNamesystemLock {
   private final long writeLockReportingThresholdMs;
   /** Last time stamp for write lock. Keep the longest one for multi-entrance.*/
   private long writeLockHeldTimeStampNanos;
+  /** Time spent waiting for the write lock by its current holder. */
+  private long writeLockWaitNanos;
   /** Frequency limiter used for reporting long write lock hold times. */
   private final LogThrottlingHelper writeLockReportLogger;
 
@@ -125,6 +151,12 @@ class FSNamesystemLock {
   static final String OP_NAME_OTHER = "OTHER";
   private static final String READ_LOCK_METRIC_PREFIX = "FSNReadLock";
   private static final String WRITE_LOCK_METRIC_PREFIX = "FSNWriteLock";
+  private static final String SUBTREE_HOLD_METRIC_PREFIX =
+      "FSNWriteLockSubtree";
+  private static final String SUBTREE_WAIT_METRIC_PREFIX =
+      "FSNWriteLockWaitSubtree";
+  @VisibleForTesting
+  static final String SUBTREE_NAME_OTHER = "Other";
   private static final String LOCK_METRIC_SUFFIX = "Nanos";
 
   private static final String OVERALL_METRIC_NAME = "Overall";
@@ -160,6 +192,17 @@ class FSNamesystemLock {
     FSNamesystem.LOG.info("Detailed lock hold time metrics enabled: " +
         this.metricsEnabled);
     this.detailedHoldTimeMetrics = detailedHoldTimeMetrics;
+    this.subtreeMetricsDepth = conf.getInt(
+        DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_KEY,
+        DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_DEFAULT);
+    this.subtreeMetricsMaxSubtrees = conf.getInt(
+        DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_KEY,
+        DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_DEFAULT);
+    if (subtreeMetricsDepth > 0) {
+      FSNamesystem.LOG.info("Subtree lock metrics enabled with depth {}" +
+          " for at most {} subtrees", subtreeMetricsDepth,
+          subtreeMetricsMaxSubtrees);
+    }
   }
 
   public void readLock() {
@@ -289,6 +332,20 @@ class FSNamesystemLock {
     writeUnlock(opName, suppressWriteLockReport, null);
   }
 
+  /**
+   * Unlocks FSNameSystem write lock and attributes the hold and wait time
+   * to the namespace subtree containing the given path. This internally
+   * calls {@link FSNamesystemLock#writeUnlock(String, boolean, Supplier)}
+   *
+   * @param opName Operation name.
+   * @param src Path mutated by the operation, may be null.
+   * @param lockReportInfoSupplier The info shown in the lock report
+   */
+  public void writeUnlock(String opName, String src,
+      Supplier<String> lockReportInfoSupplier) {
+    writeUnlock(opName, false, lockReportInfoSupplier, src);
+  }
+
   /**
    * Unlocks FSNameSystem write lock.
    *
@@ -299,6 +356,11 @@ class FSNamesystemLock {
    */
   private void writeUnlock(String opName, boolean suppressWriteLockReport,
       Supplier<String> lockReportInfoSupplier) {
+    writeUnlock(opName, suppressWriteLockReport, lockReportInfoSupplier, null);
+  }
+
+  private void writeUnlock(String opName, boolean suppressWriteLockReport,
+      Supplier<String> lockReportInfoSupplier, String src) {
     final boolean needReport = !suppressWriteLockReport && coarseLock
         .getWriteHoldCount() == 1 && coarseLock.isWriteLockedByCurrentThread();
     final long writeLockIntervalNanos =
@@ -306,6 +368,7 @@ class FSNamesystemLock {
     final long currentTimeMs = timer.now();
     final long writeLockIntervalMs =
         TimeUnit.NANOSECONDS.toMillis(writeLockIntervalNanos);
+    final long writeLockWaitIntervalNanos = writeLockWaitNanos;
 
     LogAction logAction = LogThrottlingHelper.DO_NOT_LOG;
     if (needReport &&
@@ -333,6 +396,8 @@ class FSNamesystemLock {
 
     if (needReport) {
       addMetric(opName, writeLockIntervalNanos, true);
+      addSubtreeMetric(src, writeLockIntervalNanos,
+          writeLockWaitIntervalNanos);
     }
 
     if (logAction.shouldLog()) {
@@ -414,6 +479,60 @@ class FSNamesystemLock {
         isWrite ? Timing.LOCKEXCLUSIVE : Timing.LOCKSHARED, value);
   }
 
+  /**
+   * Add the write lock hold and wait time of a recent operation to the
+   * metrics of the subtree containing the path it mutated.
+   * @param src Path mutated by the operation, may be null
+   * @param holdNanos Length of time the lock was held (nanoseconds)
+   * @param waitNanos Length of time spent waiting for the lock (nanoseconds)
+   */
+  private void addSubtreeMetric(String src, long holdNanos, long waitNanos) {
+    if (subtreeMetricsDepth <= 0 || src == null) {
+      return;
+    }
+    String subtree = getSubtreeName(src, subtreeMetricsDepth);
+    if (!trackedSubtrees.contains(subtree)) {
+      if (trackedSubtrees.size() < subtreeMetricsMaxSubtrees) {
+        trackedSubtrees.add(subtree);
+      } else {
+        subtree = SUBTREE_NAME_OTHER;
+      }
+    }
+    detailedHoldTimeMetrics.add(
+        SUBTREE_HOLD_METRIC_PREFIX + subtree + LOCK_METRIC_SUFFIX, holdNanos);
+    detailedHoldTimeMetrics.add(
+        SUBTREE_WAIT_METRIC_PREFIX + subtree + LOCK_METRIC_SUFFIX, waitNanos);
+  }
+
+  /**
+   * Get the metric name fragment of the subtree made up of the first
+   * {@code depth} components of the given path. For example, with a depth
+   * of 2 the path /user/etl/part-0 maps to _user_etl. Characters which are
+   * not valid in metric names are replaced by an underscore.
+   */
+  @VisibleForTesting
+  static String getSubtreeName(String src, int depth) {
+    StringBuilder sb = new StringBuilder();
+    int components = 0;
+    int i = 0;
+    final int len = src.length();
+    while (i < len && components < depth) {
+      while (i < len && src.charAt(i) == Path.SEPARATOR_CHAR) {
+        i++;
+      }
+      if (i == len) {
+        break;
+      }
+      sb.append('_');
+      for (; i < len && src.charAt(i) != Path.SEPARATOR_CHAR; i++) {
+        char c = src.charAt(i);
+        sb.append(Character.isLetterOrDigit(c) ? c : '_');
+      }
+      components++;
+    }
+    return sb.length() == 0 ? "_" : sb.toString();
+  }
+
   private void doLock(boolean isWrite) {
     long startNanos = timer.monotonicNowNanos();
     if (isWrite) {
@@ -441,6 +560,7 @@ class FSNamesystemLock {
     if (isWrite) {
       if (coarseLock.getWriteHoldCount() == 1) {
         writeLockHeldTimeStampNanos = now;
+        writeLockWaitNanos = now - startNanos;
       }
     } else {
       if (coarseLock.getReadHoldCount() == 1) {
@@ -953,7 +953,7 @@ public abstract class INode implements INodeAttributes, Diff.Element<byte[]> {
     }
 
     public void addQuotaDirUpdate(INodeDirectory dir, QuotaCounts update) {
-      Preconditions.checkState(dir.isQuotaSet());
+      Preconditions.checkState(dir.isUsageTracked());
       QuotaCounts c = quotaDirMap.get(dir);
       if (c == null) {
         quotaDirMap.put(dir, update);
@@ -149,7 +149,7 @@ public class INodeDirectory extends INodeWithAdditionalFields
       } else {
         quota.setQuota(nsQuota, ssQuota);
       }
-      if (!isQuotaSet() && !isRoot()) {
+      if (!quota.isUsageTracked() && !isRoot()) {
         removeFeature(quota);
       }
     } else {
@@ -176,7 +176,7 @@ public class INodeDirectory extends INodeWithAdditionalFields
     super.addSpaceConsumed(counts);
 
     final DirectoryWithQuotaFeature q = getDirectoryWithQuotaFeature();
-    if (q != null && isQuotaSet()) {
+    if (q != null && q.isUsageTracked()) {
       q.addSpaceConsumed2Cache(counts);
     }
   }
@@ -194,6 +194,16 @@ public class INodeDirectory extends INodeWithAdditionalFields
     return getDirectoryWithQuotaFeature() != null;
   }
 
+  /**
+   * Is the usage of this directory kept up to date? This is the case for
+   * directories with a quota, and for all directories if usage tracking is
+   * enabled.
+   */
+  public final boolean isUsageTracked() {
+    final DirectoryWithQuotaFeature q = getDirectoryWithQuotaFeature();
+    return q != null && q.isUsageTracked();
+  }
+
   DirectoryWithQuotaFeature addDirectoryWithQuotaFeature(
       DirectoryWithQuotaFeature q) {
     Preconditions.checkState(!isWithQuota(), "Directory is already with quota");
@@ -633,7 +643,7 @@ public class INodeDirectory extends INodeWithAdditionalFields
     // computation only includes files/directories that exist at the time of the
     // given snapshot
     if (sf != null && lastSnapshotId != Snapshot.CURRENT_STATE_ID
-        && !(useCache && isQuotaSet())) {
+        && !(useCache && isUsageTracked())) {
       ReadOnlyList<INode> childrenList = getChildrenList(lastSnapshotId);
       for (INode child : childrenList) {
         final byte childPolicyId = child.getStoragePolicyIDForQuota(
@@ -647,10 +657,10 @@ public class INodeDirectory extends INodeWithAdditionalFields
     
     // compute the quota usage in the scope of the current directory tree
     final DirectoryWithQuotaFeature q = getDirectoryWithQuotaFeature();
-    if (useCache && q != null && q.isQuotaSet()) { // use the cached quota
+    if (useCache && q != null && q.isUsageTracked()) { // use the cached quota
       return q.AddCurrentSpaceUsage(counts);
     } else {
-      useCache = q != null && !q.isQuotaSet() ? false : useCache;
+      useCache = q != null && !q.isUsageTracked() ? false : useCache;
       return computeDirectoryQuotaUsage(bsps, blockStoragePolicyId, counts,
           useCache, lastSnapshotId);
     }
@@ -878,7 +888,7 @@ public class INodeDirectory extends INodeWithAdditionalFields
             null);
         QuotaCounts current = reclaimContext.quotaDelta().getCountsCopy();
         current.subtract(old);
-        if (isQuotaSet()) {
+        if (isUsageTracked()) {
           reclaimContext.quotaDelta().addQuotaDirUpdate(this, current);
         }
       }
@@ -19,8 +19,10 @@ package org.apache.hadoop.hdfs.server.namenode;
 
 import java.util.Iterator;
 
+import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.fs.permission.PermissionStatus;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.server.blockmanagement.BlockStoragePolicySuite;
 import org.apache.hadoop.util.GSet;
@@ -34,25 +36,41 @@ import org.apache.hadoop.util.Preconditions;
  */
 public class INodeMap {
   
-  static INodeMap newInstance(INodeDirectory rootDir) {
-    // Compute the map capacity by allocating 1% of total memory
-    int capacity = LightWeightGSet.computeCapacity(1, "INodeMap");
+  /**
+   * Create an INodeMap whose hash table is sized to hold references
+   * occupying the given percentage of the maximum heap.
+   * @param rootDir the root directory, added to the new map.
+   * @param heapPercent percentage of the maximum heap, in (0, 100].
+   */
+  static INodeMap newInstance(INodeDirectory rootDir, double heapPercent) {
+    Preconditions.checkArgument(heapPercent > 0 && heapPercent <= 100,
+        "Invalid %s: %s", DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY,
+        heapPercent);
+    int capacity = LightWeightGSet.computeCapacity(heapPercent, "INodeMap");
     GSet<INode, INodeWithAdditionalFields> map =
         new LightWeightGSet<>(capacity);
     map.put(rootDir);
-    return new INodeMap(map);
+    return new INodeMap(map, capacity);
   }
 
   /** Synchronized by external lock. */
   private final GSet<INode, INodeWithAdditionalFields> map;
+  /** Number of buckets of the hash table. */
+  private final int capacity;
   
   public Iterator<INodeWithAdditionalFields> getMapIterator() {
     return map.iterator();
   }
 
-  private INodeMap(GSet<INode, INodeWithAdditionalFields> map) {
+  private INodeMap(GSet<INode, INodeWithAdditionalFields> map, int capacity) {
     Preconditions.checkArgument(map != null);
     this.map = map;
+    this.capacity = capacity;
+  }
+
+  @VisibleForTesting
+  int getCapacity() {
+    return capacity;
   }
   
   /**
@@ -1241,6 +1241,18 @@ public class NameNodeRpcServer implements NamenodeProtocols {
         namesystem.getFileInfo(src, true, true, needBlockToken);
   }
 
+  @Override // ClientProtocol
+  public HdfsFileStatus[] getBatchedFileInfo(String[] srcs,
+      boolean needLocation) throws IOException {
+    checkNNStartup();
+    if (needLocation) {
+      metrics.incrGetBlockLocations();
+    } else {
+      metrics.incrFileInfoOps();
+    }
+    return namesystem.getBatchedFileInfo(srcs, needLocation);
+  }
+
   @Override // ClientProtocol
   public boolean isFileClosed(String src) throws IOException{
     checkNNStartup();
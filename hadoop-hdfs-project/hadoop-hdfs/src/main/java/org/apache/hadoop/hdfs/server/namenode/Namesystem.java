@@ -32,6 +32,11 @@ public interface Namesystem extends RwLock, SafeMode {
    */
   boolean isRunning();
 
+  /**
+   * @return the number of holds on the write lock by the current thread.
+   */
+  int getWriteHoldCount();
+
   BlockCollection getBlockCollection(long id);
 
   FSDirectory getFSDirectory();
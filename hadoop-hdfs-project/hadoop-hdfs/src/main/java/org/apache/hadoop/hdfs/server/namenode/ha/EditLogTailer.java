@@ -52,6 +52,7 @@ import org.apache.hadoop.hdfs.server.namenode.FSEditLog;
 import org.apache.hadoop.hdfs.server.namenode.FSImage;
 import org.apache.hadoop.hdfs.server.namenode.FSNamesystem;
 import org.apache.hadoop.hdfs.server.namenode.NameNode;
+import org.apache.hadoop.hdfs.server.namenode.metrics.NameNodeMetrics;
 import org.apache.hadoop.hdfs.server.protocol.NamenodeProtocol;
 import org.apache.hadoop.ipc.RPC;
 import org.apache.hadoop.security.SecurityUtil;
@@ -364,6 +365,7 @@ public class EditLogTailer {
       // for concern, so we don't catch them here. Simple errors reading from
       // disk are ignored.
       long editsLoaded = 0;
+      final long streamsLastTxId = getLastTxId(streams);
       try {
         editsLoaded = image.loadEdits(
             streams, namesystem, maxTxnsPerLock, null, null);
@@ -372,7 +374,17 @@ public class EditLogTailer {
         throw elie;
       } finally {
         LOG.debug("Loaded {} edits starting from txid {}.", editsLoaded, lastTxnId);
-        NameNode.getNameNodeMetrics().addNumEditLogLoaded(editsLoaded);
+        NameNodeMetrics metrics = NameNode.getNameNodeMetrics();
+        metrics.addNumEditLogLoaded(editsLoaded);
+        if (editsLoaded > 0) {
+          long applyTimeNanos = Math.max(1, image.getLastEditsApplyTimeNanos());
+          metrics.addEditLogReplayRate(
+              editsLoaded * TimeUnit.SECONDS.toNanos(1) / applyTimeNanos);
+        }
+        if (streamsLastTxId != HdfsServerConstants.INVALID_TXID) {
+          metrics.addEditLogTailUnappliedTxns(
+              Math.max(0, streamsLastTxId - image.getLastAppliedTxId()));
+        }
       }
 
       if (editsLoaded > 0) {
@@ -385,6 +397,18 @@ public class EditLogTailer {
     }
   }
 
+  /**
+   * @return the highest last transaction id of the given streams, or
+   * {@link HdfsServerConstants#INVALID_TXID} if none of them is known.
+   */
+  private static long getLastTxId(Collection<EditLogInputStream> streams) {
+    long lastTxId = HdfsServerConstants.INVALID_TXID;
+    for (EditLogInputStream stream : streams) {
+      lastTxId = Math.max(lastTxId, stream.getLastTxId());
+    }
+    return lastTxId;
+  }
+
   /**
    * @return time in msec of when we last loaded a non-zero number of edits.
    */
@@ -155,6 +155,14 @@ public class NameNodeMetrics {
   @Metric("Time between edit log tailing in msec")
   MutableRate editLogTailInterval;
   private final MutableQuantiles[] editLogTailIntervalQuantiles;
+  @Metric(value = "Edits applied per second by edit log tailing",
+      valueName = "Rate")
+  MutableStat editLogReplayRate;
+  private final MutableQuantiles[] editLogReplayRateQuantiles;
+  @Metric(value = "Number of transactions in the tailed edit log streams " +
+      "not yet applied", valueName = "Count")
+  MutableStat editLogTailUnappliedTxns;
+  private final MutableQuantiles[] editLogTailUnappliedTxnsQuantiles;
 
   @Metric("GetImageServlet getEdit")
   MutableRate getEdit;
@@ -184,6 +192,8 @@ public class NameNodeMetrics {
     editLogFetchTimeQuantiles = new MutableQuantiles[len];
     numEditLogLoadedQuantiles = new MutableQuantiles[len];
     editLogTailIntervalQuantiles = new MutableQuantiles[len];
+    editLogReplayRateQuantiles = new MutableQuantiles[len];
+    editLogTailUnappliedTxnsQuantiles = new MutableQuantiles[len];
 
     for (int i = 0; i < len; i++) {
       int interval = intervals[i];
@@ -221,6 +231,12 @@ public class NameNodeMetrics {
       editLogTailIntervalQuantiles[i] = registry.newQuantiles(
           "editLogTailInterval" + interval + "s",
           "Edit log tailing interval", "ops", "latency", interval);
+      editLogReplayRateQuantiles[i] = registry.newQuantiles(
+          "editLogReplayRate" + interval + "s",
+          "Edit log replay rate", "ops", "rate", interval);
+      editLogTailUnappliedTxnsQuantiles[i] = registry.newQuantiles(
+          "editLogTailUnappliedTxns" + interval + "s",
+          "Edit log tailing unapplied transactions", "ops", "count", interval);
     }
   }
 
@@ -481,4 +497,18 @@ public class NameNodeMetrics {
       q.add(elapsed);
     }
   }
+
+  public void addEditLogReplayRate(long editsPerSecond) {
+    editLogReplayRate.add(editsPerSecond);
+    for (MutableQuantiles q : editLogReplayRateQuantiles) {
+      q.add(editsPerSecond);
+    }
+  }
+
+  public void addEditLogTailUnappliedTxns(long unappliedTxns) {
+    editLogTailUnappliedTxns.add(unappliedTxns);
+    for (MutableQuantiles q : editLogTailUnappliedTxnsQuantiles) {
+      q.add(unappliedTxns);
+    }
+  }
 }
@@ -781,7 +781,7 @@ public class DirectoryWithSnapshotFeature implements INode.Feature {
 
     QuotaCounts current = reclaimContext.quotaDelta().getCountsCopy();
     current.subtract(old);
-    if (currentINode.isQuotaSet()) {
+    if (currentINode.isUsageTracked()) {
       reclaimContext.quotaDelta().addQuotaDirUpdate(currentINode, current);
     }
   }
@@ -19,6 +19,9 @@ package org.apache.hadoop.hdfs.server.namenode.startupprogress;
 
 import static org.apache.hadoop.metrics2.lib.Interns.info;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.Phase;
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.StartupProgressView;
@@ -79,6 +82,37 @@ public class StartupProgressMetrics implements MetricsSource {
       addCounter(builder, phase, "Total", " total", prog.getTotal(phase));
       addGauge(builder, phase, "PercentComplete", " percent complete",
         prog.getPercentComplete(phase));
+      addStepElapsedTimes(builder, prog, phase);
+    }
+  }
+
+  /**
+   * Adds a counter of the elapsed time of each type of step within the
+   * specified phase, named by appending the step type name and ElapsedTime to
+   * the phase name. Steps without a type, such as individual edit log files,
+   * are skipped. If several steps share a type, for example when saving a
+   * checkpoint to multiple storage directories, the longest time is reported.
+   *
+   * @param builder MetricsRecordBuilder to receive counters
+   * @param prog StartupProgressView to read
+   * @param phase Phase to add
+   */
+  private static void addStepElapsedTimes(MetricsRecordBuilder builder,
+      StartupProgressView prog, Phase phase) {
+    Map<StepType, Long> elapsedTimes = new EnumMap<>(StepType.class);
+    for (Step step: prog.getSteps(phase)) {
+      if (step.getType() != null) {
+        elapsedTimes.merge(step.getType(), prog.getElapsedTime(phase, step),
+            Math::max);
+      }
+    }
+    for (Map.Entry<StepType, Long> entry: elapsedTimes.entrySet()) {
+      StepType type = entry.getKey();
+      MetricsInfo metricsInfo = info(
+          phase.getName() + type.getName() + "ElapsedTime",
+          phase.getDescription() + " " + type.getDescription() +
+          " elapsed time");
+      builder.addCounter(metricsInfo, entry.getValue());
     }
   }
 
@@ -2551,5 +2551,31 @@ public class TestDistributedFileSystem {
     }
   }
 
-
+  @Test
+  public void testGetFileStatuses() throws Exception {
+    Configuration conf = getTestConfiguration();
+    try (MiniDFSCluster cluster =
+        new MiniDFSCluster.Builder(conf).numDataNodes(1).build()) {
+      DistributedFileSystem dfs = cluster.getFileSystem();
+      final Path dir = new Path("/testGetFileStatuses");
+      final Path file = new Path(dir, "file");
+      DFSTestUtil.createFile(dfs, file, 1024, (short) 1, 0L);
+      final Path missing = new Path(dir, "missing");
+
+      FileStatus[] stats = dfs.getFileStatuses(
+          Arrays.asList(file, missing, dir), false);
+      assertEquals(3, stats.length);
+      assertEquals(dfs.getFileStatus(file), stats[0]);
+      assertEquals(1024, stats[0].getLen());
+      assertNull(stats[1]);
+      assertTrue(stats[2].isDirectory());
+      assertEquals(dfs.makeQualified(dir), stats[2].getPath());
+
+      stats = dfs.getFileStatuses(Arrays.asList(file, dir), true);
+      assertTrue(stats[0] instanceof LocatedFileStatus);
+      assertEquals(1,
+          ((LocatedFileStatus) stats[0]).getBlockLocations().length);
+      assertTrue(stats[1].isDirectory());
+    }
+  }
 }
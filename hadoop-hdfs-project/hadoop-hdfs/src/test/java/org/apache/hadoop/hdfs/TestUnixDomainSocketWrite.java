@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.shortcircuit.DomainSocketFactory;
+import org.apache.hadoop.hdfs.shortcircuit.DomainSocketFactory.PathState;
+import org.apache.hadoop.net.unix.DomainSocket;
+import org.apache.hadoop.net.unix.TemporarySocketDirectory;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests writing through a pipeline whose first DataNode is reached over a
+ * UNIX domain socket.
+ */
+public class TestUnixDomainSocketWrite {
+
+  @Before
+  public void before() {
+    Assume.assumeThat(DomainSocket.getLoadingFailureReason(), equalTo(null));
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteOverDomainSocket() throws Exception {
+    try (TemporarySocketDirectory sockDir = new TemporarySocketDirectory()) {
+      HdfsConfiguration conf = new HdfsConfiguration();
+      conf.set(DFSConfigKeys.DFS_DOMAIN_SOCKET_PATH_KEY,
+          new File(sockDir.getDir(), "TestUnixDomainSocketWrite.%d.sock")
+              .getAbsolutePath());
+      conf.setBoolean(HdfsClientConfigKeys.Read.ShortCircuit.KEY, false);
+      conf.setBoolean(
+          HdfsClientConfigKeys.DFS_CLIENT_DOMAIN_SOCKET_DATA_TRAFFIC, true);
+      DomainSocket.disableBindPathValidation();
+      try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+          .numDataNodes(2).build()) {
+        cluster.waitActive();
+        FileSystem fs = cluster.getFileSystem();
+        Path file = new Path("/domain");
+        byte[] data = DFSTestUtil.generateSequentialBytes(0, 3 * 1024 * 1024);
+        try (FSDataOutputStream out = fs.create(file, (short) 2)) {
+          out.write(data, 0, data.length / 2);
+          out.hflush();
+          DFSOutputStream dfsOut = (DFSOutputStream) out.getWrappedStream();
+          assertTrue(dfsOut.getStreamer().isDomainSocketPipeline());
+          out.write(data, data.length / 2, data.length - data.length / 2);
+        }
+        DFSTestUtil.waitReplication(fs, file, (short) 2);
+        assertArrayEquals(data, DFSTestUtil.readFileBuffer(fs, file));
+      }
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void testFallbackToTcp() throws Exception {
+    try (TemporarySocketDirectory sockDir = new TemporarySocketDirectory()) {
+      HdfsConfiguration conf = new HdfsConfiguration();
+      conf.setBoolean(HdfsClientConfigKeys.Read.ShortCircuit.KEY, false);
+      DomainSocket.disableBindPathValidation();
+      try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+          .numDataNodes(1).build()) {
+        cluster.waitActive();
+        // The client looks for the DataNode on a socket which drops every
+        // connection before the pipeline is set up.
+        final String sockPath = new File(sockDir.getDir(),
+            "TestUnixDomainSocketWrite.%d.sock").getAbsolutePath();
+        final int port = cluster.getDataNodes().get(0).getXferPort();
+        HdfsConfiguration clientConf = new HdfsConfiguration(conf);
+        clientConf.set(DFSConfigKeys.DFS_DOMAIN_SOCKET_PATH_KEY, sockPath);
+        clientConf.setBoolean(
+            HdfsClientConfigKeys.DFS_CLIENT_DOMAIN_SOCKET_DATA_TRAFFIC, true);
+        clientConf.set(HdfsClientConfigKeys.DFS_CLIENT_CONTEXT,
+            "testFallbackToTcp");
+        try (DomainSocket serverSock = DomainSocket.bindAndListen(
+            DomainSocket.getEffectivePath(sockPath, port))) {
+          Thread acceptor = new Thread(() -> {
+            try {
+              while (true) {
+                serverSock.accept().close();
+              }
+            } catch (IOException e) {
+              // the socket was closed
+            }
+          });
+          acceptor.setDaemon(true);
+          acceptor.start();
+          try (DistributedFileSystem fs = (DistributedFileSystem)
+              FileSystem.newInstance(cluster.getURI(), clientConf)) {
+            Path file = new Path("/tcp");
+            byte[] data = DFSTestUtil.generateSequentialBytes(0, 1024 * 1024);
+            try (FSDataOutputStream out = fs.create(file, (short) 1)) {
+              out.write(data);
+              out.hflush();
+              DFSOutputStream dfsOut = (DFSOutputStream) out.getWrappedStream();
+              assertFalse(dfsOut.getStreamer().isDomainSocketPipeline());
+            }
+            assertArrayEquals(data, DFSTestUtil.readFileBuffer(fs, file));
+            // The path is not tried again.
+            DomainSocketFactory.PathInfo pathInfo = fs.getClient()
+                .getClientContext().getDomainSocketFactory().getPathInfo(
+                    new InetSocketAddress("127.0.0.1", port),
+                    fs.getClient().getConf().getShortCircuitConf());
+            assertEquals(PathState.UNUSABLE, pathInfo.getPathState());
+          }
+        }
+      }
+    }
+  }
+}
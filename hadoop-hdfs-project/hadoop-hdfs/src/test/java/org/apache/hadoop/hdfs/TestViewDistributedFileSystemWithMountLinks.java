@@ -20,16 +20,21 @@ package org.apache.hadoop.hdfs;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.viewfs.ConfigUtil;
 import org.apache.hadoop.fs.viewfs.TestViewFileSystemOverloadSchemeWithHdfsScheme;
 import org.apache.hadoop.fs.viewfs.ViewFsTestSetup;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.apache.hadoop.fs.viewfs.Constants.CONFIG_VIEWFS_IGNORE_PORT_IN_MOUNT_TABLE_NAME;
 import static org.apache.hadoop.fs.viewfs.Constants.CONFIG_VIEWFS_IGNORE_PORT_IN_MOUNT_TABLE_NAME_DEFAULT;
@@ -148,6 +153,51 @@ public class TestViewDistributedFileSystemWithMountLinks extends
     }
   }
 
+  @Test
+  public void testGetFileStatusesAcrossMountLinks() throws Exception {
+    Configuration conf = getConf();
+    URI defaultFSURI =
+        URI.create(conf.get(CommonConfigurationKeys.FS_DEFAULT_NAME_KEY));
+    final Path hdfsTargetPath = new Path(defaultFSURI + "/HDFSTarget");
+    final File localTargetDir = GenericTestUtils.getRandomizedTestDir();
+    ViewFsTestSetup.addMountLinksToConf(defaultFSURI.getAuthority(),
+        new String[] {"/HDFSUser", "/local"},
+        new String[] {hdfsTargetPath.toUri().toString(),
+            localTargetDir.toURI().toString()}, conf);
+    try (DistributedFileSystem dfs = new DistributedFileSystem()) {
+      dfs.initialize(defaultFSURI, conf);
+      dfs.mkdirs(hdfsTargetPath);
+    }
+
+    try (FileSystem fs = FileSystem.get(conf)) {
+      final Path hdfsFile = new Path("/HDFSUser/file");
+      final Path localFile = new Path("/local/file");
+      final Path fallbackFile = new Path("/fallbackFile");
+      DFSTestUtil.writeFile(fs, hdfsFile, "hdfs");
+      DFSTestUtil.writeFile(fs, localFile, "local file");
+      DFSTestUtil.writeFile(fs, fallbackFile, "fallback file");
+
+      final List<Path> paths = Arrays.asList(hdfsFile, localFile,
+          fallbackFile, new Path("/HDFSUser/missing"),
+          new Path("/local/missing"), new Path("/missing"));
+      final FileStatus[] statuses = ((DistributedFileSystem) fs)
+          .getFileStatuses(paths, false);
+      Assert.assertEquals(paths.size(), statuses.length);
+      for (int i = 0; i < 3; i++) {
+        Assert.assertNotNull(statuses[i]);
+        Assert.assertEquals(fs.getFileStatus(paths.get(i)), statuses[i]);
+        Assert.assertEquals(fs.makeQualified(paths.get(i)),
+            statuses[i].getPath());
+      }
+      Assert.assertEquals(4, statuses[0].getLen());
+      Assert.assertEquals(10, statuses[1].getLen());
+      Assert.assertEquals(13, statuses[2].getLen());
+      for (int i = 3; i < paths.size(); i++) {
+        Assert.assertNull(statuses[i]);
+      }
+    }
+  }
+
   private void verifyRename(FileSystem fs, Path src, Path dst)
       throws IOException {
     fs.rename(src, dst);
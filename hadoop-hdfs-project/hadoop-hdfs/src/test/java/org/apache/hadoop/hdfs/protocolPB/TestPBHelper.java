@@ -613,6 +613,25 @@ public class TestPBHelper {
     }
   }
 
+  @Test
+  public void testConvertLocatedBlockListDatanodeSnapshots() {
+    // Two snapshots of the same datanode are equal but carry other stats
+    DatanodeID id = DFSTestUtil.getLocalDatanodeID();
+    DatanodeInfo dn0 = new DatanodeInfoBuilder().setNodeID(id)
+        .setDfsUsed(1000L).build();
+    DatanodeInfo dn1 = new DatanodeInfoBuilder().setNodeID(id)
+        .setDfsUsed(2000L).build();
+    assertEquals(dn0, dn1);
+    List<LocatedBlock> lbl = Arrays.asList(
+        new LocatedBlock(new ExtendedBlock("bp12", 1), new DatanodeInfo[]{dn0}),
+        new LocatedBlock(new ExtendedBlock("bp12", 2), new DatanodeInfo[]{dn1}),
+        new LocatedBlock(new ExtendedBlock("bp12", 3), new DatanodeInfo[]{dn0}));
+    List<LocatedBlockProto> lbpl = PBHelperClient.convertLocatedBlocks2(lbl);
+    assertEquals(1000L, lbpl.get(0).getLocs(0).getDfsUsed());
+    assertEquals(2000L, lbpl.get(1).getLocs(0).getDfsUsed());
+    assertEquals(1000L, lbpl.get(2).getLocs(0).getDfsUsed());
+  }
+
   @Test
   public void testConvertDatanodeRegistration() {
     DatanodeID dnId = DFSTestUtil.getLocalDatanodeID();
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.balancer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AdaptiveMoveConcurrency}.
+ */
+public class TestAdaptiveMoveConcurrency {
+  private static final long BLOCK = 128L * 1024 * 1024;
+
+  private long now = 0;
+
+  /**
+   * Run a round of moves on a datanode which moves at most maxRate bytes per
+   * millisecond, and each move at most at moveRate bytes per millisecond.
+   */
+  private void runRound(AdaptiveMoveConcurrency concurrency, long maxRate,
+      long moveRate) {
+    int moves = concurrency.getLimit();
+    long rate = Math.min(maxRate, moves * moveRate);
+    concurrency.moveStarted(now);
+    now += moves * BLOCK / rate;
+    for (int i = 0; i < moves; i++) {
+      concurrency.moveSucceeded(BLOCK, now);
+    }
+  }
+
+  @Test
+  public void testConvergesToThroughputKnee() {
+    AdaptiveMoveConcurrency concurrency =
+        new AdaptiveMoveConcurrency("dn", 2, 100);
+    // Each move alone runs at 10 MB/s, the datanode saturates at 80 MB/s.
+    for (int i = 0; i < 20; i++) {
+      runRound(concurrency, 80 * 1024, 10 * 1024);
+    }
+    // More moves than the knee do not improve the throughput.
+    assertEquals(9, concurrency.getLimit());
+
+    // The datanode gets slower: the limit is not raised further.
+    for (int i = 0; i < 5; i++) {
+      runRound(concurrency, 40 * 1024, 10 * 1024);
+    }
+    assertEquals(8, concurrency.getLimit());
+  }
+
+  @Test
+  public void testFailureHalvesLimit() {
+    AdaptiveMoveConcurrency concurrency =
+        new AdaptiveMoveConcurrency("dn", 10, 16);
+    concurrency.moveFailed(now);
+    assertEquals(5, concurrency.getLimit());
+    concurrency.moveFailed(now);
+    concurrency.moveFailed(now);
+    concurrency.moveFailed(now);
+    assertEquals(1, concurrency.getLimit());
+
+    // Bounded by the maximum.
+    for (int i = 0; i < 40; i++) {
+      runRound(concurrency, Long.MAX_VALUE, (i + 1) * 1024);
+    }
+    assertEquals(16, concurrency.getLimit());
+  }
+}
@@ -1086,6 +1086,17 @@ public class TestBalancer {
         new String[]{RACK0, RACK1});
   }
 
+  /** Test unevenly distributed cluster with adaptive move concurrency */
+  @Test(timeout=100000)
+  public void testBalancerWithAdaptiveConcurrency() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_ENABLED_KEY, true);
+    conf.setInt(
+        DFSConfigKeys.DFS_BALANCER_ADAPTIVE_CONCURRENCY_INITIAL_MOVES_KEY, 1);
+    testBalancer1Internal(conf);
+  }
+
   @Test(expected=HadoopIllegalArgumentException.class)
   public void testBalancerWithZeroThreadsForMove() throws Exception {
     Configuration conf = new HdfsConfiguration();
@@ -39,10 +39,12 @@ import org.apache.hadoop.hdfs.DFSTestUtil;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.MiniDFSCluster.DataNodeProperties;
 import org.apache.hadoop.hdfs.StripedFileTestUtil;
 import org.apache.hadoop.hdfs.protocol.Block;
 import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
 import org.apache.hadoop.hdfs.protocol.BlockType;
+import org.apache.hadoop.hdfs.protocol.DatanodeID;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicy;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
@@ -112,6 +114,7 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.hadoop.hdfs.server.common.HdfsServerConstants.BlockUCState.UNDER_CONSTRUCTION;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
@@ -120,6 +123,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -209,6 +213,25 @@ public class TestBlockManager {
     bm.removeBlocksAssociatedTo(deadNode);
   }
 
+  @Test
+  public void testBlocksMapHeapPercent() throws IOException {
+    Configuration conf = new HdfsConfiguration();
+    conf.setDouble(DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY, 0.5);
+    BlockManager smallBm = new BlockManager(fsn, false, conf);
+    assertEquals(LightWeightGSet.computeCapacity(0.5, "BlocksMap"),
+        smallBm.getCapacity());
+    assertTrue(smallBm.getCapacity() < bm.getCapacity());
+
+    conf.setDouble(DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY, 0);
+    try {
+      new BlockManager(fsn, false, conf);
+      fail("BlockManager should reject a non-positive BlocksMap percentage");
+    } catch (IllegalArgumentException e) {
+      GenericTestUtils.assertExceptionContains(
+          DFSConfigKeys.DFS_NAMENODE_BLOCKSMAP_HEAP_PERCENT_KEY, e);
+    }
+  }
+
 
   /**
    * Test that replication of under-replicated blocks is detected
@@ -1560,6 +1583,182 @@ public class TestBlockManager {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testFullBlockReportYieldsLock() throws Exception {
+    final Configuration conf = new HdfsConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_KEY, 2);
+    final MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).storagesPerDatanode(1).build();
+    final BlockManagerFaultInjector injector =
+        BlockManagerFaultInjector.getInstance();
+    try {
+      cluster.waitActive();
+      final FSNamesystem namesystem = cluster.getNamesystem();
+      final DatanodeManager dm =
+          namesystem.getBlockManager().getDatanodeManager();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      for (int i = 0; i < 10; i++) {
+        DFSTestUtil.createFile(fs, new Path("/file" + i), 1024, (short) 1, 0L);
+      }
+
+      // Drop the replicas of the datanode, so that its first report after
+      // restarting adds them again. While that report releases the lock,
+      // another writer gets it and sees a partially applied report.
+      final DatanodeID dnId = cluster.getDataNodes().get(0).getDatanodeId();
+      final DataNodeProperties dnProps = cluster.stopDataNode(0);
+      dm.removeDatanode(dnId);
+      assertEquals(0, dm.getDatanode(dnId).numBlocks());
+      final AtomicInteger numReleases = new AtomicInteger();
+      final AtomicInteger numBlocksSeen = new AtomicInteger(-1);
+      BlockManagerFaultInjector.instance = new BlockManagerFaultInjector() {
+        @Override
+        public void blockReportLockReleased(DatanodeStorageInfo storageInfo) {
+          if (numReleases.getAndIncrement() == 0) {
+            Thread writer = new Thread(() -> {
+              namesystem.writeLock();
+              try {
+                numBlocksSeen.set(storageInfo.numBlocks());
+              } finally {
+                namesystem.writeUnlock();
+              }
+            });
+            writer.start();
+            try {
+              writer.join(10000);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+      };
+      cluster.restartDataNode(dnProps, true);
+      cluster.waitActive();
+      final DataNode dn = cluster.getDataNodes().get(0);
+      final DatanodeDescriptor dd = dm.getDatanode(dn.getDatanodeId());
+      GenericTestUtils.waitFor(
+          () -> dd.getStorageInfos()[0].getBlockReportCount() > 0, 100, 10000);
+      assertEquals(10, dd.numBlocks());
+      // The lock was released after every 2 of the 10 replicas.
+      assertEquals(4, numReleases.get());
+      assertEquals(2, numBlocksSeen.get());
+
+      // Later reports are applied in one lock hold per storage.
+      numReleases.set(0);
+      final String bpid = namesystem.getBlockPoolId();
+      final Block[] dropped = new Block[4];
+      for (int i = 0; i < dropped.length; i++) {
+        dropped[i] = DFSTestUtil.getFirstBlock(fs, new Path("/file" + i))
+            .getLocalBlock();
+      }
+      dn.getFSDataset().invalidate(bpid, dropped);
+      cluster.triggerBlockReports();
+      GenericTestUtils.waitFor(() -> dd.numBlocks() == 6, 100, 10000);
+      assertEquals(0, numReleases.get());
+    } finally {
+      BlockManagerFaultInjector.instance = injector;
+      cluster.shutdown();
+    }
+  }
+
+  /**
+   * Test that a first full block report is aborted if its storage fails
+   * while the report releases the lock, and that the next full report of
+   * the storage adds all its replicas.
+   */
+  @Test(timeout = 60000)
+  public void testFullBlockReportAbortedOnStorageRemoval() throws Exception {
+    final Configuration conf = new HdfsConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BLOCKS_PER_LOCK_KEY, 2);
+    final MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).storagesPerDatanode(1).build();
+    final BlockManagerFaultInjector injector =
+        BlockManagerFaultInjector.getInstance();
+    try {
+      cluster.waitActive();
+      final FSNamesystem namesystem = cluster.getNamesystem();
+      final BlockManager bm = namesystem.getBlockManager();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      final List<Block> blocks = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        final Path file = new Path("/file" + i);
+        DFSTestUtil.createFile(fs, file, 1024, (short) 1, 0L);
+        blocks.add(DFSTestUtil.getFirstBlock(fs, file).getLocalBlock());
+      }
+
+      // Stop the datanode from sending its own reports, and make its
+      // storage look freshly registered, so that the report sent below is
+      // processed as a first report.
+      final DataNode dn = cluster.getDataNodes().get(0);
+      DataNodeTestUtils.setHeartbeatsDisabledForTests(dn, true);
+      final DatanodeDescriptor dd =
+          bm.getDatanodeManager().getDatanode(dn.getDatanodeId());
+      final DatanodeStorageInfo storageInfo = dd.getStorageInfos()[0];
+      namesystem.writeLock();
+      try {
+        bm.removeBlocksAssociatedTo(storageInfo);
+        storageInfo.setBlockReportCount(0);
+      } finally {
+        namesystem.writeUnlock();
+      }
+      assertEquals(0, dd.numBlocks());
+      final Entry<DatanodeStorage, BlockListAsLongs> report = dn.getFSDataset()
+          .getBlockReports(namesystem.getBlockPoolId()).entrySet().iterator()
+          .next();
+
+      // Fail the storage the first time the report releases the lock, as
+      // the HeartbeatManager does for a failed volume.
+      final AtomicInteger numReleases = new AtomicInteger();
+      BlockManagerFaultInjector.instance = new BlockManagerFaultInjector() {
+        @Override
+        public void blockReportLockReleased(DatanodeStorageInfo storage) {
+          if (numReleases.getAndIncrement() == 0) {
+            namesystem.writeLock();
+            try {
+              storage.setState(DatanodeStorage.State.FAILED);
+              bm.removeBlocksAssociatedTo(storage);
+            } finally {
+              namesystem.writeUnlock();
+            }
+          }
+        }
+      };
+      final Callable<Boolean> processReport = () -> bm.processReport(
+          dn.getDatanodeId(), report.getKey(), report.getValue(), null);
+      try {
+        bm.runBlockOp(processReport);
+        fail("The block report should be aborted");
+      } catch (IOException e) {
+        GenericTestUtils.assertExceptionContains("was removed", e);
+      }
+      assertEquals(1, numReleases.get());
+      assertEquals(0, storageInfo.getBlockReportCount());
+      assertEquals(0, storageInfo.numBlocks());
+      for (Block b : blocks) {
+        assertEquals(0, bm.blocksMap.numNodes(b));
+      }
+
+      // The next heartbeat restores the storage, and its next report is
+      // processed as a first report again.
+      namesystem.writeLock();
+      try {
+        dd.updateStorage(report.getKey());
+      } finally {
+        namesystem.writeUnlock();
+      }
+      bm.runBlockOp(processReport);
+      assertEquals(5, numReleases.get());
+      assertEquals(1, storageInfo.getBlockReportCount());
+      assertEquals(DatanodeStorage.State.NORMAL, storageInfo.getState());
+      assertEquals(blocks.size(), storageInfo.numBlocks());
+      for (Block b : blocks) {
+        assertEquals(1, bm.blocksMap.numNodes(b));
+      }
+    } finally {
+      BlockManagerFaultInjector.instance = injector;
+      cluster.shutdown();
+    }
+  }
+
   @Test(timeout = 60000)
   public void testBlockManagerMachinesArray() throws Exception {
     final Configuration conf = new HdfsConfiguration();
@@ -1425,6 +1425,11 @@ public class SimulatedFSDataset implements FsDatasetSpi<FsVolumeSpi> {
     return block.getNumBytes();
   }
 
+  @Override // FsDatasetSpi
+  public BlockChecksumSummary getBlockChecksumSummary(ExtendedBlock block) {
+    return null;
+  }
+
   @Override // FsDatasetSpi
   public void addBlockPool(String bpid, Configuration conf) {
     for (SimulatedStorage storage : storages) {
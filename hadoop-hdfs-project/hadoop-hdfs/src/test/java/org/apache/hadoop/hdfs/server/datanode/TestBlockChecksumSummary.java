@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.Block;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.CrcComposer;
+import org.apache.hadoop.util.DataChecksum;
+import org.junit.Test;
+
+/**
+ * Tests the checksum summaries persisted for finalized replicas.
+ */
+public class TestBlockChecksumSummary {
+  private static final int BYTES_PER_CHECKSUM = 512;
+  private static final int GROUP_SIZE = 8 * BYTES_PER_CHECKSUM;
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  @Test
+  public void testCompute() throws Exception {
+    DataChecksum checksum = DataChecksum.newDataChecksum(
+        DataChecksum.Type.CRC32C, BYTES_PER_CHECKSUM);
+    // Not a multiple of the group size, with a final partial chunk.
+    byte[] data = new byte[20 * GROUP_SIZE + 3 * BYTES_PER_CHECKSUM + 100];
+    new Random(0xC5C5L).nextBytes(data);
+    int numChunks = (data.length + BYTES_PER_CHECKSUM - 1) / BYTES_PER_CHECKSUM;
+    byte[] crcs = new byte[numChunks * checksum.getChecksumSize()];
+    checksum.calculateChunkedSums(data, 0, data.length, crcs, 0);
+
+    ByteArrayOutputStream meta = new ByteArrayOutputStream();
+    DataOutputStream metaOut = new DataOutputStream(meta);
+    BlockMetadataHeader.writeHeader(metaOut, checksum);
+    metaOut.write(crcs);
+    metaOut.flush();
+    BlockChecksumSummary summary = BlockChecksumSummary.compute(1001,
+        data.length, new DataInputStream(
+            new ByteArrayInputStream(meta.toByteArray())),
+        meta.size(), GROUP_SIZE);
+
+    assertArrayEquals(MD5Hash.digest(crcs).getDigest(), summary.getMd5Crc());
+    assertEquals(numChunks, summary.getNumChunks());
+    for (long stripeLength : new long[] {0, GROUP_SIZE, 4 * GROUP_SIZE,
+        data.length}) {
+      assertArrayEquals(composeCrcs(crcs, data.length, stripeLength),
+          summary.getCompositeCrc(stripeLength));
+    }
+    // Stripes which do not align with the groups are not served.
+    assertNull(summary.getCompositeCrc(GROUP_SIZE + BYTES_PER_CHECKSUM));
+
+    ByteArrayOutputStream persisted = new ByteArrayOutputStream();
+    summary.write(new DataOutputStream(persisted));
+    BlockChecksumSummary read = BlockChecksumSummary.read(new DataInputStream(
+        new ByteArrayInputStream(persisted.toByteArray())));
+    assertTrue(read.isValidFor(1001, data.length, meta.size()));
+    assertFalse(read.isValidFor(1002, data.length, meta.size()));
+    assertFalse(read.isValidFor(1001, data.length - 1, meta.size()));
+    assertArrayEquals(summary.getMd5Crc(), read.getMd5Crc());
+    assertArrayEquals(summary.getCompositeCrc(0), read.getCompositeCrc(0));
+
+    // The meta file does not match the replica length.
+    assertNull(BlockChecksumSummary.compute(1001, data.length + 1000,
+        new DataInputStream(new ByteArrayInputStream(meta.toByteArray())),
+        meta.size(), GROUP_SIZE));
+  }
+
+  private static byte[] composeCrcs(byte[] crcs, long dataLength,
+      long stripeLength) throws IOException {
+    if (stripeLength <= 0 || stripeLength > dataLength) {
+      stripeLength = dataLength;
+    }
+    CrcComposer composer = CrcComposer.newStripedCrcComposer(
+        DataChecksum.Type.CRC32C, BYTES_PER_CHECKSUM, stripeLength);
+    int fullChunks = (int) (dataLength / BYTES_PER_CHECKSUM);
+    composer.update(crcs, 0, fullChunks * 4, BYTES_PER_CHECKSUM);
+    if (dataLength % BYTES_PER_CHECKSUM > 0) {
+      composer.update(crcs, fullChunks * 4, 4,
+          dataLength % BYTES_PER_CHECKSUM);
+    }
+    return composer.digest();
+  }
+
+  private static Configuration getConf() {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_ENABLED_KEY, true);
+    conf.setLong(
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_PERSIST_GROUP_SIZE_KEY,
+        GROUP_SIZE);
+    conf.setInt(DFSConfigKeys.DFS_BYTES_PER_CHECKSUM_KEY, BYTES_PER_CHECKSUM);
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+    return conf;
+  }
+
+  private static Set<String> listFinalized(MiniDFSCluster cluster,
+      String suffix) throws IOException {
+    try (Stream<java.nio.file.Path> files = Files.walk(
+        new File(cluster.getDataDirectory()).toPath())) {
+      return files.map(java.nio.file.Path::toString)
+          .filter(f -> f.contains("finalized") && f.endsWith(suffix))
+          .collect(Collectors.toSet());
+    }
+  }
+
+  private static Set<String> listSummaries(MiniDFSCluster cluster)
+      throws IOException {
+    return listFinalized(cluster, BlockChecksumSummary.SUMMARY_EXTENSION);
+  }
+
+  /**
+   * Wait until every finalized replica has a summary, and no summary is left
+   * behind for replicas which changed.
+   */
+  private static void waitForSummaries(MiniDFSCluster cluster)
+      throws Exception {
+    GenericTestUtils.waitFor(() -> {
+      try {
+        Set<String> expected = listFinalized(cluster,
+            Block.METADATA_EXTENSION).stream()
+            .map(f -> f + BlockChecksumSummary.SUMMARY_EXTENSION)
+            .collect(Collectors.toSet());
+        return expected.equals(listSummaries(cluster));
+      } catch (IOException e) {
+        return false;
+      }
+    }, 100, 30000);
+  }
+
+  private static FileChecksum[] getChecksums(FileSystem md5Fs,
+      FileSystem compositeFs, Path file) throws IOException {
+    return new FileChecksum[] {md5Fs.getFileChecksum(file),
+        compositeFs.getFileChecksum(file)};
+  }
+
+  @Test(timeout = 120000)
+  public void testServeFromSummary() throws Exception {
+    Configuration conf = getConf();
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).build()) {
+      cluster.waitActive();
+      Configuration compositeConf = new Configuration(conf);
+      compositeConf.set(HdfsClientConfigKeys.DFS_CHECKSUM_COMBINE_MODE_KEY,
+          "COMPOSITE_CRC");
+      FileSystem fs = cluster.getFileSystem();
+      FileSystem compositeFs =
+          FileSystem.newInstance(cluster.getURI(), compositeConf);
+      Path file = new Path("/file");
+      DFSTestUtil.createFile(fs, file, 2 * BLOCK_SIZE + GROUP_SIZE + 100,
+          (short) 1, 0xFEEDL);
+      waitForSummaries(cluster);
+      assertEquals(3, listSummaries(cluster).size());
+      FileChecksum[] fromSummaries = getChecksums(fs, compositeFs, file);
+
+      // Corrupt the CRCs of a block in place: checksums are still served
+      // from the summaries, without reading the meta files.
+      String metaFile = listFinalized(cluster,
+          Block.METADATA_EXTENSION)
+          .iterator().next();
+      try (RandomAccessFile raf = new RandomAccessFile(metaFile, "rw")) {
+        raf.seek(BlockMetadataHeader.getHeaderSize());
+        raf.writeInt(raf.readInt() ^ 0xFF);
+      }
+      assertArrayEquals(fromSummaries, getChecksums(fs, compositeFs, file));
+
+      // Without the summaries, they are recomputed from the meta files.
+      for (String summary : listSummaries(cluster)) {
+        assertTrue(new File(summary).delete());
+      }
+      FileChecksum[] fromMetaFiles = getChecksums(fs, compositeFs, file);
+      assertNotEquals(fromSummaries[0], fromMetaFiles[0]);
+      assertNotEquals(fromSummaries[1], fromMetaFiles[1]);
+      assertEquals(3, listSummaries(cluster).size());
+      assertArrayEquals(fromMetaFiles, getChecksums(fs, compositeFs, file));
+      compositeFs.close();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void testAppendAndTruncate() throws Exception {
+    Configuration conf = getConf();
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).build()) {
+      cluster.waitActive();
+      Configuration compositeConf = new Configuration(conf);
+      compositeConf.set(HdfsClientConfigKeys.DFS_CHECKSUM_COMBINE_MODE_KEY,
+          "COMPOSITE_CRC");
+      DistributedFileSystem fs = cluster.getFileSystem();
+      FileSystem compositeFs =
+          FileSystem.newInstance(cluster.getURI(), compositeConf);
+      byte[] data = new byte[BLOCK_SIZE + 3 * GROUP_SIZE];
+      new Random(0xA99EL).nextBytes(data);
+
+      Path file = new Path("/file");
+      DFSTestUtil.writeFile(fs, file, Arrays.copyOf(data, BLOCK_SIZE + 100));
+      waitForSummaries(cluster);
+      FileChecksum[] beforeAppend = getChecksums(fs, compositeFs, file);
+
+      try (FSDataOutputStream out = fs.append(file)) {
+        out.write(data, BLOCK_SIZE + 100, data.length - BLOCK_SIZE - 100);
+      }
+      waitForSummaries(cluster);
+      FileChecksum[] afterAppend = getChecksums(fs, compositeFs, file);
+      assertNotEquals(beforeAppend[0], afterAppend[0]);
+      Path expected = new Path("/expected");
+      DFSTestUtil.writeFile(fs, expected, data);
+      assertArrayEquals(getChecksums(fs, compositeFs, expected), afterAppend);
+
+      int truncatedLength = BLOCK_SIZE + GROUP_SIZE + 10;
+      if (!fs.truncate(file, truncatedLength)) {
+        GenericTestUtils.waitFor(() -> {
+          try {
+            return fs.isFileClosed(file);
+          } catch (IOException e) {
+            return false;
+          }
+        }, 100, 30000);
+      }
+      Path expectedTruncated = new Path("/expectedTruncated");
+      DFSTestUtil.writeFile(fs, expectedTruncated,
+          Arrays.copyOf(data, truncatedLength));
+      assertArrayEquals(getChecksums(fs, compositeFs, expectedTruncated),
+          getChecksums(fs, compositeFs, file));
+      // The replica recovered by the truncate has a summary again.
+      waitForSummaries(cluster);
+      compositeFs.close();
+    }
+  }
+}
@@ -46,6 +46,7 @@ import org.junit.Assume;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -481,6 +482,39 @@ public class TestDataNodeMetrics {
     }
   }
 
+  @Test
+  public void testDataNodeXceiversOnVirtualThreads() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_TRANSFER_VIRTUAL_THREADS_ENABLED_KEY, true);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build();
+    try {
+      FileSystem fs = cluster.getFileSystem();
+      DataNode datanode = cluster.getDataNodes().get(0);
+      // Falls back to platform threads on JVMs without virtual threads
+      assertEquals(DataXceiverServer.newVirtualThreadFactory() != null,
+          datanode.getXferServer().isUsingVirtualThreads());
+
+      Path path = new Path("/testDataNodeXceiversOnVirtualThreads");
+      DFSTestUtil.createFile(fs, path, 1024, (short) 1, 0L);
+      assertEquals(1024, DFSTestUtil.readFile(fs, path).length());
+
+      MetricsRecordBuilder rb = getMetrics(datanode.getMetrics().name());
+      assertTrue(getLongCounter("DataNodeXceiverStartDelayNumOps", rb) >= 2);
+      assertCounter("DataNodeXceiversRejected", 0L, rb);
+
+      // The xceiver of an open reader is stopped with the DataNode
+      try (FSDataInputStream in = fs.open(path)) {
+        in.read();
+        DataXceiverServer xserver = datanode.getXferServer();
+        cluster.stopDataNode(0);
+        assertEquals(0, xserver.getNumVirtualXceiverThreads());
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testDataNodeMXBeanActiveThreadCount() throws Exception {
     Configuration conf = new Configuration();
@@ -562,6 +562,98 @@ public class TestDirectoryScanner {
     }
   }
 
+  @Test(timeout = 600000)
+  public void testIncrementalScan() throws Exception {
+    Configuration conf = getConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_INCREMENTAL_ENABLED_KEY, true);
+    cluster = new MiniDFSCluster.Builder(conf).build();
+    try {
+      cluster.waitActive();
+      bpid = cluster.getNamesystem().getBlockPoolId();
+      fds = DataNodeTestUtils.getFSDataset(cluster.getDataNodes().get(0));
+      client = cluster.getFileSystem().getClient();
+      createFile(GenericTestUtils.getMethodName(), BLOCK_LENGTH * 20, false);
+
+      // Age the block directories, recent modification times are not trusted.
+      long mtime = Time.now() - 10000;
+      try (FsVolumeReferences volumes = fds.getFsVolumeReferences()) {
+        for (FsVolumeSpi vol : volumes) {
+          File finalizedDir = ((FsVolumeImpl) vol).getFinalizedDir(bpid);
+          for (File subdir : finalizedDir.listFiles()) {
+            for (File leaf : subdir.listFiles()) {
+              assertTrue(leaf.setLastModified(mtime));
+            }
+          }
+        }
+      }
+
+      scanner = new DirectoryScanner(fds, conf);
+      scanner.setRetainDiffs(true);
+
+      // The first scan is a full scan.
+      scan(20, 0, 0, 0, 0, 0);
+      assertEquals(0, scanner.stats.get(bpid).skippedBlockDirs);
+
+      // Nothing changed, every block directory is skipped.
+      scan(0, 0, 0, 0, 0, 0);
+      assertTrue(scanner.stats.get(bpid).skippedBlockDirs > 0);
+      long skippedDirs = 0;
+      try (FsVolumeReferences volumes = fds.getFsVolumeReferences()) {
+        for (FsVolumeSpi vol : volumes) {
+          skippedDirs += vol.getMetrics().getDirectoryScanSkippedDirs();
+        }
+      }
+      assertTrue(skippedDirs > 0);
+
+      // Deleting a block file changes its directory, which is listed again.
+      final long blockId = deleteBlockFile();
+      scanner.reconcile();
+      DirectoryScanner.Stats stats = scanner.stats.get(bpid);
+      assertEquals(1, stats.missingBlockFile);
+      assertEquals(1, scanner.diffs.getScanInfo(bpid).size());
+      assertEquals(blockId,
+          scanner.diffs.getScanInfo(bpid).get(0).getBlockId());
+      long diffs = 0;
+      try (FsVolumeReferences volumes = fds.getFsVolumeReferences()) {
+        for (FsVolumeSpi vol : volumes) {
+          diffs += vol.getMetrics().getDirectoryScanDiffs();
+        }
+      }
+      assertEquals(1, diffs);
+
+      // The directories of removed volumes are forgotten.
+      assertTrue(scanner.getNumBlockDirMtimes() > 0);
+      List<StorageLocation> locations = new ArrayList<>();
+      try (FsVolumeReferences volumes = fds.getFsVolumeReferences()) {
+        for (FsVolumeSpi vol : volumes) {
+          locations.add(vol.getStorageLocation());
+        }
+      }
+      scanner.removeVolumes(locations);
+      assertEquals(0, scanner.getNumBlockDirMtimes());
+    } finally {
+      if (scanner != null) {
+        scanner.shutdown();
+        scanner = null;
+      }
+      cluster.shutdown();
+    }
+  }
+
+  @Test
+  public void testBlockDirIndex() {
+    File root = new File("finalized");
+    for (long blockId : new long[] {0, 1073741825L, 0x1F1F00L, -1L}) {
+      File dir = DatanodeUtil.idToBlockDir(root, blockId);
+      int index = DirectoryScanner.blockDirIndex(blockId);
+      assertEquals(dir.getParentFile().getName(),
+          DataStorage.BLOCK_SUBDIR_PREFIX + (index >> 5));
+      assertEquals(dir.getName(),
+          DataStorage.BLOCK_SUBDIR_PREFIX + (index & 0x1F));
+    }
+  }
+
   @Test(timeout = 600000)
   public void testDirectoryScanner() throws Exception {
     // Run the test with and without parallel scanning
@@ -19,10 +19,14 @@ package org.apache.hadoop.hdfs.server.datanode;
 
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CreateFlag;
@@ -31,9 +35,12 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.AppendTestUtil;
+import org.apache.hadoop.hdfs.DFSTestUtil;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream.SyncFlag;
 import org.apache.hadoop.io.RandomDatum;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
@@ -207,4 +214,52 @@ public class TestHSync {
     checkSyncMetric(cluster, 2, 2);
     cluster.shutdown();
   }
+
+  /** Test that asynchronous hsyncs of the same data share one sync */
+  @Test
+  public void testHSyncAsync() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build();
+    final FileSystem fs = cluster.getFileSystem();
+
+    final Path p = new Path("/testHSyncAsync/foo");
+    HdfsDataOutputStream out = (HdfsDataOutputStream) fs.create(p);
+    out.write(1);
+    CompletableFuture<Void> f1 =
+        out.hsyncAsync(EnumSet.noneOf(SyncFlag.class));
+    CompletableFuture<Void> f2 = out.hsyncAsync();
+    CompletableFuture<Void> f3 = out.hflushAsync();
+    f1.get();
+    f2.get();
+    f3.get();
+    checkSyncMetric(cluster, 1);
+
+    // data written while a sync is in flight is not covered by it
+    out.write(2);
+    CompletableFuture<Void> f4 = out.hsyncAsync();
+    out.write(3);
+    f4.get();
+    checkSyncMetric(cluster, 2);
+    out.hflushAsync().get();
+    assertArrayEquals(new byte[] {1, 2, 3}, DFSTestUtil.readFileAsBytes(fs, p));
+    checkSyncMetric(cluster, 2);
+
+    out.write(4);
+    out.hsyncAsync(EnumSet.of(SyncFlag.UPDATE_LENGTH)).get();
+    checkSyncMetric(cluster, 3);
+    assertEquals(4, fs.getFileStatus(p).getLen());
+
+    // close waits for the length update of a pending sync
+    out.write(5);
+    CompletableFuture<Void> f5 =
+        out.hsyncAsync(EnumSet.of(SyncFlag.UPDATE_LENGTH));
+    out.close();
+    f5.get();
+    assertEquals(5, fs.getFileStatus(p).getLen());
+
+    CompletableFuture<Void> f6 =
+        out.hsyncAsync(EnumSet.noneOf(SyncFlag.class));
+    assertTrue(f6.isCompletedExceptionally());
+    cluster.shutdown();
+  }
 }
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.junit.Test;
+
+/**
+ * Tests the hot block cache of the DataNode.
+ */
+public class TestHotBlockCache {
+  private static final String BPID = "BP-1";
+  private static final int SEGMENT_SIZE = 1024;
+
+  private static HotBlockCache.Key key(long blockId) {
+    return new HotBlockCache.Key(BPID, blockId, 1001, 0);
+  }
+
+  private static boolean read(HotBlockCache cache, HotBlockCache.Key key,
+      byte[] buf) {
+    return cache.read(key, 0, buf, 0, SEGMENT_SIZE, 0, SEGMENT_SIZE, 4);
+  }
+
+  private static boolean put(HotBlockCache cache, HotBlockCache.Key key,
+      byte value) {
+    byte[] data = new byte[SEGMENT_SIZE + 4];
+    Arrays.fill(data, value);
+    return cache.put(key, data, 0, SEGMENT_SIZE, data, SEGMENT_SIZE, 4);
+  }
+
+  @Test
+  public void testAdmissionAndEviction() {
+    // Admission and eviction compare segments of the same shard.
+    HotBlockCache cache = new HotBlockCache(2 * SEGMENT_SIZE, SEGMENT_SIZE, 1);
+    byte[] buf = new byte[SEGMENT_SIZE + 4];
+
+    // A segment read once is not admitted.
+    assertFalse(read(cache, key(1), buf));
+    assertFalse(put(cache, key(1), (byte) 1));
+    assertFalse(read(cache, key(1), buf));
+    assertTrue(put(cache, key(1), (byte) 1));
+    assertTrue(read(cache, key(1), buf));
+    byte[] expected = new byte[SEGMENT_SIZE + 4];
+    Arrays.fill(expected, (byte) 1);
+    assertArrayEquals(expected, buf);
+
+    for (int i = 0; i < 4; i++) {
+      read(cache, key(2), buf);
+    }
+    assertTrue(put(cache, key(2), (byte) 2));
+    assertEquals(2 * SEGMENT_SIZE, cache.getUsed());
+
+    // A scan does not evict the hot segments.
+    for (long blockId = 100; blockId < 200; blockId++) {
+      assertFalse(read(cache, key(blockId), buf));
+      assertFalse(put(cache, key(blockId), (byte) 3));
+    }
+    assertTrue(read(cache, key(1), buf));
+    assertTrue(read(cache, key(2), buf));
+
+    // A segment which becomes hotter replaces the least recently used one.
+    for (int i = 0; i < 8; i++) {
+      read(cache, key(3), buf);
+    }
+    assertTrue(put(cache, key(3), (byte) 3));
+    assertFalse(read(cache, key(1), buf));
+    assertTrue(read(cache, key(2), buf));
+    assertTrue(read(cache, key(3), buf));
+    assertEquals(2 * SEGMENT_SIZE, cache.getUsed());
+  }
+
+  /**
+   * Test that concurrent readers and writers of a sharded cache always get
+   * the contents of the segment they asked for.
+   */
+  @Test(timeout = 60000)
+  public void testConcurrentReaders() throws Exception {
+    final HotBlockCache cache =
+        new HotBlockCache(64 * SEGMENT_SIZE, SEGMENT_SIZE);
+    final int numKeys = 256;
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final AtomicLong numHits = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final long seed = t;
+        futures.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          byte[] buf = new byte[SEGMENT_SIZE + 4];
+          for (int i = 0; i < 20000; i++) {
+            // Most reads go to a few hot segments, the rest keep evicting.
+            long blockId = random.nextInt(4) == 0
+                ? random.nextInt(numKeys) : random.nextInt(16);
+            HotBlockCache.Key key = key(blockId);
+            if (read(cache, key, buf)) {
+              numHits.incrementAndGet();
+              for (byte b : buf) {
+                if (b != (byte) blockId) {
+                  error.compareAndSet(null, new AssertionError(
+                      "Unexpected contents for " + key));
+                  return;
+                }
+              }
+            } else if (cache.shouldAdmit(key)) {
+              put(cache, key, (byte) blockId);
+            }
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+    assertTrue(numHits.get() > 0);
+    assertEquals(numHits.get(), cache.getHits(BPID));
+    assertEquals(8 * 20000, cache.getHits(BPID) + cache.getMisses(BPID));
+    assertTrue(cache.getUsed() <= cache.getCapacity());
+  }
+
+  @Test(timeout = 60000)
+  public void testReadFromCache() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_BYTES_PER_CHECKSUM_KEY, 512);
+    conf.setLong(DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SIZE_KEY,
+        1024 * 1024);
+    conf.setInt(DFSConfigKeys.DFS_DATANODE_HOT_BLOCK_CACHE_SEGMENT_SIZE_KEY,
+        8192);
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).build()) {
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      Path file = new Path("/hot");
+      // Not a multiple of the chunk size, the last chunk is never cached.
+      int fileLen = 100 * 1024 + 100;
+      DFSTestUtil.createFile(fs, file, fileLen, (short) 1, 0xBEEFL);
+      byte[] expected = DFSTestUtil.readFileBuffer(fs, file);
+      assertEquals(fileLen, expected.length);
+
+      for (int i = 0; i < 3; i++) {
+        assertArrayEquals(expected, DFSTestUtil.readFileBuffer(fs, file));
+        try (FSDataInputStream in = fs.open(file)) {
+          byte[] buf = new byte[3000];
+          for (int pos : new int[] {0, 5000, 8000, 50001, fileLen - 3000}) {
+            in.readFully(pos, buf);
+            assertArrayEquals(Arrays.copyOfRange(expected, pos, pos + 3000),
+                buf);
+          }
+        }
+      }
+
+      HotBlockCache cache = cluster.getDataNodes().get(0).getHotBlockCache();
+      String bpid = cluster.getNamesystem().getBlockPoolId();
+      assertTrue(cache.getUsed() > 0);
+      assertTrue(cache.getHits(bpid) > 0);
+      assertTrue(cache.getMisses(bpid) > 0);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.server.datanode.VolumeIoScheduler.IoClass;
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@link VolumeIoScheduler} of the DataNode.
+ */
+public class TestVolumeIoScheduler {
+
+  @After
+  public void resetIoClass() {
+    VolumeIoScheduler.setIoClass(null);
+  }
+
+  private static FsVolumeSpi volume(String storageId) {
+    FsVolumeSpi volume = mock(FsVolumeSpi.class);
+    when(volume.getStorageID()).thenReturn(storageId);
+    return volume;
+  }
+
+  private static long scheduledIo(VolumeIoScheduler scheduler,
+      FsVolumeSpi volume, IoClass ioClass, long len) throws Exception {
+    IoClass previous = VolumeIoScheduler.setIoClass(ioClass);
+    try {
+      long start = System.nanoTime();
+      long begin = scheduler.beforeFileIo(volume, len);
+      scheduler.afterFileIo(volume, begin, len);
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    } finally {
+      VolumeIoScheduler.setIoClass(previous);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testBandwidthBudget() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(
+        DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_SCANNER_BANDWIDTH_KEY,
+        1024 * 1024);
+    VolumeIoScheduler scheduler = new VolumeIoScheduler(conf);
+    FsVolumeSpi volume = volume("DS-1");
+
+    // The first second of budget is available at once.
+    assertTrue(scheduledIo(scheduler, volume, IoClass.SCANNER, 1024 * 1024)
+        < 400);
+    assertTrue(scheduledIo(scheduler, volume, IoClass.SCANNER, 512 * 1024)
+        >= 400);
+    // Budgets are per volume, and clients are never limited.
+    assertTrue(scheduledIo(scheduler, volume("DS-2"), IoClass.SCANNER,
+        1024 * 1024) < 400);
+    assertTrue(scheduledIo(scheduler, volume, IoClass.CLIENT,
+        16 * 1024 * 1024) < 400);
+    assertEquals(2.5 * 1024 * 1024, scheduler.getBytes(IoClass.SCANNER), 0);
+    assertEquals(16 * 1024 * 1024, scheduler.getBytes(IoClass.CLIENT));
+  }
+
+  @Test(timeout = 60000)
+  public void testYieldToHigherPriority() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_KEY,
+        60000);
+    VolumeIoScheduler scheduler = new VolumeIoScheduler(conf);
+    FsVolumeSpi volume = volume("DS-1");
+
+    VolumeIoScheduler.setIoClass(IoClass.CLIENT);
+    long clientIo = scheduler.beforeFileIo(volume, 100);
+
+    // Background IO on another volume is not delayed.
+    assertTrue(scheduledIo(scheduler, volume("DS-2"), IoClass.SCANNER, 100)
+        < 1000);
+
+    CompletableFuture<Long> balancerIo = CompletableFuture.supplyAsync(() -> {
+      try {
+        return scheduledIo(scheduler, volume, IoClass.BALANCER, 100);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    GenericTestUtils.waitFor(
+        () -> scheduler.getQueueDepth(IoClass.BALANCER) == 1, 10, 10000);
+    Thread.sleep(200);
+    assertFalse(balancerIo.isDone());
+
+    scheduler.afterFileIo(volume, clientIo, 100);
+    assertTrue(balancerIo.get() >= 200);
+    assertEquals(0, scheduler.getQueueDepth(IoClass.BALANCER));
+    assertEquals(100, scheduler.getBytes(IoClass.BALANCER));
+  }
+
+  @Test(timeout = 60000)
+  public void testMaxYield() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_MAX_YIELD_MS_KEY,
+        100);
+    VolumeIoScheduler scheduler = new VolumeIoScheduler(conf);
+    FsVolumeSpi volume = volume("DS-1");
+
+    VolumeIoScheduler.setIoClass(IoClass.RECOVERY);
+    long recoveryIo = scheduler.beforeFileIo(volume, 100);
+    // The scanner is not starved by a long running IO of higher priority.
+    long waited = scheduledIo(scheduler, volume, IoClass.SCANNER, 100);
+    assertTrue(waited >= 100 && waited < 10000);
+    scheduler.afterFileIo(volume, recoveryIo, 100);
+  }
+
+  @Test(timeout = 120000)
+  public void testDataNodeIo() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(DFSConfigKeys.DFS_DATANODE_IO_SCHEDULER_ENABLED_KEY, true);
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(2).build()) {
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      Path file = new Path("/file");
+      DFSTestUtil.createFile(fs, file, 1024 * 1024, (short) 1, 0L);
+      DFSTestUtil.readFile(fs, file);
+      fs.setReplication(file, (short) 2);
+      DFSTestUtil.waitReplication(fs, file, (short) 2);
+
+      long clientBytes = 0;
+      long recoveryBytes = 0;
+      for (DataNode dn : cluster.getDataNodes()) {
+        VolumeIoScheduler scheduler = dn.getFileIoProvider().getIoScheduler();
+        assertNotNull(scheduler);
+        clientBytes += scheduler.getBytes(IoClass.CLIENT);
+        recoveryBytes += scheduler.getBytes(IoClass.RECOVERY);
+      }
+      // Written and read by the client, then replicated.
+      assertTrue(clientBytes >= 2 * 1024 * 1024);
+      assertTrue(recoveryBytes >= 2 * 1024 * 1024);
+    }
+  }
+}
@@ -266,6 +266,12 @@ public class ExternalDatasetImpl implements FsDatasetSpi<ExternalVolumeImpl> {
     return 0;
   }
 
+  @Override
+  public BlockChecksumSummary getBlockChecksumSummary(ExtendedBlock block)
+      throws IOException {
+    return null;
+  }
+
   @Override
   public ReplicaRecoveryInfo initReplicaRecovery(RecoveringBlock rBlock)
       throws IOException {
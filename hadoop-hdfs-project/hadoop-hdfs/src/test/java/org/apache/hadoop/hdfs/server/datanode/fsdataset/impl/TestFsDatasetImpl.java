@@ -57,6 +57,7 @@ import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
 import org.apache.hadoop.hdfs.server.blockmanagement.BlockManagerTestUtil;
+import org.apache.hadoop.hdfs.server.common.HdfsServerConstants.ReplicaState;
 import org.apache.hadoop.hdfs.server.common.Storage;
 import org.apache.hadoop.hdfs.server.common.Storage.StorageDirectory;
 import org.apache.hadoop.hdfs.server.datanode.BlockScanner;
@@ -1664,6 +1665,117 @@ public class TestFsDatasetImpl {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testReplicaCacheCheckpoint() throws Exception {
+    HdfsConfiguration config = new HdfsConfiguration();
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(config)
+        .numDataNodes(1).storagesPerDatanode(1).build();
+    try {
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      String bpid = cluster.getNamesystem().getBlockPoolId();
+      DFSTestUtil.createFile(fs, new Path("/file1"), 1024, (short) 1, 0);
+
+      FsDatasetImpl ds = (FsDatasetImpl) DataNodeTestUtils.getFSDataset(
+          cluster.getDataNodes().get(0));
+      File bpCurrentDir = new File(ds.getVolumeList().get(0)
+          .getBlockPoolSlice(bpid).getDirectory(),
+          DataStorage.STORAGE_DIR_CURRENT);
+      File checkpointFile = new File(bpCurrentDir,
+          BlockPoolSlice.REPLICA_CHECKPOINT_FILE);
+      ds.checkpointReplicaCaches();
+      assertTrue(checkpointFile.exists());
+      // Keep the checkpoint around, a clean shutdown removes it.
+      File savedCheckpoint = new File(BASE_DIR, "saved.checkpoint");
+      FileUtils.copyFile(checkpointFile, savedCheckpoint);
+
+      // This block is missing from the checkpoint.
+      Path file2 = new Path("/file2");
+      DFSTestUtil.createFile(fs, file2, 1024, (short) 1, 0);
+      final long blockId = DFSTestUtil.getFirstBlock(fs, file2).getBlockId();
+
+      // Simulate a crash: no replica cache, only the last checkpoint.
+      MiniDFSCluster.DataNodeProperties dnProps = cluster.stopDataNode(0);
+      assertFalse(checkpointFile.exists());
+      FileUtils.deleteQuietly(new File(bpCurrentDir, "replicas"));
+      FileUtils.moveFile(savedCheckpoint, checkpointFile);
+      cluster.restartDataNode(dnProps, true);
+      cluster.waitActive();
+
+      final FsDatasetImpl restarted = (FsDatasetImpl) DataNodeTestUtils
+          .getFSDataset(cluster.getDataNodes().get(0));
+      assertTrue(restarted.getVolumeList().get(0).getBlockPoolSlice(bpid)
+          .isReplicasLoadedFromCheckpoint());
+      assertFalse(checkpointFile.exists());
+      // The directory scan scheduled on startup finds the missing replica.
+      GenericTestUtils.waitFor(
+          () -> restarted.fetchReplicaInfo(bpid, blockId) != null,
+          100, 30000);
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testReplicaCacheCheckpointCheckedOnDisk() throws Exception {
+    HdfsConfiguration config = new HdfsConfiguration();
+    // No directory scan, which would repair the replicas after the restart.
+    config.setInt(DFSConfigKeys.DFS_DATANODE_DIRECTORYSCAN_INTERVAL_KEY, -1);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(config)
+        .numDataNodes(1).storagesPerDatanode(1).build();
+    try {
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      String bpid = cluster.getNamesystem().getBlockPoolId();
+      Path deleted = new Path("/deleted");
+      Path appended = new Path("/appended");
+      DFSTestUtil.createFile(fs, deleted, 1024, (short) 1, 0);
+      DFSTestUtil.createFile(fs, appended, 1024, (short) 1, 0);
+      final ExtendedBlock deletedBlock = DFSTestUtil.getFirstBlock(fs, deleted);
+
+      FsDatasetImpl ds = (FsDatasetImpl) DataNodeTestUtils.getFSDataset(
+          cluster.getDataNodes().get(0));
+      File bpCurrentDir = new File(ds.getVolumeList().get(0)
+          .getBlockPoolSlice(bpid).getDirectory(),
+          DataStorage.STORAGE_DIR_CURRENT);
+      File checkpointFile = new File(bpCurrentDir,
+          BlockPoolSlice.REPLICA_CHECKPOINT_FILE);
+      ds.checkpointReplicaCaches();
+      File savedCheckpoint = new File(BASE_DIR, "saved.checkpoint");
+      FileUtils.copyFile(checkpointFile, savedCheckpoint);
+
+      // Change both replicas after the checkpoint.
+      final File deletedBlockFile = cluster.getBlockFile(0, deletedBlock);
+      fs.delete(deleted, false);
+      GenericTestUtils.waitFor(() -> !deletedBlockFile.exists(), 100, 30000);
+      try (FSDataOutputStream out = fs.append(appended)) {
+        out.write(new byte[512]);
+      }
+      final ExtendedBlock appendedBlock =
+          DFSTestUtil.getFirstBlock(fs, appended);
+
+      MiniDFSCluster.DataNodeProperties dnProps = cluster.stopDataNode(0);
+      FileUtils.deleteQuietly(new File(bpCurrentDir, "replicas"));
+      FileUtils.moveFile(savedCheckpoint, checkpointFile);
+      cluster.restartDataNode(dnProps, true);
+      cluster.waitActive();
+
+      final FsDatasetImpl restarted = (FsDatasetImpl) DataNodeTestUtils
+          .getFSDataset(cluster.getDataNodes().get(0));
+      assertTrue(restarted.getVolumeList().get(0).getBlockPoolSlice(bpid)
+          .isReplicasLoadedFromCheckpoint());
+      assertNull(restarted.fetchReplicaInfo(bpid, deletedBlock.getBlockId()));
+      ReplicaInfo replica =
+          restarted.fetchReplicaInfo(bpid, appendedBlock.getBlockId());
+      assertEquals(ReplicaState.FINALIZED, replica.getState());
+      assertEquals(appendedBlock.getGenerationStamp(),
+          replica.getGenerationStamp());
+      assertEquals(1536, replica.getNumBytes());
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testGetMetadataLengthOfFinalizedReplica() throws IOException {
     FsVolumeImpl fsv1 = Mockito.mock(FsVolumeImpl.class);
@@ -33,6 +33,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.QuotaUsage;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.DFSOutputStream;
@@ -43,6 +44,7 @@ import org.apache.hadoop.hdfs.TestFileCreation;
 import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
 import org.apache.hadoop.hdfs.protocol.DSQuotaExceededException;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
+import org.apache.hadoop.hdfs.protocol.HdfsConstants.SafeModeAction;
 import org.apache.hadoop.hdfs.protocol.QuotaByStorageTypeExceededException;
 import org.apache.hadoop.hdfs.server.datanode.InternalDataNodeTestUtils;
 import org.apache.hadoop.hdfs.server.namenode.snapshot.Snapshot;
@@ -544,4 +546,95 @@ public class TestDiskspaceQuotaUpdate {
   public void testIncreaseReplicationBeforeCommitting() throws Exception {
     testQuotaIssuesBeforeCommitting((short)1, (short)4);
   }
+
+  /**
+   * Test that usage is tracked for directories without a quota when
+   * dfs.namenode.quota.track-all-directories is enabled.
+   */
+  @Test (timeout=120000)
+  public void testTrackAllDirectoriesUsage() throws Exception {
+    final Configuration trackConf = new Configuration();
+    trackConf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCKSIZE);
+    final Path dir = new Path("/testTrackAllDirectoriesUsage");
+    final Path sub = new Path(dir, "sub");
+    final Path file = new Path(sub, "file");
+    final long fileLen = BLOCKSIZE * 2 + BLOCKSIZE / 2;
+    // Use a separate base directory to leave the shared cluster intact
+    MiniDFSCluster trackCluster = new MiniDFSCluster.Builder(trackConf,
+        GenericTestUtils.getRandomizedTestDir()).numDataNodes(1).build();
+    try {
+      trackCluster.waitActive();
+      DistributedFileSystem dfs = trackCluster.getFileSystem();
+      DFSTestUtil.createFile(dfs, file, fileLen, (short) 1, seed);
+      FSDirectory fsd = trackCluster.getNamesystem().getFSDirectory();
+      assertFalse(fsd.getINode4Write(dir.toString()).asDirectory()
+          .isWithQuota());
+
+      // Directories created before the option was enabled are tracked
+      // once the quota is initialized on startup
+      trackCluster.getConfiguration(0).setBoolean(
+          DFSConfigKeys.DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_KEY, true);
+      trackCluster.restartNameNode(true);
+      dfs = trackCluster.getFileSystem();
+      fsd = trackCluster.getNamesystem().getFSDirectory();
+      assertTrue(fsd.getINode4Write(dir.toString()).asDirectory()
+          .isUsageTracked());
+      assertTrue(fsd.getINode4Write(sub.toString()).asDirectory()
+          .isUsageTracked());
+      QuotaUsage usage = dfs.getQuotaUsage(dir);
+      assertEquals(3, usage.getFileAndDirectoryCount());
+      assertEquals(fileLen, usage.getSpaceConsumed());
+      // Tracking does not set a quota
+      assertEquals(HdfsConstants.QUOTA_RESET, usage.getQuota());
+      assertEquals(HdfsConstants.QUOTA_RESET, usage.getSpaceQuota());
+      assertEquals(HdfsConstants.QUOTA_RESET,
+          dfs.getContentSummary(dir).getQuota());
+
+      // New directories are tracked as soon as they are created
+      final Path newDir = new Path(dir, "newDir");
+      dfs.mkdirs(newDir);
+      assertTrue(fsd.getINode4Write(newDir.toString()).asDirectory()
+          .isUsageTracked());
+      DFSTestUtil.createFile(dfs, new Path(newDir, "file"), BLOCKSIZE,
+          (short) 1, seed);
+      usage = dfs.getQuotaUsage(dir);
+      assertEquals(5, usage.getFileAndDirectoryCount());
+      assertEquals(fileLen + BLOCKSIZE, usage.getSpaceConsumed());
+      assertEquals(2, dfs.getQuotaUsage(newDir).getFileAndDirectoryCount());
+      ContentSummary summary = dfs.getContentSummary(dir);
+      assertEquals(summary.getFileAndDirectoryCount(),
+          usage.getFileAndDirectoryCount());
+      assertEquals(summary.getSpaceConsumed(), usage.getSpaceConsumed());
+
+      // Clearing a quota keeps the usage tracked
+      dfs.setQuota(sub, 10, HdfsConstants.QUOTA_DONT_SET);
+      assertEquals(10, dfs.getQuotaUsage(sub).getQuota());
+      dfs.setQuota(sub, HdfsConstants.QUOTA_RESET, HdfsConstants.QUOTA_RESET);
+      assertTrue(fsd.getINode4Write(sub.toString()).asDirectory()
+          .isUsageTracked());
+      assertEquals(HdfsConstants.QUOTA_RESET,
+          dfs.getQuotaUsage(sub).getQuota());
+
+      dfs.delete(file, false);
+      usage = dfs.getQuotaUsage(dir);
+      assertEquals(4, usage.getFileAndDirectoryCount());
+      assertEquals(BLOCKSIZE, usage.getSpaceConsumed());
+      assertEquals(1, dfs.getQuotaUsage(sub).getFileAndDirectoryCount());
+
+      // Nothing about the tracking is saved in the fsimage
+      dfs.setSafeMode(SafeModeAction.SAFEMODE_ENTER);
+      dfs.saveNamespace();
+      dfs.setSafeMode(SafeModeAction.SAFEMODE_LEAVE);
+      trackCluster.getConfiguration(0).setBoolean(
+          DFSConfigKeys.DFS_NAMENODE_QUOTA_TRACK_ALL_DIRECTORIES_KEY, false);
+      trackCluster.restartNameNode(true);
+      fsd = trackCluster.getNamesystem().getFSDirectory();
+      assertFalse(fsd.getINode4Write(dir.toString()).asDirectory()
+          .isWithQuota());
+      assertFalse(fsd.getINode4Write(sub.toString()).asDirectory()
+          .isWithQuota());
+    } finally {
+      trackCluster.shutdown();
+    }
+  }
 }
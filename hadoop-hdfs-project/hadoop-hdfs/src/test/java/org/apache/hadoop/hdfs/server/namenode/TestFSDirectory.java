@@ -41,6 +41,7 @@ import org.apache.hadoop.hdfs.DFSTestUtil;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.LightWeightGSet;
 import org.apache.hadoop.util.Lists;
 import org.junit.After;
 import org.junit.Before;
@@ -177,6 +178,29 @@ public class TestFSDirectory {
       hdfs.setQuota(sub2, Long.MAX_VALUE, Long.MAX_VALUE);
     }
   }
+
+  @Test
+  public void testINodeMapHeapPercent() throws Exception {
+    Configuration newConf = new Configuration(conf);
+    newConf.setDouble(DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY,
+        0.25);
+    FSDirectory smallDir = new FSDirectory(fsn, newConf);
+    INodeMap smallMap = smallDir.getINodeMap();
+    assertEquals(LightWeightGSet.computeCapacity(0.25, "INodeMap"),
+        smallMap.getCapacity());
+    assertTrue(smallMap.getCapacity() < fsdir.getINodeMap().getCapacity());
+    assertEquals(smallDir.getRoot(), smallMap.get(INodeId.ROOT_INODE_ID));
+
+    newConf.setDouble(DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY,
+        101);
+    try {
+      new FSDirectory(fsn, newConf);
+      fail("FSDirectory should reject an INodeMap percentage above 100");
+    } catch (IllegalArgumentException e) {
+      GenericTestUtils.assertExceptionContains(
+          DFSConfigKeys.DFS_NAMENODE_INODEMAP_HEAP_PERCENT_KEY, e);
+    }
+  }
   
   static void checkClassName(String line) {
     int i = line.lastIndexOf('(');
@@ -403,6 +403,60 @@ public class TestFSNamesystemLock {
     assertCounter("FSNWriteLockOverallNanosNumOps", 1L, rb);
   }
 
+  @Test
+  public void testSubtreeHoldMetrics() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_DEPTH_KEY, 2);
+    conf.setInt(
+        DFSConfigKeys.DFS_NAMENODE_LOCK_SUBTREE_METRICS_MAX_SUBTREES_KEY, 2);
+    FakeTimer timer = new FakeTimer();
+    MetricsRegistry registry = new MetricsRegistry("Test");
+    MutableRatesWithAggregation rates =
+        registry.newRatesWithAggregation("Test");
+    FSNamesystemLock fsLock = new FSNamesystemLock(conf, rates, timer);
+
+    fsLock.writeLock();
+    timer.advance(1);
+    fsLock.writeUnlock("mkdirs", "/user/etl/a/b", null);
+    fsLock.writeLock();
+    timer.advance(3);
+    fsLock.writeUnlock("create", "/user/etl/c", null);
+    fsLock.writeLock();
+    timer.advance(2);
+    fsLock.writeUnlock("delete", "/tmp", null);
+    // Only two subtrees are tracked, further ones are aggregated.
+    fsLock.writeLock();
+    timer.advance(4);
+    fsLock.writeUnlock("rename", "/data/x", null);
+    // Operations without a path are not attributed to any subtree.
+    fsLock.writeLock();
+    timer.advance(1);
+    fsLock.writeUnlock("baz", false);
+
+    MetricsRecordBuilder rb = MetricsAsserts.mockMetricsRecordBuilder();
+    rates.snapshot(rb, true);
+
+    assertGauge("FSNWriteLockSubtree_user_etlNanosAvgTime", 2000000.0, rb);
+    assertCounter("FSNWriteLockSubtree_user_etlNanosNumOps", 2L, rb);
+    assertCounter("FSNWriteLockWaitSubtree_user_etlNanosNumOps", 2L, rb);
+    assertGauge("FSNWriteLockSubtree_tmpNanosAvgTime", 2000000.0, rb);
+    assertCounter("FSNWriteLockSubtree_tmpNanosNumOps", 1L, rb);
+    assertGauge("FSNWriteLockSubtreeOtherNanosAvgTime", 4000000.0, rb);
+    assertCounter("FSNWriteLockSubtreeOtherNanosNumOps", 1L, rb);
+  }
+
+  @Test
+  public void testGetSubtreeName() {
+    assertEquals("_", FSNamesystemLock.getSubtreeName("/", 2));
+    assertEquals("_user", FSNamesystemLock.getSubtreeName("/user", 2));
+    assertEquals("_user_etl",
+        FSNamesystemLock.getSubtreeName("/user/etl/part-0", 2));
+    assertEquals("_user_etl",
+        FSNamesystemLock.getSubtreeName("//user//etl/", 2));
+    assertEquals("_user_my_dir",
+        FSNamesystemLock.getSubtreeName("/user/my-dir/file", 2));
+  }
+
   /**
    * Test to suppress FSNameSystem write lock report when it is held for long
    * time.
@@ -34,8 +34,11 @@ import org.apache.hadoop.hdfs.protocol.LocatedBlock;
 import org.apache.hadoop.ipc.ObserverRetryOnActiveException;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.tools.GetUserMappingsProtocol;
+import org.apache.hadoop.util.FakeTimer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -46,7 +49,10 @@ import static org.apache.hadoop.ha.HAServiceProtocol.HAServiceState;
 
 import static org.apache.hadoop.hdfs.server.namenode.ha.ObserverReadProxyProvider.*;
 import static org.junit.Assert.assertArrayEquals;
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -112,7 +118,7 @@ public class TestObserverReadProxyProvider {
               InetSocketAddress nnAddr, Class<ClientProtocol> xface,
               UserGroupInformation ugi, boolean withRetries,
               AtomicBoolean fallbackToSimpleAuth) {
-            return proxyMap.get(nnAddr.toString());
+            return proxyMap.get(NetUtils.getHostPortString(nnAddr));
           }
         })  {
       @Override
@@ -325,6 +331,67 @@ public class TestObserverReadProxyProvider {
     assertHandledBy(1);
   }
 
+  @Test
+  public void testLatencyBasedRouting() throws Exception {
+    conf.setBoolean(OBSERVER_LATENCY_ROUTING_ENABLED_KEY, true);
+    setupProxyProvider(3);
+    namenodeAnswers[0].setActiveState();
+    namenodeAnswers[1].setObserverState();
+    namenodeAnswers[2].setObserverState();
+    namenodeAnswers[1].setReadDelayMs(100);
+
+    // Observers without latency samples are tried first
+    doRead();
+    assertHandledBy(1);
+    doRead();
+    assertHandledBy(2);
+
+    // Then reads stick to the faster observer
+    doRead();
+    assertHandledBy(2);
+    doRead();
+    assertHandledBy(2);
+
+    MetricsRecordBuilder rb = getMetrics("HdfsObserverReads");
+    assertTrue(getLongCounter(
+        "ReadLatencyMicros_namenode1.test:8020NumOps", rb) > 0);
+    assertTrue(getLongCounter(
+        "ReadLatencyMicros_namenode2.test:8020NumOps", rb) > 0);
+  }
+
+  @Test
+  public void testLatencyBasedRoutingMaxLatency() throws Exception {
+    conf.setBoolean(OBSERVER_LATENCY_ROUTING_ENABLED_KEY, true);
+    conf.setTimeDuration(OBSERVER_LATENCY_ROUTING_MAX_LATENCY_KEY,
+        50, TimeUnit.MILLISECONDS);
+    conf.setTimeDuration(OBSERVER_LATENCY_ROUTING_EXPIRY_KEY,
+        500, TimeUnit.MILLISECONDS);
+    setupProxyProvider(2);
+    FakeTimer timer = new FakeTimer();
+    proxyProvider.setTimer(timer);
+    namenodeAnswers[0].setActiveState();
+    namenodeAnswers[1].setObserverState();
+    namenodeAnswers[1].setReadDelayMs(100);
+
+    doRead();
+    assertHandledBy(1);
+
+    // The only observer is too slow, so reads go to the active
+    doRead();
+    assertHandledBy(0);
+
+    // The observer is probed again once its latency samples expired
+    namenodeAnswers[1].setReadDelayMs(0);
+    timer.advance(400);
+    doRead();
+    assertHandledBy(0);
+    timer.advance(200);
+    doRead();
+    assertHandledBy(1);
+    doRead();
+    assertHandledBy(1);
+  }
+
   private void doRead() throws Exception {
     doRead(proxyProvider.getProxy().proxy);
   }
@@ -333,9 +400,12 @@ public class TestObserverReadProxyProvider {
     doWrite(proxyProvider.getProxy().proxy);
   }
 
+  @SuppressWarnings("unchecked")
   private void assertHandledBy(int namenodeIdx) {
+    NNProxyInfo<ClientProtocol> lastProxy =
+        (NNProxyInfo<ClientProtocol>) proxyProvider.getLastProxy();
     assertEquals(namenodeAddrs[namenodeIdx],
-        proxyProvider.getLastProxy().proxyInfo);
+        NetUtils.getHostPortString(lastProxy.getAddress()));
   }
 
   private static void doWrite(ClientProtocol client) throws Exception {
@@ -357,6 +427,7 @@ public class TestObserverReadProxyProvider {
 
     private volatile boolean unreachable = false;
     private volatile boolean retryActive = false;
+    private volatile long readDelayMs = 0;
 
     // Standby state by default
     private volatile boolean allowWrites = false;
@@ -404,6 +475,9 @@ public class TestObserverReadProxyProvider {
             throw new RemoteException(
                 StandbyException.class.getCanonicalName(), "No reads!");
           }
+          if (readDelayMs > 0) {
+            Thread.sleep(readDelayMs);
+          }
           return null;
         default:
           throw new IllegalArgumentException(
@@ -434,6 +508,10 @@ public class TestObserverReadProxyProvider {
     void setRetryActive(boolean shouldRetryActive) {
       retryActive = shouldRetryActive;
     }
+
+    void setReadDelayMs(long delayMs) {
+      readDelayMs = delayMs;
+    }
   }
 
 }
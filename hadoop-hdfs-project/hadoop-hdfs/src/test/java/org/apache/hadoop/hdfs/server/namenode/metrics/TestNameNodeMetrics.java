@@ -35,6 +35,7 @@ import static org.apache.hadoop.metrics2.source.JvmMetricsInfo.GcTimePercentage;
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
 import static org.apache.hadoop.test.MetricsAsserts.assertCounterGt;
 import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
+import static org.apache.hadoop.test.MetricsAsserts.assertGaugeGt;
 import static org.apache.hadoop.test.MetricsAsserts.assertQuantileGauges;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertEquals;
@@ -84,6 +85,7 @@ import org.apache.hadoop.hdfs.server.namenode.FSNamesystem;
 import org.apache.hadoop.hdfs.server.namenode.MockNameNodeResourceChecker;
 import org.apache.hadoop.hdfs.server.namenode.NameNode;
 import org.apache.hadoop.hdfs.server.namenode.NameNodeAdapter;
+import org.apache.hadoop.hdfs.server.namenode.ha.EditLogTailer;
 import org.apache.hadoop.hdfs.server.namenode.ha.HATestUtil;
 import org.apache.hadoop.hdfs.tools.NNHAServiceTarget;
 import org.apache.hadoop.hdfs.util.HostsFileWriter;
@@ -1097,6 +1099,7 @@ public class TestNameNodeMetrics {
     HdfsConfiguration conf = new HdfsConfiguration();
     conf.setInt(DFSConfigKeys.DFS_HA_TAILEDITS_PERIOD_KEY, 1);
     conf.setInt(DFSConfigKeys.DFS_METRICS_PERCENTILES_INTERVALS_KEY, 60);
+    conf.setLong(EditLogTailer.DFS_HA_TAILEDITS_MAX_TXNS_PER_LOCK_KEY, 5);
     MiniDFSCluster dfsCluster = null;
     try {
       dfsCluster = new MiniDFSCluster.Builder(conf)
@@ -1109,9 +1112,13 @@ public class TestNameNodeMetrics {
 
       Path testDir = new Path("/testdir");
       dfs.mkdir(testDir, FsPermission.getDefault());
+      // More transactions than the standby applies per tailing.
+      for (int i = 0; i < 20; i++) {
+        dfs.mkdir(new Path(testDir, "dir" + i), FsPermission.getDefault());
+      }
 
-      dfsCluster.getNameNodeRpc(0).rollEditLog();
-      Thread.sleep(2 * 1000);
+      HATestUtil.waitForStandbyToCatchUp(dfsCluster.getNameNode(0),
+          dfsCluster.getNameNode(1));
 
       // We need to get the metrics for the SBN (excluding the NN from dfs
       // cluster created in setUp() and the ANN).
@@ -1124,6 +1131,13 @@ public class TestNameNodeMetrics {
       assertCounterGt("EditLogFetchTimeNumOps", 0L, rb);
       assertCounterGt("NumEditLogLoadedNumOps", 0L, rb);
       assertCounterGt("EditLogTailIntervalNumOps", 0L, rb);
+      assertQuantileGauges("EditLogReplayRate60s", rb, "Rate");
+      assertQuantileGauges("EditLogTailUnappliedTxns60s", rb, "Count");
+      // The standby applied the edits in several tailings of 5 edits.
+      assertCounterGt("EditLogReplayRateNumOps", 3L, rb);
+      assertGaugeGt("EditLogReplayRateAvgRate", 0.0, rb);
+      assertCounterGt("EditLogTailUnappliedTxnsNumOps", 0L, rb);
+      assertGaugeGt("EditLogTailUnappliedTxnsAvgCount", 0.0, rb);
     } finally {
       if (dfsCluster != null) {
         dfsCluster.shutdown();
@@ -19,7 +19,11 @@ package org.apache.hadoop.hdfs.server.namenode.startupprogress;
 
 import static org.apache.hadoop.hdfs.server.namenode.startupprogress.StartupProgressTestHelper.*;
 import static org.apache.hadoop.test.MetricsAsserts.*;
+import static org.apache.hadoop.metrics2.lib.Interns.info;
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.junit.Before;
@@ -109,4 +113,40 @@ public class TestStartupProgressMetrics {
     assertCounter("SafeModeTotal", 400L, builder);
     assertGauge("SafeModePercentComplete", 1.0f, builder);
   }
+
+  @Test
+  public void testStepElapsedTimes() {
+    startupProgress.beginPhase(Phase.LOADING_FSIMAGE);
+    setStepTimes(Phase.LOADING_FSIMAGE, new Step(StepType.INODES), 100L, 350L);
+    setStepTimes(Phase.LOADING_FSIMAGE, new Step(StepType.INODE_REFERENCES),
+        350L, 375L);
+    setStepTimes(Phase.LOADING_FSIMAGE, new Step(StepType.SNAPSHOTS),
+        375L, 400L);
+    startupProgress.endPhase(Phase.LOADING_FSIMAGE);
+    startupProgress.beginPhase(Phase.SAVING_CHECKPOINT);
+    // Steps of the same type for two storage directories, the longest counts.
+    setStepTimes(Phase.SAVING_CHECKPOINT, new Step(StepType.INODES, "dir1"),
+        1000L, 1040L);
+    setStepTimes(Phase.SAVING_CHECKPOINT, new Step(StepType.INODES, "dir2"),
+        1000L, 1070L);
+    startupProgress.endPhase(Phase.SAVING_CHECKPOINT);
+
+    MetricsRecordBuilder builder = getMetrics(metrics, true);
+    assertCounter("LoadingFsImageInodesElapsedTime", 250L, builder);
+    assertCounter("LoadingFsImageInodeReferencesElapsedTime", 25L, builder);
+    assertCounter("LoadingFsImageSnapshotsElapsedTime", 25L, builder);
+    assertCounter("SavingCheckpointInodesElapsedTime", 70L, builder);
+    // Step types that did not run are not published.
+    verify(builder, never()).addCounter(eqName(info(
+        "LoadingFsImageDelegationTokensElapsedTime", "")), anyLong());
+  }
+
+  private void setStepTimes(Phase phase, Step step, long beginTime,
+      long endTime) {
+    startupProgress.beginStep(phase, step);
+    startupProgress.endStep(phase, step);
+    StepTracking tracking = startupProgress.phases.get(phase).steps.get(step);
+    tracking.beginTime = beginTime;
+    tracking.endTime = endTime;
+  }
 }
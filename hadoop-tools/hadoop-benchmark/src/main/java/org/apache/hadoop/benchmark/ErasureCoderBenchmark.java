@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.erasurecode.CodecRegistry;
+import org.apache.hadoop.io.erasurecode.ErasureCodeConstants;
+import org.apache.hadoop.io.erasurecode.ErasureCodeNative;
+import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
+import org.apache.hadoop.io.erasurecode.rawcoder.NativeRSRawErasureCoderFactory;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureCoderFactory;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureDecoder;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureEncoder;
+
+/**
+ * Compares the Reed-Solomon raw coders encoding and decoding one cell of
+ * every unit of a RS(6, 3) block group, as done by the striped output stream
+ * and the DataNode reconstruction. The native coder needs libhadoop built with
+ * ISA-L.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ErasureCoderBenchmark {
+
+  static final int NUM_DATA_UNITS = 6;
+  static final int NUM_PARITY_UNITS = 3;
+
+  @State(Scope.Thread)
+  public static class Coder {
+
+    @Param({"rs_java", "rs_java_tiled", "rs_native"})
+    private String coder;
+
+    @Param({"heap", "direct"})
+    private String buffer;
+
+    @Param({"65536", "1048576"})
+    private int cellSize;
+
+    private RawErasureEncoder encoder;
+    private RawErasureDecoder decoder;
+    private ByteBuffer[] data;
+    private ByteBuffer[] parity;
+    private ByteBuffer[] decodeInputs;
+    private ByteBuffer[] decodeOutputs;
+    private final int[] erasedIndexes = {0, 2, NUM_DATA_UNITS};
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      if (NativeRSRawErasureCoderFactory.CODER_NAME.equals(coder)
+          && !ErasureCodeNative.isNativeCodeLoaded()) {
+        throw new IllegalStateException("Native coder unavailable: "
+            + ErasureCodeNative.getLoadingFailureReason());
+      }
+      RawErasureCoderFactory factory = CodecRegistry.getInstance()
+          .getCoderByName(ErasureCodeConstants.RS_CODEC_NAME, coder);
+      ErasureCoderOptions options =
+          new ErasureCoderOptions(NUM_DATA_UNITS, NUM_PARITY_UNITS);
+      encoder = factory.createEncoder(options);
+      decoder = factory.createDecoder(options);
+
+      Random random = new Random(0);
+      data = new ByteBuffer[NUM_DATA_UNITS];
+      for (int i = 0; i < NUM_DATA_UNITS; i++) {
+        data[i] = allocate();
+        byte[] bytes = new byte[cellSize];
+        random.nextBytes(bytes);
+        data[i].put(bytes).flip();
+      }
+      parity = new ByteBuffer[NUM_PARITY_UNITS];
+      for (int i = 0; i < NUM_PARITY_UNITS; i++) {
+        parity[i] = allocate();
+      }
+      encoder.encode(data, parity);
+      rewind(data);
+      rewind(parity);
+      decodeInputs = new ByteBuffer[NUM_DATA_UNITS + NUM_PARITY_UNITS];
+      decodeOutputs = new ByteBuffer[erasedIndexes.length];
+      for (int i = 0; i < erasedIndexes.length; i++) {
+        decodeOutputs[i] = allocate();
+      }
+    }
+
+    private ByteBuffer allocate() {
+      return "direct".equals(buffer) ? ByteBuffer.allocateDirect(cellSize)
+          : ByteBuffer.allocate(cellSize);
+    }
+
+    /** Rewind the buffers moved by the previous call. */
+    private void rewind(ByteBuffer[] buffers) {
+      for (ByteBuffer b : buffers) {
+        if (b != null) {
+          b.clear();
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public ByteBuffer[] encode(Coder coder) throws IOException {
+    coder.rewind(coder.data);
+    coder.rewind(coder.parity);
+    coder.encoder.encode(coder.data, coder.parity);
+    return coder.parity;
+  }
+
+  @Benchmark
+  public ByteBuffer[] decode(Coder coder) throws IOException {
+    ByteBuffer[] inputs = coder.decodeInputs;
+    System.arraycopy(coder.data, 0, inputs, 0, NUM_DATA_UNITS);
+    System.arraycopy(coder.parity, 0, inputs, NUM_DATA_UNITS,
+        NUM_PARITY_UNITS);
+    coder.rewind(inputs);
+    for (int erased : coder.erasedIndexes) {
+      inputs[erased] = null;
+    }
+    coder.rewind(coder.decodeOutputs);
+    coder.decoder.decode(inputs, coder.erasedIndexes, coder.decodeOutputs);
+    return coder.decodeOutputs;
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ErasureCoderBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
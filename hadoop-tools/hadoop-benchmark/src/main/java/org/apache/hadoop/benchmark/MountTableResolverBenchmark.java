@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.federation.resolver.MountTableResolver;
+import org.apache.hadoop.hdfs.server.federation.resolver.PathLocation;
+import org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+
+/**
+ * Measures the resolution of paths by the Router mount table, with large
+ * synthetic mount tables, and while the mount table is refreshed from the
+ * State Store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MountTableResolverBenchmark {
+
+  static final int NUM_NAMESERVICES = 4;
+  static final int PROJECTS_PER_TENANT = 100;
+
+  @State(Scope.Benchmark)
+  public static class Resolver {
+
+    @Param({"1000", "50000"})
+    private int numEntries;
+
+    @Param({"true", "false"})
+    private boolean locationCache;
+
+    private MountTableResolver resolver;
+    private String[] paths;
+    /** Tables alternated by the refreshes, with one entry moved. */
+    private final List<List<MountTable>> tables = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new Configuration();
+      conf.setBoolean(RBFConfigKeys.FEDERATION_MOUNT_TABLE_CACHE_ENABLE,
+          locationCache);
+      conf.set(RBFConfigKeys.DFS_ROUTER_DEFAULT_NAMESERVICE, "ns0");
+      resolver = new MountTableResolver(conf);
+
+      // /tenantX/projectY -> nsZ:/tenantX/projectY
+      List<MountTable> table = new ArrayList<>(numEntries);
+      paths = new String[numEntries];
+      for (int i = 0; i < numEntries; i++) {
+        String src = "/tenant" + (i / PROJECTS_PER_TENANT) +
+            "/project" + (i % PROJECTS_PER_TENANT);
+        table.add(MountTable.newInstance(src, Collections.singletonMap(
+            "ns" + (i % NUM_NAMESERVICES), src)));
+        paths[i] = src + "/data/part-" + i;
+      }
+      tables.add(table);
+      List<MountTable> moved = new ArrayList<>(table);
+      MountTable first = moved.get(0);
+      moved.set(0, MountTable.newInstance(first.getSourcePath(),
+          Collections.singletonMap("ns" + NUM_NAMESERVICES,
+              first.getSourcePath())));
+      tables.add(moved);
+      resolver.refreshEntries(table);
+    }
+
+    private String randomPath() {
+      return paths[ThreadLocalRandom.current().nextInt(paths.length)];
+    }
+  }
+
+  /** Resolution of the paths by the Router handlers. */
+  @Benchmark
+  public PathLocation resolve(Resolver state) throws IOException {
+    return state.resolver.getDestinationForPath(state.randomPath());
+  }
+
+  /** Handlers resolving paths while the mount table is refreshed. */
+  @Benchmark
+  @Group("refresh")
+  @GroupThreads(7)
+  public PathLocation resolveDuringRefresh(Resolver state)
+      throws IOException {
+    return state.resolver.getDestinationForPath(state.randomPath());
+  }
+
+  /** Refreshes of the mount table, each moving a mount point. */
+  @Benchmark
+  @Group("refresh")
+  @GroupThreads(1)
+  public void refresh(Resolver state) {
+    state.resolver.refreshEntries(state.tables.get(
+        ThreadLocalRandom.current().nextInt(state.tables.size())));
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("MountTableResolverBenchmark");
+    opts.jvmArgs("-server", "-Xms1g", "-Xmx4g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
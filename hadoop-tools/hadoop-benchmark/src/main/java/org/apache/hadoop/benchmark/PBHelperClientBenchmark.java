@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlock;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.protocol.proto.HdfsProtos.HdfsFileStatusProto;
+import org.apache.hadoop.hdfs.protocol.proto.HdfsProtos.LocatedBlocksProto;
+import org.apache.hadoop.hdfs.protocolPB.PBHelperClient;
+
+/**
+ * Measures the protobuf conversions done by the NameNode and the client for
+ * getBlockLocations and located getListing responses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PBHelperClientBenchmark {
+
+  static final String BLOCK_POOL_ID = "BP-1-127.0.0.1-1";
+  static final int REPLICATION = 3;
+
+  @State(Scope.Thread)
+  public static class Listing {
+
+    @Param({"1", "100"})
+    private int blocksPerFile;
+
+    @Param({"100"})
+    private int filesPerListing;
+
+    @Param({"20"})
+    private int numDatanodes;
+
+    private LocatedBlocks locatedBlocks;
+    private LocatedBlocksProto locatedBlocksProto;
+    private HdfsFileStatus[] statuses;
+    private HdfsFileStatusProto[] statusProtos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      DatanodeInfo[] datanodes = new DatanodeInfo[numDatanodes];
+      for (int i = 0; i < numDatanodes; i++) {
+        datanodes[i] = new DatanodeInfo.DatanodeInfoBuilder()
+            .setIpAddr("10.0.0." + i)
+            .setHostName("datanode" + i + ".example.com")
+            .setDatanodeUuid("uuid-" + i)
+            .setXferPort(9866)
+            .setInfoPort(9864)
+            .setIpcPort(9867)
+            .setNetworkLocation("/rack" + (i % 4))
+            .setCapacity(1L << 40)
+            .setRemaining(1L << 39)
+            .build();
+      }
+      long blockId = 1L << 30;
+      statuses = new HdfsFileStatus[filesPerListing];
+      for (int f = 0; f < filesPerListing; f++) {
+        List<LocatedBlock> blocks = new ArrayList<>(blocksPerFile);
+        for (int b = 0; b < blocksPerFile; b++) {
+          DatanodeInfo[] locs = new DatanodeInfo[REPLICATION];
+          String[] storageIDs = new String[REPLICATION];
+          StorageType[] storageTypes = new StorageType[REPLICATION];
+          for (int r = 0; r < REPLICATION; r++) {
+            int dn = (f + b + r * 7) % numDatanodes;
+            locs[r] = datanodes[dn];
+            storageIDs[r] = "DS-" + dn;
+            storageTypes[r] = StorageType.DISK;
+          }
+          ExtendedBlock block = new ExtendedBlock(BLOCK_POOL_ID, blockId++,
+              128L << 20, 1001);
+          blocks.add(new LocatedBlock(block, locs, storageIDs, storageTypes,
+              b * (128L << 20), false, new DatanodeInfo[0]));
+        }
+        LocatedBlocks fileBlocks = new LocatedBlocks(
+            blocksPerFile * (128L << 20), false, blocks,
+            blocks.get(blocks.size() - 1), true, null, null);
+        statuses[f] = new HdfsFileStatus.Builder()
+            .length(fileBlocks.getFileLength())
+            .replication(REPLICATION)
+            .blocksize(128L << 20)
+            .mtime(1000L)
+            .atime(1000L)
+            .perm(new FsPermission((short) 0644))
+            .owner("hdfs")
+            .group("supergroup")
+            .path(("file" + f).getBytes(StandardCharsets.UTF_8))
+            .fileId(16386L + f)
+            .locations(fileBlocks)
+            .build();
+        if (f == 0) {
+          locatedBlocks = fileBlocks;
+        }
+      }
+      locatedBlocksProto = PBHelperClient.convert(locatedBlocks);
+      statusProtos = PBHelperClient.convert(statuses);
+    }
+  }
+
+  /** NameNode side of getBlockLocations. */
+  @Benchmark
+  public void encodeLocatedBlocks(Listing listing, Blackhole blackhole) {
+    blackhole.consume(PBHelperClient.convert(listing.locatedBlocks));
+  }
+
+  /** Client side of getBlockLocations. */
+  @Benchmark
+  public void decodeLocatedBlocks(Listing listing, Blackhole blackhole) {
+    blackhole.consume(PBHelperClient.convert(listing.locatedBlocksProto));
+  }
+
+  /** NameNode side of a located getListing. */
+  @Benchmark
+  public void encodeLocatedListing(Listing listing, Blackhole blackhole) {
+    blackhole.consume(PBHelperClient.convert(listing.statuses));
+  }
+
+  /** Client side of a located getListing. */
+  @Benchmark
+  public void decodeLocatedListing(Listing listing, Blackhole blackhole) {
+    for (HdfsFileStatusProto proto : listing.statusProtos) {
+      blackhole.consume(PBHelperClient.convert(proto));
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("PBHelperClientBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
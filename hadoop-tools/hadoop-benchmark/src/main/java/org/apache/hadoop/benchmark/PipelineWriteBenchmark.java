@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.net.unix.DomainSocket;
+
+/**
+ * Measures the throughput of a client writing to a co-located DataNode,
+ * either over TCP or over a UNIX domain socket. Run with
+ * "-prof gc" or an OS level profiler to compare the CPU used by both
+ * transports. The domain socket transport needs the native hadoop library.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineWriteBenchmark {
+
+  static final int FILE_SIZE = 64 * 1024 * 1024;
+  static final int WRITE_SIZE = 64 * 1024;
+
+  @State(Scope.Benchmark)
+  public static class Cluster {
+
+    @Param({"tcp", "domain"})
+    private String transport;
+
+    @Param({"1", "3"})
+    private short replication;
+
+    private File baseDir;
+    private MiniDFSCluster cluster;
+    private FileSystem fs;
+    private final byte[] buffer = new byte[WRITE_SIZE];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new HdfsConfiguration();
+      baseDir = new File(System.getProperty("java.io.tmpdir"),
+          "PipelineWriteBenchmark");
+      if ("domain".equals(transport)) {
+        if (DomainSocket.getLoadingFailureReason() != null) {
+          throw new IllegalStateException("UNIX domain sockets unavailable: "
+              + DomainSocket.getLoadingFailureReason());
+        }
+        DomainSocket.disableBindPathValidation();
+        conf.set(DFSConfigKeys.DFS_DOMAIN_SOCKET_PATH_KEY,
+            new File(baseDir, "dn.%d.sock").getAbsolutePath());
+        conf.setBoolean(
+            HdfsClientConfigKeys.DFS_CLIENT_DOMAIN_SOCKET_DATA_TRAFFIC, true);
+      }
+      cluster = new MiniDFSCluster.Builder(conf, baseDir)
+          .numDataNodes(3).build();
+      cluster.waitActive();
+      fs = cluster.getFileSystem();
+      ThreadLocalRandom.current().nextBytes(buffer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (cluster != null) {
+        cluster.shutdown();
+        cluster = null;
+      }
+    }
+  }
+
+  /** Write a file of FILE_SIZE bytes. */
+  @Benchmark
+  public void writeFile(Cluster cluster) throws IOException {
+    Path path = new Path("/bench-" + Thread.currentThread().getId());
+    try (FSDataOutputStream out =
+             cluster.fs.create(path, true, WRITE_SIZE, cluster.replication,
+                 128L * 1024 * 1024)) {
+      for (int written = 0; written < FILE_SIZE; written += WRITE_SIZE) {
+        out.write(cluster.buffer);
+      }
+    }
+    cluster.fs.delete(path, false);
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("PipelineWriteBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -27,11 +27,13 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
@@ -50,6 +52,9 @@ import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.impl.FileRangeImpl;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
 
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
@@ -69,22 +74,54 @@ public class VectoredReadBenchmark {
   @State(Scope.Thread)
   public static class FileSystemChoice {
 
-    @Param({"local", "raw"})
+    @Param({"local", "raw", "hdfs"})
     private String fileSystemKind;
 
     private Configuration conf;
     private FileSystem fs;
+    private MiniDFSCluster cluster;
 
     @Setup(Level.Trial)
     public void setup() {
       conf = new Configuration();
       try {
         LocalFileSystem local = FileSystem.getLocal(conf);
-        fs = "raw".equals(fileSystemKind) ? local.getRaw() : local;
+        if ("hdfs".equals(fileSystemKind)) {
+          fs = startCluster(local);
+        } else {
+          fs = "raw".equals(fileSystemKind) ? local.getRaw() : local;
+        }
       } catch (IOException e) {
         throw new IllegalArgumentException("Can't get filesystem", e);
       }
     }
+
+    /**
+     * Start a MiniDFSCluster and copy the test data to it. The small block
+     * size spreads the file over blocks on different DataNodes.
+     */
+    private FileSystem startCluster(LocalFileSystem local)
+        throws IOException {
+      Configuration hdfsConf = new HdfsConfiguration();
+      hdfsConf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, 16L * 1024 * 1024);
+      File baseDir = new File(System.getProperty("java.io.tmpdir"),
+          "VectoredReadBenchmark");
+      cluster = new MiniDFSCluster.Builder(hdfsConf, baseDir)
+          .numDataNodes(3).build();
+      cluster.waitActive();
+      FileSystem hdfs = cluster.getFileSystem();
+      hdfs.copyFromLocalFile(false, true,
+          local.makeQualified(DATA_PATH), DATA_PATH);
+      return hdfs;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (cluster != null) {
+        cluster.shutdown();
+        cluster = null;
+      }
+    }
   }
 
   @State(Scope.Thread)
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream.SyncFlag;
+
+/**
+ * Measures the latency and the throughput of the edits appended to a write
+ * ahead log on HDFS by concurrent handlers, each waiting for its edit to be
+ * synced, either with blocking hsyncs or with asynchronous hsyncs sharing
+ * their syncs. Run with "-bm sample" for the latency percentiles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WalSyncBenchmark {
+
+  static final int NUM_HANDLERS = 8;
+
+  @State(Scope.Benchmark)
+  public static class Wal {
+
+    @Param({"1", "3"})
+    private short replication;
+
+    @Param({"256"})
+    private int editSize;
+
+    private MiniDFSCluster cluster;
+    private HdfsDataOutputStream out;
+    private byte[] edit;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new HdfsConfiguration();
+      File baseDir = new File(System.getProperty("java.io.tmpdir"),
+          "WalSyncBenchmark");
+      cluster = new MiniDFSCluster.Builder(conf, baseDir)
+          .numDataNodes(3).build();
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      out = (HdfsDataOutputStream) fs.create(new Path("/wal"), replication);
+      edit = new byte[editSize];
+      ThreadLocalRandom.current().nextBytes(edit);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      if (cluster != null) {
+        out.close();
+        cluster.shutdown();
+        cluster = null;
+      }
+    }
+  }
+
+  /** Append an edit and wait for a blocking hsync. */
+  @Benchmark
+  @Threads(NUM_HANDLERS)
+  public void hsync(Wal wal) throws IOException {
+    synchronized (wal.out) {
+      wal.out.write(wal.edit);
+    }
+    wal.out.hsync();
+  }
+
+  /** Append an edit and wait for an asynchronous hsync. */
+  @Benchmark
+  @Threads(NUM_HANDLERS)
+  public void hsyncAsync(Wal wal)
+      throws IOException, InterruptedException, ExecutionException {
+    CompletableFuture<Void> synced;
+    synchronized (wal.out) {
+      wal.out.write(wal.edit);
+      synced = wal.out.hsyncAsync(EnumSet.noneOf(SyncFlag.class));
+    }
+    synced.get();
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("WalSyncBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
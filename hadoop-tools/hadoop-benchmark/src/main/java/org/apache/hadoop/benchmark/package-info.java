@@ -17,6 +17,7 @@
  */
 
 /**
- * Benchmark for Vectored Read IO operations.
+ * Benchmarks for Vectored Read IO operations and HDFS client protocol
+ * conversions.
  */
 package org.apache.hadoop.benchmark;